@@ -81,8 +81,8 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	/** The AdvisorChainFactory to use */
 	AdvisorChainFactory advisorChainFactory = new DefaultAdvisorChainFactory();
 
-	/** Cache with Method as key and advisor chain List as value */
-	private transient Map<MethodCacheKey, List<Object>> methodCache;
+	/** Cache with Method as key and invocation plan (holding the advisor chain List) as value */
+	private transient Map<MethodCacheKey, MethodInvocationPlan> methodCache;
 
 	/**
 	 * Interfaces to be implemented by the proxy. Held in List to keep the order
@@ -484,11 +484,23 @@ public class AdvisedSupport extends ProxyConfig implements Advised {
 	 * @return List of MethodInterceptors (may also include InterceptorAndDynamicMethodMatchers)
 	 */
 	public List<Object> getInterceptorsAndDynamicInterceptionAdvice(Method method, @Nullable Class<?> targetClass) {
+		return getMethodInvocationPlan(method, targetClass).getChain();
+	}
+
+	/**
+	 * Determine the {@link MethodInvocationPlan} for the given method, i.e. the
+	 * cached interceptor chain along with its pre-resolved static interceptors.
+	 * @param method the proxied method
+	 * @param targetClass the target class
+	 * @return the invocation plan (never {@code null})
+	 * @see #getInterceptorsAndDynamicInterceptionAdvice
+	 */
+	MethodInvocationPlan getMethodInvocationPlan(Method method, @Nullable Class<?> targetClass) {
 		MethodCacheKey cacheKey = new MethodCacheKey(method);
-		List<Object> cached = this.methodCache.get(cacheKey);
+		MethodInvocationPlan cached = this.methodCache.get(cacheKey);
 		if (cached == null) {
-			cached = this.advisorChainFactory.getInterceptorsAndDynamicInterceptionAdvice(
-					this, method, targetClass);
+			cached = new MethodInvocationPlan(this.advisorChainFactory.getInterceptorsAndDynamicInterceptionAdvice(
+					this, method, targetClass));
 			this.methodCache.put(cacheKey, cached);
 		}
 		return cached;
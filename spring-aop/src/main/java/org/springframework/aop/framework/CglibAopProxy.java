@@ -38,6 +38,7 @@ import org.springframework.aop.PointcutAdvisor;
 import org.springframework.aop.RawTargetAccess;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.cglib.core.CachingGeneratorStrategy;
 import org.springframework.cglib.core.ClassGenerator;
 import org.springframework.cglib.core.CodeGenerationException;
 import org.springframework.cglib.core.SpringNamingPolicy;
@@ -187,9 +188,9 @@ class CglibAopProxy implements AopProxy, Serializable {
 				}
 			}
 			enhancer.setSuperclass(proxySuperClass);
-			enhancer.setInterfaces(AopProxyUtils.completeProxiedInterfaces(this.advised));
+			Class<?>[] proxiedInterfaces = AopProxyUtils.completeProxiedInterfaces(this.advised);
+			enhancer.setInterfaces(proxiedInterfaces);
 			enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
-			enhancer.setStrategy(new ClassLoaderAwareUndeclaredThrowableStrategy(classLoader));
 
 			Callback[] callbacks = getCallbacks(rootClass);
 			Class<?>[] types = new Class<?>[callbacks.length];
@@ -197,9 +198,13 @@ class CglibAopProxy implements AopProxy, Serializable {
 				types[x] = callbacks[x].getClass();
 			}
 			// fixedInterceptorMap only populated at this point, after getCallbacks call above
-			enhancer.setCallbackFilter(new ProxyCallbackFilter(
-					this.advised.getConfigurationOnlyCopy(), this.fixedInterceptorMap, this.fixedInterceptorOffset));
+			ProxyCallbackFilter callbackFilter = new ProxyCallbackFilter(
+					this.advised.getConfigurationOnlyCopy(), this.fixedInterceptorMap, this.fixedInterceptorOffset);
+			enhancer.setCallbackFilter(callbackFilter);
 			enhancer.setCallbackTypes(types);
+			enhancer.setStrategy(CachingGeneratorStrategy.forEnhancer(
+					new ClassLoaderAwareUndeclaredThrowableStrategy(classLoader),
+					proxySuperClass, proxiedInterfaces, callbackFilter));
 
 			// Generate the proxy class and create a proxy instance.
 			return createProxyClassAndInstance(enhancer, callbacks);
@@ -672,7 +677,8 @@ class CglibAopProxy implements AopProxy, Serializable {
 				// Get as late as possible to minimize the time we "own" the target, in case it comes from a pool...
 				target = targetSource.getTarget();
 				Class<?> targetClass = (target != null ? target.getClass() : null);
-				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+				MethodInvocationPlan plan = this.advised.getMethodInvocationPlan(method, targetClass);
+				List<Object> chain = plan.getChain();
 				Object retVal;
 				// Check whether we only have one InvokerInterceptor: that is,
 				// no real advice, but just reflective invocation of the target.
@@ -686,7 +692,8 @@ class CglibAopProxy implements AopProxy, Serializable {
 				}
 				else {
 					// We need to create a method invocation...
-					retVal = new CglibMethodInvocation(proxy, target, method, args, targetClass, chain, methodProxy).proceed();
+					retVal = new CglibMethodInvocation(proxy, target, method, args, targetClass,
+							chain, plan.getStaticInterceptors(), methodProxy).proceed();
 				}
 				retVal = processReturnType(proxy, target, method, retVal);
 				return retVal;
@@ -732,7 +739,15 @@ class CglibAopProxy implements AopProxy, Serializable {
 				Object[] arguments, @Nullable Class<?> targetClass,
 				List<Object> interceptorsAndDynamicMethodMatchers, MethodProxy methodProxy) {
 
-			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers);
+			this(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers, null, methodProxy);
+		}
+
+		public CglibMethodInvocation(Object proxy, @Nullable Object target, Method method,
+				Object[] arguments, @Nullable Class<?> targetClass,
+				List<Object> interceptorsAndDynamicMethodMatchers,
+				@Nullable org.aopalliance.intercept.MethodInterceptor[] staticInterceptors, MethodProxy methodProxy) {
+
+			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers, staticInterceptors);
 			this.methodProxy = methodProxy;
 			this.publicMethod = Modifier.isPublic(method.getModifiers());
 		}
@@ -951,7 +966,8 @@ class CglibAopProxy implements AopProxy, Serializable {
 			Advisor[] advisors = this.advised.getAdvisors();
 			for (Advisor advisor : advisors) {
 				Advice advice = advisor.getAdvice();
-				hashCode = 13 * hashCode + advice.getClass().hashCode();
+				// Class name rather than Class identity: keeps generated class names stable across JVM runs
+				hashCode = 13 * hashCode + advice.getClass().getName().hashCode();
 			}
 			hashCode = 13 * hashCode + (this.advised.isFrozen() ? 1 : 0);
 			hashCode = 13 * hashCode + (this.advised.isExposeProxy() ? 1 : 0);
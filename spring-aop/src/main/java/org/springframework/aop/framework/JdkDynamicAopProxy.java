@@ -194,7 +194,8 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			Class<?> targetClass = (target != null ? target.getClass() : null);
 
 			// Get the interception chain for this method.
-			List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+			MethodInvocationPlan plan = this.advised.getMethodInvocationPlan(method, targetClass);
+			List<Object> chain = plan.getChain();
 
 			// Check whether we have any advice. If we don't, we can fallback on direct
 			// reflective invocation of the target, and avoid creating a MethodInvocation.
@@ -207,7 +208,8 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 			}
 			else {
 				// We need to create a method invocation...
-				invocation = new ReflectiveMethodInvocation(proxy, target, method, args, targetClass, chain);
+				invocation = new ReflectiveMethodInvocation(
+						proxy, target, method, args, targetClass, chain, plan.getStaticInterceptors());
 				// Proceed to the joinpoint through the interceptor chain.
 				retVal = invocation.proceed();
 			}
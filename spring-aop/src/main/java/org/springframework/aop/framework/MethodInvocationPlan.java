@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Cached invocation plan for a single advised method: the interceptor chain,
+ * held in {@link AdvisedSupport}'s method cache, along with the same chain as
+ * a pre-resolved {@link MethodInterceptor} array in case all of its elements
+ * have been matched statically.
+ *
+ * <p>The array lets {@link ReflectiveMethodInvocation} walk the chain without
+ * checking each element for an {@link InterceptorAndDynamicMethodMatcher}.
+ * An empty chain is handled by the proxies themselves, invoking the target
+ * method without creating a method invocation in the first place.
+ *
+ * @author agent
+ * @since 5.0
+ * @see AdvisedSupport#getMethodInvocationPlan
+ */
+final class MethodInvocationPlan {
+
+	private final List<Object> chain;
+
+	@Nullable
+	private final MethodInterceptor[] staticInterceptors;
+
+
+	MethodInvocationPlan(List<Object> chain) {
+		this.chain = chain;
+		this.staticInterceptors = resolveStaticInterceptors(chain);
+	}
+
+
+	/**
+	 * Return the full interceptor chain, potentially containing
+	 * {@link InterceptorAndDynamicMethodMatcher} elements.
+	 */
+	public List<Object> getChain() {
+		return this.chain;
+	}
+
+	/**
+	 * Return the interceptors in chain order if all of them have been
+	 * matched statically, or {@code null} if the chain needs to be
+	 * evaluated dynamically.
+	 */
+	@Nullable
+	public MethodInterceptor[] getStaticInterceptors() {
+		return this.staticInterceptors;
+	}
+
+
+	@Nullable
+	private static MethodInterceptor[] resolveStaticInterceptors(List<Object> chain) {
+		MethodInterceptor[] interceptors = new MethodInterceptor[chain.size()];
+		int i = 0;
+		for (Object element : chain) {
+			if (!(element instanceof MethodInterceptor)) {
+				return null;
+			}
+			interceptors[i++] = (MethodInterceptor) element;
+		}
+		return interceptors;
+	}
+
+}
@@ -85,6 +85,13 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 	 */
 	protected final List<?> interceptorsAndDynamicMethodMatchers;
 
+	/**
+	 * Pre-resolved array of statically matched interceptors, if available:
+	 * allows for dispatching without checks for dynamic method matchers.
+	 */
+	@Nullable
+	private final MethodInterceptor[] staticInterceptors;
+
 	/**
 	 * Index from 0 of the current interceptor we're invoking.
 	 * -1 until we invoke: then the current interceptor.
@@ -109,12 +116,36 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 			Object proxy, @Nullable Object target, Method method, @Nullable Object[] arguments,
 			@Nullable Class<?> targetClass, List<Object> interceptorsAndDynamicMethodMatchers) {
 
+		this(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers, null);
+	}
+
+	/**
+	 * Construct a new ReflectiveMethodInvocation with the given arguments,
+	 * dispatching through a pre-resolved array of static interceptors if given.
+	 * @param proxy the proxy object that the invocation was made on
+	 * @param target the target object to invoke
+	 * @param method the method to invoke
+	 * @param arguments the arguments to invoke the method with
+	 * @param targetClass the target class, for MethodMatcher invocations
+	 * @param interceptorsAndDynamicMethodMatchers interceptors that should be applied,
+	 * along with any InterceptorAndDynamicMethodMatchers that need evaluation at runtime
+	 * @param staticInterceptors the same interceptors as a pre-resolved array,
+	 * or {@code null} if the chain contains dynamic method matchers
+	 * @since 5.0
+	 * @see AdvisedSupport#getMethodInvocationPlan
+	 */
+	protected ReflectiveMethodInvocation(
+			Object proxy, @Nullable Object target, Method method, @Nullable Object[] arguments,
+			@Nullable Class<?> targetClass, List<Object> interceptorsAndDynamicMethodMatchers,
+			@Nullable MethodInterceptor[] staticInterceptors) {
+
 		this.proxy = proxy;
 		this.target = target;
 		this.targetClass = targetClass;
 		this.method = BridgeMethodResolver.findBridgedMethod(method);
 		this.arguments = AopProxyUtils.adaptArgumentsIfNecessary(method, arguments);
 		this.interceptorsAndDynamicMethodMatchers = interceptorsAndDynamicMethodMatchers;
+		this.staticInterceptors = staticInterceptors;
 	}
 
 
@@ -158,6 +189,14 @@ public class ReflectiveMethodInvocation implements ProxyMethodInvocation, Clonea
 	@Override
 	@Nullable
 	public Object proceed() throws Throwable {
+		if (this.staticInterceptors != null) {
+			// Pre-resolved static chain: plain array dispatch, no dynamic matching.
+			if (this.currentInterceptorIndex == this.staticInterceptors.length - 1) {
+				return invokeJoinpoint();
+			}
+			return this.staticInterceptors[++this.currentInterceptorIndex].invoke(this);
+		}
+
 		//	We start with an index of -1 and increment early.
 		if (this.currentInterceptorIndex == this.interceptorsAndDynamicMethodMatchers.size() - 1) {
 			return invokeJoinpoint();
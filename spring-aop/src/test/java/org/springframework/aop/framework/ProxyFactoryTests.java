@@ -16,6 +16,7 @@
 
 package org.springframework.aop.framework;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import javax.accessibility.Accessible;
@@ -33,8 +34,10 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.DefaultIntroductionAdvisor;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
 import org.springframework.aop.support.DelegatingIntroductionInterceptor;
+import org.springframework.aop.support.DynamicMethodMatcherPointcut;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.core.annotation.Order;
+import org.springframework.lang.Nullable;
 import org.springframework.tests.TimeStamped;
 import org.springframework.tests.aop.advice.CountingBeforeAdvice;
 import org.springframework.tests.aop.interceptor.NopInterceptor;
@@ -379,6 +382,45 @@ public class ProxyFactoryTests {
 		assertEquals("tb", proxy.getName());
 	}
 
+	@Test
+	public void testPreResolvedStaticInterceptorChain() {
+		TestBean target = new TestBean();
+		ProxyFactory pf = new ProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		CountingBeforeAdvice cba = new CountingBeforeAdvice();
+		pf.addAdvice(nop);
+		pf.addAdvice(cba);
+		ITestBean proxied = (ITestBean) pf.getProxy();
+		proxied.setAge(5);
+		assertEquals(5, proxied.getAge());
+		assertEquals(2, nop.getCount());
+		assertEquals(2, cba.getCalls());
+
+		// Advice changes need to invalidate the invocation plans
+		pf.removeAdvice(nop);
+		proxied.setAge(6);
+		assertEquals(2, nop.getCount());
+		assertEquals(3, cba.getCalls());
+	}
+
+	@Test
+	public void testInterceptorChainWithDynamicMethodMatcher() {
+		TestBean target = new TestBean();
+		ProxyFactory pf = new ProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		pf.addAdvisor(new DefaultPointcutAdvisor(new DynamicMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, @Nullable Class<?> targetClass, Object... args) {
+				return (args.length == 1 && Integer.valueOf(5).equals(args[0]));
+			}
+		}, nop));
+		ITestBean proxied = (ITestBean) pf.getProxy();
+		proxied.setAge(4);
+		assertEquals(0, nop.getCount());
+		proxied.setAge(5);
+		assertEquals(1, nop.getCount());
+	}
+
 
 	@SuppressWarnings("serial")
 	private static class TimestampIntroductionInterceptor extends DelegatingIntroductionInterceptor
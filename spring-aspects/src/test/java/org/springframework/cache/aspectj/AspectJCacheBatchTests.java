@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.aspectj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.CacheTestUtils;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AdviceMode;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@code @Cacheable(batch=true)} methods with the AspectJ cache aspect.
+ *
+ * @author agent
+ */
+public class AspectJCacheBatchTests {
+
+	private ConfigurableApplicationContext ctx;
+
+	private BatchService service;
+
+	private Cache cache;
+
+
+	@Before
+	public void setup() {
+		this.ctx = new AnnotationConfigApplicationContext(BatchConfig.class);
+		this.service = this.ctx.getBean(BatchService.class);
+		this.cache = this.ctx.getBean(CacheManager.class).getCache("testCache");
+	}
+
+	@After
+	public void closeContext() {
+		this.ctx.close();
+	}
+
+
+	@Test
+	public void batchInvokesMethodForMissingKeysOnly() {
+		this.cache.put("b", "cached-b");
+		Map<String, String> result = this.service.find(Arrays.asList("a", "b", "c"));
+		assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(result.keySet()));
+		assertEquals("value-a", result.get("a"));
+		assertEquals("cached-b", result.get("b"));
+		assertEquals("value-c", result.get("c"));
+		assertEquals(1, this.service.invocations.size());
+		assertEquals(Arrays.asList("a", "c"), new ArrayList<>(this.service.invocations.get(0)));
+		assertEquals("value-a", this.cache.get("a").get());
+		assertEquals("value-c", this.cache.get("c").get());
+	}
+
+	@Test
+	public void batchWithAllKeysCached() {
+		this.service.find(Arrays.asList("a", "b"));
+		Map<String, String> result = this.service.find(Arrays.asList("b", "a"));
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<>(result.keySet()));
+		assertEquals(1, this.service.invocations.size());
+	}
+
+
+	@Configuration
+	@EnableCaching(mode = AdviceMode.ASPECTJ)
+	static class BatchConfig {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return CacheTestUtils.createSimpleCacheManager("testCache");
+		}
+
+		@Bean
+		public BatchService batchService() {
+			return new BatchService();
+		}
+	}
+
+
+	public static class BatchService {
+
+		final List<Collection<String>> invocations = new ArrayList<>();
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<String, String> find(Collection<String> keys) {
+			this.invocations.add(keys);
+			Map<String, String> result = new LinkedHashMap<>();
+			for (String key : keys) {
+				result.put(key, "value-" + key);
+			}
+			return result;
+		}
+	}
+
+}
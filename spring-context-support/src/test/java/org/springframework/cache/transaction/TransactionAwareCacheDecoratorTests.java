@@ -16,6 +16,8 @@
 
 package org.springframework.cache.transaction;
 
+import java.util.Collections;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -95,6 +97,23 @@ public class TransactionAwareCacheDecoratorTests {
 		assertEquals("123", target.get(key, String.class));
 	}
 
+	@Test
+	public void putAllTransactional() {
+		Cache target = new ConcurrentMapCache("testCache");
+		Cache cache = new TransactionAwareCacheDecorator(target);
+
+		TransactionStatus status = this.txManager.getTransaction(
+				new DefaultTransactionAttribute(TransactionDefinition.PROPAGATION_REQUIRED));
+
+		Object key = new Object();
+		cache.putAll(Collections.singletonMap(key, "123"));
+		assertNull(target.get(key));
+		assertTrue(cache.getAll(Collections.singletonList(key)).isEmpty());
+		this.txManager.commit(status);
+
+		assertEquals("123", target.get(key, String.class));
+	}
+
 	@Test
 	public void putIfAbsent() { // no transactional support for putIfAbsent
 		Cache target = new ConcurrentMapCache("testCache");
@@ -16,6 +16,9 @@
 
 package org.springframework.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.springframework.lang.Nullable;
@@ -98,6 +101,29 @@ public interface Cache {
 	@Nullable
 	<T> T get(Object key, Callable<T> valueLoader);
 
+	/**
+	 * Return the values to which this cache maps the specified keys.
+	 * <p>The default implementation performs a {@link #get(Object)} call per key.
+	 * Cache implementations with native bulk retrieval should override this method,
+	 * retrieving all entries in a single round trip to the underlying store.
+	 * @param keys the keys whose associated values are to be returned
+	 * @return a Map from each key that this cache contains a mapping for to a
+	 * {@link ValueWrapper} for its value (which may also hold a cached {@code null}
+	 * value); keys without a mapping are not contained in the Map
+	 * @since 5.0
+	 * @see #get(Object)
+	 */
+	default Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			ValueWrapper wrapper = get(key);
+			if (wrapper != null) {
+				result.put(key, wrapper);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Associate the specified value with the specified key in this cache.
 	 * <p>If the cache previously contained a mapping for this key, the old
@@ -107,6 +133,19 @@ public interface Cache {
 	 */
 	void put(Object key, @Nullable Object value);
 
+	/**
+	 * Associate all of the specified values with their keys in this cache.
+	 * <p>The default implementation performs a {@link #put(Object, Object)} call
+	 * per entry. Cache implementations with native bulk storage should override
+	 * this method, storing all entries in a single round trip to the underlying store.
+	 * @param entries the keys and values to associate (values may be {@code null})
+	 * @since 5.0
+	 * @see #put(Object, Object)
+	 */
+	default void putAll(Map<?, ?> entries) {
+		entries.forEach(this::put);
+	}
+
 	/**
 	 * Atomically associate the specified value with the specified key in this cache
 	 * if it is not set already.
@@ -170,6 +170,8 @@ public @interface Cacheable {
 	 * <li>{@link #unless()} is not supported</li>
 	 * <li>Only one cache may be specified</li>
 	 * <li>No other cache-related operation can be combined</li>
+	 * <li>The method must not return a reactive type such as {@code Mono}
+	 * or {@code Flux}</li>
 	 * </ol>
 	 * This is effectively a hint and the actual cache provider that you are
 	 * using may not support it in a synchronized fashion. Check your provider
@@ -179,4 +181,32 @@ public @interface Cacheable {
 	 */
 	boolean sync() default false;
 
+	/**
+	 * Cache the entries of a batch-loading method individually, with each element
+	 * of the method's {@link java.util.Collection} parameter serving as the key
+	 * for the corresponding entry in the returned {@link java.util.Map}.
+	 * <p>All keys get looked up through {@link org.springframework.cache.Cache#getAll}
+	 * first; the method is then invoked for the missing keys only (if any), its
+	 * result gets stored through {@link org.springframework.cache.Cache#putAll},
+	 * and the merged Map of cached and loaded entries gets returned in the order
+	 * of the given keys. Keys that the method does not return an entry for are
+	 * not cached. Entries are therefore interchangeable with those of a plain
+	 * {@code @Cacheable} method which takes a single key as its parameter:
+	 * the {@link #keyGenerator()} (or the default key generator) gets applied
+	 * to each element individually, as if it were the method's only argument.
+	 * This leads to a couple of limitations:
+	 * <ol>
+	 * <li>The method needs to declare a single parameter of a {@code Collection}
+	 * type and a {@code Map} return type</li>
+	 * <li>{@link #key()} is not supported</li>
+	 * <li>{@link #unless()} is evaluated per entry, with {@code #result}
+	 * referring to the value of the entry</li>
+	 * <li>No other cache-related operation can be combined</li>
+	 * </ol>
+	 * @since 5.0
+	 * @see org.springframework.cache.Cache#getAll(java.util.Collection)
+	 * @see org.springframework.cache.Cache#putAll(java.util.Map)
+	 */
+	boolean batch() default false;
+
 }
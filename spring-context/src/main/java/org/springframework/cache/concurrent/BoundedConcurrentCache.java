@@ -0,0 +1,751 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.ExpiringValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded {@link org.springframework.cache.Cache} implementation based on the
+ * core JDK {@code java.util.concurrent} package, with size-based eviction,
+ * optional time-based expiration and hit/miss/eviction statistics.
+ *
+ * <p>Entries are evicted according to a segmented LRU policy: new entries
+ * enter a probationary segment and get promoted to a protected segment (which
+ * takes up to 80% of the maximum size) once they are accessed again. Eviction
+ * candidates are taken from the least recently used end of the probationary
+ * segment first, protecting frequently accessed entries from being flushed
+ * out by a scan over rarely accessed keys.
+ *
+ * <p>The maximum size refers to the number of entries by default, or to the
+ * total weight of all entries if a {@link #setWeigher weigher} is specified.
+ * Expiration may be based on the time since an entry has been written
+ * ({@link #setTimeToLive "timeToLive"}) and/or since it has last been read
+ * ({@link #setTimeToIdle "timeToIdle"}); expired entries are never returned
+ * and get removed incrementally during regular cache maintenance. With
+ * expiration configured, {@link #get(Object)} returns an
+ * {@link ExpiringValueWrapper}, allowing for entries to be refreshed ahead
+ * of their expiration.
+ *
+ * <p>Reads do not block on the eviction policy: cache hits are recorded in
+ * lossy striped buffers which get applied to the policy in batches by whichever
+ * thread happens to acquire the policy lock. Writes apply their policy updates
+ * (including any evictions) directly.
+ *
+ * <p>Useful as a safe default for local caching, typically in combination with
+ * {@link BoundedConcurrentCacheManager}. For advanced needs such as refresh
+ * policies or frequency-based admission, consider a dedicated cache provider.
+ *
+ * @author agent
+ * @since 5.0
+ * @see BoundedConcurrentCacheManager
+ */
+public class BoundedConcurrentCache extends AbstractValueAdaptingCache {
+
+	private static final int READ_BUFFER_STRIPES = 16;
+
+	private static final int READ_BUFFER_SIZE = 64;
+
+	private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+	private static final int EXPIRATION_SCAN_LIMIT = 16;
+
+
+	private final String name;
+
+	private final ConcurrentHashMap<Object, Node> store = new ConcurrentHashMap<>(256);
+
+	private volatile long maximumSize;
+
+	@Nullable
+	private volatile ToIntBiFunction<Object, Object> weigher;
+
+	private volatile long timeToLive = -1;
+
+	private volatile long timeToIdle = -1;
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final AccessQueue probation = new AccessQueue();
+
+	private final AccessQueue protection = new AccessQueue();
+
+	private volatile long weightedSize;
+
+	private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFER_STRIPES];
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private final LongAdder expirationCount = new LongAdder();
+
+
+	/**
+	 * Create a new BoundedConcurrentCache with the specified name and maximum size.
+	 * @param name the name of the cache
+	 * @param maximumSize the maximum number of entries
+	 */
+	public BoundedConcurrentCache(String name, long maximumSize) {
+		this(name, maximumSize, true);
+	}
+
+	/**
+	 * Create a new BoundedConcurrentCache with the specified name and maximum size.
+	 * @param name the name of the cache
+	 * @param maximumSize the maximum number of entries
+	 * @param allowNullValues whether to accept and convert {@code null}
+	 * values for this cache
+	 */
+	public BoundedConcurrentCache(String name, long maximumSize, boolean allowNullValues) {
+		super(allowNullValues);
+		Assert.notNull(name, "Name must not be null");
+		Assert.isTrue(maximumSize >= 0, "Maximum size must not be negative");
+		this.name = name;
+		this.maximumSize = maximumSize;
+		for (int i = 0; i < READ_BUFFER_STRIPES; i++) {
+			this.readBuffers[i] = new ReadBuffer();
+		}
+	}
+
+
+	/**
+	 * Specify the maximum size of this cache: the maximum number of entries,
+	 * or the maximum total weight of all entries if a {@link #setWeigher weigher}
+	 * has been specified.
+	 * <p>A reduced maximum size will be enforced on the next write operation.
+	 */
+	public void setMaximumSize(long maximumSize) {
+		Assert.isTrue(maximumSize >= 0, "Maximum size must not be negative");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Return the maximum size of this cache.
+	 */
+	public long getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Specify a function for determining the weight of each entry, given its
+	 * key and its store value, for constraining the cache by total weight rather
+	 * than by number of entries. Weights must not be negative and are determined
+	 * once when an entry is written.
+	 * <p>Default is none, with each entry weighing 1.
+	 * @see #setMaximumSize
+	 */
+	public void setWeigher(@Nullable ToIntBiFunction<Object, Object> weigher) {
+		this.weigher = weigher;
+	}
+
+	/**
+	 * Return the function for determining the weight of each entry, if any.
+	 */
+	@Nullable
+	public ToIntBiFunction<Object, Object> getWeigher() {
+		return this.weigher;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) after which an entry expires once it
+	 * has been written, or -1 for no write-based expiration (the default).
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = (timeToLive >= 0 ? TimeUnit.MILLISECONDS.toNanos(timeToLive) : -1);
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which an entry expires once it
+	 * has been written, or -1 if none.
+	 */
+	public long getTimeToLive() {
+		return (this.timeToLive >= 0 ? TimeUnit.NANOSECONDS.toMillis(this.timeToLive) : -1);
+	}
+
+	/**
+	 * Specify the time (in milliseconds) after which an entry expires once it
+	 * has last been read or written, or -1 for no access-based expiration
+	 * (the default).
+	 */
+	public void setTimeToIdle(long timeToIdle) {
+		this.timeToIdle = (timeToIdle >= 0 ? TimeUnit.MILLISECONDS.toNanos(timeToIdle) : -1);
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which an entry expires once it
+	 * has last been read or written, or -1 if none.
+	 */
+	public long getTimeToIdle() {
+		return (this.timeToIdle >= 0 ? TimeUnit.NANOSECONDS.toMillis(this.timeToIdle) : -1);
+	}
+
+
+	@Override
+	public final String getName() {
+		return this.name;
+	}
+
+	/**
+	 * This implementation returns the cache itself,
+	 * being its own native store.
+	 */
+	@Override
+	public final Object getNativeCache() {
+		return this;
+	}
+
+	/**
+	 * This implementation exposes the remaining time until expiration through
+	 * an {@link ExpiringValueWrapper} if time-based expiration is configured.
+	 */
+	@Override
+	@Nullable
+	public ValueWrapper get(Object key) {
+		long now = currentTime();
+		Node node = getLiveNode(key, now);
+		if (node == null) {
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		long timeToLive = this.timeToLive;
+		long timeToIdle = this.timeToIdle;
+		if (timeToLive < 0 && timeToIdle < 0) {
+			return toValueWrapper(node.value);
+		}
+		long timeToExpiration = Long.MAX_VALUE;
+		if (timeToLive >= 0) {
+			timeToExpiration = timeToLive - (now - node.writeTime);
+		}
+		if (timeToIdle >= 0) {
+			timeToExpiration = Math.min(timeToExpiration, timeToIdle);
+		}
+		return new ExpiringNodeValueWrapper(fromStoreValue(node.value),
+				TimeUnit.NANOSECONDS.toMillis(timeToExpiration));
+	}
+
+	@Override
+	@Nullable
+	protected Object lookup(Object key) {
+		Node node = getLiveNode(key, currentTime());
+		if (node == null) {
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		return node.value;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	@Nullable
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		Node node = getLiveNode(key, currentTime());
+		if (node != null) {
+			this.hitCount.increment();
+			return (T) fromStoreValue(node.value);
+		}
+		this.missCount.increment();
+		Node[] replaced = new Node[2];
+		Node result = this.store.compute(key, (k, existing) -> {
+			long now = currentTime();
+			if (existing != null && !isExpired(existing, now)) {
+				return existing;
+			}
+			Object storeValue;
+			try {
+				storeValue = toStoreValue(valueLoader.call());
+			}
+			catch (Throwable ex) {
+				throw new ValueRetrievalException(key, valueLoader, ex);
+			}
+			replaced[0] = existing;
+			replaced[1] = createNode(k, storeValue, now);
+			return replaced[1];
+		});
+		if (replaced[1] != null) {
+			if (replaced[0] != null) {
+				this.expirationCount.increment();
+			}
+			afterWrite(replaced[1], replaced[0]);
+		}
+		return (T) fromStoreValue(result.value);
+	}
+
+	@Override
+	public void put(Object key, @Nullable Object value) {
+		Node node = createNode(key, toStoreValue(value), currentTime());
+		Node existing = this.store.put(key, node);
+		afterWrite(node, existing);
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+		long now = currentTime();
+		Node node = createNode(key, toStoreValue(value), now);
+		while (true) {
+			Node existing = this.store.putIfAbsent(key, node);
+			if (existing == null) {
+				afterWrite(node, null);
+				return null;
+			}
+			if (!isExpired(existing, now)) {
+				recordAccess(existing, now);
+				return toValueWrapper(existing.value);
+			}
+			if (this.store.replace(key, existing, node)) {
+				this.expirationCount.increment();
+				afterWrite(node, existing);
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public void evict(Object key) {
+		Node node = this.store.remove(key);
+		if (node != null) {
+			afterRemoval(node);
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.evictionLock.lock();
+		try {
+			this.store.clear();
+			drainReadBuffers();
+			this.probation.clear();
+			this.protection.clear();
+			this.weightedSize = 0;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+
+	/**
+	 * Return the number of lookups which found a live entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of lookups which did not find a live entry.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of entries evicted in order to enforce the maximum size.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * Return the number of entries removed because of their expiration.
+	 */
+	public long getExpirationCount() {
+		return this.expirationCount.sum();
+	}
+
+	/**
+	 * Return the current number of entries, possibly including
+	 * expired entries which have not been removed yet.
+	 */
+	public long getEstimatedSize() {
+		return this.store.mappingCount();
+	}
+
+	/**
+	 * Return the current total weight of all entries, as tracked by the
+	 * eviction policy (equal to the number of entries if no weigher has
+	 * been specified).
+	 */
+	public long getWeightedSize() {
+		return this.weightedSize;
+	}
+
+	/**
+	 * Perform pending maintenance work right away: apply recorded reads to the
+	 * eviction policy, remove expired entries and enforce the maximum size.
+	 */
+	public void cleanUp() {
+		this.evictionLock.lock();
+		try {
+			performMaintenance(currentTime());
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Return the current time in nanoseconds, as used for expiration checks.
+	 * <p>The default implementation delegates to {@link System#nanoTime()}.
+	 * Can be overridden for testing purposes.
+	 */
+	protected long currentTime() {
+		return System.nanoTime();
+	}
+
+
+	private Node createNode(Object key, Object storeValue, long now) {
+		ToIntBiFunction<Object, Object> weigher = this.weigher;
+		int weight = (weigher != null ? weigher.applyAsInt(key, storeValue) : 1);
+		Assert.state(weight >= 0, "Weight must not be negative");
+		return new Node(key, storeValue, weight, now);
+	}
+
+	@Nullable
+	private Node getLiveNode(Object key, long now) {
+		Node node = this.store.get(key);
+		if (node == null) {
+			return null;
+		}
+		if (isExpired(node, now)) {
+			if (this.store.remove(key, node)) {
+				this.expirationCount.increment();
+				afterRemoval(node);
+			}
+			return null;
+		}
+		recordAccess(node, now);
+		return node;
+	}
+
+	private boolean isExpired(Node node, long now) {
+		long timeToLive = this.timeToLive;
+		if (timeToLive >= 0 && now - node.writeTime >= timeToLive) {
+			return true;
+		}
+		long timeToIdle = this.timeToIdle;
+		return (timeToIdle >= 0 && now - node.accessTime >= timeToIdle);
+	}
+
+	private void recordAccess(Node node, long now) {
+		if (this.timeToIdle >= 0) {
+			node.accessTime = now;
+		}
+		ReadBuffer buffer = this.readBuffers[(int) Thread.currentThread().getId() & (READ_BUFFER_STRIPES - 1)];
+		if (buffer.offer(node) >= READ_BUFFER_DRAIN_THRESHOLD && this.evictionLock.tryLock()) {
+			try {
+				performMaintenance(now);
+			}
+			finally {
+				this.evictionLock.unlock();
+			}
+		}
+	}
+
+	private void afterWrite(Node node, @Nullable Node replaced) {
+		this.evictionLock.lock();
+		try {
+			if (replaced != null) {
+				unlink(replaced);
+			}
+			// Only link the node if it has not been replaced or removed in the meantime...
+			if (this.store.get(node.key) == node) {
+				this.probation.addLast(node);
+				this.weightedSize += node.weight;
+			}
+			performMaintenance(node.writeTime);
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	private void afterRemoval(Node node) {
+		this.evictionLock.lock();
+		try {
+			unlink(node);
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	// The following methods need to be called with the eviction lock held.
+
+	private void performMaintenance(long now) {
+		drainReadBuffers();
+		if (this.timeToLive >= 0 || this.timeToIdle >= 0) {
+			expireEntries(this.probation, now);
+			expireEntries(this.protection, now);
+		}
+		evictEntries();
+	}
+
+	private void drainReadBuffers() {
+		for (ReadBuffer buffer : this.readBuffers) {
+			Node node;
+			while ((node = buffer.poll()) != null) {
+				onAccess(node);
+			}
+		}
+	}
+
+	private void onAccess(Node node) {
+		if (node.queue == this.probation) {
+			// Promote to protected segment, possibly demoting its least recently used entries
+			this.probation.remove(node);
+			this.protection.addLast(node);
+			long maxProtected = this.maximumSize - this.maximumSize / 5;
+			while (this.protection.weight > maxProtected && this.protection.head != node) {
+				Node demoted = this.protection.head;
+				this.protection.remove(demoted);
+				this.probation.addLast(demoted);
+			}
+		}
+		else if (node.queue == this.protection) {
+			this.protection.moveToLast(node);
+		}
+	}
+
+	private void expireEntries(AccessQueue queue, long now) {
+		Node node = queue.head;
+		for (int i = 0; i < EXPIRATION_SCAN_LIMIT && node != null; i++) {
+			Node next = node.next;
+			if (isExpired(node, now)) {
+				if (this.store.remove(node.key, node)) {
+					this.expirationCount.increment();
+				}
+				unlink(node);
+			}
+			node = next;
+		}
+	}
+
+	private void evictEntries() {
+		// An entry exceeding the maximum size by itself must not flush out all others...
+		Node newest = this.probation.tail;
+		if (newest != null && newest.weight > this.maximumSize) {
+			evictNode(newest);
+		}
+		while (this.weightedSize > this.maximumSize) {
+			Node victim = (this.probation.head != null ? this.probation.head : this.protection.head);
+			if (victim == null) {
+				break;
+			}
+			evictNode(victim);
+		}
+	}
+
+	private void evictNode(Node node) {
+		if (this.store.remove(node.key, node)) {
+			this.evictionCount.increment();
+		}
+		unlink(node);
+	}
+
+	private void unlink(Node node) {
+		AccessQueue queue = node.queue;
+		if (queue != null) {
+			queue.remove(node);
+			this.weightedSize -= node.weight;
+		}
+	}
+
+
+	/**
+	 * ValueWrapper exposing the remaining time until expiration of an entry.
+	 */
+	private static class ExpiringNodeValueWrapper extends SimpleValueWrapper implements ExpiringValueWrapper {
+
+		private final long timeToExpiration;
+
+		public ExpiringNodeValueWrapper(@Nullable Object value, long timeToExpiration) {
+			super(value);
+			this.timeToExpiration = timeToExpiration;
+		}
+
+		@Override
+		public long getTimeToExpiration() {
+			return this.timeToExpiration;
+		}
+	}
+
+
+	/**
+	 * Cache entry, linked into one of the policy's access queues.
+	 */
+	private static final class Node {
+
+		final Object key;
+
+		final Object value;
+
+		final int weight;
+
+		final long writeTime;
+
+		volatile long accessTime;
+
+		// Guarded by the eviction lock...
+
+		@Nullable
+		AccessQueue queue;
+
+		@Nullable
+		Node prev;
+
+		@Nullable
+		Node next;
+
+		Node(Object key, Object value, int weight, long now) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.writeTime = now;
+			this.accessTime = now;
+		}
+	}
+
+
+	/**
+	 * Doubly-linked queue of entries in access order, tracking their total weight.
+	 */
+	private static final class AccessQueue {
+
+		@Nullable
+		Node head;
+
+		@Nullable
+		Node tail;
+
+		long weight;
+
+		void addLast(Node node) {
+			node.queue = this;
+			node.prev = this.tail;
+			node.next = null;
+			if (this.tail == null) {
+				this.head = node;
+			}
+			else {
+				this.tail.next = node;
+			}
+			this.tail = node;
+			this.weight += node.weight;
+		}
+
+		void remove(Node node) {
+			if (node.prev == null) {
+				this.head = node.next;
+			}
+			else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				this.tail = node.prev;
+			}
+			else {
+				node.next.prev = node.prev;
+			}
+			node.queue = null;
+			node.prev = null;
+			node.next = null;
+			this.weight -= node.weight;
+		}
+
+		void moveToLast(Node node) {
+			if (this.tail != node) {
+				remove(node);
+				addLast(node);
+			}
+		}
+
+		void clear() {
+			Node node = this.head;
+			while (node != null) {
+				Node next = node.next;
+				node.queue = null;
+				node.prev = null;
+				node.next = null;
+				node = next;
+			}
+			this.head = null;
+			this.tail = null;
+			this.weight = 0;
+		}
+	}
+
+
+	/**
+	 * Bounded ring buffer for recording reads, dropping further reads when full.
+	 * Written to by any number of reading threads; drained under the eviction lock.
+	 */
+	private static final class ReadBuffer {
+
+		private final AtomicReferenceArray<Node> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+		private final AtomicLong writeCounter = new AtomicLong();
+
+		private volatile long readCounter;
+
+		/**
+		 * Record the given node, unless the buffer is full or contended.
+		 * @return the number of pending reads in the buffer
+		 */
+		int offer(Node node) {
+			long head = this.readCounter;
+			long tail = this.writeCounter.get();
+			int pending = (int) (tail - head);
+			if (pending < READ_BUFFER_SIZE && this.writeCounter.compareAndSet(tail, tail + 1)) {
+				this.buffer.lazySet((int) tail & (READ_BUFFER_SIZE - 1), node);
+				pending++;
+			}
+			return pending;
+		}
+
+		@Nullable
+		Node poll() {
+			long head = this.readCounter;
+			int index = (int) head & (READ_BUFFER_SIZE - 1);
+			Node node = this.buffer.get(index);
+			if (node == null) {
+				// Empty, or a concurrent offer has not published its node yet
+				return null;
+			}
+			this.buffer.lazySet(index, null);
+			this.readCounter = head + 1;
+			return node;
+		}
+	}
+
+}
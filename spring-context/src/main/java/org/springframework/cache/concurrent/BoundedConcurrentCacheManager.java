@@ -0,0 +1,256 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToIntBiFunction;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CacheManager} implementation that lazily builds {@link BoundedConcurrentCache}
+ * instances for each {@link #getCache} request. Also supports a 'static' mode where
+ * the set of cache names is pre-defined through {@link #setCacheNames}, with no
+ * dynamic creation of further cache regions at runtime.
+ *
+ * <p>In contrast to {@link ConcurrentMapCacheManager}, all caches are bounded
+ * by a {@link #setMaximumSize maximum size} (10000 entries per cache by default)
+ * and may be configured with a {@link #setWeigher weigher} as well as with
+ * {@link #setTimeToLive time-to-live} and {@link #setTimeToIdle time-to-idle}
+ * expiration. Configuration changes apply to existing caches as well.
+ *
+ * @author agent
+ * @since 5.0
+ * @see BoundedConcurrentCache
+ */
+public class BoundedConcurrentCacheManager implements CacheManager {
+
+	/**
+	 * The default maximum size of each cache: 10000 entries.
+	 */
+	public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+
+	private final ConcurrentMap<String, Cache> cacheMap = new ConcurrentHashMap<>(16);
+
+	private boolean dynamic = true;
+
+	private boolean allowNullValues = true;
+
+	private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+	@Nullable
+	private ToIntBiFunction<Object, Object> weigher;
+
+	private long timeToLive = -1;
+
+	private long timeToIdle = -1;
+
+
+	/**
+	 * Construct a dynamic BoundedConcurrentCacheManager,
+	 * lazily creating cache instances as they are being requested.
+	 */
+	public BoundedConcurrentCacheManager() {
+	}
+
+	/**
+	 * Construct a static BoundedConcurrentCacheManager,
+	 * managing caches for the specified cache names only.
+	 */
+	public BoundedConcurrentCacheManager(String... cacheNames) {
+		setCacheNames(Arrays.asList(cacheNames));
+	}
+
+
+	/**
+	 * Specify the set of cache names for this CacheManager's 'static' mode.
+	 * <p>The number of caches and their names will be fixed after a call to this method,
+	 * with no creation of further cache regions at runtime.
+	 * <p>Calling this with a {@code null} collection argument resets the
+	 * mode to 'dynamic', allowing for further creation of caches again.
+	 */
+	public void setCacheNames(@Nullable Collection<String> cacheNames) {
+		if (cacheNames != null) {
+			for (String name : cacheNames) {
+				this.cacheMap.put(name, createBoundedConcurrentCache(name));
+			}
+			this.dynamic = false;
+		}
+		else {
+			this.dynamic = true;
+		}
+	}
+
+	/**
+	 * Specify whether to accept and convert {@code null} values for all caches
+	 * in this cache manager.
+	 * <p>Default is "true". An internal holder object will be used to store
+	 * user-level {@code null}s.
+	 * <p>Note: A change of the null-value setting will reset all existing caches,
+	 * if any, to reconfigure them with the new null-value requirement.
+	 */
+	public void setAllowNullValues(boolean allowNullValues) {
+		if (allowNullValues != this.allowNullValues) {
+			this.allowNullValues = allowNullValues;
+			// Need to recreate all Cache instances with the new null-value configuration...
+			for (String name : this.cacheMap.keySet()) {
+				this.cacheMap.put(name, createBoundedConcurrentCache(name));
+			}
+		}
+	}
+
+	/**
+	 * Return whether this cache manager accepts and converts {@code null} values
+	 * for all of its caches.
+	 */
+	public boolean isAllowNullValues() {
+		return this.allowNullValues;
+	}
+
+	/**
+	 * Specify the maximum size of each cache: the maximum number of entries,
+	 * or the maximum total weight of all entries if a {@link #setWeigher weigher}
+	 * has been specified.
+	 * <p>Default is {@link #DEFAULT_MAXIMUM_SIZE}.
+	 * @see BoundedConcurrentCache#setMaximumSize
+	 */
+	public void setMaximumSize(long maximumSize) {
+		Assert.isTrue(maximumSize >= 0, "Maximum size must not be negative");
+		this.maximumSize = maximumSize;
+		applyConfiguration();
+	}
+
+	/**
+	 * Return the maximum size of each cache.
+	 */
+	public long getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Specify a function for determining the weight of each cache entry,
+	 * given its key and its store value.
+	 * <p>Default is none, with each entry weighing 1.
+	 * @see BoundedConcurrentCache#setWeigher
+	 */
+	public void setWeigher(@Nullable ToIntBiFunction<Object, Object> weigher) {
+		this.weigher = weigher;
+		applyConfiguration();
+	}
+
+	/**
+	 * Return the function for determining the weight of each cache entry, if any.
+	 */
+	@Nullable
+	public ToIntBiFunction<Object, Object> getWeigher() {
+		return this.weigher;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) after which a cache entry expires
+	 * once it has been written, or -1 for no write-based expiration (the default).
+	 * @see BoundedConcurrentCache#setTimeToLive
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+		applyConfiguration();
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which a cache entry expires
+	 * once it has been written, or -1 if none.
+	 */
+	public long getTimeToLive() {
+		return this.timeToLive;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) after which a cache entry expires
+	 * once it has last been read or written, or -1 for no access-based
+	 * expiration (the default).
+	 * @see BoundedConcurrentCache#setTimeToIdle
+	 */
+	public void setTimeToIdle(long timeToIdle) {
+		this.timeToIdle = timeToIdle;
+		applyConfiguration();
+	}
+
+	/**
+	 * Return the time (in milliseconds) after which a cache entry expires
+	 * once it has last been read or written, or -1 if none.
+	 */
+	public long getTimeToIdle() {
+		return this.timeToIdle;
+	}
+
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return Collections.unmodifiableSet(this.cacheMap.keySet());
+	}
+
+	@Override
+	@Nullable
+	public Cache getCache(String name) {
+		Cache cache = this.cacheMap.get(name);
+		if (cache == null && this.dynamic) {
+			synchronized (this.cacheMap) {
+				cache = this.cacheMap.get(name);
+				if (cache == null) {
+					cache = createBoundedConcurrentCache(name);
+					this.cacheMap.put(name, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	private void applyConfiguration() {
+		for (Cache cache : this.cacheMap.values()) {
+			if (cache instanceof BoundedConcurrentCache) {
+				configureCache((BoundedConcurrentCache) cache);
+			}
+		}
+	}
+
+	/**
+	 * Create a new BoundedConcurrentCache instance for the specified cache name.
+	 * @param name the name of the cache
+	 * @return the BoundedConcurrentCache (or a decorator thereof)
+	 */
+	protected Cache createBoundedConcurrentCache(String name) {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache(name, this.maximumSize, isAllowNullValues());
+		configureCache(cache);
+		return cache;
+	}
+
+	private void configureCache(BoundedConcurrentCache cache) {
+		cache.setMaximumSize(this.maximumSize);
+		cache.setWeigher(this.weigher);
+		cache.setTimeToLive(this.timeToLive);
+		cache.setTimeToIdle(this.timeToIdle);
+	}
+
+}
@@ -20,14 +20,28 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.BeanFactory;
@@ -39,7 +53,11 @@ import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.ExpiringValueWrapper;
 import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -65,6 +83,26 @@ import org.springframework.util.StringUtils;
  * {@link CacheOperationSource} is used for determining caching
  * operations.
  *
+ * <p>Beyond {@code @Cacheable(sync=true)}, which delegates to the cache provider,
+ * this aspect is able to protect against cache stampedes on its own: concurrent
+ * invocations missing the cache for the same key may be
+ * {@link #setCoalesceMisses coalesced} into a single method invocation, and
+ * entries close to their expiration may be {@link #setRefreshAheadTime refreshed
+ * ahead of time}, optionally {@link #setRefreshExecutor asynchronously}.
+ * Either way, a single invocation serves several callers, so the methods
+ * concerned must not depend on the state bound to the calling thread, such as
+ * a transaction or a security context.
+ *
+ * <p>Methods returning a reactive type such as {@code Mono} or {@code Flux}
+ * (if Reactor is present) get the values emitted by the returned publisher
+ * cached rather than the publisher itself: a single value for single-value
+ * types, and a {@code List} of all values for multi-value types. Cache hits
+ * are served through a publisher for the cached value(s), and concurrent
+ * misses for the same key share a single subscription to the publisher
+ * returned by the first invocation, with all of its values replayed to
+ * subscribers joining late, until it terminates. {@code @Cacheable(sync=true)}
+ * is not supported for reactive return types.
+ *
  * <p>A cache aspect is serializable if its {@code CacheResolver} and
  * {@code CacheOperationSource} are serializable.
  *
@@ -79,6 +117,13 @@ import org.springframework.util.StringUtils;
 public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		implements BeanFactoryAware, InitializingBean, SmartInitializingSingleton {
 
+	/**
+	 * Whether Reactor is present, enabling caching for reactive return types.
+	 */
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Mono", CacheAspectSupport.class.getClassLoader());
+
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private final Map<CacheOperationCacheKey, CacheOperationMetadata> metadataCache =
@@ -92,6 +137,24 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 	private CacheResolver cacheResolver;
 
+	private boolean coalesceMisses = false;
+
+	private long coalescedWaitTimeout = 30000;
+
+	private long refreshAheadTime = 0;
+
+	@Nullable
+	private Executor refreshExecutor;
+
+	private boolean serveStaleWhileRefreshing = true;
+
+	private final ConcurrentMap<List<Object>, InFlightInvocation> inFlightInvocations =
+			new ConcurrentHashMap<>(64);
+
+	@Nullable
+	private final ReactiveCachingHandler reactiveCachingHandler =
+			(reactorPresent ? new ReactiveCachingHandler() : null);
+
 	private BeanFactory beanFactory;
 
 	private boolean initialized = false;
@@ -163,6 +226,142 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return this.cacheResolver;
 	}
 
+	/**
+	 * Specify whether concurrent invocations which miss the cache for the same
+	 * key(s) should be coalesced into a single invocation of the underlying method,
+	 * with all other callers waiting for its result (or exception).
+	 * <p>Default is "false". Switch this to "true" for protecting expensive methods
+	 * against a stampede of identical invocations after an entry expired or got
+	 * evicted, independent from the cache provider. In contrast to
+	 * {@code @Cacheable(sync=true)}, this works with multiple caches and multiple
+	 * {@code @Cacheable} operations as well, as long as there are no
+	 * {@code @CachePut} or {@code @CacheEvict} operations on the same method.
+	 * <p>Note that waiting callers receive a result computed within the thread
+	 * of another caller, so the method must not depend on thread-bound state
+	 * such as the current transaction or security context.
+	 * @since 5.0
+	 * @see CacheableOperation#isSync()
+	 * @see #setCoalescedWaitTimeout
+	 */
+	public void setCoalesceMisses(boolean coalesceMisses) {
+		this.coalesceMisses = coalesceMisses;
+	}
+
+	/**
+	 * Return whether concurrent invocations which miss the cache
+	 * for the same key(s) get coalesced.
+	 * @since 5.0
+	 */
+	public boolean isCoalesceMisses() {
+		return this.coalesceMisses;
+	}
+
+	/**
+	 * Specify the maximum time (in milliseconds) that a caller waits for a
+	 * concurrent invocation for the same key(s), before invoking the underlying
+	 * method itself.
+	 * <p>Default is 30000. A value of 0 or less means waiting indefinitely.
+	 * @since 5.0
+	 * @see #setCoalesceMisses
+	 * @see #setServeStaleWhileRefreshing
+	 */
+	public void setCoalescedWaitTimeout(long coalescedWaitTimeout) {
+		this.coalescedWaitTimeout = coalescedWaitTimeout;
+	}
+
+	/**
+	 * Return the maximum time (in milliseconds) that a caller waits
+	 * for a concurrent invocation for the same key(s).
+	 * @since 5.0
+	 */
+	public long getCoalescedWaitTimeout() {
+		return this.coalescedWaitTimeout;
+	}
+
+	/**
+	 * Specify the time window (in milliseconds) before the expiration of a cache
+	 * entry within which a cache hit triggers a refresh of the entry, that is,
+	 * a re-invocation of the underlying method which puts the fresh result into
+	 * the cache(s). Only one refresh per key is in progress at any time.
+	 * <p>Default is 0, not refreshing any entries ahead of their expiration.
+	 * <p>Note: This requires the cache provider to expose the expiration of
+	 * its entries through an {@link ExpiringValueWrapper}, as e.g. done by
+	 * {@link org.springframework.cache.concurrent.BoundedConcurrentCache};
+	 * cache hits without such expiration metadata never trigger a refresh.
+	 * Refresh-ahead does not apply to {@code @Cacheable(sync=true)} and to
+	 * methods with {@code @CacheEvict} operations.
+	 * @since 5.0
+	 * @see #setRefreshExecutor
+	 * @see #setServeStaleWhileRefreshing
+	 */
+	public void setRefreshAheadTime(long refreshAheadTime) {
+		this.refreshAheadTime = refreshAheadTime;
+	}
+
+	/**
+	 * Return the time window (in milliseconds) before the expiration of a cache
+	 * entry within which it gets refreshed.
+	 * @since 5.0
+	 */
+	public long getRefreshAheadTime() {
+		return this.refreshAheadTime;
+	}
+
+	/**
+	 * Specify an {@link Executor} for performing refresh-ahead invocations
+	 * asynchronously, letting the triggering caller return the current cache
+	 * value right away.
+	 * <p>Default is none, performing the refresh in the triggering caller's
+	 * thread (with any concurrent callers receiving the current cache value
+	 * in the meantime).
+	 * <p>Note that an asynchronous refresh proceeds with the triggering
+	 * invocation on the executor thread: any interceptors further down the
+	 * chain (e.g. for transactions or security) get applied there, without
+	 * the thread-bound state of the triggering caller. A transaction
+	 * interceptor therefore starts a transaction of its own rather than
+	 * participating in the caller's transaction, and a security interceptor
+	 * does not see the caller's security context unless propagated by the
+	 * executor. Methods refreshed in the background must not depend on such
+	 * state. The same applies to the result of a synchronous refresh, which
+	 * gets served to other callers as well.
+	 * @since 5.0
+	 * @see #setRefreshAheadTime
+	 */
+	public void setRefreshExecutor(@Nullable Executor refreshExecutor) {
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for performing refresh-ahead invocations, if any.
+	 * @since 5.0
+	 */
+	@Nullable
+	public Executor getRefreshExecutor() {
+		return this.refreshExecutor;
+	}
+
+	/**
+	 * Specify whether callers should receive the current cache value while
+	 * the entry gets refreshed ahead of its expiration.
+	 * <p>Default is "true". Switch this to "false" for letting all callers within
+	 * the refresh-ahead window wait for the (single) refreshing invocation and
+	 * receive its fresh result instead.
+	 * @since 5.0
+	 * @see #setRefreshAheadTime
+	 */
+	public void setServeStaleWhileRefreshing(boolean serveStaleWhileRefreshing) {
+		this.serveStaleWhileRefreshing = serveStaleWhileRefreshing;
+	}
+
+	/**
+	 * Return whether callers receive the current cache value
+	 * while the entry gets refreshed.
+	 * @since 5.0
+	 */
+	public boolean isServeStaleWhileRefreshing() {
+		return this.serveStaleWhileRefreshing;
+	}
+
 	/**
 	 * Set the containing {@link BeanFactory} for {@link CacheManager} and other
 	 * service lookups.
@@ -330,12 +529,45 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return invoker.invoke();
 	}
 
+	/**
+	 * Execute the underlying operation with the given arguments instead of the
+	 * original ones, as needed for loading the missing entries of a
+	 * {@link CacheableOperation#isBatch() batch} operation. If an exception
+	 * occurs, it will be wrapped in a {@link CacheOperationInvoker.ThrowableWrapper}.
+	 * @param invoker the invoker handling the operation being cached
+	 * @param args the arguments to use for the invocation
+	 * @return the result of the invocation
+	 * @since 5.0
+	 * @see CacheOperationInvoker#invoke(Object[])
+	 */
+	protected Object invokeOperation(CacheOperationInvoker invoker, Object[] args) {
+		return invoker.invoke(args);
+	}
+
 	private Class<?> getTargetClass(Object target) {
 		return AopProxyUtils.ultimateTargetClass(target);
 	}
 
 	@Nullable
 	private Object execute(final CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts) {
+		// Special handling of reactive return types
+		ReactiveAdapter reactiveAdapter = contexts.getReactiveAdapter();
+		if (reactiveAdapter != null && this.reactiveCachingHandler != null) {
+			return this.reactiveCachingHandler.execute(invoker, method, contexts, reactiveAdapter);
+		}
+
+		// Special handling of batch invocation
+		if (contexts.isBatch()) {
+			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
+			if (isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
+				return executeBatch(invoker, method, context);
+			}
+			else {
+				// No caching required, only call the underlying method
+				return invokeOperation(invoker);
+			}
+		}
+
 		// Special handling of synchronized invocation
 		if (contexts.isSynchronized()) {
 			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
@@ -378,10 +610,18 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		Object returnValue;
 
 		if (cacheHit != null && cachePutRequests.isEmpty() && !hasCachePut(contexts)) {
+			if (isRefreshAheadDue(cacheHit, contexts)) {
+				// Refresh the entry ahead of its expiration
+				return refreshAhead(invoker, method, contexts, cacheHit);
+			}
 			// If there are no put requests, just use the cache hit
 			cacheValue = cacheHit.get();
 			returnValue = wrapCacheValue(method, cacheValue);
 		}
+		else if (cacheHit == null && isCoalescible(contexts, cachePutRequests)) {
+			// Share a single invocation with any concurrent misses for the same key
+			return invokeCoalesced(invoker, method, cachePutRequests);
+		}
 		else {
 			// Invoke the method if we don't have a cache hit
 			returnValue = invokeOperation(invoker);
@@ -402,6 +642,232 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return returnValue;
 	}
 
+	/**
+	 * Look up all keys of the given batch operation, invoke the underlying method
+	 * for the missing keys only, and merge the cached and the loaded entries.
+	 * The cache key for each element of the key collection is determined by the
+	 * operation's {@link KeyGenerator}, as for a method taking that single element.
+	 */
+	@Nullable
+	private Object executeBatch(CacheOperationInvoker invoker, Method method, CacheOperationContext context) {
+		Collection<?> keys = (Collection<?>) context.getArgs()[0];
+		if (keys == null) {
+			return invokeOperation(invoker);
+		}
+
+		// Element -> cache key
+		Map<Object, Object> cacheKeys = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			if (key == null) {
+				throw new IllegalArgumentException("Null key contained in batch for cache operation " +
+						context.metadata.operation);
+			}
+			cacheKeys.computeIfAbsent(key, context::generateBatchKey);
+		}
+		// Cache key -> element, for the elements without cache entry
+		Map<Object, Object> missingKeys = new LinkedHashMap<>(cacheKeys.size());
+		cacheKeys.forEach((key, cacheKey) -> missingKeys.put(cacheKey, key));
+
+		Map<Object, Object> entries = new HashMap<>(keys.size());
+		for (Cache cache : context.getCaches()) {
+			if (missingKeys.isEmpty()) {
+				break;
+			}
+			for (Map.Entry<Object, Cache.ValueWrapper> hit : doGetAll(cache, missingKeys.keySet()).entrySet()) {
+				Object key = missingKeys.remove(hit.getKey());
+				if (key != null) {
+					entries.put(key, hit.getValue().get());
+				}
+			}
+		}
+
+		if (!missingKeys.isEmpty()) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("No cache entries for " + missingKeys.size() + " of " + keys.size() +
+						" keys in cache(s) " + context.getCacheNames() + " - invoking " + method);
+			}
+			Collection<Object> missingKeysArg =
+					CollectionFactory.createCollection(method.getParameterTypes()[0], missingKeys.size());
+			missingKeysArg.addAll(missingKeys.values());
+			Object[] args = context.getArgs().clone();
+			args[0] = missingKeysArg;
+			Map<?, ?> loaded = (Map<?, ?>) invokeOperation(invoker, args);
+			if (loaded != null) {
+				Map<Object, Object> entriesToCache = new LinkedHashMap<>(loaded.size());
+				for (Map.Entry<?, ?> entry : loaded.entrySet()) {
+					Object cacheKey = cacheKeys.get(entry.getKey());
+					if (cacheKey != null && missingKeys.containsKey(cacheKey)) {
+						entries.put(entry.getKey(), entry.getValue());
+						if (context.canPutToCache(entry.getValue())) {
+							entriesToCache.put(cacheKey, entry.getValue());
+						}
+					}
+				}
+				if (!entriesToCache.isEmpty()) {
+					for (Cache cache : context.getCaches()) {
+						doPutAll(cache, entriesToCache);
+					}
+				}
+			}
+		}
+
+		Map<Object, Object> result = CollectionFactory.createMap(method.getReturnType(), keys.size());
+		for (Object key : keys) {
+			if (entries.containsKey(key)) {
+				result.put(key, entries.get(key));
+			}
+		}
+		return result;
+	}
+
+	private boolean isRefreshAheadDue(Cache.ValueWrapper cacheHit, CacheOperationContexts contexts) {
+		return (this.refreshAheadTime > 0 && cacheHit instanceof ExpiringValueWrapper &&
+				((ExpiringValueWrapper) cacheHit).getTimeToExpiration() < this.refreshAheadTime &&
+				contexts.get(CacheEvictOperation.class).isEmpty());
+	}
+
+	private boolean isCoalescible(CacheOperationContexts contexts, List<CachePutRequest> cachePutRequests) {
+		return (this.coalesceMisses && !cachePutRequests.isEmpty() &&
+				contexts.get(CachePutOperation.class).isEmpty() &&
+				contexts.get(CacheEvictOperation.class).isEmpty());
+	}
+
+	/**
+	 * Refresh the cached entries for the current invocation, unless a refresh
+	 * for the same keys is in progress already.
+	 * <p>The refresh goes through the given invoker, i.e. it proceeds with the
+	 * remaining interceptor chain and the target method. With a refresh executor,
+	 * this happens on the executor thread, without the thread-bound state of the
+	 * triggering caller (see {@link #setRefreshExecutor}).
+	 */
+	@Nullable
+	private Object refreshAhead(CacheOperationInvoker invoker, Method method,
+			CacheOperationContexts contexts, Cache.ValueWrapper cacheHit) {
+
+		List<CachePutRequest> cachePutRequests = new LinkedList<>();
+		collectPutRequests(contexts.get(CacheableOperation.class),
+				CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
+		if (!this.serveStaleWhileRefreshing) {
+			return invokeCoalesced(invoker, method, cachePutRequests);
+		}
+
+		Object staleValue = wrapCacheValue(method, cacheHit.get());
+		List<Object> invocationKey = createInvocationKey(method, cachePutRequests);
+		InFlightInvocation inFlight = new InFlightInvocation();
+		if (this.inFlightInvocations.putIfAbsent(invocationKey, inFlight) != null) {
+			// Refresh in progress already
+			return staleValue;
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Refreshing cache entries ahead of expiration for key(s) " + invocationKey);
+		}
+		Executor executor = getRefreshExecutor();
+		if (executor != null) {
+			try {
+				executor.execute(() -> {
+					try {
+						invokeInFlight(invoker, invocationKey, inFlight, cachePutRequests);
+					}
+					catch (RuntimeException ex) {
+						logRefreshFailure(invocationKey, ex);
+					}
+				});
+				return staleValue;
+			}
+			catch (RuntimeException ex) {
+				logger.debug("Refresh executor rejected task - refreshing in calling thread", ex);
+			}
+		}
+		try {
+			return invokeInFlight(invoker, invocationKey, inFlight, cachePutRequests);
+		}
+		catch (RuntimeException ex) {
+			logRefreshFailure(invocationKey, ex);
+			return staleValue;
+		}
+	}
+
+	private void logRefreshFailure(List<Object> invocationKey, RuntimeException ex) {
+		if (logger.isWarnEnabled()) {
+			Throwable cause = (ex instanceof CacheOperationInvoker.ThrowableWrapper ?
+					((CacheOperationInvoker.ThrowableWrapper) ex).getOriginal() : ex);
+			logger.warn("Failed to refresh cache entries for key(s) " + invocationKey +
+					" - keeping current values until expiration", cause);
+		}
+	}
+
+	/**
+	 * Invoke the underlying method and apply the given put requests, sharing the
+	 * invocation with any concurrent invocations for the same cache keys.
+	 */
+	@Nullable
+	private Object invokeCoalesced(
+			CacheOperationInvoker invoker, Method method, List<CachePutRequest> cachePutRequests) {
+
+		List<Object> invocationKey = createInvocationKey(method, cachePutRequests);
+		InFlightInvocation inFlight = new InFlightInvocation();
+		InFlightInvocation existing = this.inFlightInvocations.putIfAbsent(invocationKey, inFlight);
+		if (existing == null) {
+			return invokeInFlight(invoker, invocationKey, inFlight, cachePutRequests);
+		}
+		if (existing.thread == Thread.currentThread()) {
+			// Re-entrant invocation for the same key(s) - cannot wait for ourselves
+			return invokeAndPut(invoker, cachePutRequests);
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Awaiting concurrent invocation for key(s) " + invocationKey);
+		}
+		try {
+			return existing.await(this.coalescedWaitTimeout);
+		}
+		catch (TimeoutException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Concurrent invocation for key(s) " + invocationKey + " did not complete within " +
+						this.coalescedWaitTimeout + " ms - invoking the method in the calling thread");
+			}
+			return invokeAndPut(invoker, cachePutRequests);
+		}
+	}
+
+	@Nullable
+	private Object invokeInFlight(CacheOperationInvoker invoker, List<Object> invocationKey,
+			InFlightInvocation inFlight, List<CachePutRequest> cachePutRequests) {
+
+		inFlight.thread = Thread.currentThread();
+		try {
+			Object returnValue = invokeAndPut(invoker, cachePutRequests);
+			inFlight.complete(returnValue);
+			return returnValue;
+		}
+		catch (RuntimeException | Error ex) {
+			inFlight.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.inFlightInvocations.remove(invocationKey, inFlight);
+		}
+	}
+
+	@Nullable
+	private Object invokeAndPut(CacheOperationInvoker invoker, List<CachePutRequest> cachePutRequests) {
+		Object returnValue = invokeOperation(invoker);
+		Object cacheValue = unwrapReturnValue(returnValue);
+		for (CachePutRequest cachePutRequest : cachePutRequests) {
+			cachePutRequest.apply(cacheValue);
+		}
+		return returnValue;
+	}
+
+	private List<Object> createInvocationKey(Method method, List<CachePutRequest> cachePutRequests) {
+		List<Object> invocationKey = new ArrayList<>(1 + cachePutRequests.size() * 2);
+		invocationKey.add(method);
+		for (CachePutRequest cachePutRequest : cachePutRequests) {
+			invocationKey.add(cachePutRequest.context.getCacheNames());
+			invocationKey.add(cachePutRequest.key);
+		}
+		return invocationKey;
+	}
+
 	@Nullable
 	private Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
 		if (method.getReturnType() == Optional.class &&
@@ -558,13 +1024,21 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 		private final boolean sync;
 
+		private final boolean batch;
+
+		@Nullable
+		private final ReactiveAdapter reactiveAdapter;
+
 		public CacheOperationContexts(Collection<? extends CacheOperation> operations, Method method,
 				Object[] args, Object target, Class<?> targetClass) {
 
 			for (CacheOperation operation : operations) {
 				this.contexts.add(operation.getClass(), getOperationContext(operation, method, args, target, targetClass));
 			}
+			this.reactiveAdapter = (reactiveCachingHandler != null ?
+					reactiveCachingHandler.getAdapter(method.getReturnType()) : null);
 			this.sync = determineSyncFlag(method);
+			this.batch = determineBatchFlag(method);
 		}
 
 		public Collection<CacheOperationContext> get(Class<? extends CacheOperation> operationClass) {
@@ -576,6 +1050,15 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			return this.sync;
 		}
 
+		public boolean isBatch() {
+			return this.batch;
+		}
+
+		@Nullable
+		public ReactiveAdapter getReactiveAdapter() {
+			return this.reactiveAdapter;
+		}
+
 		private boolean determineSyncFlag(Method method) {
 			List<CacheOperationContext> cacheOperationContexts = this.contexts.get(CacheableOperation.class);
 			if (cacheOperationContexts == null) {  // no @Cacheable operation at all
@@ -603,10 +1086,179 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 				if (StringUtils.hasText(operation.getUnless())) {
 					throw new IllegalStateException("@Cacheable(sync=true) does not support unless attribute on '" + operation + "'");
 				}
+				if (this.reactiveAdapter != null) {
+					throw new IllegalStateException("@Cacheable(sync=true) does not support reactive return type on '" + method + "'");
+				}
 				return true;
 			}
 			return false;
 		}
+
+		private boolean determineBatchFlag(Method method) {
+			List<CacheOperationContext> cacheOperationContexts = this.contexts.get(CacheableOperation.class);
+			if (cacheOperationContexts == null) {  // no @Cacheable operation at all
+				return false;
+			}
+			boolean batchEnabled = false;
+			for (CacheOperationContext cacheOperationContext : cacheOperationContexts) {
+				if (((CacheableOperation) cacheOperationContext.getOperation()).isBatch()) {
+					batchEnabled = true;
+					break;
+				}
+			}
+			if (batchEnabled) {
+				if (this.contexts.size() > 1) {
+					throw new IllegalStateException("@Cacheable(batch=true) cannot be combined with other cache operations on '" + method + "'");
+				}
+				if (cacheOperationContexts.size() > 1) {
+					throw new IllegalStateException("Only one @Cacheable(batch=true) entry is allowed on '" + method + "'");
+				}
+				CacheableOperation operation = (CacheableOperation) cacheOperationContexts.iterator().next().getOperation();
+				if (operation.isSync()) {
+					throw new IllegalStateException("@Cacheable(batch=true) cannot be combined with sync attribute on '" + operation + "'");
+				}
+				if (StringUtils.hasText(operation.getKey())) {
+					throw new IllegalStateException("@Cacheable(batch=true) does not support key attribute on '" + operation + "'");
+				}
+				if (method.getParameterCount() != 1 || !Collection.class.isAssignableFrom(method.getParameterTypes()[0]) ||
+						!Map.class.isAssignableFrom(method.getReturnType())) {
+					throw new IllegalStateException("@Cacheable(batch=true) requires a single Collection parameter " +
+							"and a Map return type on '" + method + "'");
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Delegate for cached methods with a reactive return type, e.g. {@code Mono}
+	 * or {@code Flux}, avoiding a hard dependency on Reactor.
+	 * <p>Cache puts and late evictions are applied once the returned publisher
+	 * completes, with the emitted value (or the {@code List} of all emitted values
+	 * for multi-value types) as the result. As long as no {@code @CachePut} or
+	 * {@code @CacheEvict} operation is involved, concurrent misses for the same key
+	 * share the publisher returned by the first invocation, replaying its outcome
+	 * to every subscriber until it has completed.
+	 */
+	private class ReactiveCachingHandler {
+
+		private final ReactiveAdapterRegistry adapterRegistry = new ReactiveAdapterRegistry();
+
+		private final ConcurrentMap<List<Object>, Publisher<Object>> inFlightPublishers =
+				new ConcurrentHashMap<>(64);
+
+		@Nullable
+		public ReactiveAdapter getAdapter(Class<?> returnType) {
+			return this.adapterRegistry.getAdapter(returnType);
+		}
+
+		public Object execute(CacheOperationInvoker invoker, Method method,
+				CacheOperationContexts contexts, ReactiveAdapter adapter) {
+
+			// Process any early evictions
+			processCacheEvicts(contexts.get(CacheEvictOperation.class), true,
+					CacheOperationExpressionEvaluator.NO_RESULT);
+
+			// Check if we have a cached item matching the conditions
+			Cache.ValueWrapper cacheHit = findCachedItem(contexts.get(CacheableOperation.class));
+
+			// Collect puts from any @Cacheable miss, if no cached item is found
+			List<CachePutRequest> cachePutRequests = new LinkedList<>();
+			if (cacheHit == null) {
+				collectPutRequests(contexts.get(CacheableOperation.class),
+						CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
+			}
+
+			Consumer<Object> resultProcessor = cacheValue -> {
+				// Collect any explicit @CachePuts
+				List<CachePutRequest> putRequests = new LinkedList<>(cachePutRequests);
+				collectPutRequests(contexts.get(CachePutOperation.class), cacheValue, putRequests);
+				// Process any collected put requests, either from @CachePut or a @Cacheable miss
+				for (CachePutRequest putRequest : putRequests) {
+					putRequest.apply(cacheValue);
+				}
+				// Process any late evictions
+				processCacheEvicts(contexts.get(CacheEvictOperation.class), false, cacheValue);
+			};
+
+			if (cacheHit != null && cachePutRequests.isEmpty() && !hasCachePut(contexts)) {
+				// If there are no put requests, just use the cache hit
+				Object cacheValue = cacheHit.get();
+				resultProcessor.accept(cacheValue);
+				return adapter.fromPublisher(adapter.isMultiValue() ?
+						fromCachedValues(cacheValue) : Mono.justOrEmpty(cacheValue));
+			}
+
+			if (!cachePutRequests.isEmpty() && contexts.get(CachePutOperation.class).isEmpty() &&
+					contexts.get(CacheEvictOperation.class).isEmpty()) {
+				// Share a single subscription with any concurrent misses for the same key
+				List<Object> invocationKey = createInvocationKey(method, cachePutRequests);
+				Publisher<Object> inFlight = this.inFlightPublishers.get(invocationKey);
+				if (inFlight == null) {
+					AtomicReference<Publisher<Object>> holder = new AtomicReference<>();
+					Publisher<Object> publisher = share(adapter,
+							cacheResult(adapter, invokeOperation(invoker), resultProcessor),
+							() -> this.inFlightPublishers.remove(invocationKey, holder.get()));
+					holder.set(publisher);
+					inFlight = this.inFlightPublishers.putIfAbsent(invocationKey, publisher);
+					if (inFlight == null) {
+						return adapter.fromPublisher(publisher);
+					}
+				}
+				if (logger.isTraceEnabled()) {
+					logger.trace("Sharing in-flight publisher for key(s) " + invocationKey);
+				}
+				return adapter.fromPublisher(inFlight);
+			}
+
+			// Invoke the method if we don't have a cache hit
+			return adapter.fromPublisher(cacheResult(adapter, invokeOperation(invoker), resultProcessor));
+		}
+
+		/**
+		 * Decorate the publisher returned by the target method, passing its values
+		 * through as they arrive and processing the accumulated result on completion.
+		 */
+		private Publisher<Object> cacheResult(ReactiveAdapter adapter, @Nullable Object returnValue,
+				Consumer<Object> resultProcessor) {
+
+			Publisher<Object> source = adapter.toPublisher(returnValue);
+			if (adapter.isMultiValue()) {
+				return Flux.defer(() -> {
+					List<Object> values = new ArrayList<>();
+					return Flux.from(source).doOnNext(values::add)
+							.doOnComplete(() -> resultProcessor.accept(values));
+				});
+			}
+			else {
+				return Mono.from(source).doOnSuccess(resultProcessor);
+			}
+		}
+
+		/**
+		 * Share a single subscription to the given publisher among concurrent
+		 * subscribers, replaying all values (or the error) to subscribers joining
+		 * after the first ones have been emitted: a late subscriber never receives
+		 * a truncated sequence. The subscription continues until termination even
+		 * if all subscribers cancel, letting the result get cached nevertheless.
+		 * @param release callback for no longer handing out the shared publisher,
+		 * invoked once the subscription terminates
+		 */
+		private Publisher<Object> share(ReactiveAdapter adapter, Publisher<Object> result, Runnable release) {
+			Flux<Object> shared = Flux.from(result)
+					.doFinally(signalType -> release.run())
+					.cache();
+			return (adapter.isMultiValue() ? shared : shared.singleOrEmpty());
+		}
+
+		private Flux<Object> fromCachedValues(@Nullable Object cacheValue) {
+			if (cacheValue instanceof Iterable) {
+				return Flux.fromIterable((Iterable<?>) cacheValue);
+			}
+			return (cacheValue != null ? Flux.just(cacheValue) : Flux.empty());
+		}
 	}
 
 
@@ -728,6 +1380,14 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			return this.metadata.keyGenerator.generate(this.target, this.metadata.method, this.args);
 		}
 
+		/**
+		 * Compute the key for the given element of a batch operation's key collection,
+		 * as for a method invoked with that element as its single argument.
+		 */
+		protected Object generateBatchKey(Object element) {
+			return this.metadata.keyGenerator.generate(this.target, this.metadata.method, element);
+		}
+
 		private EvaluationContext createEvaluationContext(@Nullable Object result) {
 			return evaluator.createEvaluationContext(this.caches, this.metadata.method, this.args,
 					this.target, this.metadata.targetClass, result, beanFactory);
@@ -772,6 +1432,44 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	}
 
 
+	/**
+	 * Pending invocation for specific cache keys, to be awaited by concurrent callers.
+	 */
+	private static class InFlightInvocation extends CompletableFuture<Object> {
+
+		@Nullable
+		volatile Thread thread;
+
+		/**
+		 * Wait for the result of the invocation.
+		 * @param timeout the maximum time to wait in milliseconds,
+		 * or 0 or less for waiting indefinitely
+		 * @throws TimeoutException if the invocation did not complete in time,
+		 * or if the waiting thread got interrupted (with the interrupt flag restored)
+		 */
+		@Nullable
+		public Object await(long timeout) throws TimeoutException {
+			try {
+				return (timeout > 0 ? get(timeout, TimeUnit.MILLISECONDS) : get());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new TimeoutException("Interrupted while awaiting concurrent invocation");
+			}
+			catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new CompletionException(cause);
+			}
+		}
+	}
+
+
 	private static final class CacheOperationCacheKey implements Comparable<CacheOperationCacheKey> {
 
 		private final CacheOperation cacheOperation;
@@ -38,6 +38,20 @@ public interface CacheOperationInvoker {
 	 */
 	Object invoke() throws ThrowableWrapper;
 
+	/**
+	 * Invoke the cache operation defined by this instance with the given arguments
+	 * instead of the original ones, as needed for
+	 * {@link CacheableOperation#isBatch() batch} operations.
+	 * <p>The default implementation throws an {@link IllegalStateException}.
+	 * @param args the arguments to use for the invocation
+	 * @return the result of the operation
+	 * @throws ThrowableWrapper if an error occurred while invoking the operation
+	 * @since 5.0
+	 */
+	default Object invoke(Object[] args) throws ThrowableWrapper {
+		throw new IllegalStateException("Invocation with custom arguments not supported by " + getClass().getName());
+	}
+
 
 	/**
 	 * Wrap any exception thrown while invoking {@link #invoke()}.
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import org.springframework.cache.Cache;
+
+/**
+ * Extension of {@link Cache.ValueWrapper} for cache entries with a known
+ * expiration, as may be returned from {@link Cache#get(Object)} by cache
+ * implementations which track the expiration of their entries.
+ *
+ * <p>Allows callers such as the caching aspect to refresh an entry
+ * ahead of its expiration.
+ *
+ * @author agent
+ * @since 5.0
+ * @see org.springframework.cache.interceptor.CacheAspectSupport#setRefreshAheadTime
+ */
+public interface ExpiringValueWrapper extends Cache.ValueWrapper {
+
+	/**
+	 * Return the time (in milliseconds) until the wrapped entry expires,
+	 * as of the time of the lookup that returned this wrapper.
+	 */
+	long getTimeToExpiration();
+
+}
@@ -34,6 +34,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.support.SimpleInstantiationStrategy;
+import org.springframework.cglib.core.CachingGeneratorStrategy;
 import org.springframework.cglib.core.ClassGenerator;
 import org.springframework.cglib.core.Constants;
 import org.springframework.cglib.core.DefaultGeneratorStrategy;
@@ -124,7 +125,8 @@ class ConfigurationClassEnhancer {
 		enhancer.setInterfaces(new Class<?>[] {EnhancedConfiguration.class});
 		enhancer.setUseFactory(false);
 		enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
-		enhancer.setStrategy(new BeanFactoryAwareGeneratorStrategy(classLoader));
+		enhancer.setStrategy(CachingGeneratorStrategy.forEnhancer(new BeanFactoryAwareGeneratorStrategy(classLoader),
+				superclass, new Class<?>[] {EnhancedConfiguration.class}, CALLBACK_FILTER));
 		enhancer.setCallbackFilter(CALLBACK_FILTER);
 		enhancer.setCallbackTypes(CALLBACK_FILTER.getCallbackTypes());
 		return enhancer;
@@ -200,6 +202,22 @@ class ConfigurationClassEnhancer {
 		public Class<?>[] getCallbackTypes() {
 			return this.callbackTypes;
 		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (this == other || (other instanceof ConditionalCallbackFilter &&
+					Arrays.equals(this.callbackTypes, ((ConditionalCallbackFilter) other).callbackTypes)));
+		}
+
+		@Override
+		public int hashCode() {
+			// Based on callback type names: keeps generated class names stable across JVM runs
+			int hashCode = 0;
+			for (Class<?> callbackType : this.callbackTypes) {
+				hashCode = 13 * hashCode + callbackType.getName().hashCode();
+			}
+			return hashCode;
+		}
 	}
 
 
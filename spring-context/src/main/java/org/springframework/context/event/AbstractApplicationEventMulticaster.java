@@ -17,11 +17,15 @@
 package org.springframework.context.event;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.BeanClassLoaderAware;
@@ -47,6 +51,11 @@ import org.springframework.util.ObjectUtils;
  * ApplicationListener objects can be overridden through the "collectionClass"
  * bean property.
  *
+ * <p>Listener retrieval is lock-free: registered listeners are held in copy-on-write
+ * sets, and the pre-filtered listeners per event type and source type are cached
+ * with their sorted order. Registering or removing a listener only invalidates the
+ * cached entries that the listener applies to.
+ *
  * <p>Implementing ApplicationEventMulticaster's actual {@link #multicastEvent} method
  * is left to subclasses. {@link SimpleApplicationEventMulticaster} simply multicasts
  * all events to all registered listeners, invoking them in the calling thread.
@@ -73,6 +82,9 @@ public abstract class AbstractApplicationEventMulticaster
 
 	private Object retrievalMutex = this.defaultRetriever;
 
+	/** Incremented on every registration change, for detecting stale cache entries */
+	private volatile long registrationVersion;
+
 
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
@@ -106,11 +118,12 @@ public abstract class AbstractApplicationEventMulticaster
 			// Explicitly remove target for a proxy, if registered already,
 			// in order to avoid double invocations of the same listener.
 			Object singletonTarget = AopProxyUtils.getSingletonTarget(listener);
-			if (singletonTarget instanceof ApplicationListener) {
-				this.defaultRetriever.applicationListeners.remove(singletonTarget);
+			if (singletonTarget instanceof ApplicationListener &&
+					this.defaultRetriever.applicationListeners.remove(singletonTarget)) {
+				invalidateRetrieversContaining((ApplicationListener<?>) singletonTarget);
 			}
 			this.defaultRetriever.applicationListeners.add(listener);
-			this.retrieverCache.clear();
+			invalidateRetrieversSupporting(listener);
 		}
 	}
 
@@ -118,15 +131,16 @@ public abstract class AbstractApplicationEventMulticaster
 	public void addApplicationListenerBean(String listenerBeanName) {
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListenerBeans.add(listenerBeanName);
-			this.retrieverCache.clear();
+			invalidateAllRetrievers();
 		}
 	}
 
 	@Override
 	public void removeApplicationListener(ApplicationListener<?> listener) {
 		synchronized (this.retrievalMutex) {
-			this.defaultRetriever.applicationListeners.remove(listener);
-			this.retrieverCache.clear();
+			if (this.defaultRetriever.applicationListeners.remove(listener)) {
+				invalidateRetrieversContaining(listener);
+			}
 		}
 	}
 
@@ -134,7 +148,7 @@ public abstract class AbstractApplicationEventMulticaster
 	public void removeApplicationListenerBean(String listenerBeanName) {
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListenerBeans.remove(listenerBeanName);
-			this.retrieverCache.clear();
+			invalidateAllRetrievers();
 		}
 	}
 
@@ -143,10 +157,53 @@ public abstract class AbstractApplicationEventMulticaster
 		synchronized (this.retrievalMutex) {
 			this.defaultRetriever.applicationListeners.clear();
 			this.defaultRetriever.applicationListenerBeans.clear();
-			this.retrieverCache.clear();
+			invalidateAllRetrievers();
+		}
+	}
+
+	/**
+	 * Determine whether the given listener instance is registered with this
+	 * multicaster through {@link #addApplicationListener}, as opposed to being
+	 * obtained from a listener bean on retrieval.
+	 */
+	boolean isRegisteredListener(ApplicationListener<?> listener) {
+		return this.defaultRetriever.applicationListeners.contains(listener);
+	}
+
+	/**
+	 * Evict all cached retrievers for event types that the given
+	 * (newly registered) listener applies to.
+	 * <p>To be called with the retrieval mutex held.
+	 */
+	private void invalidateRetrieversSupporting(ApplicationListener<?> listener) {
+		this.registrationVersion++;
+		for (Iterator<ListenerCacheKey> it = this.retrieverCache.keySet().iterator(); it.hasNext();) {
+			ListenerCacheKey cacheKey = it.next();
+			if (supportsEvent(listener, cacheKey.eventType, cacheKey.sourceType)) {
+				it.remove();
+			}
 		}
 	}
 
+	/**
+	 * Evict all cached retrievers which contain the given (removed) listener.
+	 * <p>To be called with the retrieval mutex held.
+	 */
+	private void invalidateRetrieversContaining(ApplicationListener<?> listener) {
+		this.registrationVersion++;
+		this.retrieverCache.values().removeIf(retriever -> retriever.applicationListeners.contains(listener));
+	}
+
+	/**
+	 * Evict all cached retrievers, e.g. after a change of listener beans
+	 * whose types cannot be matched without instantiating them.
+	 * <p>To be called with the retrieval mutex held.
+	 */
+	private void invalidateAllRetrievers() {
+		this.registrationVersion++;
+		this.retrieverCache.clear();
+	}
+
 
 	/**
 	 * Return a Collection containing all ApplicationListeners.
@@ -154,9 +211,7 @@ public abstract class AbstractApplicationEventMulticaster
 	 * @see org.springframework.context.ApplicationListener
 	 */
 	protected Collection<ApplicationListener<?>> getApplicationListeners() {
-		synchronized (this.retrievalMutex) {
-			return this.defaultRetriever.getApplicationListeners();
-		}
+		return this.defaultRetriever.getApplicationListeners();
 	}
 
 	/**
@@ -184,21 +239,21 @@ public abstract class AbstractApplicationEventMulticaster
 		if (this.beanClassLoader == null ||
 				(ClassUtils.isCacheSafe(event.getClass(), this.beanClassLoader) &&
 						(sourceType == null || ClassUtils.isCacheSafe(sourceType, this.beanClassLoader)))) {
-			// Fully synchronized building and caching of a ListenerRetriever
-			synchronized (this.retrievalMutex) {
-				retriever = this.retrieverCache.get(cacheKey);
-				if (retriever != null) {
-					return retriever.getApplicationListeners();
-				}
-				retriever = new ListenerRetriever(true);
-				Collection<ApplicationListener<?>> listeners =
-						retrieveApplicationListeners(eventType, sourceType, retriever);
-				this.retrieverCache.put(cacheKey, retriever);
-				return listeners;
+			// Lock-free building and caching of a ListenerRetriever: concurrent callers
+			// may build the same entry, with the first one getting cached.
+			long version = this.registrationVersion;
+			retriever = new ListenerRetriever(true);
+			Collection<ApplicationListener<?>> listeners =
+					retrieveApplicationListeners(eventType, sourceType, retriever);
+			this.retrieverCache.putIfAbsent(cacheKey, retriever);
+			if (this.registrationVersion != version) {
+				// Registration changed in the meantime -> entry possibly stale
+				this.retrieverCache.remove(cacheKey, retriever);
 			}
+			return listeners;
 		}
 		else {
-			// No ListenerRetriever caching -> no synchronization necessary
+			// No ListenerRetriever caching
 			return retrieveApplicationListeners(eventType, sourceType, null);
 		}
 	}
@@ -214,12 +269,9 @@ public abstract class AbstractApplicationEventMulticaster
 			ResolvableType eventType, @Nullable Class<?> sourceType, @Nullable ListenerRetriever retriever) {
 
 		LinkedList<ApplicationListener<?>> allListeners = new LinkedList<>();
-		Set<ApplicationListener<?>> listeners;
-		Set<String> listenerBeans;
-		synchronized (this.retrievalMutex) {
-			listeners = new LinkedHashSet<>(this.defaultRetriever.applicationListeners);
-			listenerBeans = new LinkedHashSet<>(this.defaultRetriever.applicationListenerBeans);
-		}
+		// Copy-on-write sets: iteration works on a consistent snapshot without locking
+		Set<ApplicationListener<?>> listeners = this.defaultRetriever.applicationListeners;
+		Set<String> listenerBeans = this.defaultRetriever.applicationListenerBeans;
 		for (ApplicationListener<?> listener : listeners) {
 			if (supportsEvent(listener, eventType, sourceType)) {
 				if (retriever != null) {
@@ -238,7 +290,14 @@ public abstract class AbstractApplicationEventMulticaster
 								beanFactory.getBean(listenerBeanName, ApplicationListener.class);
 						if (!allListeners.contains(listener) && supportsEvent(listener, eventType, sourceType)) {
 							if (retriever != null) {
-								retriever.applicationListenerBeans.add(listenerBeanName);
+								// Singleton beans can be held as resolved instances, keeping the
+								// retriever eligible for a pre-sorted listener list
+								if (beanFactory.isSingleton(listenerBeanName)) {
+									retriever.applicationListeners.add(listener);
+								}
+								else {
+									retriever.applicationListenerBeans.add(listenerBeanName);
+								}
 							}
 							allListeners.add(listener);
 						}
@@ -251,6 +310,12 @@ public abstract class AbstractApplicationEventMulticaster
 			}
 		}
 		AnnotationAwareOrderComparator.sort(allListeners);
+		if (retriever != null && retriever.applicationListenerBeans.isEmpty()) {
+			// Hand out the cached view itself, never the list backing it
+			List<ApplicationListener<?>> sortedListeners = Collections.unmodifiableList(allListeners);
+			retriever.sortedListeners = sortedListeners;
+			return sortedListeners;
+		}
 		return allListeners;
 	}
 
@@ -361,13 +426,23 @@ public abstract class AbstractApplicationEventMulticaster
 
 		private final boolean preFiltered;
 
+		/** Pre-sorted listeners, if no non-singleton listener beans need to be resolved on retrieval */
+		@Nullable
+		List<ApplicationListener<?>> sortedListeners;
+
 		public ListenerRetriever(boolean preFiltered) {
-			this.applicationListeners = new LinkedHashSet<>();
-			this.applicationListenerBeans = new LinkedHashSet<>();
+			// Cached retrievers are populated once; the default retriever gets copy-on-write
+			// sets for lock-free iteration while registrations happen concurrently.
+			this.applicationListeners = (preFiltered ? new LinkedHashSet<>() : new CopyOnWriteArraySet<>());
+			this.applicationListenerBeans = (preFiltered ? new LinkedHashSet<>() : new CopyOnWriteArraySet<>());
 			this.preFiltered = preFiltered;
 		}
 
 		public Collection<ApplicationListener<?>> getApplicationListeners() {
+			List<ApplicationListener<?>> sortedListeners = this.sortedListeners;
+			if (sortedListeners != null) {
+				return sortedListeners;
+			}
 			LinkedList<ApplicationListener<?>> allListeners = new LinkedList<>();
 			for (ApplicationListener<?> listener : this.applicationListeners) {
 				allListeners.add(listener);
@@ -16,6 +16,8 @@
 
 package org.springframework.context.event;
 
+import java.util.Map;
+
 import org.springframework.aop.support.AopUtils;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
@@ -23,6 +25,7 @@ import org.springframework.core.Ordered;
 import org.springframework.core.ResolvableType;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 
 /**
  * {@link GenericApplicationListener} adapter that determines supported event types
@@ -35,6 +38,9 @@ import org.springframework.util.Assert;
  */
 public class GenericApplicationListenerAdapter implements GenericApplicationListener, SmartApplicationListener {
 
+	private static final Map<Class<?>, ResolvableType> eventTypeCache = new ConcurrentReferenceHashMap<>();
+
+
 	private final ApplicationListener<ApplicationEvent> delegate;
 
 	@Nullable
@@ -88,12 +94,17 @@ public class GenericApplicationListenerAdapter implements GenericApplicationList
 
 	@Nullable
 	static ResolvableType resolveDeclaredEventType(Class<?> listenerType) {
-		ResolvableType resolvableType = ResolvableType.forClass(listenerType).as(ApplicationListener.class);
-		return (resolvableType.hasGenerics() ? resolvableType.getGeneric() : null);
+		ResolvableType eventType = eventTypeCache.get(listenerType);
+		if (eventType == null) {
+			ResolvableType resolvableType = ResolvableType.forClass(listenerType).as(ApplicationListener.class);
+			eventType = (resolvableType.hasGenerics() ? resolvableType.getGeneric() : ResolvableType.NONE);
+			eventTypeCache.put(listenerType, eventType);
+		}
+		return (eventType != ResolvableType.NONE ? eventType : null);
 	}
 
 	@Nullable
-	private static ResolvableType resolveDeclaredEventType(ApplicationListener<ApplicationEvent> listener) {
+	static ResolvableType resolveDeclaredEventType(ApplicationListener<?> listener) {
 		ResolvableType declaredEventType = resolveDeclaredEventType(listener.getClass());
 		if (declaredEventType == null || declaredEventType.isAssignableFrom(
 				ResolvableType.forClass(ApplicationEvent.class))) {
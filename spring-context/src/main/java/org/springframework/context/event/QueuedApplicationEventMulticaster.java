@@ -0,0 +1,663 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ErrorHandler;
+
+/**
+ * {@link SimpleApplicationEventMulticaster} variant which gives each listener
+ * its own bounded queue, draining it on the {@linkplain #setTaskExecutor task
+ * executor} with at most one active task per listener.
+ *
+ * <p>Compared to submitting one task per listener per event, this guarantees
+ * that each listener receives events in publication order, avoids task
+ * submission for events that arrive while a listener is busy, and applies
+ * back-pressure to publishers once a listener's queue is full.
+ * {@link BatchApplicationListener BatchApplicationListeners} receive all events
+ * queued up for them in batches of up to {@link #setMaxBatchSize maxBatchSize}.
+ *
+ * <p>Queue depth, throughput and queueing latency per listener are exposed
+ * through {@link #getQueueStats()}. Queues of listener instances registered
+ * with the multicaster are kept until the listener is removed; queues of other
+ * listeners, e.g. prototype or scoped listener beans, are discarded once drained.
+ *
+ * <p>On a {@link ContextClosedEvent}, as well as on {@link #destroy()}, the
+ * multicaster waits for the events queued up so far to be delivered, up to
+ * the {@link #setShutdownTimeout shutdown timeout}, so that pending events
+ * are not lost when the default executor's daemon threads go away.
+ *
+ * <p>Listeners get invoked through {@link #invokeListener}, as with the
+ * standard multicaster. Batch listeners whose event type cannot be resolved,
+ * e.g. lambdas, receive their events one by one, so that an event of a
+ * non-matching type only affects itself rather than its entire batch.
+ *
+ * <p><b>Note:</b> A listener that publishes events to its own full queue from
+ * within its event handling method cannot wait for space in that queue, since
+ * only its own drain task could make room. Such events get rejected right away,
+ * as on an elapsed {@link #setEnqueueTimeout enqueue timeout}.
+ *
+ * @author agent
+ * @since 5.0
+ * @see BatchApplicationListener
+ */
+public class QueuedApplicationEventMulticaster extends SimpleApplicationEventMulticaster implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(QueuedApplicationEventMulticaster.class);
+
+
+	private int queueCapacity = 1024;
+
+	private int maxBatchSize = 64;
+
+	private long enqueueTimeout = -1;
+
+	private long shutdownTimeout = 10000;
+
+	private final Map<ApplicationListener<?>, ListenerQueue> listenerQueues = new ConcurrentHashMap<>(64);
+
+	/** The queue being drained by the current thread, for detecting re-entrant publishing */
+	private final ThreadLocal<ListenerQueue> drainingQueue = new ThreadLocal<>();
+
+	@Nullable
+	private volatile Executor defaultExecutor;
+
+
+	/**
+	 * Create a new QueuedApplicationEventMulticaster.
+	 */
+	public QueuedApplicationEventMulticaster() {
+	}
+
+	/**
+	 * Create a new QueuedApplicationEventMulticaster for the given BeanFactory.
+	 */
+	public QueuedApplicationEventMulticaster(BeanFactory beanFactory) {
+		super(beanFactory);
+	}
+
+
+	/**
+	 * Set the maximum number of pending events per listener.
+	 * <p>Default is 1024. Once a listener's queue is full, publishers block
+	 * until the listener has caught up or the enqueue timeout has elapsed.
+	 * @see #setEnqueueTimeout
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Return the maximum number of pending events per listener.
+	 */
+	public int getQueueCapacity() {
+		return this.queueCapacity;
+	}
+
+	/**
+	 * Set the maximum number of events to hand over to a
+	 * {@link BatchApplicationListener} in one call. Default is 64.
+	 * <p>This also limits the number of events that a single task drains
+	 * for a regular listener before yielding its executor thread.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be greater than 0");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Return the maximum number of events handed over in one call.
+	 */
+	public int getMaxBatchSize() {
+		return this.maxBatchSize;
+	}
+
+	/**
+	 * Set the maximum time (in milliseconds) to block a publisher when a
+	 * listener's queue is full.
+	 * <p>Default is -1, waiting indefinitely - except for events published by
+	 * a listener to its own full queue, which get rejected without waiting.
+	 * On timeout, the event is not
+	 * delivered to the affected listener and a {@link TaskRejectedException}
+	 * is passed to the {@link #setErrorHandler ErrorHandler}, if any, or
+	 * thrown to the publisher otherwise.
+	 */
+	public void setEnqueueTimeout(long enqueueTimeout) {
+		this.enqueueTimeout = enqueueTimeout;
+	}
+
+	/**
+	 * Return the maximum time (in milliseconds) to block a publisher
+	 * when a listener's queue is full.
+	 */
+	public long getEnqueueTimeout() {
+		return this.enqueueTimeout;
+	}
+
+	/**
+	 * Set the maximum time (in milliseconds) to wait for pending events to be
+	 * delivered on a {@link ContextClosedEvent} or on {@link #destroy()}.
+	 * <p>Default is 10000. Events still queued after this time are not
+	 * waited for any further and may not get delivered.
+	 */
+	public void setShutdownTimeout(long shutdownTimeout) {
+		this.shutdownTimeout = shutdownTimeout;
+	}
+
+	/**
+	 * Return the maximum time (in milliseconds) to wait for pending events
+	 * to be delivered on shutdown.
+	 */
+	public long getShutdownTimeout() {
+		return this.shutdownTimeout;
+	}
+
+
+	@Override
+	public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+		ResolvableType type = (eventType != null ? eventType : ResolvableType.forInstance(event));
+		for (ApplicationListener<?> listener : getApplicationListeners(event, type)) {
+			ListenerQueue queue = this.listenerQueues.get(listener);
+			if (queue == null) {
+				queue = this.listenerQueues.computeIfAbsent(listener, ListenerQueue::new);
+			}
+			while (!queue.enqueue(event)) {
+				// Queue discarded after draining in the meantime -> start a new one
+				queue = this.listenerQueues.computeIfAbsent(listener, ListenerQueue::new);
+			}
+		}
+		if (event instanceof ContextClosedEvent) {
+			// Deliver pending events before the context's beans get destroyed
+			awaitPendingEvents();
+		}
+	}
+
+	/**
+	 * Wait for the events queued up so far to be delivered, up to the
+	 * {@link #setShutdownTimeout shutdown timeout}.
+	 */
+	@Override
+	public void destroy() {
+		awaitPendingEvents();
+	}
+
+	private void awaitPendingEvents() {
+		long deadline = System.currentTimeMillis() + getShutdownTimeout();
+		ListenerQueue currentQueue = this.drainingQueue.get();
+		try {
+			for (ListenerQueue queue : this.listenerQueues.values()) {
+				// The queue drained by the current thread cannot finish before we return
+				if (queue != currentQueue && !queue.awaitIdle(deadline)) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Pending events for listener " + queue.listener +
+								" not delivered within shutdown timeout: " + queue.queue.size());
+					}
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void removeApplicationListener(ApplicationListener<?> listener) {
+		super.removeApplicationListener(listener);
+		// Pending events still get delivered by an active drain task
+		this.listenerQueues.remove(listener);
+	}
+
+	@Override
+	public void removeApplicationListenerBean(String listenerBeanName) {
+		super.removeApplicationListenerBean(listenerBeanName);
+		// The bean's instances cannot be identified by name: drop all queues of listeners
+		// that are no longer registered, with active drain tasks still delivering pending events
+		this.listenerQueues.values().removeIf(queue -> !isRegisteredListener(queue.listener));
+	}
+
+	@Override
+	public void removeAllListeners() {
+		super.removeAllListeners();
+		this.listenerQueues.clear();
+	}
+
+	/**
+	 * Return statistics for all listeners that have received events so far.
+	 */
+	public Collection<QueueStats> getQueueStats() {
+		List<QueueStats> stats = new ArrayList<>(this.listenerQueues.size());
+		for (ListenerQueue queue : this.listenerQueues.values()) {
+			stats.add(queue.getStats());
+		}
+		return stats;
+	}
+
+	/**
+	 * Return statistics for the given listener.
+	 * @param listener the listener to return statistics for
+	 * @return the statistics, or {@code null} if the listener
+	 * has not received any events so far
+	 */
+	@Nullable
+	public QueueStats getQueueStats(ApplicationListener<?> listener) {
+		ListenerQueue queue = this.listenerQueues.get(listener);
+		return (queue != null ? queue.getStats() : null);
+	}
+
+	/**
+	 * Determine the executor to drain listener queues with: the configured
+	 * {@link #setTaskExecutor task executor} or a {@link SimpleAsyncTaskExecutor}.
+	 */
+	protected Executor determineExecutor() {
+		Executor executor = getTaskExecutor();
+		if (executor != null) {
+			return executor;
+		}
+		executor = this.defaultExecutor;
+		if (executor == null) {
+			SimpleAsyncTaskExecutor asyncExecutor = new SimpleAsyncTaskExecutor("event-listener-");
+			asyncExecutor.setDaemon(true);
+			executor = asyncExecutor;
+			this.defaultExecutor = executor;
+		}
+		return executor;
+	}
+
+	/**
+	 * Determine whether the given batch listener declares a specific event type.
+	 * If not, e.g. for a lambda, it may receive events that it cannot handle.
+	 */
+	private static boolean hasResolvableEventType(ApplicationListener<?> listener) {
+		ResolvableType eventType = GenericApplicationListenerAdapter.resolveDeclaredEventType(listener);
+		Class<?> resolved = (eventType != null ? eventType.resolve() : null);
+		return (resolved != null && resolved != ApplicationEvent.class);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private boolean invokeBatchListener(BatchApplicationListener listener, List<ApplicationEvent> events) {
+		try {
+			listener.onApplicationEvents(events);
+			return true;
+		}
+		catch (Throwable ex) {
+			handleListenerError(ex, "Unexpected error from batch listener " + listener);
+			return false;
+		}
+	}
+
+	private boolean invokeQueuedListener(ApplicationListener<?> listener, ApplicationEvent event) {
+		try {
+			// Standard invocation, including the ErrorHandler and the handling of lambda listeners
+			invokeListener(listener, event);
+			return true;
+		}
+		catch (Throwable ex) {
+			// No ErrorHandler: nobody to propagate to in a drain task, so just log it.
+			logger.error("Unexpected error from listener " + listener + " for event " + event, ex);
+			return false;
+		}
+	}
+
+	private void handleListenerError(Throwable ex, String message) {
+		ErrorHandler errorHandler = getErrorHandler();
+		if (errorHandler != null) {
+			errorHandler.handleError(ex);
+		}
+		else {
+			// No ErrorHandler: nobody to propagate to in a drain task, so just log it.
+			logger.error(message, ex);
+		}
+	}
+
+
+	/**
+	 * Bounded queue of pending events for a single listener, drained by at
+	 * most one task at a time in order to preserve publication order.
+	 */
+	private class ListenerQueue implements Runnable {
+
+		private final ApplicationListener<?> listener;
+
+		private final BlockingQueue<QueuedEvent> queue;
+
+		/** Whether to keep this queue once drained, as opposed to discarding it */
+		private final boolean retained;
+
+		/** Whether to hand over events in batches */
+		private final boolean batched;
+
+		/** Number of publishers about to add an event (only tracked if not retained) */
+		private int pendingPublishers;
+
+		/** Whether this queue has been discarded (only set if not retained) */
+		private boolean discarded;
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private final AtomicLong deliveredCount = new AtomicLong();
+
+		private final AtomicLong failedCount = new AtomicLong();
+
+		private final AtomicLong totalLatency = new AtomicLong();
+
+		private final AtomicLong maxLatency = new AtomicLong();
+
+		private final AtomicLong rejectedCount = new AtomicLong();
+
+		public ListenerQueue(ApplicationListener<?> listener) {
+			this.listener = listener;
+			this.queue = new ArrayBlockingQueue<>(getQueueCapacity());
+			this.retained = isRegisteredListener(listener);
+			this.batched = (listener instanceof BatchApplicationListener && hasResolvableEventType(listener));
+		}
+
+		/**
+		 * Add the given event to this queue, waiting for space if necessary.
+		 * @return {@code false} if this queue has been discarded in the meantime,
+		 * in which case a new queue needs to be obtained for the listener
+		 */
+		public boolean enqueue(ApplicationEvent event) {
+			if (!this.retained) {
+				synchronized (this) {
+					if (this.discarded) {
+						return false;
+					}
+					this.pendingPublishers++;
+				}
+			}
+			boolean added;
+			try {
+				added = offer(new QueuedEvent(event));
+			}
+			finally {
+				if (!this.retained) {
+					synchronized (this) {
+						this.pendingPublishers--;
+					}
+				}
+			}
+			if (added) {
+				schedule();
+				return true;
+			}
+			else {
+				this.rejectedCount.incrementAndGet();
+				TaskRejectedException ex = new TaskRejectedException(
+						"Queue for listener " + this.listener + " is full - event not delivered: " + event);
+				ErrorHandler errorHandler = getErrorHandler();
+				if (errorHandler == null) {
+					throw ex;
+				}
+				errorHandler.handleError(ex);
+				return true;
+			}
+		}
+
+		private boolean offer(QueuedEvent queuedEvent) {
+			try {
+				if (drainingQueue.get() == this) {
+					// Re-entrant publishing: waiting for space would block our own drain task
+					return this.queue.offer(queuedEvent);
+				}
+				else if (getEnqueueTimeout() < 0) {
+					this.queue.put(queuedEvent);
+					return true;
+				}
+				else {
+					return this.queue.offer(queuedEvent, getEnqueueTimeout(), TimeUnit.MILLISECONDS);
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		private void schedule() {
+			if (this.scheduled.compareAndSet(false, true)) {
+				try {
+					determineExecutor().execute(this);
+				}
+				catch (RuntimeException ex) {
+					this.scheduled.set(false);
+					throw ex;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			ListenerQueue outerQueue = drainingQueue.get();
+			drainingQueue.set(this);
+			try {
+				drain();
+			}
+			finally {
+				if (outerQueue != null) {
+					drainingQueue.set(outerQueue);
+				}
+				else {
+					drainingQueue.remove();
+				}
+				this.scheduled.set(false);
+				// Events may have arrived after the last poll but before resetting the flag
+				if (!this.queue.isEmpty()) {
+					schedule();
+				}
+				else if (!this.retained) {
+					discardIfIdle();
+				}
+				synchronized (this) {
+					notifyAll();
+				}
+			}
+		}
+
+		/**
+		 * Wait until this queue is empty and not being drained anymore.
+		 * @param deadline the time (in milliseconds) to wait until at most
+		 * @return whether the queue became idle before the deadline
+		 */
+		public synchronized boolean awaitIdle(long deadline) throws InterruptedException {
+			while (!this.queue.isEmpty() || this.scheduled.get()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				wait(remaining);
+			}
+			return true;
+		}
+
+		private synchronized void discardIfIdle() {
+			if (this.pendingPublishers == 0 && this.queue.isEmpty() && !this.scheduled.get()) {
+				this.discarded = true;
+				listenerQueues.remove(this.listener, this);
+			}
+		}
+
+		@SuppressWarnings("rawtypes")
+		private void drain() {
+			List<QueuedEvent> batch = new ArrayList<>(Math.min(getMaxBatchSize(), this.queue.size() + 1));
+			this.queue.drainTo(batch, getMaxBatchSize());
+			if (batch.isEmpty()) {
+				return;
+			}
+			long now = System.nanoTime();
+			for (QueuedEvent queuedEvent : batch) {
+				recordLatency(now - queuedEvent.timestamp);
+			}
+			if (this.batched) {
+				List<ApplicationEvent> events = new ArrayList<>(batch.size());
+				for (QueuedEvent queuedEvent : batch) {
+					events.add(queuedEvent.event);
+				}
+				boolean delivered = invokeBatchListener((BatchApplicationListener) this.listener, events);
+				(delivered ? this.deliveredCount : this.failedCount).addAndGet(batch.size());
+			}
+			else {
+				for (QueuedEvent queuedEvent : batch) {
+					boolean delivered = invokeQueuedListener(this.listener, queuedEvent.event);
+					(delivered ? this.deliveredCount : this.failedCount).incrementAndGet();
+				}
+			}
+		}
+
+		private void recordLatency(long latency) {
+			this.totalLatency.addAndGet(latency);
+			long max = this.maxLatency.get();
+			while (latency > max && !this.maxLatency.compareAndSet(max, latency)) {
+				max = this.maxLatency.get();
+			}
+		}
+
+		public QueueStats getStats() {
+			return new QueueStats(this.listener, this.queue.size(), this.deliveredCount.get(),
+					this.failedCount.get(), this.rejectedCount.get(), this.totalLatency.get(), this.maxLatency.get());
+		}
+	}
+
+
+	private static class QueuedEvent {
+
+		final ApplicationEvent event;
+
+		final long timestamp = System.nanoTime();
+
+		QueuedEvent(ApplicationEvent event) {
+			this.event = event;
+		}
+	}
+
+
+	/**
+	 * Snapshot of the queue statistics for a single listener.
+	 */
+	public static final class QueueStats {
+
+		private final ApplicationListener<?> listener;
+
+		private final int queueDepth;
+
+		private final long deliveredCount;
+
+		private final long failedCount;
+
+		private final long rejectedCount;
+
+		private final long totalLatencyNanos;
+
+		private final long maxLatencyNanos;
+
+		QueueStats(ApplicationListener<?> listener, int queueDepth, long deliveredCount, long failedCount,
+				long rejectedCount, long totalLatencyNanos, long maxLatencyNanos) {
+
+			this.listener = listener;
+			this.queueDepth = queueDepth;
+			this.deliveredCount = deliveredCount;
+			this.failedCount = failedCount;
+			this.rejectedCount = rejectedCount;
+			this.totalLatencyNanos = totalLatencyNanos;
+			this.maxLatencyNanos = maxLatencyNanos;
+		}
+
+		/**
+		 * Return the listener that these statistics apply to.
+		 */
+		public ApplicationListener<?> getListener() {
+			return this.listener;
+		}
+
+		/**
+		 * Return the number of events currently waiting for delivery.
+		 */
+		public int getQueueDepth() {
+			return this.queueDepth;
+		}
+
+		/**
+		 * Return the number of events successfully handled by the listener so far.
+		 */
+		public long getDeliveredCount() {
+			return this.deliveredCount;
+		}
+
+		/**
+		 * Return the number of events for which the listener threw an exception.
+		 */
+		public long getFailedCount() {
+			return this.failedCount;
+		}
+
+		/**
+		 * Return the number of events rejected because of a full queue.
+		 */
+		public long getRejectedCount() {
+			return this.rejectedCount;
+		}
+
+		/**
+		 * Return the average time (in milliseconds) that events handed
+		 * to the listener spent in the queue.
+		 */
+		public double getAverageLatency() {
+			long handedOver = this.deliveredCount + this.failedCount;
+			return (handedOver > 0 ? (double) this.totalLatencyNanos / handedOver / 1_000_000 : 0);
+		}
+
+		/**
+		 * Return the maximum time (in milliseconds) that an event
+		 * handed to the listener spent in the queue.
+		 */
+		public double getMaxLatency() {
+			return (double) this.maxLatencyNanos / 1_000_000;
+		}
+
+		@Override
+		public String toString() {
+			return "QueueStats for " + this.listener + ": depth=" + this.queueDepth +
+					", delivered=" + this.deliveredCount + ", failed=" + this.failedCount +
+					", rejected=" + this.rejectedCount +
+					", avgLatency=" + getAverageLatency() + "ms, maxLatency=" + getMaxLatency() + "ms";
+		}
+	}
+
+}
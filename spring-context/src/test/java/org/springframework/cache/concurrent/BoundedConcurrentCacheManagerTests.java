@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class BoundedConcurrentCacheManagerTests {
+
+	@Test
+	public void testDynamicMode() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager();
+		Cache cache1 = cm.getCache("c1");
+		assertTrue(cache1 instanceof BoundedConcurrentCache);
+		assertSame(cache1, cm.getCache("c1"));
+		assertEquals(BoundedConcurrentCacheManager.DEFAULT_MAXIMUM_SIZE,
+				((BoundedConcurrentCache) cache1).getMaximumSize());
+
+		cache1.put("key1", "value1");
+		assertEquals("value1", cache1.get("key1").get());
+		cache1.put("key3", null);
+		assertNull(cache1.get("key3").get());
+		cache1.evict("key3");
+		assertNull(cache1.get("key3"));
+	}
+
+	@Test
+	public void testStaticMode() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager("c1", "c2");
+		assertTrue(cm.getCache("c1") instanceof BoundedConcurrentCache);
+		assertTrue(cm.getCache("c2") instanceof BoundedConcurrentCache);
+		assertNull(cm.getCache("c3"));
+		assertEquals(2, cm.getCacheNames().size());
+
+		cm.setCacheNames(null);
+		assertTrue(cm.getCache("c3") instanceof BoundedConcurrentCache);
+	}
+
+	@Test
+	public void testConfigurationAppliedToExistingCaches() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager("c1");
+		BoundedConcurrentCache cache1 = (BoundedConcurrentCache) cm.getCache("c1");
+		cache1.put("key1", "value1");
+
+		cm.setMaximumSize(500);
+		cm.setTimeToLive(60000);
+		cm.setTimeToIdle(10000);
+		assertSame(cache1, cm.getCache("c1"));
+		assertEquals(500, cache1.getMaximumSize());
+		assertEquals(60000, cache1.getTimeToLive());
+		assertEquals(10000, cache1.getTimeToIdle());
+		assertEquals("value1", cache1.get("key1").get());
+	}
+
+	@Test
+	public void testChangeAllowNullValues() {
+		BoundedConcurrentCacheManager cm = new BoundedConcurrentCacheManager("c1");
+		cm.setMaximumSize(20);
+		BoundedConcurrentCache cache1 = (BoundedConcurrentCache) cm.getCache("c1");
+		assertTrue(cache1.isAllowNullValues());
+
+		cm.setAllowNullValues(false);
+		BoundedConcurrentCache cache1x = (BoundedConcurrentCache) cm.getCache("c1");
+		assertNotSame(cache1, cache1x);
+		assertFalse(cache1x.isAllowNullValues());
+		assertEquals(20, cache1x.getMaximumSize());
+	}
+
+}
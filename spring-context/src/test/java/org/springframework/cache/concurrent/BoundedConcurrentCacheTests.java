@@ -0,0 +1,243 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cache.AbstractValueAdaptingCacheTests;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.ExpiringValueWrapper;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class BoundedConcurrentCacheTests extends AbstractValueAdaptingCacheTests<BoundedConcurrentCache> {
+
+	private final AtomicLong time = new AtomicLong();
+
+	private BoundedConcurrentCache cache;
+
+	private BoundedConcurrentCache cacheNoNull;
+
+
+	@Before
+	public void setUp() {
+		this.cache = new TestBoundedConcurrentCache(CACHE_NAME, 100, true);
+		this.cacheNoNull = new TestBoundedConcurrentCache(CACHE_NAME_NO_NULL, 100, false);
+	}
+
+	@Override
+	protected BoundedConcurrentCache getCache() {
+		return getCache(true);
+	}
+
+	@Override
+	protected BoundedConcurrentCache getCache(boolean allowNull) {
+		return (allowNull ? this.cache : this.cacheNoNull);
+	}
+
+	@Override
+	protected Object getNativeCache() {
+		return this.cache;
+	}
+
+
+	@Test
+	public void evictionBeyondMaximumSize() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache("bounded", 10);
+		for (int i = 0; i < 25; i++) {
+			cache.put(i, "value" + i);
+		}
+		assertEquals(10, cache.getEstimatedSize());
+		assertEquals(10, cache.getWeightedSize());
+		assertEquals(15, cache.getEvictionCount());
+		assertNull(cache.get(0));
+		assertEquals("value24", cache.get(24).get());
+	}
+
+	@Test
+	public void frequentlyReadEntriesSurviveScan() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache("bounded", 10);
+		cache.put("hot1", "a");
+		cache.put("hot2", "b");
+		assertNotNull(cache.get("hot1"));
+		assertNotNull(cache.get("hot2"));
+		cache.cleanUp();
+
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "value" + i);
+		}
+		assertEquals("a", cache.get("hot1").get());
+		assertEquals("b", cache.get("hot2").get());
+		assertNull(cache.get(0));
+		assertEquals(10, cache.getEstimatedSize());
+	}
+
+	@Test
+	public void weightBasedEviction() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache("weighted", 100);
+		cache.setWeigher((key, value) -> ((String) value).length());
+		cache.put("a", new String(new char[40]));
+		cache.put("b", new String(new char[40]));
+		assertEquals(80, cache.getWeightedSize());
+		cache.put("c", new String(new char[30]));
+		assertEquals(70, cache.getWeightedSize());
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+
+		cache.put("b", "x");
+		assertEquals(31, cache.getWeightedSize());
+		cache.put("huge", new String(new char[101]));
+		assertNull(cache.get("huge"));
+		assertEquals("x", cache.get("b").get());
+		assertEquals(31, cache.getWeightedSize());
+	}
+
+	@Test
+	public void reducedMaximumSize() {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache("bounded", 10);
+		for (int i = 0; i < 10; i++) {
+			cache.put(i, "value" + i);
+		}
+		cache.setMaximumSize(5);
+		cache.cleanUp();
+		assertEquals(5, cache.getEstimatedSize());
+		assertEquals(5, cache.getEvictionCount());
+	}
+
+	@Test
+	public void timeToLive() {
+		this.cache.setTimeToLive(1000);
+		this.cache.put("key", "value");
+		this.time.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+		assertEquals("value", this.cache.get("key").get());
+		this.time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+		assertNull(this.cache.get("key"));
+		assertEquals(1, this.cache.getExpirationCount());
+		assertEquals(0, this.cache.getEstimatedSize());
+		assertEquals(0, this.cache.getWeightedSize());
+	}
+
+	@Test
+	public void expirationExposedThroughValueWrapper() {
+		this.cache.put("key", "value");
+		assertFalse(this.cache.get("key") instanceof ExpiringValueWrapper);
+
+		this.cache.setTimeToLive(1000);
+		this.time.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+		Cache.ValueWrapper wrapper = this.cache.get("key");
+		assertTrue(wrapper instanceof ExpiringValueWrapper);
+		assertEquals("value", wrapper.get());
+		assertEquals(600, ((ExpiringValueWrapper) wrapper).getTimeToExpiration());
+	}
+
+	@Test
+	public void timeToIdle() {
+		this.cache.setTimeToIdle(1000);
+		this.cache.put("key", "value");
+		for (int i = 0; i < 5; i++) {
+			this.time.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+			assertEquals("value", this.cache.get("key").get());
+		}
+		this.time.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+		assertNull(this.cache.get("key"));
+		assertEquals(1, this.cache.getExpirationCount());
+	}
+
+	@Test
+	public void expiredEntriesRemovedOnMaintenance() {
+		this.cache.setTimeToLive(1000);
+		for (int i = 0; i < 10; i++) {
+			this.cache.put(i, "value" + i);
+		}
+		this.time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		this.cache.cleanUp();
+		assertEquals(0, this.cache.getEstimatedSize());
+		assertEquals(10, this.cache.getExpirationCount());
+	}
+
+	@Test
+	public void expiredEntryReplacedOnPutIfAbsentAndLoad() {
+		this.cache.setTimeToLive(1000);
+		this.cache.put("key1", "value1");
+		this.cache.put("key2", "value2");
+		this.time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		assertNull(this.cache.putIfAbsent("key1", "value1x"));
+		assertEquals("value1x", this.cache.get("key1").get());
+		assertEquals("value2x", this.cache.get("key2", () -> "value2x"));
+		assertEquals("value2x", this.cache.get("key2").get());
+	}
+
+	@Test
+	public void statistics() {
+		this.cache.put("key", "value");
+		this.cache.get("key");
+		this.cache.get("key", () -> "other");
+		this.cache.get("missing");
+		this.cache.get("loaded", () -> "value");
+		assertEquals(2, this.cache.getHitCount());
+		assertEquals(2, this.cache.getMissCount());
+	}
+
+	@Test
+	public void concurrentAccessWithinBounds() throws Exception {
+		BoundedConcurrentCache cache = new BoundedConcurrentCache("bounded", 50);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch latch = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			int seed = t;
+			executor.execute(() -> {
+				for (int i = 0; i < 10000; i++) {
+					int key = (i * 31 + seed) % 200;
+					if (cache.get(key) == null) {
+						cache.put(key, "value" + key);
+					}
+				}
+				latch.countDown();
+			});
+		}
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		cache.cleanUp();
+		assertTrue(cache.getEstimatedSize() <= 50);
+		assertEquals(cache.getEstimatedSize(), cache.getWeightedSize());
+	}
+
+
+	private class TestBoundedConcurrentCache extends BoundedConcurrentCache {
+
+		public TestBoundedConcurrentCache(String name, long maximumSize, boolean allowNullValues) {
+			super(name, maximumSize, allowNullValues);
+		}
+
+		@Override
+		protected long currentTime() {
+			return time.get();
+		}
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for batch {@link Cacheable} operations as well as for the
+ * bulk operations on {@link Cache}.
+ *
+ * @author agent
+ */
+public class CacheBatchOperationTests {
+
+	private final ConcurrentMapCache cache = new ConcurrentMapCache("testCache");
+
+	private final CacheInterceptor interceptor = new CacheInterceptor();
+
+	private final BatchServiceImpl target = new BatchServiceImpl();
+
+	private BatchService service;
+
+
+	@Before
+	public void setup() {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(Collections.singletonList(this.cache));
+		cacheManager.afterPropertiesSet();
+		this.interceptor.setCacheOperationSources(new AnnotationCacheOperationSource());
+		this.interceptor.setCacheManager(cacheManager);
+		this.interceptor.afterPropertiesSet();
+		this.interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(this.target);
+		proxyFactory.addInterface(BatchService.class);
+		proxyFactory.addAdvice(this.interceptor);
+		this.service = (BatchService) proxyFactory.getProxy();
+	}
+
+
+	@Test
+	public void defaultBulkOperations() {
+		Map<Object, Object> entries = new LinkedHashMap<>();
+		entries.put("a", 1);
+		entries.put("b", null);
+		this.cache.putAll(entries);
+		Map<Object, Cache.ValueWrapper> result = this.cache.getAll(Arrays.asList("a", "b", "c"));
+		assertEquals(2, result.size());
+		assertEquals(1, result.get("a").get());
+		assertNull(result.get("b").get());
+		assertFalse(result.containsKey("c"));
+	}
+
+	@Test
+	public void batchInvokesMethodForMissingKeysOnly() {
+		this.cache.put("b", "cached-b");
+		Map<String, String> result = this.service.find(Arrays.asList("a", "b", "c"));
+		assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(result.keySet()));
+		assertEquals("value-a", result.get("a"));
+		assertEquals("cached-b", result.get("b"));
+		assertEquals("value-c", result.get("c"));
+		assertEquals(1, this.target.invocations.size());
+		assertEquals(Arrays.asList("a", "c"), new ArrayList<>(this.target.invocations.get(0)));
+		assertEquals("value-a", this.cache.get("a").get());
+		assertEquals("value-c", this.cache.get("c").get());
+	}
+
+	@Test
+	public void batchWithAllKeysCached() {
+		this.service.find(Arrays.asList("a", "b"));
+		Map<String, String> result = this.service.find(Arrays.asList("b", "a"));
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<>(result.keySet()));
+		assertEquals(1, this.target.invocations.size());
+	}
+
+	@Test
+	public void batchOmitsKeysNotReturnedByMethod() {
+		Map<String, String> result = this.service.find(Arrays.asList("a", "missing"));
+		assertEquals(1, result.size());
+		assertEquals("value-a", result.get("a"));
+		assertNull(this.cache.get("missing"));
+	}
+
+	@Test
+	public void batchWithUnlessEvaluatedPerEntry() {
+		Map<String, String> result = this.service.findUnlessEmpty(Arrays.asList("a", "empty"));
+		assertEquals(2, result.size());
+		assertEquals("", result.get("empty"));
+		assertNotNull(this.cache.get("a"));
+		assertNull(this.cache.get("empty"));
+	}
+
+	@Test
+	public void batchWithConditionNotMet() {
+		this.service.findIfMultiple(Collections.singletonList("a"));
+		assertNull(this.cache.get("a"));
+		this.service.findIfMultiple(Arrays.asList("a", "b"));
+		this.service.findIfMultiple(Arrays.asList("a", "b"));
+		assertEquals(2, this.target.invocations.size());
+		assertNotNull(this.cache.get("a"));
+	}
+
+	@Test
+	public void batchWithKeyGeneratorAppliedPerElement() {
+		this.interceptor.setKeyGenerator((target, method, params) -> "key-" + params[0]);
+		this.cache.put("key-b", "cached-b");
+		Map<String, String> result = this.service.find(Arrays.asList("a", "b"));
+		assertEquals("value-a", result.get("a"));
+		assertEquals("cached-b", result.get("b"));
+		assertEquals(Collections.singletonList("a"), new ArrayList<>(this.target.invocations.get(0)));
+		assertEquals("value-a", this.cache.get("key-a").get());
+		assertNull(this.cache.get("a"));
+	}
+
+	@Test
+	public void batchWithNullKeyCollection() {
+		assertTrue(this.service.find(null).isEmpty());
+		assertEquals(1, this.target.invocations.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void batchWithNullKeyElement() {
+		this.service.find(Arrays.asList("a", null));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void batchWithInvalidSignature() {
+		this.service.invalidSignature("a");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void batchCombinedWithOtherOperation() {
+		this.service.combinedWithEvict(Collections.singletonList("a"));
+	}
+
+
+	public interface BatchService {
+
+		Map<String, String> find(Collection<String> keys);
+
+		Map<String, String> findUnlessEmpty(Collection<String> keys);
+
+		Map<String, String> findIfMultiple(Collection<String> keys);
+
+		Map<String, String> invalidSignature(String key);
+
+		Map<String, String> combinedWithEvict(Collection<String> keys);
+	}
+
+
+	public static class BatchServiceImpl implements BatchService {
+
+		final List<Collection<String>> invocations = new ArrayList<>();
+
+		@Override
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<String, String> find(Collection<String> keys) {
+			return load(keys);
+		}
+
+		@Override
+		@Cacheable(cacheNames = "testCache", batch = true, unless = "#result.isEmpty()")
+		public Map<String, String> findUnlessEmpty(Collection<String> keys) {
+			return load(keys);
+		}
+
+		@Override
+		@Cacheable(cacheNames = "testCache", batch = true, condition = "#p0.size() > 1")
+		public Map<String, String> findIfMultiple(Collection<String> keys) {
+			return load(keys);
+		}
+
+		@Override
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<String, String> invalidSignature(String key) {
+			return load(Collections.singletonList(key));
+		}
+
+		@Override
+		@Cacheable(cacheNames = "testCache", batch = true)
+		@CacheEvict(cacheNames = "testCache", allEntries = true)
+		public Map<String, String> combinedWithEvict(Collection<String> keys) {
+			return load(keys);
+		}
+
+		private Map<String, String> load(Collection<String> keys) {
+			this.invocations.add(keys);
+			Map<String, String> result = new LinkedHashMap<>();
+			if (keys != null) {
+				for (String key : keys) {
+					if (key.equals("empty")) {
+						result.put(key, "");
+					}
+					else if (!key.equals("missing")) {
+						result.put(key, "value-" + key);
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+}
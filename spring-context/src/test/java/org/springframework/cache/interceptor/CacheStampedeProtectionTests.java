@@ -0,0 +1,322 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.ExpiringValueWrapper;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the miss coalescing and refresh-ahead support in {@link CacheAspectSupport}.
+ *
+ * @author agent
+ */
+public class CacheStampedeProtectionTests {
+
+	private final ExpiringTestCache cache = new ExpiringTestCache();
+
+	private final CacheInterceptor interceptor = new CacheInterceptor();
+
+	private final SimpleServiceImpl target = new SimpleServiceImpl();
+
+	private SimpleService service;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+
+	@Before
+	public void setup() {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(Collections.singletonList(this.cache));
+		cacheManager.afterPropertiesSet();
+		this.interceptor.setCacheOperationSources(new AnnotationCacheOperationSource());
+		this.interceptor.setCacheManager(cacheManager);
+		this.interceptor.afterPropertiesSet();
+		this.interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(this.target);
+		proxyFactory.addInterface(SimpleService.class);
+		proxyFactory.addAdvice(this.interceptor);
+		this.service = (SimpleService) proxyFactory.getProxy();
+	}
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void concurrentMissesInvokeMethodSeparatelyByDefault() throws Exception {
+		this.target.block = new CountDownLatch(1);
+		this.target.arrivals = new CountDownLatch(2);
+		Future<Long> first = this.executor.submit(() -> this.service.get("key"));
+		Future<Long> second = this.executor.submit(() -> this.service.get("key"));
+		assertTrue(this.target.arrivals.await(10, TimeUnit.SECONDS));
+		this.target.block.countDown();
+		first.get(10, TimeUnit.SECONDS);
+		second.get(10, TimeUnit.SECONDS);
+		assertEquals(2, this.target.counter.get());
+	}
+
+	@Test
+	public void coalesceConcurrentMisses() throws Exception {
+		this.interceptor.setCoalesceMisses(true);
+		this.target.block = new CountDownLatch(1);
+		this.target.arrivals = new CountDownLatch(1);
+		List<Future<Long>> results = new ArrayList<>();
+		results.add(this.executor.submit(() -> this.service.get("key")));
+		assertTrue(this.target.arrivals.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 3; i++) {
+			results.add(this.executor.submit(() -> this.service.get("key")));
+		}
+		awaitWaitingThreads(3);
+		this.target.block.countDown();
+		for (Future<Long> result : results) {
+			assertEquals(Long.valueOf(1), result.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(1, this.target.counter.get());
+		assertEquals(1L, this.cache.get("key").get());
+
+		assertEquals(Long.valueOf(2), this.service.get("other"));
+	}
+
+	@Test
+	public void coalesceConcurrentMissesWithException() throws Exception {
+		this.interceptor.setCoalesceMisses(true);
+		this.target.block = new CountDownLatch(1);
+		this.target.arrivals = new CountDownLatch(1);
+		this.target.failure = new IllegalStateException("Test failure");
+		Future<Long> first = this.executor.submit(() -> this.service.get("key"));
+		assertTrue(this.target.arrivals.await(10, TimeUnit.SECONDS));
+		Future<Long> second = this.executor.submit(() -> this.service.get("key"));
+		awaitWaitingThreads(1);
+		this.target.block.countDown();
+		for (Future<Long> result : Arrays.asList(first, second)) {
+			try {
+				result.get(10, TimeUnit.SECONDS);
+				fail("Should have thrown ExecutionException");
+			}
+			catch (ExecutionException ex) {
+				assertSame(this.target.failure, ex.getCause());
+			}
+		}
+		assertEquals(1, this.target.counter.get());
+		assertNull(this.cache.get("key"));
+	}
+
+	@Test
+	public void coalescedWaitTimeoutInvokesMethodInCallingThread() throws Exception {
+		this.interceptor.setCoalesceMisses(true);
+		this.interceptor.setCoalescedWaitTimeout(100);
+		this.target.block = new CountDownLatch(1);
+		this.target.arrivals = new CountDownLatch(1);
+		Future<Long> first = this.executor.submit(() -> this.service.get("key"));
+		assertTrue(this.target.arrivals.await(10, TimeUnit.SECONDS));
+		this.target.arrivals = new CountDownLatch(1);
+		Future<Long> second = this.executor.submit(() -> this.service.get("key"));
+		assertTrue(this.target.arrivals.await(10, TimeUnit.SECONDS));
+		this.target.block.countDown();
+		assertEquals(Long.valueOf(1), first.get(10, TimeUnit.SECONDS));
+		assertEquals(Long.valueOf(2), second.get(10, TimeUnit.SECONDS));
+		assertEquals(2, this.target.counter.get());
+	}
+
+	@Test
+	public void refreshAheadServesStaleValueWhileRefreshing() {
+		List<Runnable> tasks = new ArrayList<>();
+		this.interceptor.setRefreshAheadTime(1000);
+		this.interceptor.setRefreshExecutor(tasks::add);
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertTrue(tasks.isEmpty());
+
+		this.cache.timeToExpiration = 500;
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertEquals(1, tasks.size());
+		assertEquals(1, this.target.counter.get());
+
+		tasks.get(0).run();
+		assertEquals(2, this.target.counter.get());
+		assertEquals(2L, this.cache.get("key").get());
+		assertEquals(Long.valueOf(2), this.service.get("key"));
+		assertEquals(2, tasks.size());
+	}
+
+	@Test
+	public void refreshAheadInCallingThread() {
+		this.interceptor.setRefreshAheadTime(1000);
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		this.cache.timeToExpiration = 500;
+		assertEquals(Long.valueOf(2), this.service.get("key"));
+		assertEquals(2L, this.cache.get("key").get());
+	}
+
+	@Test
+	public void refreshAheadWithoutServingStaleValue() {
+		List<Runnable> tasks = new ArrayList<>();
+		this.interceptor.setRefreshAheadTime(1000);
+		this.interceptor.setRefreshExecutor(tasks::add);
+		this.interceptor.setServeStaleWhileRefreshing(false);
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		this.cache.timeToExpiration = 500;
+		assertEquals(Long.valueOf(2), this.service.get("key"));
+		assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void refreshAheadFailureKeepsCurrentValue() {
+		this.interceptor.setRefreshAheadTime(1000);
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		this.cache.timeToExpiration = 500;
+		this.target.failure = new IllegalStateException("Test failure");
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertEquals(1L, this.cache.get("key").get());
+	}
+
+	@Test
+	public void noRefreshAheadWithoutExpirationMetadata() {
+		this.interceptor.setRefreshAheadTime(1000);
+		this.cache.timeToExpiration = -1;
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertEquals(Long.valueOf(1), this.service.get("key"));
+		assertEquals(1, this.target.counter.get());
+	}
+
+
+	private void awaitWaitingThreads(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < deadline) {
+			int waiting = 0;
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				Thread.State state = thread.getState();
+				if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+					for (StackTraceElement element : thread.getStackTrace()) {
+						if (element.getClassName().endsWith("InFlightInvocation")) {
+							waiting++;
+							break;
+						}
+					}
+				}
+			}
+			if (waiting >= count) {
+				return;
+			}
+			Thread.sleep(10);
+		}
+		fail("Callers did not wait for in-flight invocation");
+	}
+
+
+	private static class ExpiringTestCache extends ConcurrentMapCache {
+
+		volatile long timeToExpiration = 10000;
+
+		public ExpiringTestCache() {
+			super("testCache");
+		}
+
+		@Override
+		public ValueWrapper get(Object key) {
+			ValueWrapper wrapper = super.get(key);
+			if (wrapper == null || this.timeToExpiration < 0) {
+				return wrapper;
+			}
+			long timeToExpiration = this.timeToExpiration;
+			return new TestExpiringValueWrapper(wrapper.get(), timeToExpiration);
+		}
+	}
+
+
+	private static class TestExpiringValueWrapper extends SimpleValueWrapper implements ExpiringValueWrapper {
+
+		private final long timeToExpiration;
+
+		public TestExpiringValueWrapper(Object value, long timeToExpiration) {
+			super(value);
+			this.timeToExpiration = timeToExpiration;
+		}
+
+		@Override
+		public long getTimeToExpiration() {
+			return this.timeToExpiration;
+		}
+	}
+
+
+	public interface SimpleService {
+
+		Long get(String key);
+	}
+
+
+	public static class SimpleServiceImpl implements SimpleService {
+
+		final AtomicLong counter = new AtomicLong();
+
+		volatile CountDownLatch arrivals;
+
+		volatile CountDownLatch block;
+
+		volatile RuntimeException failure;
+
+		@Override
+		@Cacheable("testCache")
+		public Long get(String key) {
+			long value = this.counter.incrementAndGet();
+			if (this.arrivals != null) {
+				this.arrivals.countDown();
+			}
+			if (this.block != null) {
+				try {
+					this.block.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (this.failure != null) {
+				throw this.failure;
+			}
+			return value;
+		}
+	}
+
+}
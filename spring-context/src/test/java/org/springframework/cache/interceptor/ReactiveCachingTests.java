@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CacheInterceptor} with reactive return types.
+ *
+ * @author agent
+ */
+public class ReactiveCachingTests {
+
+	private final ConcurrentMapCache cache = new ConcurrentMapCache("testCache");
+
+	private final DefaultReactiveService target = new DefaultReactiveService();
+
+	private ReactiveService service;
+
+
+	@Before
+	public void setup() {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(Collections.singletonList(this.cache));
+		cacheManager.afterPropertiesSet();
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheOperationSources(new AnnotationCacheOperationSource());
+		interceptor.setCacheManager(cacheManager);
+		interceptor.afterPropertiesSet();
+		interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(this.target);
+		proxyFactory.addInterface(ReactiveService.class);
+		proxyFactory.addAdvice(interceptor);
+		this.service = (ReactiveService) proxyFactory.getProxy();
+	}
+
+
+	@Test
+	public void monoValueCached() {
+		Mono<Long> result = this.service.find("key");
+		assertNull(this.cache.get("key"));
+		assertEquals(Long.valueOf(1), result.block());
+		assertEquals(1L, this.cache.get("key").get());
+
+		assertEquals(Long.valueOf(1), this.service.find("key").block());
+		assertEquals(1, this.target.invocations.get());
+		assertEquals(1, this.target.subscriptions.get());
+	}
+
+	@Test
+	public void fluxValuesCached() {
+		assertEquals(Arrays.asList(1L, 1L), this.service.findAll("key").collectList().block());
+		assertEquals(Arrays.asList(1L, 1L), this.cache.get("key").get());
+
+		assertEquals(Arrays.asList(1L, 1L), this.service.findAll("key").collectList().block());
+		assertEquals(1, this.target.invocations.get());
+		assertEquals(1, this.target.subscriptions.get());
+	}
+
+	@Test
+	public void concurrentMissesShareSubscription() {
+		MonoProcessor<Long> pending = MonoProcessor.create();
+		this.target.pending = pending;
+		List<Long> values = new CopyOnWriteArrayList<>();
+		this.service.find("key").subscribe(values::add);
+		this.service.find("key").subscribe(values::add);
+		assertEquals(1, this.target.invocations.get());
+		assertEquals(1, this.target.subscriptions.get());
+
+		pending.onNext(5L);
+		assertEquals(Arrays.asList(5L, 5L), values);
+		assertEquals(5L, this.cache.get("key").get());
+
+		this.target.pending = null;
+		assertEquals(Long.valueOf(2), this.service.find("other").block());
+		assertEquals(2, this.target.invocations.get());
+	}
+
+	@Test
+	public void lateSubscriberServedSharedResult() {
+		Mono<Long> first = this.service.find("key");
+		Mono<Long> second = this.service.find("key");
+		assertEquals(Long.valueOf(1), first.block());
+		assertEquals(Long.valueOf(1), second.block());
+		assertEquals(1, this.target.invocations.get());
+		assertEquals(1, this.target.subscriptions.get());
+	}
+
+	@Test
+	public void lateSubscriberServedAllSharedValues() {
+		Flux<Long> first = this.service.findAll("key");
+		Flux<Long> second = this.service.findAll("key");
+		assertEquals(Long.valueOf(1), first.blockFirst());
+		assertEquals(Arrays.asList(1L, 1L), second.collectList().block());
+		assertEquals(Arrays.asList(1L, 1L), this.cache.get("key").get());
+		assertEquals(1, this.target.invocations.get());
+		assertEquals(1, this.target.subscriptions.get());
+	}
+
+	@Test
+	public void syncNotSupported() {
+		try {
+			this.service.findSync("key");
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage().contains("reactive return type"));
+		}
+		assertEquals(0, this.target.invocations.get());
+	}
+
+	@Test
+	public void errorNotCached() {
+		this.target.failure = new IllegalStateException("Test failure");
+		try {
+			this.service.find("key").block();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertSame(this.target.failure, ex);
+		}
+		assertNull(this.cache.get("key"));
+
+		this.target.failure = null;
+		assertEquals(Long.valueOf(2), this.service.find("key").block());
+		assertEquals(2, this.target.invocations.get());
+	}
+
+	@Test
+	public void evictOnCompletion() {
+		this.cache.put("key", 5L);
+		Mono<Void> result = this.service.remove("key");
+		assertNotNull(this.cache.get("key"));
+		result.block();
+		assertNull(this.cache.get("key"));
+	}
+
+
+	public interface ReactiveService {
+
+		Mono<Long> find(String key);
+
+		Flux<Long> findAll(String key);
+
+		Mono<Void> remove(String key);
+
+		Mono<Long> findSync(String key);
+	}
+
+
+	public static class DefaultReactiveService implements ReactiveService {
+
+		final AtomicLong invocations = new AtomicLong();
+
+		final AtomicLong subscriptions = new AtomicLong();
+
+		volatile RuntimeException failure;
+
+		volatile MonoProcessor<Long> pending;
+
+		@Override
+		@Cacheable("testCache")
+		public Mono<Long> find(String key) {
+			this.invocations.incrementAndGet();
+			return Mono.defer(() -> {
+				this.subscriptions.incrementAndGet();
+				if (this.failure != null) {
+					return Mono.error(this.failure);
+				}
+				MonoProcessor<Long> pending = this.pending;
+				return (pending != null ? pending : Mono.just(this.invocations.get()));
+			});
+		}
+
+		@Override
+		@Cacheable("testCache")
+		public Flux<Long> findAll(String key) {
+			return Flux.from(find(key)).flatMap(value -> Flux.just(value, value));
+		}
+
+		@Override
+		@CacheEvict("testCache")
+		public Mono<Void> remove(String key) {
+			return Mono.empty();
+		}
+
+		@Override
+		@Cacheable(cacheNames = "testCache", sync = true)
+		public Mono<Long> findSync(String key) {
+			return find(key);
+		}
+	}
+
+}
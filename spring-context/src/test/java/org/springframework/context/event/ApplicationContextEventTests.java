@@ -16,6 +16,7 @@
 
 package org.springframework.context.event;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -175,6 +176,56 @@ public class ApplicationContextEventTests extends AbstractApplicationEventListen
 		smc.multicastEvent(evt);
 	}
 
+	@Test
+	public void simpleApplicationEventMulticasterWithIncrementalInvalidation() {
+		MyOrderedListener3 listener1 = new MyOrderedListener3();
+		MyPayloadListener listener2 = new MyPayloadListener();
+		SimpleApplicationEventMulticaster smc = new SimpleApplicationEventMulticaster();
+		smc.addApplicationListener(listener1);
+
+		MyEvent event1 = new MyEvent(this);
+		smc.multicastEvent(event1);
+		smc.multicastEvent(new PayloadApplicationEvent<>(this, "payload1"));
+		assertEquals(2, smc.retrieverCache.size());
+		assertTrue(listener1.seenEvents.contains(event1));
+
+		// Only the payload event entry is affected by the new listener
+		smc.addApplicationListener(listener2);
+		assertEquals(1, smc.retrieverCache.size());
+		smc.multicastEvent(new PayloadApplicationEvent<>(this, "payload2"));
+		assertTrue(listener2.seenPayloads.contains("payload2"));
+		assertEquals(2, smc.retrieverCache.size());
+
+		// Removing the generic listener affects both entries
+		smc.removeApplicationListener(listener1);
+		assertEquals(0, smc.retrieverCache.size());
+		MyEvent event2 = new MyEvent(this);
+		smc.multicastEvent(event2);
+		assertFalse(listener1.seenEvents.contains(event2));
+	}
+
+	@Test
+	public void cachedListenersNotModifiableByFirstCaller() {
+		MyOrderedListener1 listener1 = new MyOrderedListener1();
+		MyOrderedListener2 listener2 = new MyOrderedListener2(listener1);
+		SimpleApplicationEventMulticaster smc = new SimpleApplicationEventMulticaster();
+		smc.addApplicationListener(listener1);
+		smc.addApplicationListener(listener2);
+
+		MyEvent event = new MyEvent(this);
+		ResolvableType eventType = ResolvableType.forClass(MyEvent.class);
+		Collection<ApplicationListener<?>> first = smc.getApplicationListeners(event, eventType);
+		try {
+			first.clear();
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+		assertSame(first, smc.getApplicationListeners(event, eventType));
+		assertEquals(2, first.size());
+	}
+
 	@Test
 	public void orderedListeners() {
 		MyOrderedListener1 listener1 = new MyOrderedListener1();
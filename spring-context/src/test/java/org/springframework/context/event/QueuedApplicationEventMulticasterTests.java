@@ -0,0 +1,338 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link QueuedApplicationEventMulticaster}.
+ *
+ * @author agent
+ */
+public class QueuedApplicationEventMulticasterTests {
+
+	@Test
+	public void deliversInPublicationOrderPerListener() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+			multicaster.setTaskExecutor(executor);
+			CountDownLatch latch = new CountDownLatch(1000);
+			CollectingListener listener = new CollectingListener(latch);
+			multicaster.addApplicationListener(listener);
+
+			for (int i = 0; i < 1000; i++) {
+				multicaster.multicastEvent(new NumberedEvent(i));
+			}
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(i, listener.events.get(i).number);
+			}
+
+			QueuedApplicationEventMulticaster.QueueStats stats = multicaster.getQueueStats(listener);
+			assertNotNull(stats);
+			assertEquals(0, stats.getQueueDepth());
+			assertEquals(0, stats.getRejectedCount());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void batchListenerReceivesQueuedEvents() {
+		List<Runnable> tasks = new ArrayList<>();
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(tasks::add);
+		multicaster.setMaxBatchSize(3);
+		BatchCollectingListener listener = new BatchCollectingListener();
+		multicaster.addApplicationListener(listener);
+
+		for (int i = 0; i < 5; i++) {
+			multicaster.multicastEvent(new NumberedEvent(i));
+		}
+		// One drain task for all events that queued up in the meantime
+		assertEquals(1, tasks.size());
+		assertEquals(5, multicaster.getQueueStats(listener).getQueueDepth());
+
+		tasks.remove(0).run();
+		assertEquals(1, listener.batches.size());
+		assertEquals(3, listener.batches.get(0).size());
+		assertEquals(1, tasks.size());
+
+		tasks.remove(0).run();
+		assertEquals(2, listener.batches.size());
+		assertEquals(2, listener.batches.get(1).size());
+		assertEquals(4, listener.batches.get(1).get(1).number);
+		assertTrue(tasks.isEmpty());
+		assertEquals(5, multicaster.getQueueStats(listener).getDeliveredCount());
+	}
+
+	@Test
+	public void lambdaBatchListenerReceivesEventsOneByOne() {
+		List<Runnable> tasks = new ArrayList<>();
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(tasks::add);
+		List<Integer> seen = new ArrayList<>();
+		BatchApplicationListener<NumberedEvent> listener = events -> events.forEach(event -> seen.add(event.number));
+		multicaster.addApplicationListener(listener);
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		multicaster.multicastEvent(new OtherEvent());
+		multicaster.multicastEvent(new NumberedEvent(1));
+		tasks.remove(0).run();
+		assertTrue(tasks.isEmpty());
+		assertEquals(Arrays.asList(0, 1), seen);
+	}
+
+	@Test
+	public void pendingEventsDeliveredOnContextClosed() {
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		List<Integer> seen = new CopyOnWriteArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<NumberedEvent>) event -> {
+			sleep(10);
+			seen.add(event.number);
+		});
+
+		for (int i = 0; i < 20; i++) {
+			multicaster.multicastEvent(new NumberedEvent(i));
+		}
+		multicaster.multicastEvent(new ContextClosedEvent(new StaticApplicationContext()));
+		assertEquals(20, seen.size());
+	}
+
+	@Test
+	public void destroyWaitsUpToShutdownTimeout() {
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setShutdownTimeout(100);
+		CountDownLatch release = new CountDownLatch(1);
+		multicaster.addApplicationListener((ApplicationListener<NumberedEvent>) event -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		long start = System.currentTimeMillis();
+		multicaster.destroy();
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed >= 100);
+		assertTrue(elapsed < 5000);
+		release.countDown();
+	}
+
+	@Test
+	public void fullQueueRejectsAfterTimeout() {
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(task -> {});
+		multicaster.setQueueCapacity(2);
+		multicaster.setEnqueueTimeout(0);
+		CollectingListener listener = new CollectingListener(new CountDownLatch(0));
+		multicaster.addApplicationListener(listener);
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		multicaster.multicastEvent(new NumberedEvent(1));
+		try {
+			multicaster.multicastEvent(new NumberedEvent(2));
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+		assertEquals(1, multicaster.getQueueStats(listener).getRejectedCount());
+	}
+
+	@Test
+	public void listenerExceptionDoesNotStopDelivery() {
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(new SyncTaskExecutor());
+		List<Integer> seen = new ArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<NumberedEvent>) event -> {
+			seen.add(event.number);
+			if (event.number == 0) {
+				throw new IllegalStateException("failure");
+			}
+		});
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		multicaster.multicastEvent(new NumberedEvent(1));
+		assertEquals(2, seen.size());
+	}
+
+	@Test
+	public void failedEventsNotCountedAsDelivered() {
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(new SyncTaskExecutor());
+		ApplicationListener<NumberedEvent> listener = event -> {
+			if (event.number == 0) {
+				throw new IllegalStateException("failure");
+			}
+		};
+		multicaster.addApplicationListener(listener);
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		multicaster.multicastEvent(new NumberedEvent(1));
+		QueuedApplicationEventMulticaster.QueueStats stats = multicaster.getQueueStats(listener);
+		assertEquals(1, stats.getDeliveredCount());
+		assertEquals(1, stats.getFailedCount());
+	}
+
+	@Test
+	public void reentrantPublishingToFullQueueRejectedWithoutBlocking() {
+		List<Runnable> tasks = new ArrayList<>();
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(tasks::add);
+		multicaster.setQueueCapacity(1);
+		List<Throwable> errors = new ArrayList<>();
+		multicaster.setErrorHandler(errors::add);
+		List<Integer> seen = new ArrayList<>();
+		multicaster.addApplicationListener((ApplicationListener<NumberedEvent>) event -> {
+			seen.add(event.number);
+			if (event.number < 3) {
+				multicaster.multicastEvent(new NumberedEvent(event.number + 1));
+				multicaster.multicastEvent(new NumberedEvent(event.number + 10));
+			}
+		});
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+		assertEquals(Arrays.asList(0, 1, 2, 3), seen);
+		assertEquals(3, errors.size());
+		assertTrue(errors.get(0) instanceof TaskRejectedException);
+	}
+
+	@Test
+	public void queueOfUnregisteredListenerDiscardedOnceDrained() {
+		List<Runnable> tasks = new ArrayList<>();
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster() {
+			@Override
+			protected Collection<ApplicationListener<?>> getApplicationListeners(
+					ApplicationEvent event, ResolvableType eventType) {
+				// Like a prototype listener bean: a new instance on every retrieval
+				return Collections.singletonList(new CollectingListener(new CountDownLatch(1)));
+			}
+		};
+		multicaster.setTaskExecutor(tasks::add);
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		multicaster.multicastEvent(new NumberedEvent(1));
+		assertEquals(2, multicaster.getQueueStats().size());
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+		assertTrue(multicaster.getQueueStats().isEmpty());
+	}
+
+	@Test
+	public void queueOfRegisteredListenerRetainedUntilRemoved() {
+		QueuedApplicationEventMulticaster multicaster = new QueuedApplicationEventMulticaster();
+		multicaster.setTaskExecutor(new SyncTaskExecutor());
+		CollectingListener listener = new CollectingListener(new CountDownLatch(1));
+		multicaster.addApplicationListener(listener);
+
+		multicaster.multicastEvent(new NumberedEvent(0));
+		assertEquals(1, multicaster.getQueueStats(listener).getDeliveredCount());
+		multicaster.removeApplicationListener(listener);
+		assertNull(multicaster.getQueueStats(listener));
+	}
+
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	static class NumberedEvent extends ApplicationEvent {
+
+		final int number;
+
+		NumberedEvent(int number) {
+			super(number);
+			this.number = number;
+		}
+	}
+
+
+	@SuppressWarnings("serial")
+	static class OtherEvent extends ApplicationEvent {
+
+		OtherEvent() {
+			super("other");
+		}
+	}
+
+
+	static class CollectingListener implements ApplicationListener<NumberedEvent> {
+
+		final List<NumberedEvent> events = new CopyOnWriteArrayList<>();
+
+		private final CountDownLatch latch;
+
+		CollectingListener(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public void onApplicationEvent(NumberedEvent event) {
+			this.events.add(event);
+			this.latch.countDown();
+		}
+	}
+
+
+	static class BatchCollectingListener implements BatchApplicationListener<NumberedEvent> {
+
+		final List<List<NumberedEvent>> batches = new ArrayList<>();
+
+		@Override
+		public void onApplicationEvents(List<NumberedEvent> events) {
+			this.batches.add(events);
+		}
+	}
+
+}
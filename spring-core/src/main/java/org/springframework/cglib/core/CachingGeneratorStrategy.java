@@ -0,0 +1,382 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cglib.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.SpringVersion;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * CGLIB {@link GeneratorStrategy} decorator which keeps generated class files
+ * in a local directory, serving them from there on subsequent generation
+ * requests for the same class instead of re-generating the bytecode.
+ *
+ * <p>Cache entries are keyed by the generated class name plus a fingerprint
+ * of everything the generated bytecode depends on: typically the class files
+ * of the superclass and the implemented interfaces as well as the callback
+ * assignment for each method, see {@link #forEnhancer}. A changed target class
+ * or a changed advice setup therefore leads to a new cache entry rather than
+ * to stale bytecode being loaded. That fingerprint is only computed when CGLIB
+ * actually asks for a class to be generated, i.e. not for proxy classes that
+ * CGLIB serves from its own in-memory cache.
+ *
+ * <p>Each entry starts with a SHA-256 digest over its key and its class file
+ * content, and is written to a temporary file first which is then moved into
+ * place. Entries that are truncated, corrupted or stored under a different
+ * key fail verification and get regenerated, so a torn write never turns
+ * into a class definition.
+ *
+ * <p><b>Note:</b> The bytes read from the cache directory are defined as
+ * classes within the application. The digest does not protect against
+ * deliberate tampering, since anybody able to write to the directory can
+ * also write a matching digest. The directory must therefore be trusted and
+ * private to the application, i.e. only writable by the user the application
+ * runs as, and must not be shared with other applications or populated from
+ * untrusted sources.
+ *
+ * @author agent
+ * @since 5.0
+ * @see #CACHE_DIRECTORY_PROPERTY_NAME
+ */
+public class CachingGeneratorStrategy implements GeneratorStrategy {
+
+	/**
+	 * System property that points Spring's CGLIB class generation to a local
+	 * directory for storing and retrieving generated class files, e.g. for
+	 * AOP proxies and enhanced configuration classes. By default, no such
+	 * directory is set and classes are generated on every startup.
+	 * <p>The directory needs to be trusted and private to the application,
+	 * see the class-level documentation.
+	 */
+	public static final String CACHE_DIRECTORY_PROPERTY_NAME = "spring.cglib.cacheDirectory";
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private static final int DIGEST_LENGTH = 32;
+
+	private static final Log logger = LogFactory.getLog(CachingGeneratorStrategy.class);
+
+
+	private final GeneratorStrategy targetStrategy;
+
+	private final File cacheDirectory;
+
+	@Nullable
+	private final String fingerprint;
+
+	@Nullable
+	private final EnhancerFingerprint enhancerFingerprint;
+
+
+	/**
+	 * Create a new {@code CachingGeneratorStrategy} for the given target strategy.
+	 * @param targetStrategy the strategy to delegate to for actual class generation
+	 * @param cacheDirectory the directory to store generated class files in
+	 * @param fingerprint a fingerprint of the inputs of class generation
+	 */
+	public CachingGeneratorStrategy(GeneratorStrategy targetStrategy, File cacheDirectory, String fingerprint) {
+		Assert.notNull(targetStrategy, "Target GeneratorStrategy must not be null");
+		Assert.notNull(cacheDirectory, "Cache directory must not be null");
+		Assert.hasText(fingerprint, "Fingerprint must not be empty");
+		this.targetStrategy = targetStrategy;
+		this.cacheDirectory = cacheDirectory;
+		this.fingerprint = fingerprint;
+		this.enhancerFingerprint = null;
+	}
+
+	private CachingGeneratorStrategy(GeneratorStrategy targetStrategy, File cacheDirectory,
+			EnhancerFingerprint enhancerFingerprint) {
+
+		this.targetStrategy = targetStrategy;
+		this.cacheDirectory = cacheDirectory;
+		this.fingerprint = null;
+		this.enhancerFingerprint = enhancerFingerprint;
+	}
+
+
+	@Override
+	public byte[] generate(ClassGenerator cg) throws Exception {
+		String className = (cg instanceof AbstractClassGenerator ? ((AbstractClassGenerator) cg).getClassName() : null);
+		String fingerprint = (this.fingerprint != null ? this.fingerprint :
+				this.enhancerFingerprint != null ? this.enhancerFingerprint.get() : null);
+		if (className == null || fingerprint == null) {
+			return this.targetStrategy.generate(cg);
+		}
+
+		byte[] key = (className + ':' + fingerprint).getBytes(StandardCharsets.UTF_8);
+		File cacheFile = new File(this.cacheDirectory, className + "-" + DigestUtils.md5DigestAsHex(key) + ".cglib");
+		if (cacheFile.isFile()) {
+			byte[] cached = load(cacheFile, key);
+			if (cached != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Loaded generated class [" + className + "] from " + cacheFile);
+				}
+				return cached;
+			}
+		}
+
+		byte[] generated = this.targetStrategy.generate(cg);
+		store(cacheFile, key, generated);
+		return generated;
+	}
+
+	/**
+	 * Read the class file from the given cache entry, verifying its digest.
+	 * @return the class file, or {@code null} if the entry is unreadable or invalid
+	 */
+	@Nullable
+	private byte[] load(File cacheFile, byte[] key) {
+		try {
+			byte[] entry = FileCopyUtils.copyToByteArray(cacheFile);
+			if (entry.length > DIGEST_LENGTH) {
+				byte[] classFile = Arrays.copyOfRange(entry, DIGEST_LENGTH, entry.length);
+				if (MessageDigest.isEqual(Arrays.copyOf(entry, DIGEST_LENGTH), digest(key, classFile))) {
+					return classFile;
+				}
+			}
+			if (logger.isWarnEnabled()) {
+				logger.warn("Ignoring invalid cache entry " + cacheFile + " - regenerating");
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not read cache entry " + cacheFile + " - regenerating", ex);
+			}
+		}
+		return null;
+	}
+
+	private void store(File cacheFile, byte[] key, byte[] classFile) {
+		File tempFile = null;
+		try {
+			Files.createDirectories(this.cacheDirectory.toPath());
+			byte[] digest = digest(key, classFile);
+			byte[] entry = new byte[digest.length + classFile.length];
+			System.arraycopy(digest, 0, entry, 0, digest.length);
+			System.arraycopy(classFile, 0, entry, digest.length, classFile.length);
+			// Write to a temporary file first: concurrent readers must never see partial content.
+			tempFile = File.createTempFile("cglib", ".tmp", this.cacheDirectory);
+			FileCopyUtils.copy(entry, tempFile);
+			try {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException ex) {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not store generated class file " + cacheFile, ex);
+			}
+		}
+		finally {
+			if (tempFile != null && tempFile.exists() && !tempFile.delete() && logger.isDebugEnabled()) {
+				logger.debug("Could not delete temporary class file " + tempFile);
+			}
+		}
+	}
+
+	private static byte[] digest(byte[] key, byte[] classFile) {
+		MessageDigest messageDigest;
+		try {
+			messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("Could not find MessageDigest with algorithm \"" + DIGEST_ALGORITHM + "\"", ex);
+		}
+		messageDigest.update(key);
+		messageDigest.update((byte) 0);
+		return messageDigest.digest(classFile);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CachingGeneratorStrategy)) {
+			return false;
+		}
+		CachingGeneratorStrategy otherStrategy = (CachingGeneratorStrategy) other;
+		return (this.targetStrategy.equals(otherStrategy.targetStrategy) &&
+				this.cacheDirectory.equals(otherStrategy.cacheDirectory) &&
+				ObjectUtils.nullSafeEquals(this.fingerprint, otherStrategy.fingerprint) &&
+				ObjectUtils.nullSafeEquals(this.enhancerFingerprint, otherStrategy.enhancerFingerprint));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.targetStrategy.hashCode() * 29 +
+				ObjectUtils.nullSafeHashCode(this.fingerprint != null ? this.fingerprint : this.enhancerFingerprint);
+	}
+
+
+	/**
+	 * Decorate the given strategy for an {@link Enhancer} with the given setup,
+	 * if a cache directory has been specified through the
+	 * {@link #CACHE_DIRECTORY_PROPERTY_NAME "spring.cglib.cacheDirectory"} property.
+	 * @param targetStrategy the strategy to delegate to for actual class generation
+	 * @param superclass the superclass of the generated class
+	 * @param interfaces the interfaces implemented by the generated class (may be {@code null})
+	 * @param filter the callback filter for the generated class
+	 * @return the caching strategy, or the given target strategy if caching is
+	 * not active; if caching turns out not to be possible for the given setup
+	 * (e.g. if the class files of the given classes are not accessible), the
+	 * caching strategy simply delegates to the target strategy
+	 */
+	public static GeneratorStrategy forEnhancer(GeneratorStrategy targetStrategy,
+			Class<?> superclass, @Nullable Class<?>[] interfaces, CallbackFilter filter) {
+
+		String directory = SpringProperties.getProperty(CACHE_DIRECTORY_PROPERTY_NAME);
+		if (!StringUtils.hasText(directory)) {
+			return targetStrategy;
+		}
+		return new CachingGeneratorStrategy(targetStrategy, new File(directory),
+				new EnhancerFingerprint(superclass, (interfaces != null ? interfaces : new Class<?>[0]), filter));
+	}
+
+	@Nullable
+	private static String buildFingerprint(Class<?> superclass, Class<?>[] interfaces, CallbackFilter filter) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(SpringVersion.getVersion()).append(';');
+		if (!appendClassFileDigest(superclass, sb)) {
+			return null;
+		}
+		for (Class<?> ifc : interfaces) {
+			if (!appendClassFileDigest(ifc, sb)) {
+				return null;
+			}
+		}
+
+		// Callback assignment per method, in a stable order across JVM runs
+		List<Method> methods = new ArrayList<>();
+		Enhancer.getMethods(superclass, interfaces, methods);
+		List<String> assignments = new ArrayList<>(methods.size());
+		for (Method method : methods) {
+			assignments.add(method + "=" + filter.accept(method));
+		}
+		assignments.sort(null);
+		for (String assignment : assignments) {
+			sb.append(assignment).append(';');
+		}
+		return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static boolean appendClassFileDigest(Class<?> clazz, StringBuilder sb) {
+		InputStream is = clazz.getResourceAsStream(ClassUtils.getClassFileName(clazz));
+		if (is == null) {
+			return false;
+		}
+		try {
+			sb.append(clazz.getName()).append('=');
+			DigestUtils.appendMd5DigestAsHex(is, sb);
+			sb.append(';');
+			return true;
+		}
+		catch (IOException ex) {
+			return false;
+		}
+		finally {
+			try {
+				is.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
+
+
+	/**
+	 * Lazily computed fingerprint of an {@link Enhancer} setup, only
+	 * digesting class files once a class actually needs to be generated.
+	 */
+	private static final class EnhancerFingerprint {
+
+		private final Class<?> superclass;
+
+		private final Class<?>[] interfaces;
+
+		private final CallbackFilter filter;
+
+		private volatile boolean resolved;
+
+		@Nullable
+		private volatile String value;
+
+		public EnhancerFingerprint(Class<?> superclass, Class<?>[] interfaces, CallbackFilter filter) {
+			this.superclass = superclass;
+			this.interfaces = interfaces;
+			this.filter = filter;
+		}
+
+		@Nullable
+		public String get() {
+			if (!this.resolved) {
+				this.value = buildFingerprint(this.superclass, this.interfaces, this.filter);
+				this.resolved = true;
+			}
+			return this.value;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof EnhancerFingerprint)) {
+				return false;
+			}
+			EnhancerFingerprint otherFingerprint = (EnhancerFingerprint) other;
+			return (this.superclass == otherFingerprint.superclass &&
+					Arrays.equals(this.interfaces, otherFingerprint.interfaces) &&
+					this.filter.equals(otherFingerprint.filter));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.superclass.hashCode() * 29 + Arrays.hashCode(this.interfaces);
+		}
+	}
+
+}
@@ -713,6 +713,19 @@ public class AnnotatedElementUtils {
 	public static <A extends Annotation> A findMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
 		Assert.notNull(annotationType, "'annotationType' must not be null");
 
+		// Shared per-element index: resolved once per class or member, plain map read afterwards
+		if (MergedAnnotationIndex.isIndexable(element)) {
+			return MergedAnnotationIndex.forElement(element).findMergedAnnotation(annotationType);
+		}
+		return doFindMergedAnnotation(element, annotationType);
+	}
+
+	/**
+	 * Perform the actual {@link #findMergedAnnotation} algorithm, bypassing
+	 * the shared {@link MergedAnnotationIndex}.
+	 */
+	@Nullable
+	static <A extends Annotation> A doFindMergedAnnotation(AnnotatedElement element, Class<A> annotationType) {
 		// Shortcut: directly present on the element, with no merging needed?
 		if (!(element instanceof Class)) {
 			// Do not use this shortcut against a Class: Inherited annotations
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Member;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+/**
+ * Per-element index of merged annotations, shared across all callers that
+ * look up annotations on the same {@link Class} or {@link Member}.
+ *
+ * <p>Each index lazily resolves a given annotation type once, following the
+ * <em>find semantics</em> of {@link AnnotatedElementUtils#findMergedAnnotation},
+ * and keeps the resulting synthesized annotation (or the fact that there is
+ * none) for subsequent lookups. Repeated lookups are therefore plain map reads
+ * and hand out the same synthesized instance, rather than re-traversing the
+ * type hierarchy and creating a new annotation proxy on every call.
+ *
+ * <p>The index backs {@link AnnotatedElementUtils#findMergedAnnotation} only.
+ * {@link AnnotatedElementUtils#hasAnnotation} remains a plain presence check
+ * that does not synthesize annotations, {@link AnnotationUtils#findAnnotation}
+ * has its own shared cache for classes and methods, and merged
+ * {@link AnnotationAttributes} are not indexed since they are mutable maps
+ * handed out to each caller.
+ *
+ * <p>Indexes are held in a soft-reference cache and are only created for
+ * classes and members; other {@link AnnotatedElement} variants (e.g. adapters
+ * exposing an ad-hoc set of annotations) should not be indexed since their
+ * identity does not reflect their annotations.
+ *
+ * @author agent
+ * @since 5.0
+ * @see AnnotatedElementUtils#findMergedAnnotation(AnnotatedElement, Class)
+ */
+public final class MergedAnnotationIndex {
+
+	private static final Object NOT_FOUND = new Object();
+
+	private static final Map<AnnotatedElement, MergedAnnotationIndex> indexCache =
+			new ConcurrentReferenceHashMap<>(256);
+
+
+	private final AnnotatedElement element;
+
+	private final Map<Class<? extends Annotation>, Object> mergedAnnotations = new ConcurrentHashMap<>(8);
+
+
+	private MergedAnnotationIndex(AnnotatedElement element) {
+		this.element = element;
+	}
+
+
+	/**
+	 * Return the {@link AnnotatedElement} that this index has been built for.
+	 */
+	public AnnotatedElement getElement() {
+		return this.element;
+	}
+
+	/**
+	 * Find the merged annotation of the given type on the indexed element,
+	 * resolving it on first access and serving it from the index afterwards.
+	 * @param annotationType the annotation type to find
+	 * @return the merged, synthesized annotation, or {@code null} if not found
+	 * @see AnnotatedElementUtils#findMergedAnnotation(AnnotatedElement, Class)
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <A extends Annotation> A findMergedAnnotation(Class<A> annotationType) {
+		Assert.notNull(annotationType, "'annotationType' must not be null");
+		Object result = this.mergedAnnotations.get(annotationType);
+		if (result == null) {
+			result = AnnotatedElementUtils.doFindMergedAnnotation(this.element, annotationType);
+			if (result == null) {
+				result = NOT_FOUND;
+			}
+			this.mergedAnnotations.put(annotationType, result);
+		}
+		return (result != NOT_FOUND ? (A) result : null);
+	}
+
+	/**
+	 * Determine whether a merged annotation of the given type is available
+	 * on the indexed element.
+	 * @param annotationType the annotation type to check for
+	 * @see #findMergedAnnotation(Class)
+	 */
+	public boolean hasMergedAnnotation(Class<? extends Annotation> annotationType) {
+		return (findMergedAnnotation(annotationType) != null);
+	}
+
+	@Override
+	public String toString() {
+		return "MergedAnnotationIndex for " + this.element;
+	}
+
+
+	/**
+	 * Return the shared index for the given class or member.
+	 * @param element the class, method, field or constructor to index
+	 * @return the corresponding index (never {@code null})
+	 * @throws IllegalArgumentException if the given element is neither
+	 * a {@link Class} nor a {@link Member}
+	 */
+	public static MergedAnnotationIndex forElement(AnnotatedElement element) {
+		Assert.notNull(element, "AnnotatedElement must not be null");
+		Assert.isTrue(isIndexable(element), () -> "Cannot index annotations for " + element);
+		MergedAnnotationIndex index = indexCache.get(element);
+		if (index == null) {
+			index = new MergedAnnotationIndex(element);
+			MergedAnnotationIndex existing = indexCache.putIfAbsent(element, index);
+			if (existing != null) {
+				index = existing;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Determine whether the given element can be indexed, i.e. whether it is
+	 * a {@link Class} or a {@link Member} with stable identity.
+	 * @param element the element to check
+	 */
+	public static boolean isIndexable(AnnotatedElement element) {
+		return (element instanceof Class || element instanceof Member);
+	}
+
+	/**
+	 * Clear all shared indexes, e.g. after class redefinition in a
+	 * development environment.
+	 */
+	public static void clearCache() {
+		indexCache.clear();
+	}
+
+}
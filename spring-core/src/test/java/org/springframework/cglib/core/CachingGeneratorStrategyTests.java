@@ -0,0 +1,171 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cglib.core;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cglib.proxy.CallbackFilter;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.NoOp;
+import org.springframework.util.FileCopyUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CachingGeneratorStrategy}.
+ *
+ * @author agent
+ */
+public class CachingGeneratorStrategyTests {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Test
+	public void generatedClassServedFromCacheDirectory() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		CountingGeneratorStrategy counting = new CountingGeneratorStrategy();
+		GeneratorStrategy strategy = new CachingGeneratorStrategy(counting, directory, "fingerprint");
+
+		Class<?> first = createClass(strategy);
+		Class<?> second = createClass(strategy);
+		assertEquals(1, counting.count);
+		assertEquals(first.getName(), second.getName());
+		assertNotSame(first, second);
+		assertTrue(SampleBean.class.isAssignableFrom(second));
+		assertEquals(1, directory.listFiles().length);
+	}
+
+	@Test
+	public void differentFingerprintRegenerates() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		CountingGeneratorStrategy counting = new CountingGeneratorStrategy();
+
+		createClass(new CachingGeneratorStrategy(counting, directory, "v1"));
+		createClass(new CachingGeneratorStrategy(counting, directory, "v2"));
+		assertEquals(2, counting.count);
+		assertEquals(2, directory.listFiles().length);
+	}
+
+	@Test
+	public void corruptedEntryRegenerates() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		CountingGeneratorStrategy counting = new CountingGeneratorStrategy();
+		GeneratorStrategy strategy = new CachingGeneratorStrategy(counting, directory, "fingerprint");
+
+		createClass(strategy);
+		File entry = directory.listFiles()[0];
+		byte[] content = FileCopyUtils.copyToByteArray(entry);
+		content[content.length - 1]++;
+		FileCopyUtils.copy(content, entry);
+
+		Class<?> regenerated = createClass(strategy);
+		assertEquals(2, counting.count);
+		assertTrue(SampleBean.class.isAssignableFrom(regenerated));
+
+		// Entry replaced with a valid one again
+		createClass(strategy);
+		assertEquals(2, counting.count);
+	}
+
+	@Test
+	public void truncatedEntryRegenerates() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		CountingGeneratorStrategy counting = new CountingGeneratorStrategy();
+		GeneratorStrategy strategy = new CachingGeneratorStrategy(counting, directory, "fingerprint");
+
+		createClass(strategy);
+		File entry = directory.listFiles()[0];
+		byte[] content = FileCopyUtils.copyToByteArray(entry);
+		FileCopyUtils.copy(Arrays.copyOf(content, content.length / 2), entry);
+
+		createClass(strategy);
+		assertEquals(2, counting.count);
+	}
+
+	@Test
+	public void fingerprintOnlyComputedForClassGeneration() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		AtomicInteger filterCalls = new AtomicInteger();
+		CallbackFilter filter = method -> {
+			filterCalls.incrementAndGet();
+			return 0;
+		};
+		System.setProperty(CachingGeneratorStrategy.CACHE_DIRECTORY_PROPERTY_NAME, directory.getPath());
+		try {
+			GeneratorStrategy strategy = CachingGeneratorStrategy.forEnhancer(
+					new CountingGeneratorStrategy(), SampleBean.class, null, filter);
+			assertTrue(strategy instanceof CachingGeneratorStrategy);
+			assertEquals(0, filterCalls.get());
+
+			createClass(strategy);
+			assertTrue(filterCalls.get() > 0);
+			assertEquals(1, directory.listFiles().length);
+		}
+		finally {
+			System.clearProperty(CachingGeneratorStrategy.CACHE_DIRECTORY_PROPERTY_NAME);
+		}
+	}
+
+	@Test
+	public void notActiveWithoutCacheDirectory() {
+		GeneratorStrategy target = new CountingGeneratorStrategy();
+		assertSame(target, CachingGeneratorStrategy.forEnhancer(
+				target, SampleBean.class, null, method -> 0));
+	}
+
+
+	private Class<?> createClass(GeneratorStrategy strategy) {
+		Enhancer enhancer = new Enhancer();
+		// Fresh ClassLoader per attempt, for the same class name to be generated again
+		enhancer.setClassLoader(new ClassLoader(getClass().getClassLoader()) {});
+		enhancer.setSuperclass(SampleBean.class);
+		enhancer.setCallbackType(NoOp.class);
+		enhancer.setUseFactory(false);
+		enhancer.setNamingPolicy(SpringNamingPolicy.INSTANCE);
+		enhancer.setStrategy(strategy);
+		return enhancer.createClass();
+	}
+
+
+	public static class SampleBean {
+
+		public String getName() {
+			return "sample";
+		}
+	}
+
+
+	private static class CountingGeneratorStrategy extends DefaultGeneratorStrategy {
+
+		int count;
+
+		@Override
+		public byte[] generate(ClassGenerator cg) throws Exception {
+			this.count++;
+			return super.generate(cg);
+		}
+	}
+
+}
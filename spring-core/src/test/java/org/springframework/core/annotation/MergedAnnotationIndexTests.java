@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MergedAnnotationIndex}.
+ *
+ * @author agent
+ */
+public class MergedAnnotationIndexTests {
+
+	@Test
+	public void sharedIndexPerElement() {
+		MergedAnnotationIndex index = MergedAnnotationIndex.forElement(AnnotatedClass.class);
+		assertSame(index, MergedAnnotationIndex.forElement(AnnotatedClass.class));
+		assertSame(AnnotatedClass.class, index.getElement());
+	}
+
+	@Test
+	public void findMergedAnnotationWithAttributeOverride() {
+		MergedAnnotationIndex index = MergedAnnotationIndex.forElement(AnnotatedClass.class);
+		Label label = index.findMergedAnnotation(Label.class);
+		assertNotNull(label);
+		assertEquals("composed", label.value());
+		assertEquals("composed", label.name());
+		assertSame(label, index.findMergedAnnotation(Label.class));
+		assertSame(label, AnnotatedElementUtils.findMergedAnnotation(AnnotatedClass.class, Label.class));
+	}
+
+	@Test
+	public void findMergedAnnotationOnSubclass() {
+		Label label = MergedAnnotationIndex.forElement(SubClass.class).findMergedAnnotation(Label.class);
+		assertNotNull(label);
+		assertEquals("composed", label.value());
+	}
+
+	@Test
+	public void findMergedAnnotationOnInterfaceMethod() throws Exception {
+		Method method = Implementation.class.getMethod("handle");
+		MergedAnnotationIndex index = MergedAnnotationIndex.forElement(method);
+		Label label = index.findMergedAnnotation(Label.class);
+		assertNotNull(label);
+		assertEquals("iface", label.name());
+		assertTrue(index.hasMergedAnnotation(Label.class));
+	}
+
+	@Test
+	public void missingAnnotationIsRemembered() {
+		MergedAnnotationIndex index = MergedAnnotationIndex.forElement(PlainClass.class);
+		assertNull(index.findMergedAnnotation(Label.class));
+		assertNull(index.findMergedAnnotation(Label.class));
+		assertFalse(index.hasMergedAnnotation(Label.class));
+		assertFalse(AnnotatedElementUtils.hasAnnotation(PlainClass.class, Label.class));
+	}
+
+	@Test
+	public void hasMergedAnnotationOnSubClass() {
+		assertTrue(MergedAnnotationIndex.forElement(SubClass.class).hasMergedAnnotation(Label.class));
+	}
+
+	@Test
+	public void hasAnnotationDoesNotSynthesize() {
+		assertTrue(AnnotatedElementUtils.hasAnnotation(MisconfiguredClass.class, MisconfiguredLabel.class));
+		try {
+			MergedAnnotationIndex.forElement(MisconfiguredClass.class).findMergedAnnotation(MisconfiguredLabel.class);
+			fail("Should have thrown AnnotationConfigurationException");
+		}
+		catch (AnnotationConfigurationException ex) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nonIndexableElement() {
+		MergedAnnotationIndex.forElement(AnnotatedElementUtils.forAnnotations());
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface Label {
+
+		@AliasFor("name")
+		String value() default "";
+
+		@AliasFor("value")
+		String name() default "";
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Label
+	@interface ComposedLabel {
+
+		@AliasFor(annotation = Label.class, attribute = "name")
+		String name();
+	}
+
+	@ComposedLabel(name = "composed")
+	static class AnnotatedClass {
+	}
+
+	static class SubClass extends AnnotatedClass {
+	}
+
+	static class PlainClass {
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@interface MisconfiguredLabel {
+
+		@AliasFor("name")
+		String value() default "";
+
+		String name() default "";
+	}
+
+	@MisconfiguredLabel("misconfigured")
+	static class MisconfiguredClass {
+	}
+
+	interface Handler {
+
+		@Label(name = "iface")
+		void handle();
+	}
+
+	static class Implementation implements Handler {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+}
@@ -20,6 +20,7 @@ import java.beans.PropertyDescriptor;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
@@ -68,11 +69,13 @@ import org.springframework.util.StringUtils;
  * will have been set to the primitive's default value instead of null.
  *
  * <p>Please note that this class is designed to provide convenience rather than high performance.
- * For best performance, consider using a custom {@link RowMapper} implementation.
+ * For best performance, consider using a custom {@link RowMapper} implementation,
+ * or an {@link IndexedRowMapper} which resolves its column mapping only once.
  *
  * @author Thomas Risberg
  * @author Juergen Hoeller
  * @since 2.5
+ * @see IndexedRowMapper
  */
 public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 
@@ -224,16 +227,77 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
 		for (PropertyDescriptor pd : pds) {
 			if (pd.getWriteMethod() != null) {
-				this.mappedFields.put(lowerCaseName(pd.getName()), pd);
-				String underscoredName = underscoreName(pd.getName());
-				if (!lowerCaseName(pd.getName()).equals(underscoredName)) {
-					this.mappedFields.put(underscoredName, pd);
-				}
+				registerMappedName(this.mappedFields, pd.getName(), pd);
 				this.mappedProperties.add(pd.getName());
 			}
 		}
 	}
 
+	/**
+	 * Register the given value in the given map under the lower-case and the
+	 * underscored form of the given property name, as matched by {@link #mappedFieldName}.
+	 * @param map the map to register the value in
+	 * @param name the property name
+	 * @param value the value to register
+	 * @since 5.0
+	 * @see #lowerCaseName
+	 * @see #underscoreName
+	 */
+	protected <V> void registerMappedName(Map<String, V> map, String name, V value) {
+		String lowerCaseName = lowerCaseName(name);
+		map.put(lowerCaseName, value);
+		String underscoredName = underscoreName(name);
+		if (!lowerCaseName.equals(underscoredName)) {
+			map.put(underscoredName, value);
+		}
+	}
+
+	/**
+	 * Determine the name to look up a mapped property for the given column label,
+	 * i.e. the column label in lower case and without spaces.
+	 * @param column the column label as obtained from result set metadata
+	 * @return the field name to match against registered property names
+	 * @since 5.0
+	 * @see #registerMappedName
+	 */
+	protected String mappedFieldName(String column) {
+		return lowerCaseName(column.replaceAll(" ", ""));
+	}
+
+	/**
+	 * Return the bean property mapped to the given field name, if any.
+	 * @param field the field name as determined by {@link #mappedFieldName}
+	 * @since 5.0
+	 */
+	@Nullable
+	protected PropertyDescriptor getMappedProperty(String field) {
+		return (this.mappedFields != null ? this.mappedFields.get(field) : null);
+	}
+
+	/**
+	 * Return the names of all bean properties that we provide mapping for.
+	 * @since 5.0
+	 */
+	protected Set<String> getMappedProperties() {
+		return (this.mappedProperties != null ? this.mappedProperties : Collections.emptySet());
+	}
+
+	/**
+	 * Check the given populated properties against all mapped properties
+	 * if {@link #setCheckFullyPopulated checkFullyPopulated} is on.
+	 * @param populatedProperties the names of the properties populated from columns
+	 * @throws InvalidDataAccessApiUsageException if not all properties were populated
+	 * @since 5.0
+	 */
+	protected void checkFullyPopulated(Set<String> populatedProperties) {
+		if (isCheckFullyPopulated() && !populatedProperties.containsAll(getMappedProperties())) {
+			Class<T> mappedClass = getMappedClass();
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of class [" + (mappedClass != null ? mappedClass.getName() : null) +
+					"]: " + getMappedProperties());
+		}
+	}
+
 	/**
 	 * Convert a name in camelCase to an underscored name in lower case.
 	 * Any upper case letters are converted to lower case with a preceding underscore.
@@ -291,8 +355,8 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 
 		for (int index = 1; index <= columnCount; index++) {
 			String column = JdbcUtils.lookupColumnName(rsmd, index);
-			String field = lowerCaseName(column.replaceAll(" ", ""));
-			PropertyDescriptor pd = (this.mappedFields != null ? this.mappedFields.get(field) : null);
+			String field = mappedFieldName(column);
+			PropertyDescriptor pd = getMappedProperty(field);
 			if (pd != null) {
 				try {
 					Object value = getColumnValue(rs, index, pd);
@@ -334,10 +398,8 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 			}
 		}
 
-		if (populatedProperties != null && !populatedProperties.equals(this.mappedProperties)) {
-			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
-					"necessary to populate object of class [" + this.mappedClass.getName() + "]: " +
-					this.mappedProperties);
+		if (populatedProperties != null) {
+			checkFullyPopulated(populatedProperties);
 		}
 
 		return mappedObject;
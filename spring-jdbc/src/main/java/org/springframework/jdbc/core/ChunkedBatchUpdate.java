@@ -0,0 +1,447 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Executes a parameterized SQL statement for a potentially very large number
+ * of argument rows, sending them to the database in chunks of a fixed size.
+ *
+ * <p>Rows are obtained from an {@link Iterator} and bound to the statement
+ * while iterating, so arbitrarily large sources (e.g. a {@code Stream} through
+ * its {@link java.util.stream.Stream#iterator() iterator}) can be written with
+ * constant memory. All chunks are executed on the same JDBC Connection, reusing
+ * the same PreparedStatement, with the update counts reported per chunk through
+ * a {@link ChunkCallback}.
+ *
+ * <p>By default, each row is added to a JDBC batch which gets executed once the
+ * chunk size has been reached. For {@code INSERT ... VALUES (...)} statements,
+ * the {@link #setMultiRowValues "multiRowValues"} mode rewrites the statement
+ * to a multi-row {@code VALUES} list instead, inserting an entire chunk through
+ * a single statement execution; this is supported by most databases and
+ * significantly reduces per-row overhead on the database side as well.
+ *
+ * <p>Execution happens through {@link JdbcOperations#execute(ConnectionCallback)}:
+ * with a {@link JdbcTemplate}, statement settings such as the query timeout
+ * are applied as configured, and any {@code SQLException} is translated
+ * through its exception translator.
+ *
+ * @author agent
+ * @since 5.0
+ * @see JdbcTemplate#batchUpdate(String, java.util.Collection, int, ParameterizedPreparedStatementSetter)
+ */
+public class ChunkedBatchUpdate {
+
+	/** Default number of rows per chunk: 1000 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	/**
+	 * Default maximum number of parameters per multi-row statement: 2000,
+	 * staying below common driver limits (e.g. 2100 on SQL Server).
+	 */
+	public static final int DEFAULT_MAX_PARAMETER_COUNT = 2000;
+
+	private static final Pattern VALUES_PATTERN = Pattern.compile("\\bVALUES\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final JdbcOperations jdbcOperations;
+
+	private final String sql;
+
+	@Nullable
+	private int[] argTypes;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private boolean multiRowValues = false;
+
+	private int maxParameterCount = DEFAULT_MAX_PARAMETER_COUNT;
+
+
+	/**
+	 * Create a new {@code ChunkedBatchUpdate} for the given statement.
+	 * @param jdbcOperations the JdbcOperations to obtain a Connection from
+	 * @param sql the SQL statement to execute, with '?' placeholders
+	 */
+	public ChunkedBatchUpdate(JdbcOperations jdbcOperations, String sql) {
+		Assert.notNull(jdbcOperations, "JdbcOperations must not be null");
+		Assert.hasText(sql, "SQL must not be empty");
+		this.jdbcOperations = jdbcOperations;
+		this.sql = sql;
+	}
+
+
+	/**
+	 * Return the SQL statement to execute.
+	 */
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Specify the SQL types of the arguments in each row,
+	 * as defined in {@code java.sql.Types}.
+	 * <p>Default is none, leaving it to the PreparedStatement to guess the
+	 * corresponding SQL type. Individual arguments may also be passed in as
+	 * {@link SqlParameterValue} in any case.
+	 */
+	public void setArgTypes(@Nullable int... argTypes) {
+		this.argTypes = argTypes;
+	}
+
+	/**
+	 * Specify the number of rows to send to the database at once.
+	 * <p>Default is {@link #DEFAULT_CHUNK_SIZE} (1000).
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Return the number of rows to send to the database at once.
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Specify whether to rewrite the statement to a multi-row {@code VALUES}
+	 * list per chunk, e.g. {@code INSERT INTO t (a, b) VALUES (?, ?), (?, ?)},
+	 * instead of adding each row to a JDBC batch.
+	 * <p>Requires the statement to end with a single {@code VALUES (...)}
+	 * group; quoted literals and comments are not taken into account when
+	 * locating the group, and a trailing comment is dropped from the rewritten
+	 * statement. The number of rows per statement is limited by the
+	 * {@link #setMaxParameterCount "maxParameterCount"} setting.
+	 * <p>Default is {@code false}. Note that a multi-row statement reports
+	 * a single update count for all of its rows.
+	 */
+	public void setMultiRowValues(boolean multiRowValues) {
+		this.multiRowValues = multiRowValues;
+	}
+
+	/**
+	 * Return whether to rewrite the statement to a multi-row {@code VALUES} list.
+	 */
+	public boolean isMultiRowValues() {
+		return this.multiRowValues;
+	}
+
+	/**
+	 * Specify the maximum number of parameters in a multi-row statement,
+	 * reducing the number of rows per statement below the chunk size if necessary.
+	 * <p>Default is {@link #DEFAULT_MAX_PARAMETER_COUNT} (2000).
+	 * @see #setMultiRowValues
+	 */
+	public void setMaxParameterCount(int maxParameterCount) {
+		Assert.isTrue(maxParameterCount > 0, "Max parameter count must be greater than 0");
+		this.maxParameterCount = maxParameterCount;
+	}
+
+
+	/**
+	 * Execute the statement for all given rows, collecting the update counts.
+	 * @param batchArgs the argument rows for the statement
+	 * @return an array containing the update counts for each chunk
+	 * (see {@link ChunkCallback#chunkExecuted} for their layout)
+	 * @throws DataAccessException if there is any problem issuing the update
+	 */
+	public int[][] execute(Iterable<Object[]> batchArgs) throws DataAccessException {
+		List<int[]> result = new ArrayList<>();
+		execute(batchArgs.iterator(), (chunkNumber, rowCount, updateCounts) -> result.add(updateCounts));
+		return result.toArray(new int[result.size()][]);
+	}
+
+	/**
+	 * Execute the statement for all rows returned by the given Iterator,
+	 * reporting the update counts through the given callback after each chunk.
+	 * @param batchArgs the argument rows for the statement
+	 * @param callback the callback to notify after each chunk
+	 * @return the total number of rows processed
+	 * @throws DataAccessException if there is any problem issuing the update
+	 */
+	public long execute(Iterator<Object[]> batchArgs, ChunkCallback callback) throws DataAccessException {
+		Assert.notNull(batchArgs, "Batch arguments must not be null");
+		Assert.notNull(callback, "ChunkCallback must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing chunked SQL batch update [" + this.sql + "] with a chunk size of " +
+					this.chunkSize + (this.multiRowValues ? " (multi-row values)" : ""));
+		}
+		final MultiRowStatement multiRowStatement = (this.multiRowValues ? parseMultiRowStatement() : null);
+		Long result = this.jdbcOperations.execute((ConnectionCallback<Long>) con -> {
+			if (multiRowStatement != null) {
+				return executeMultiRow(con, multiRowStatement, batchArgs, callback);
+			}
+			else {
+				return executeBatched(con, batchArgs, callback);
+			}
+		});
+		Assert.state(result != null, "No row count");
+		return result;
+	}
+
+	private long executeBatched(Connection con, Iterator<Object[]> batchArgs, ChunkCallback callback)
+			throws SQLException {
+
+		boolean batchSupported = JdbcUtils.supportsBatchUpdates(con);
+		if (!batchSupported) {
+			logger.warn("JDBC Driver does not support Batch updates; resorting to single statement execution");
+		}
+		PreparedStatement ps = con.prepareStatement(this.sql);
+		List<Object[]> rows = new ArrayList<>(Math.min(this.chunkSize, 1024));
+		try {
+			int[] singleCounts = (batchSupported ? null : new int[this.chunkSize]);
+			long rowCount = 0;
+			int chunkNumber = 0;
+			int inChunk = 0;
+			while (batchArgs.hasNext()) {
+				Object[] row = batchArgs.next();
+				rows.add(row);
+				setParameterValues(ps, row, 0);
+				if (singleCounts != null) {
+					singleCounts[inChunk] = ps.executeUpdate();
+				}
+				else {
+					ps.addBatch();
+				}
+				inChunk++;
+				rowCount++;
+				if (inChunk == this.chunkSize || !batchArgs.hasNext()) {
+					chunkNumber++;
+					if (logger.isDebugEnabled()) {
+						logger.debug("Sending SQL batch update #" + chunkNumber + " with " + inChunk + " items");
+					}
+					int[] updateCounts = (singleCounts != null ?
+							Arrays.copyOf(singleCounts, inChunk) : ps.executeBatch());
+					cleanupParameters(rows);
+					callback.chunkExecuted(chunkNumber, inChunk, updateCounts);
+					inChunk = 0;
+				}
+			}
+			return rowCount;
+		}
+		finally {
+			cleanupParameters(rows);
+			JdbcUtils.closeStatement(ps);
+		}
+	}
+
+	private long executeMultiRow(Connection con, MultiRowStatement statement, Iterator<Object[]> batchArgs,
+			ChunkCallback callback) throws SQLException {
+
+		int rowsPerStatement = Math.max(1,
+				Math.min(this.chunkSize, this.maxParameterCount / Math.max(1, statement.parameterCount)));
+		List<Object[]> rows = new ArrayList<>(rowsPerStatement);
+		PreparedStatement fullPs = null;
+		try {
+			long rowCount = 0;
+			int chunkNumber = 0;
+			while (batchArgs.hasNext()) {
+				Object[] row = batchArgs.next();
+				if (row.length != statement.parameterCount) {
+					throw new InvalidDataAccessApiUsageException("Expected " + statement.parameterCount +
+							" arguments per row for multi-row statement [" + this.sql + "] but got " + row.length);
+				}
+				rows.add(row);
+				rowCount++;
+				if (rows.size() == rowsPerStatement || !batchArgs.hasNext()) {
+					chunkNumber++;
+					if (logger.isDebugEnabled()) {
+						logger.debug("Sending multi-row SQL update #" + chunkNumber + " with " + rows.size() + " rows");
+					}
+					int updateCount;
+					if (rows.size() == rowsPerStatement) {
+						if (fullPs == null) {
+							fullPs = con.prepareStatement(statement.getSql(rowsPerStatement));
+						}
+						updateCount = executeMultiRowStatement(fullPs, rows, statement.parameterCount);
+					}
+					else {
+						PreparedStatement ps = con.prepareStatement(statement.getSql(rows.size()));
+						try {
+							updateCount = executeMultiRowStatement(ps, rows, statement.parameterCount);
+						}
+						finally {
+							JdbcUtils.closeStatement(ps);
+						}
+					}
+					int chunkRows = rows.size();
+					cleanupParameters(rows);
+					callback.chunkExecuted(chunkNumber, chunkRows, new int[] {updateCount});
+				}
+			}
+			return rowCount;
+		}
+		finally {
+			cleanupParameters(rows);
+			JdbcUtils.closeStatement(fullPs);
+		}
+	}
+
+	private int executeMultiRowStatement(PreparedStatement ps, List<Object[]> rows, int parameterCount)
+			throws SQLException {
+
+		int offset = 0;
+		for (Object[] row : rows) {
+			setParameterValues(ps, row, offset);
+			offset += parameterCount;
+		}
+		return ps.executeUpdate();
+	}
+
+	private void setParameterValues(PreparedStatement ps, Object[] values, int offset) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			int colType = (this.argTypes != null && i < this.argTypes.length ?
+					this.argTypes[i] : SqlTypeValue.TYPE_UNKNOWN);
+			StatementCreatorUtils.setParameterValue(ps, offset + i + 1, colType, values[i]);
+		}
+	}
+
+	/**
+	 * Clean up the given (executed) argument rows and clear the list.
+	 * @see StatementCreatorUtils#cleanupParameters(Object...)
+	 */
+	private static void cleanupParameters(List<Object[]> rows) {
+		for (Object[] row : rows) {
+			StatementCreatorUtils.cleanupParameters(row);
+		}
+		rows.clear();
+	}
+
+	/**
+	 * Split the statement into the part before its {@code VALUES} group
+	 * and the group itself, for repeating the latter per row.
+	 */
+	private MultiRowStatement parseMultiRowStatement() {
+		// Blank out quoted literals and comments, keeping all positions intact
+		char[] masked = this.sql.toCharArray();
+		int i = 0;
+		while (i < masked.length) {
+			int skipToPosition = NamedParameterUtils.skipCommentsAndQuotes(masked, i);
+			if (skipToPosition > i) {
+				boolean literal = (masked[i] == '\'' || masked[i] == '"');
+				Arrays.fill(masked, (literal ? i + 1 : i), (literal ? skipToPosition - 1 : skipToPosition), ' ');
+				i = skipToPosition;
+			}
+			else {
+				i++;
+			}
+		}
+		String statement = new String(masked);
+
+		Matcher matcher = VALUES_PATTERN.matcher(statement);
+		int groupStart = -1;
+		while (matcher.find()) {
+			groupStart = matcher.end() - 1;
+		}
+		if (groupStart != -1) {
+			int depth = 0;
+			int parameterCount = 0;
+			for (i = groupStart; i < statement.length(); i++) {
+				char c = statement.charAt(i);
+				if (c == '?') {
+					parameterCount++;
+				}
+				else if (c == '(') {
+					depth++;
+				}
+				else if (c == ')' && --depth == 0) {
+					String remainder = statement.substring(i + 1).trim();
+					if (remainder.isEmpty()) {
+						return new MultiRowStatement(
+								this.sql.substring(0, groupStart), this.sql.substring(groupStart, i + 1),
+								parameterCount);
+					}
+					break;
+				}
+			}
+		}
+		throw new InvalidDataAccessApiUsageException(
+				"Statement does not end with a VALUES (...) group for multi-row rewriting: " + this.sql);
+	}
+
+
+	/**
+	 * Callback interface for the update counts of each executed chunk.
+	 */
+	@FunctionalInterface
+	public interface ChunkCallback {
+
+		/**
+		 * Called after the given chunk has been executed.
+		 * @param chunkNumber the number of the chunk, starting at 1
+		 * @param rowCount the number of argument rows in the chunk
+		 * @param updateCounts the update counts as returned by the JDBC driver:
+		 * one per row in JDBC batch mode (possibly
+		 * {@link java.sql.Statement#SUCCESS_NO_INFO}), or a single count for
+		 * all rows in multi-row values mode
+		 */
+		void chunkExecuted(int chunkNumber, int rowCount, int[] updateCounts);
+	}
+
+
+	/**
+	 * An {@code INSERT} statement split into its prefix and its {@code VALUES} group.
+	 */
+	private static final class MultiRowStatement {
+
+		private final String prefix;
+
+		private final String valuesGroup;
+
+		final int parameterCount;
+
+		MultiRowStatement(String prefix, String valuesGroup, int parameterCount) {
+			this.prefix = prefix;
+			this.valuesGroup = valuesGroup;
+			this.parameterCount = parameterCount;
+		}
+
+		String getSql(int rowCount) {
+			StringBuilder sb = new StringBuilder(
+					this.prefix.length() + (this.valuesGroup.length() + 2) * rowCount);
+			sb.append(this.prefix).append(this.valuesGroup);
+			for (int i = 1; i < rowCount; i++) {
+				sb.append(", ").append(this.valuesGroup);
+			}
+			return sb.toString();
+		}
+	}
+
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.ConstructorProperties;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * {@link BeanPropertyRowMapper} variant that converts a row into a new instance
+ * of the specified mapped target class, binding columns by index rather than
+ * by name on every row.
+ *
+ * <p>Columns are matched against the target class in the same way as with
+ * {@link BeanPropertyRowMapper}: the column label as obtained from result set
+ * metadata is compared to property names either directly or in their
+ * underscored form. However, this matching happens only once per column
+ * layout: the {@link ResultSetMetaData} of the first row determines a mapping
+ * from column index to constructor argument or setter method, which is then
+ * applied to all subsequent rows of the same {@code ResultSet}, without any
+ * further name lookups and without going through a
+ * {@link org.springframework.beans.BeanWrapper}. Mappings are kept for the
+ * distinct column layouts that this mapper has seen, so repeated execution of
+ * the same query does not resolve them again either; the cache holds them
+ * through soft references, allowing for garbage collection under memory pressure.
+ *
+ * <p>The target class may either provide a default constructor plus setters
+ * (JavaBean style) or a single constructor taking the column values as
+ * arguments (data class style, e.g. with final fields). Constructor parameter
+ * names are taken from a {@link ConstructorProperties} annotation, if present,
+ * or from the class file (e.g. when compiled with {@code -parameters}). Any
+ * columns not consumed by the constructor are applied to setters afterwards.
+ * Constructor arguments without a corresponding column receive {@code null}
+ * or, for primitive types, their default value.
+ *
+ * <p>Values are extracted through {@link #getColumnValue(ResultSet, int, PropertyDescriptor)}
+ * for columns mapped to bean properties, including constructor arguments named
+ * after a property, just like with {@link BeanPropertyRowMapper}, and through
+ * {@link #getColumnValue(ResultSet, int, Class)} for any other constructor
+ * arguments. Values are converted through the configured {@link ConversionService}
+ * if not directly assignable.
+ *
+ * @author agent
+ * @since 5.0
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ */
+public class IndexedRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+	private static final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+
+	/** The constructor to create target instances with */
+	private final Constructor<T> constructor;
+
+	/** Map of field names to constructor parameter indexes */
+	private final Map<String, Integer> mappedParameters = new HashMap<>();
+
+	/** Cache of column mappings, keyed by column labels */
+	private final Map<List<String>, ColumnMapping> mappingCache = new ConcurrentReferenceHashMap<>(16);
+
+	/** The mapping for the most recently mapped ResultSet */
+	@Nullable
+	private volatile BoundMapping currentMapping;
+
+
+	/**
+	 * Create a new {@code IndexedRowMapper}, accepting unpopulated
+	 * properties in the target object.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public IndexedRowMapper(Class<T> mappedClass) {
+		this(mappedClass, false);
+	}
+
+	/**
+	 * Create a new {@code IndexedRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param checkFullyPopulated whether we're strictly validating that all
+	 * constructor arguments and bean properties have been mapped from
+	 * corresponding database fields
+	 */
+	public IndexedRowMapper(Class<T> mappedClass, boolean checkFullyPopulated) {
+		super(mappedClass, checkFullyPopulated);
+		this.constructor = determineConstructor(mappedClass);
+		if (this.constructor.getParameterCount() > 0) {
+			String[] paramNames = getParameterNames(this.constructor);
+			for (int i = 0; i < paramNames.length; i++) {
+				registerMappedName(this.mappedParameters, paramNames[i], i);
+			}
+		}
+	}
+
+
+	/**
+	 * Determine the constructor to use for the given class: a default
+	 * constructor if available, or otherwise its single constructor.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Constructor<T> determineConstructor(Class<T> mappedClass) {
+		try {
+			return mappedClass.getDeclaredConstructor();
+		}
+		catch (NoSuchMethodException ex) {
+			Constructor<?>[] ctors = mappedClass.getConstructors();
+			if (ctors.length != 1) {
+				ctors = mappedClass.getDeclaredConstructors();
+			}
+			if (ctors.length != 1) {
+				throw new InvalidDataAccessApiUsageException("Mapped class [" + mappedClass.getName() +
+						"] neither has a default constructor nor a unique constructor to map to");
+			}
+			return (Constructor<T>) ctors[0];
+		}
+	}
+
+	private String[] getParameterNames(Constructor<T> ctor) {
+		ConstructorProperties cp = ctor.getAnnotation(ConstructorProperties.class);
+		String[] paramNames = (cp != null ? cp.value() : parameterNameDiscoverer.getParameterNames(ctor));
+		if (paramNames == null || paramNames.length != ctor.getParameterCount()) {
+			throw new InvalidDataAccessApiUsageException("Cannot resolve parameter names for constructor " +
+					ctor + ": compile with '-parameters' or declare @ConstructorProperties");
+		}
+		return paramNames;
+	}
+
+
+	/**
+	 * Extract the values for all columns in the current row,
+	 * using the column mapping resolved for the given {@code ResultSet}.
+	 */
+	@Override
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		ColumnMapping mapping = obtainMapping(rs);
+		if (isCheckFullyPopulated() && !mapping.fullyPopulated) {
+			checkFullyPopulated(mapping.populatedProperties);
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of class [" + this.constructor.getDeclaringClass().getName() +
+					"]: missing constructor arguments " + mapping.missingParameters);
+		}
+
+		T mappedObject;
+		if (mapping.parameterColumns.length > 0) {
+			Object[] args = new Object[mapping.parameterColumns.length];
+			for (int i = 0; i < args.length; i++) {
+				int index = mapping.parameterColumns[i];
+				Class<?> type = mapping.parameterTypes[i];
+				Object value = (index > 0 ? getValue(rs, index, type, mapping.parameterProperties[i]) : null);
+				if (value == null && type.isPrimitive()) {
+					if (index > 0 && !isPrimitivesDefaultedForNullValue()) {
+						throw new TypeMismatchException((Object) null, type);
+					}
+					value = Array.get(Array.newInstance(type, 1), 0);
+				}
+				args[i] = value;
+			}
+			mappedObject = BeanUtils.instantiateClass(this.constructor, args);
+		}
+		else {
+			mappedObject = BeanUtils.instantiateClass(this.constructor);
+		}
+
+		for (int i = 0; i < mapping.propertyColumns.length; i++) {
+			int index = mapping.propertyColumns[i];
+			Class<?> type = mapping.propertyTypes[i];
+			Object value = getValue(rs, index, type, mapping.properties[i]);
+			if (value == null && type.isPrimitive()) {
+				if (isPrimitivesDefaultedForNullValue()) {
+					continue;
+				}
+				throw new TypeMismatchException(new PropertyChangeEvent(
+						mappedObject, mapping.propertyNames[i], null, null), type);
+			}
+			try {
+				mapping.writeMethods[i].invoke(mappedObject, value);
+			}
+			catch (InvocationTargetException ex) {
+				throw new DataRetrievalFailureException("Unable to map column '" + mapping.columnNames[index - 1] +
+						"' to property '" + mapping.propertyNames[i] + "'", ex.getTargetException());
+			}
+			catch (IllegalAccessException | IllegalArgumentException ex) {
+				throw new DataRetrievalFailureException("Unable to map column '" + mapping.columnNames[index - 1] +
+						"' to property '" + mapping.propertyNames[i] + "'", ex);
+			}
+		}
+
+		return mappedObject;
+	}
+
+	/**
+	 * Obtain the column mapping for the given {@code ResultSet}: typically the
+	 * mapping already resolved for a previous row, otherwise a mapping for the
+	 * column layout of the given {@code ResultSet}.
+	 */
+	private ColumnMapping obtainMapping(ResultSet rs) throws SQLException {
+		BoundMapping current = this.currentMapping;
+		if (current != null && current.resultSet.get() == rs) {
+			return current.mapping;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columnNames = new String[columnCount];
+		for (int index = 1; index <= columnCount; index++) {
+			columnNames[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+		}
+		List<String> key = Arrays.asList(columnNames);
+		ColumnMapping mapping = this.mappingCache.get(key);
+		if (mapping == null) {
+			mapping = resolveMapping(columnNames);
+			this.mappingCache.put(key, mapping);
+		}
+		this.currentMapping = new BoundMapping(rs, mapping);
+		return mapping;
+	}
+
+	/**
+	 * Resolve the mapping from column indexes to constructor arguments and
+	 * setter methods for the given column names.
+	 */
+	private ColumnMapping resolveMapping(String[] columnNames) {
+		int[] parameterColumns = new int[this.constructor.getParameterCount()];
+		PropertyDescriptor[] parameterProperties = new PropertyDescriptor[parameterColumns.length];
+		Map<PropertyDescriptor, Integer> propertyColumns = new HashMap<>();
+		List<PropertyDescriptor> properties = new ArrayList<>();
+		Set<String> populatedProperties = new HashSet<>();
+
+		for (int index = 1; index <= columnNames.length; index++) {
+			String column = columnNames[index - 1];
+			String field = mappedFieldName(column);
+			PropertyDescriptor pd = getMappedProperty(field);
+			Integer paramIndex = this.mappedParameters.get(field);
+			if (paramIndex != null) {
+				parameterColumns[paramIndex] = index;
+				if (pd != null) {
+					// Property populated through the constructor
+					parameterProperties[paramIndex] = pd;
+					populatedProperties.add(pd.getName());
+				}
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + column + "' to constructor parameter " + paramIndex +
+							" of type '" + ClassUtils.getQualifiedName(
+							this.constructor.getParameterTypes()[paramIndex]) + "'");
+				}
+				continue;
+			}
+			if (pd != null) {
+				if (propertyColumns.put(pd, index) == null) {
+					properties.add(pd);
+				}
+				populatedProperties.add(pd.getName());
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
+							"' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+				}
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+			}
+		}
+
+		int[] propertyIndexes = new int[properties.size()];
+		Class<?>[] propertyTypes = new Class<?>[properties.size()];
+		Method[] writeMethods = new Method[properties.size()];
+		String[] propertyNames = new String[properties.size()];
+		for (int i = 0; i < properties.size(); i++) {
+			PropertyDescriptor pd = properties.get(i);
+			Method writeMethod = pd.getWriteMethod();
+			ReflectionUtils.makeAccessible(writeMethod);
+			propertyIndexes[i] = propertyColumns.get(pd);
+			propertyTypes[i] = pd.getPropertyType();
+			writeMethods[i] = writeMethod;
+			propertyNames[i] = pd.getName();
+		}
+		Set<String> missingParameters = new LinkedHashSet<>();
+		String[] paramNames = (parameterColumns.length > 0 ? getParameterNames(this.constructor) : new String[0]);
+		for (int i = 0; i < parameterColumns.length; i++) {
+			if (parameterColumns[i] == 0) {
+				missingParameters.add(paramNames[i]);
+			}
+		}
+
+		return new ColumnMapping(columnNames, parameterColumns, this.constructor.getParameterTypes(),
+				parameterProperties, propertyIndexes, properties.toArray(new PropertyDescriptor[properties.size()]),
+				propertyTypes, writeMethods, propertyNames, populatedProperties,
+				missingParameters, (missingParameters.isEmpty() &&
+						populatedProperties.containsAll(getMappedProperties())));
+	}
+
+	@Nullable
+	private Object getValue(ResultSet rs, int index, Class<?> type, @Nullable PropertyDescriptor pd)
+			throws SQLException {
+
+		Object value = (pd != null ? getColumnValue(rs, index, pd) : getColumnValue(rs, index, type));
+		if (value == null || ClassUtils.isAssignableValue(type, value)) {
+			return value;
+		}
+		ConversionService cs = getConversionService();
+		if (cs != null && cs.canConvert(value.getClass(), type)) {
+			return cs.convert(value, type);
+		}
+		throw new TypeMismatchException(value, type);
+	}
+
+	/**
+	 * Retrieve a JDBC object value for the specified column, to be passed to
+	 * a constructor argument that does not correspond to a bean property.
+	 * Columns mapped to bean properties go through
+	 * {@link #getColumnValue(ResultSet, int, PropertyDescriptor)} instead.
+	 * <p>The default implementation calls
+	 * {@link JdbcUtils#getResultSetValue(java.sql.ResultSet, int, Class)}.
+	 * Subclasses may override this to check specific value types upfront,
+	 * or to post-process values return from {@code getResultSetValue}.
+	 * @param rs is the ResultSet holding the data
+	 * @param index is the column index
+	 * @param requiredType the type of the constructor argument
+	 * that the value is going to be mapped to
+	 * @return the Object value
+	 * @throws SQLException in case of extraction failure
+	 * @see org.springframework.jdbc.support.JdbcUtils#getResultSetValue(java.sql.ResultSet, int, Class)
+	 */
+	@Nullable
+	protected Object getColumnValue(ResultSet rs, int index, Class<?> requiredType) throws SQLException {
+		return JdbcUtils.getResultSetValue(rs, index, requiredType);
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code IndexedRowMapper}
+	 * (with the mapped class specified only once).
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> IndexedRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new IndexedRowMapper<>(mappedClass);
+	}
+
+
+	/**
+	 * Mapping from column indexes to constructor arguments and setter methods,
+	 * for a specific column layout.
+	 */
+	private static final class ColumnMapping {
+
+		final String[] columnNames;
+
+		/** Column index per constructor parameter, or 0 if none */
+		final int[] parameterColumns;
+
+		final Class<?>[] parameterTypes;
+
+		/** Bean property per constructor parameter, or null if none */
+		final PropertyDescriptor[] parameterProperties;
+
+		final int[] propertyColumns;
+
+		final PropertyDescriptor[] properties;
+
+		final Class<?>[] propertyTypes;
+
+		final Method[] writeMethods;
+
+		final String[] propertyNames;
+
+		final Set<String> populatedProperties;
+
+		final Set<String> missingParameters;
+
+		final boolean fullyPopulated;
+
+		ColumnMapping(String[] columnNames, int[] parameterColumns, Class<?>[] parameterTypes,
+				PropertyDescriptor[] parameterProperties, int[] propertyColumns, PropertyDescriptor[] properties,
+				Class<?>[] propertyTypes, Method[] writeMethods, String[] propertyNames,
+				Set<String> populatedProperties, Set<String> missingParameters, boolean fullyPopulated) {
+
+			this.columnNames = columnNames;
+			this.parameterColumns = parameterColumns;
+			this.parameterTypes = parameterTypes;
+			this.parameterProperties = parameterProperties;
+			this.propertyColumns = propertyColumns;
+			this.properties = properties;
+			this.propertyTypes = propertyTypes;
+			this.writeMethods = writeMethods;
+			this.propertyNames = propertyNames;
+			this.populatedProperties = populatedProperties;
+			this.missingParameters = missingParameters;
+			this.fullyPopulated = fullyPopulated;
+		}
+	}
+
+
+	/**
+	 * Holder for the mapping resolved for a specific {@code ResultSet},
+	 * not preventing the {@code ResultSet} from being garbage-collected.
+	 */
+	private static final class BoundMapping {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final ColumnMapping mapping;
+
+		BoundMapping(ResultSet resultSet, ColumnMapping mapping) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.mapping = mapping;
+		}
+	}
+
+}
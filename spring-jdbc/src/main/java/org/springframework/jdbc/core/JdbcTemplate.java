@@ -35,6 +35,10 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -362,15 +366,36 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 	@Override
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, true);
+	}
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on a JDBC Statement.
+	 * @param action the callback action
+	 * @param closeResources whether to close the Statement and release the
+	 * Connection after the callback returned; if not, the callback result needs
+	 * to be a lazily consumed Stream, which closes them once the callback
+	 * completed successfully and the Stream itself gets closed
+	 * @return the result of the callback action
+	 */
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		Statement stmt = null;
+		T result = null;
+		boolean completed = false;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
-			T result = action.doInStatement(stmt);
+			result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			if (!closeResources) {
+				result = closeOnStreamClose(result, stmt, null, con);
+			}
+			completed = true;
 			return result;
 		}
 		catch (SQLException ex) {
@@ -383,8 +408,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw getExceptionTranslator().translate("StatementCallback", getSql(action), ex);
 		}
 		finally {
-			JdbcUtils.closeStatement(stmt);
-			DataSourceUtils.releaseConnection(con, getDataSource());
+			if (closeResources || !completed) {
+				if (!completed) {
+					closeStreamResult(result);
+				}
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
 		}
 	}
 
@@ -446,6 +476,30 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result;
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(final String sql, final RowMapper<T> rowMapper) throws DataAccessException {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query [" + sql + "]");
+		}
+		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
+			@Override
+			public Stream<T> doInStatement(Statement stmt) throws SQLException {
+				ResultSet rs = stmt.executeQuery(sql);
+				return new ResultSetSpliterator<>(rs, rowMapper, sql).stream().onClose(
+						() -> JdbcUtils.closeResultSet(rs));
+			}
+			@Override
+			public String getSql() {
+				return sql;
+			}
+		}
+		Stream<T> result = execute(new StreamStatementCallback(), false);
+		Assert.state(result != null, "No result stream");
+		return result;
+	}
+
 	@Override
 	public Map<String, Object> queryForMap(String sql) throws DataAccessException {
 		return queryForObject(sql, getColumnMapRowMapper());
@@ -579,6 +633,24 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, true);
+	}
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on a JDBC PreparedStatement.
+	 * @param psc object that can create a PreparedStatement given a Connection
+	 * @param action the callback action
+	 * @param closeResources whether to close the PreparedStatement and release
+	 * the Connection after the callback returned; if not, the callback result
+	 * needs to be a lazily consumed Stream, which closes them once the callback
+	 * completed successfully and the Stream itself gets closed
+	 * @return the result of the callback action
+	 */
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources)
+			throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -588,11 +660,17 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		PreparedStatement ps = null;
+		T result = null;
+		boolean completed = false;
 		try {
 			ps = psc.createPreparedStatement(con);
 			applyStatementSettings(ps);
-			T result = action.doInPreparedStatement(ps);
+			result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			if (!closeResources) {
+				result = closeOnStreamClose(result, ps, psc, con);
+			}
+			completed = true;
 			return result;
 		}
 		catch (SQLException ex) {
@@ -609,11 +687,16 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw getExceptionTranslator().translate("PreparedStatementCallback", sql, ex);
 		}
 		finally {
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
+			if (closeResources || !completed) {
+				if (!completed) {
+					closeStreamResult(result);
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
-			JdbcUtils.closeStatement(ps);
-			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
 
@@ -738,6 +821,74 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return nonNull(query(sql, args, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, mapping each row to a result object via a
+	 * RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>The PreparedStatement and the Connection remain open while the Stream
+	 * is being consumed, and get released when the Stream is closed.
+	 * @param psc Callback handler that can create a PreparedStatement given a
+	 * Connection
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.0
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable final PreparedStatementSetter pss,
+			final RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		logger.debug("Executing prepared SQL query");
+
+		Stream<T> result = execute(psc, ps -> {
+			ResultSet rs = null;
+			try {
+				if (pss != null) {
+					pss.setValues(ps);
+				}
+				rs = ps.executeQuery();
+			}
+			catch (SQLException | RuntimeException | Error ex) {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				throw ex;
+			}
+			ResultSet rsToUse = rs;
+			return new ResultSetSpliterator<>(rsToUse, rowMapper, getSql(psc)).stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rsToUse);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+			});
+		}, false);
+		Assert.state(result != null, "No result stream");
+		return result;
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException {
+		return queryForStream(psc, null, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
+	}
+
 	@Override
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
 			throws DataAccessException {
@@ -1382,6 +1533,42 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+	/**
+	 * Register the closing of the given Statement and the release of the given
+	 * Connection, as obtained from {@link DataSourceUtils}, with the given Stream
+	 * result of a callback. Explicitly not going through the Statement's own
+	 * Connection, which may be a different (e.g. native or proxied) handle.
+	 * @param result the callback result, expected to be a Stream
+	 * @param stmt the Statement to close
+	 * @param sqlProvider the PreparedStatementCreator to clean up, if any
+	 * @param con the Connection to release
+	 * @return the Stream with the close handler registered
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T closeOnStreamClose(@Nullable T result, Statement stmt,
+			@Nullable Object sqlProvider, Connection con) {
+
+		Assert.state(result instanceof Stream, "Callback result needs to be a Stream");
+		return (T) ((Stream<?>) result).onClose(() -> {
+			if (sqlProvider instanceof ParameterDisposer) {
+				((ParameterDisposer) sqlProvider).cleanupParameters();
+			}
+			JdbcUtils.closeStatement(stmt);
+			DataSourceUtils.releaseConnection(con, getDataSource());
+		});
+	}
+
+	/**
+	 * Close the given callback result if it is a Stream, releasing the
+	 * resources held by the callback itself (such as the ResultSet) in case
+	 * of a failure after the callback returned.
+	 */
+	private static void closeStreamResult(@Nullable Object result) {
+		if (result instanceof Stream) {
+			((Stream<?>) result).close();
+		}
+	}
+
 	private static <T> T nonNull(@Nullable T result) {
 		Assert.state(result != null, "No result");
 		return result;
@@ -1508,6 +1695,63 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * Spliterator for queryForStream adaptation of a ResultSet to a Stream,
+	 * advancing the ResultSet on demand only.
+	 */
+	private class ResultSetSpliterator<T> implements Spliterator<T> {
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		@Nullable
+		private final String sql;
+
+		private int rowNum = 0;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, @Nullable String sql) {
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				return false;
+			}
+			catch (SQLException ex) {
+				throw getExceptionTranslator().translate("ResultSetSpliterator", this.sql, ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED;
+		}
+
+		public Stream<T> stream() {
+			return StreamSupport.stream(this, false);
+		}
+	}
+
+
 	/**
 	 * Adapter to enable use of a RowCallbackHandler inside a ResultSetExtractor.
 	 * <p>Uses a regular ResultSet, so we have to be careful when using it:
@@ -0,0 +1,461 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.Assert;
+
+/**
+ * Adapter exposing the blocking operations of a {@link JdbcOperations} instance
+ * (typically a {@link JdbcTemplate}) as Reactor {@link Mono} and {@link Flux}
+ * results, for use from reactive applications.
+ *
+ * <p>All JDBC work happens on a dedicated {@link Scheduler}, never on the
+ * thread of the subscriber (e.g. a Netty event loop). By default, a parallel
+ * scheduler with one thread per permitted operation gets created.
+ *
+ * <p>The number of operations in flight, i.e. holding a Connection, is limited
+ * to the given {@code maxConcurrency}. Further subscriptions are queued in
+ * subscription order, without blocking any thread, until an operation
+ * completes. The limit needs to be chosen at or below the maximum size of the
+ * Connection pool, leaving room for other users of the same pool, so that an
+ * operation started by this adapter does not have to wait for the pool.
+ *
+ * <p>Query results are streamed through {@link JdbcOperations#queryForStream}:
+ * rows are read from the {@code ResultSet} only as requested by the subscriber,
+ * and the underlying Statement and Connection (as well as the concurrency
+ * permit) are only released on completion, error or cancellation. Slow
+ * subscribers therefore keep a Connection busy for the duration of the stream.
+ * A cancellation never closes the {@code ResultSet} while a row is being read:
+ * the resources get released on the scheduler once the current row is done.
+ *
+ * <p>Thread-bound transactions can be demarcated around a unit of work through
+ * {@link #executeInTransaction}, which runs the entire transaction on the
+ * scheduler thread. Since a streamed {@link Flux} outlives any such callback,
+ * streaming queries do not participate in transactions: within a transaction,
+ * query into a {@code List} instead, e.g.
+ * {@code executeInTransaction(tt, ops -> ops.query(sql, rowMapper)).flatMapIterable(list -> list)}.
+ *
+ * <p>Requires Reactor 3.1 or higher on the classpath.
+ *
+ * @author agent
+ * @since 5.0
+ * @see JdbcTemplate
+ * @see JdbcOperations#queryForStream
+ */
+public class ReactiveJdbcAdapter implements DisposableBean {
+
+	private final JdbcOperations jdbcOperations;
+
+	private final Scheduler scheduler;
+
+	private final boolean ownScheduler;
+
+	private final Object permitMonitor = new Object();
+
+	/** Number of permits available, guarded by permitMonitor */
+	private int availablePermits;
+
+	/** Subscriptions waiting for a permit, guarded by permitMonitor */
+	private final Queue<Permit> waitingPermits = new ArrayDeque<>();
+
+
+	/**
+	 * Create a new {@code ReactiveJdbcAdapter} for the given JdbcOperations,
+	 * with a dedicated parallel scheduler of {@code maxConcurrency} threads.
+	 * @param jdbcOperations the JdbcOperations to delegate to
+	 * @param maxConcurrency the maximum number of operations in flight,
+	 * at or below the maximum size of the Connection pool
+	 */
+	public ReactiveJdbcAdapter(JdbcOperations jdbcOperations, int maxConcurrency) {
+		this(jdbcOperations, Schedulers.newParallel("jdbc", maxConcurrency, true), maxConcurrency, true);
+	}
+
+	/**
+	 * Create a new {@code ReactiveJdbcAdapter} for the given JdbcOperations,
+	 * using the given externally managed scheduler.
+	 * <p>Since waiting for a permit does not occupy a thread, any scheduler
+	 * may be used. Operations holding a Connection may have to wait for a
+	 * thread though, unless the scheduler provides at least
+	 * {@code maxConcurrency} threads that are not shared with blocking work
+	 * elsewhere.
+	 * @param jdbcOperations the JdbcOperations to delegate to
+	 * @param scheduler the scheduler to perform JDBC operations on
+	 * @param maxConcurrency the maximum number of operations in flight,
+	 * at or below the maximum size of the Connection pool
+	 */
+	public ReactiveJdbcAdapter(JdbcOperations jdbcOperations, Scheduler scheduler, int maxConcurrency) {
+		this(jdbcOperations, scheduler, maxConcurrency, false);
+	}
+
+	private ReactiveJdbcAdapter(JdbcOperations jdbcOperations, Scheduler scheduler, int maxConcurrency,
+			boolean ownScheduler) {
+
+		Assert.notNull(jdbcOperations, "JdbcOperations must not be null");
+		Assert.notNull(scheduler, "Scheduler must not be null");
+		Assert.isTrue(maxConcurrency > 0, "Max concurrency must be greater than 0");
+		this.jdbcOperations = jdbcOperations;
+		this.scheduler = scheduler;
+		this.ownScheduler = ownScheduler;
+		this.availablePermits = maxConcurrency;
+	}
+
+
+	/**
+	 * Return the JdbcOperations that this adapter delegates to.
+	 */
+	public final JdbcOperations getJdbcOperations() {
+		return this.jdbcOperations;
+	}
+
+	/**
+	 * Return the scheduler that JDBC operations are performed on.
+	 */
+	public final Scheduler getScheduler() {
+		return this.scheduler;
+	}
+
+
+	/**
+	 * Perform the given action against the JdbcOperations on the dedicated scheduler.
+	 * @param action the action to perform, e.g. a method reference on
+	 * {@link JdbcOperations}
+	 * @return a Mono for the result of the action (empty for a {@code null} result)
+	 */
+	public <T> Mono<T> execute(Function<? super JdbcOperations, ? extends T> action) {
+		Assert.notNull(action, "Action must not be null");
+		return fromCallable(() -> action.apply(this.jdbcOperations));
+	}
+
+	/**
+	 * Perform the given action against the JdbcOperations within a transaction
+	 * on the dedicated scheduler, with the transaction bound to the scheduler
+	 * thread for the entire execution of the action.
+	 * <p>The action needs to fully process any results within the transaction:
+	 * a {@code Stream} returned from {@link JdbcOperations#queryForStream} would
+	 * be consumed after the transaction has completed.
+	 * @param transactionOperations the transaction template to demarcate with
+	 * (typically a {@link org.springframework.transaction.support.TransactionTemplate}
+	 * for the transaction manager of the same {@code DataSource})
+	 * @param action the action to perform
+	 * @return a Mono for the result of the action (empty for a {@code null} result)
+	 */
+	public <T> Mono<T> executeInTransaction(TransactionOperations transactionOperations,
+			Function<? super JdbcOperations, ? extends T> action) {
+
+		Assert.notNull(transactionOperations, "TransactionOperations must not be null");
+		Assert.notNull(action, "Action must not be null");
+		return fromCallable(() -> transactionOperations.execute(status -> action.apply(this.jdbcOperations)));
+	}
+
+	/**
+	 * Query given SQL, mapping each row to a result object via a RowMapper,
+	 * and emitting the objects as the subscriber requests them.
+	 * <p>Not participating in {@link #executeInTransaction transactions}.
+	 * @param sql SQL query to execute
+	 * @param rowMapper object that will map one object per row
+	 * @param args arguments to bind to the query, if any
+	 * @return a Flux for the mapped objects
+	 * @see JdbcOperations#queryForStream(String, RowMapper, Object...)
+	 */
+	public <T> Flux<T> query(String sql, RowMapper<T> rowMapper, @Nullable Object... args) {
+		return fromStream(ops -> ops.queryForStream(sql, rowMapper, args));
+	}
+
+	/**
+	 * Query using a prepared statement, mapping each row to a result object
+	 * via a RowMapper, and emitting the objects as the subscriber requests them.
+	 * <p>Not participating in {@link #executeInTransaction transactions}.
+	 * @param psc object that provides SQL and any necessary parameters
+	 * @param rowMapper object that will map one object per row
+	 * @return a Flux for the mapped objects
+	 * @see JdbcOperations#queryForStream(PreparedStatementCreator, RowMapper)
+	 */
+	public <T> Flux<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+		return fromStream(ops -> ops.queryForStream(psc, rowMapper));
+	}
+
+	/**
+	 * Query given SQL for a single result object, mapped via a RowMapper.
+	 * @param sql SQL query to execute
+	 * @param rowMapper object that will map one object per row
+	 * @param args arguments to bind to the query, if any
+	 * @return a Mono for the single mapped object, signalling an
+	 * {@link org.springframework.dao.IncorrectResultSizeDataAccessException}
+	 * if the query does not return exactly one row
+	 * @see JdbcOperations#queryForObject(String, RowMapper, Object...)
+	 */
+	public <T> Mono<T> queryForObject(String sql, RowMapper<T> rowMapper, @Nullable Object... args) {
+		return execute(ops -> ops.queryForObject(sql, rowMapper, args));
+	}
+
+	/**
+	 * Query given SQL for a single result value of the given type.
+	 * @param sql SQL query to execute
+	 * @param requiredType the type that the result object is expected to match
+	 * @param args arguments to bind to the query, if any
+	 * @return a Mono for the single result value (empty for an SQL NULL)
+	 * @see JdbcOperations#queryForObject(String, Class, Object...)
+	 */
+	public <T> Mono<T> queryForObject(String sql, Class<T> requiredType, @Nullable Object... args) {
+		return execute(ops -> ops.queryForObject(sql, requiredType, args));
+	}
+
+	/**
+	 * Issue a single SQL update operation.
+	 * @param sql SQL containing bind parameters
+	 * @param args arguments to bind to the query, if any
+	 * @return a Mono for the number of rows affected
+	 * @see JdbcOperations#update(String, Object...)
+	 */
+	public Mono<Integer> update(String sql, @Nullable Object... args) {
+		return execute(ops -> ops.update(sql, args));
+	}
+
+	/**
+	 * Execute a batch using the supplied SQL statement with the batch of supplied arguments.
+	 * @param sql the SQL statement to execute
+	 * @param batchArgs the List of Object arrays containing the batch of arguments
+	 * @return a Mono for the numbers of rows affected by each update in the batch
+	 * @see JdbcOperations#batchUpdate(String, List)
+	 */
+	public Mono<int[]> batchUpdate(String sql, List<Object[]> batchArgs) {
+		return execute(ops -> ops.batchUpdate(sql, batchArgs));
+	}
+
+	private <T> Mono<T> fromCallable(Callable<T> callable) {
+		return acquirePermit().flatMap(permit -> Mono.<T>fromCallable(() -> {
+			if (!permit.start()) {
+				return null;
+			}
+			try {
+				return callable.call();
+			}
+			finally {
+				permit.release();
+			}
+		}).subscribeOn(this.scheduler).doFinally(signal -> permit.releaseIfNotStarted()));
+	}
+
+	private <T> Flux<T> fromStream(Function<JdbcOperations, Stream<T>> streamFunction) {
+		return acquirePermit().flatMapMany(permit -> Flux.<T, StreamCursor<T>>generate(() -> {
+			if (!permit.start()) {
+				return new StreamCursor<>(Stream.empty(), permit);
+			}
+			try {
+				return new StreamCursor<>(streamFunction.apply(this.jdbcOperations), permit);
+			}
+			catch (Throwable ex) {
+				permit.release();
+				throw ex;
+			}
+		}, StreamCursor::next, this::closeCursor)
+				.subscribeOn(this.scheduler).doFinally(signal -> permit.releaseIfNotStarted()));
+	}
+
+	/**
+	 * Close the given cursor on the scheduler, after the generator has read
+	 * its last row: possibly on the thread of a cancelling subscriber otherwise.
+	 */
+	private void closeCursor(StreamCursor<?> cursor) {
+		try {
+			this.scheduler.schedule(cursor::close);
+		}
+		catch (RejectedExecutionException ex) {
+			// Scheduler disposed: release the Connection right away
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Obtain a permit for a JDBC operation, waiting without blocking
+	 * until one becomes available.
+	 */
+	private Mono<Permit> acquirePermit() {
+		return Mono.create(sink -> {
+			Permit permit = new Permit(sink);
+			sink.onCancel(permit::release);
+			synchronized (this.permitMonitor) {
+				if (this.availablePermits == 0) {
+					if (!permit.isReleased()) {
+						this.waitingPermits.add(permit);
+					}
+					return;
+				}
+				this.availablePermits--;
+			}
+			if (!permit.grant()) {
+				freePermit();
+			}
+		});
+	}
+
+	/**
+	 * Hand a released permit to the next waiting subscription, if any.
+	 */
+	private void freePermit() {
+		while (true) {
+			Permit next;
+			synchronized (this.permitMonitor) {
+				next = this.waitingPermits.poll();
+				if (next == null) {
+					this.availablePermits++;
+					return;
+				}
+			}
+			if (next.grant()) {
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Dispose the dedicated scheduler, if created by this adapter.
+	 */
+	@Override
+	public void destroy() {
+		if (this.ownScheduler) {
+			this.scheduler.dispose();
+		}
+	}
+
+
+
+	/**
+	 * A permit for a single operation, handed to the subscription once available
+	 * and released exactly once, on completion or on cancellation.
+	 */
+	private final class Permit {
+
+		private static final int WAITING = 0;
+
+		private static final int GRANTED = 1;
+
+		private static final int STARTED = 2;
+
+		private static final int RELEASED = 3;
+
+		private final MonoSink<Permit> sink;
+
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		Permit(MonoSink<Permit> sink) {
+			this.sink = sink;
+		}
+
+		/**
+		 * Hand this permit to its subscription.
+		 * @return {@code false} if the subscription has been cancelled already
+		 */
+		boolean grant() {
+			if (this.state.compareAndSet(WAITING, GRANTED)) {
+				this.sink.success(this);
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Mark the start of the operation on the scheduler.
+		 * @return {@code false} if the subscription has been cancelled already
+		 */
+		boolean start() {
+			return this.state.compareAndSet(GRANTED, STARTED);
+		}
+
+		boolean isReleased() {
+			return (this.state.get() == RELEASED);
+		}
+
+		void releaseIfNotStarted() {
+			if (this.state.compareAndSet(GRANTED, RELEASED)) {
+				freePermit();
+			}
+		}
+
+		void release() {
+			int previous = this.state.getAndSet(RELEASED);
+			if (previous == GRANTED || previous == STARTED) {
+				freePermit();
+			}
+			else if (previous == WAITING) {
+				synchronized (permitMonitor) {
+					waitingPermits.remove(this);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Generator state for a streamed query, reading one row per request.
+	 */
+	private static final class StreamCursor<T> {
+
+		private final Stream<T> stream;
+
+		private final Iterator<T> iterator;
+
+		private final Permit permit;
+
+		StreamCursor(Stream<T> stream, Permit permit) {
+			this.stream = stream;
+			this.iterator = stream.iterator();
+			this.permit = permit;
+		}
+
+		StreamCursor<T> next(SynchronousSink<T> sink) {
+			if (this.iterator.hasNext()) {
+				sink.next(this.iterator.next());
+			}
+			else {
+				sink.complete();
+			}
+			return this;
+		}
+
+		void close() {
+			try {
+				this.stream.close();
+			}
+			finally {
+				this.permit.release();
+			}
+		}
+	}
+
+}
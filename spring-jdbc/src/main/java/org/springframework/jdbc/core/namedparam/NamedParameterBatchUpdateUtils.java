@@ -18,10 +18,14 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Iterator;
 
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.BatchUpdateUtils;
+import org.springframework.jdbc.core.ChunkedBatchUpdate;
 import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.lang.Nullable;
 
 /**
  * Generic utility methods for working with JDBC batch statements using named parameters. Mainly for internal use
@@ -55,4 +59,41 @@ public class NamedParameterBatchUpdateUtils extends BatchUpdateUtils {
 				});
 	}
 
+	public static long executeChunkedBatchUpdateWithNamedParameters(final ParsedSql parsedSql,
+			final Iterator<? extends SqlParameterSource> batchArgs, int chunkSize,
+			ChunkedBatchUpdate.ChunkCallback callback, JdbcOperations jdbcOperations) {
+
+		if (!batchArgs.hasNext()) {
+			return 0;
+		}
+		final SqlParameterSource first = batchArgs.next();
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, first);
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(jdbcOperations, sqlToUse);
+		batchUpdate.setChunkSize(chunkSize);
+		return batchUpdate.execute(new Iterator<Object[]>() {
+
+			@Nullable
+			private SqlParameterSource pending = first;
+
+			@Override
+			public boolean hasNext() {
+				return (this.pending != null || batchArgs.hasNext());
+			}
+
+			@Override
+			public Object[] next() {
+				SqlParameterSource paramSource = (this.pending != null ? this.pending : batchArgs.next());
+				this.pending = null;
+				Object[] values = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+				int[] columnTypes = NamedParameterUtils.buildSqlTypeArray(parsedSql, paramSource);
+				for (int i = 0; i < values.length; i++) {
+					if (columnTypes[i] != SqlParameterSource.TYPE_UNKNOWN && !(values[i] instanceof SqlParameterValue)) {
+						values[i] = new SqlParameterValue(columnTypes[i], values[i]);
+					}
+				}
+				return values;
+			}
+		}, callback);
+	}
+
 }
@@ -16,10 +16,13 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ChunkedBatchUpdate;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.ResultSetExtractor;
@@ -213,6 +216,41 @@ public interface NamedParameterJdbcOperations {
 	<T> List<T> query(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
 			throws DataAccessException;
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, mapping each row to a Java object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>Rows are fetched lazily while the Stream is being consumed, in chunks
+	 * as per the fetch size configured on the underlying JdbcTemplate.
+	 * @param sql SQL query to execute
+	 * @param paramSource container of arguments to bind to the query
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws org.springframework.dao.DataAccessException if the query fails
+	 * @since 5.0
+	 */
+	<T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, mapping each row to a Java object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>Rows are fetched lazily while the Stream is being consumed, in chunks
+	 * as per the fetch size configured on the underlying JdbcTemplate.
+	 * @param sql SQL query to execute
+	 * @param paramMap map of parameters to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type)
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws org.springframework.dao.DataAccessException if the query fails
+	 * @since 5.0
+	 */
+	<T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException;
+
 	/**
 	 * Query given SQL to create a prepared statement from SQL,
 	 * mapping each row to a Java object via a RowMapper.
@@ -505,4 +543,36 @@ public interface NamedParameterJdbcOperations {
 	 */
 	int[] batchUpdate(String sql, SqlParameterSource[] batchArgs);
 
+	/**
+	 * Execute a batch using the supplied SQL statement with the supplied arguments,
+	 * sending them to the database in chunks of the given size.
+	 * @param sql the SQL statement to execute
+	 * @param batchArgs the {@link SqlParameterSource} instances containing the
+	 * arguments for each update
+	 * @param chunkSize the number of updates to send to the database at once
+	 * @return an array containing, for each chunk, an array with the numbers
+	 * of rows affected by each update in the chunk
+	 * @since 5.0
+	 * @see ChunkedBatchUpdate
+	 */
+	int[][] batchUpdate(String sql, Iterable<? extends SqlParameterSource> batchArgs, int chunkSize);
+
+	/**
+	 * Execute a batch using the supplied SQL statement with the arguments
+	 * returned by the given Iterator, sending them to the database in chunks
+	 * of the given size and reporting the result of each chunk to the given
+	 * callback. Arguments are retrieved from the Iterator while executing,
+	 * so an arbitrary number of updates can be processed with constant memory.
+	 * @param sql the SQL statement to execute
+	 * @param batchArgs the {@link SqlParameterSource} instances containing the
+	 * arguments for each update (e.g. from a {@code Stream.iterator()})
+	 * @param chunkSize the number of updates to send to the database at once
+	 * @param callback the callback to notify after each chunk
+	 * @return the total number of updates processed
+	 * @since 5.0
+	 * @see ChunkedBatchUpdate
+	 */
+	long batchUpdate(String sql, Iterator<? extends SqlParameterSource> batchArgs, int chunkSize,
+			ChunkedBatchUpdate.ChunkCallback callback);
+
 }
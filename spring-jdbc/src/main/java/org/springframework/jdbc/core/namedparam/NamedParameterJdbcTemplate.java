@@ -16,13 +16,24 @@
 
 package org.springframework.jdbc.core.namedparam;
 
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ChunkedBatchUpdate;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -34,6 +45,7 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
@@ -73,14 +85,11 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
 
 	/** Cache of original SQL String to ParsedSql representation */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private final ConcurrentLruCache<String, ParsedSql> parsedSqlCache = new ConcurrentLruCache<>();
+
+	/** Cache of statement shape to PreparedStatementCreatorFactory */
+	private final ConcurrentLruCache<StatementShape, PreparedStatementCreatorFactory> statementFactoryCache =
+			new ConcurrentLruCache<>();
 
 
 	/**
@@ -116,6 +125,10 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	/**
 	 * Specify the maximum number of entries for this template's SQL cache.
 	 * Default is 256.
+	 * <p>The limit applies to parsed SQL statements as well as to the
+	 * {@link PreparedStatementCreatorFactory} instances derived from them,
+	 * with the latter kept per parameter types and collection sizes.
+	 * A limit of 0 disables caching altogether.
 	 */
 	public void setCacheLimit(int cacheLimit) {
 		this.cacheLimit = cacheLimit;
@@ -200,6 +213,20 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, new MapSqlParameterSource(paramMap), rowMapper);
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	public <T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException {
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
@@ -308,16 +335,9 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 			throws DataAccessException {
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
-		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
-		PreparedStatementCreatorFactory pscf = new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
-		if (keyColumnNames != null) {
-			pscf.setGeneratedKeysColumnNames(keyColumnNames);
-		}
-		else {
-			pscf.setReturnGeneratedKeys(true);
-		}
+		PreparedStatementCreatorFactory pscf =
+				obtainPreparedStatementCreatorFactory(parsedSql, paramSource, params, keyColumnNames, true);
 		return getJdbcOperations().update(pscf.newPreparedStatementCreator(params), generatedKeyHolder);
 	}
 
@@ -338,6 +358,23 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return NamedParameterBatchUpdateUtils.executeBatchUpdateWithNamedParameters(parsedSql, batchArgs, getJdbcOperations());
 	}
 
+	@Override
+	public int[][] batchUpdate(String sql, Iterable<? extends SqlParameterSource> batchArgs, int chunkSize) {
+		List<int[]> result = new ArrayList<>();
+		batchUpdate(sql, batchArgs.iterator(), chunkSize,
+				(chunkNumber, rowCount, updateCounts) -> result.add(updateCounts));
+		return result.toArray(new int[result.size()][]);
+	}
+
+	@Override
+	public long batchUpdate(String sql, Iterator<? extends SqlParameterSource> batchArgs, int chunkSize,
+			ChunkedBatchUpdate.ChunkCallback callback) {
+
+		ParsedSql parsedSql = getParsedSql(sql);
+		return NamedParameterBatchUpdateUtils.executeChunkedBatchUpdateWithNamedParameters(
+				parsedSql, batchArgs, chunkSize, callback, getJdbcOperations());
+	}
+
 	/**
 	 * Build a PreparedStatementCreator based on the given SQL and named parameters.
 	 * <p>Note: Not used for the {@code update} variant with generated key handling.
@@ -347,10 +384,9 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	 */
 	protected PreparedStatementCreator getPreparedStatementCreator(String sql, SqlParameterSource paramSource) {
 		ParsedSql parsedSql = getParsedSql(sql);
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
 		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
-		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
-		PreparedStatementCreatorFactory pscf = new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+		PreparedStatementCreatorFactory pscf =
+				obtainPreparedStatementCreatorFactory(parsedSql, paramSource, params, null, false);
 		return pscf.newPreparedStatementCreator(params);
 	}
 
@@ -365,13 +401,227 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		if (getCacheLimit() <= 0) {
 			return NamedParameterUtils.parseSqlStatement(sql);
 		}
-		synchronized (this.parsedSqlCache) {
-			ParsedSql parsedSql = this.parsedSqlCache.get(sql);
-			if (parsedSql == null) {
-				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
-				this.parsedSqlCache.put(sql, parsedSql);
+		return this.parsedSqlCache.get(sql, NamedParameterUtils::parseSqlStatement);
+	}
+
+	/**
+	 * Build a PreparedStatementCreatorFactory based on the given parsed SQL
+	 * and named parameters.
+	 * <p>The default implementation substitutes the named parameters (expanding
+	 * collection values into the corresponding number of placeholders) and
+	 * declares the SQL types as specified by the parameter source.
+	 * @param parsedSql the parsed representation of the SQL statement
+	 * @param paramSource container of arguments to bind
+	 * @return the corresponding PreparedStatementCreatorFactory
+	 * @since 5.0
+	 * @see NamedParameterUtils#substituteNamedParameters(ParsedSql, SqlParameterSource)
+	 * @see NamedParameterUtils#buildSqlParameterList(ParsedSql, SqlParameterSource)
+	 */
+	protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
+			ParsedSql parsedSql, SqlParameterSource paramSource) {
+
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+	}
+
+	/**
+	 * Obtain a PreparedStatementCreatorFactory for the given parsed SQL and named
+	 * parameters, reusing a cached factory for the same statement shape if possible.
+	 * @param parsedSql the parsed representation of the SQL statement
+	 * @param paramSource container of arguments to bind
+	 * @param params the values as built for the parsed SQL statement
+	 * @param keyColumnNames the names of the columns for generated keys, if any
+	 * @param returnGeneratedKeys whether generated keys are to be returned
+	 */
+	private PreparedStatementCreatorFactory obtainPreparedStatementCreatorFactory(ParsedSql parsedSql,
+			SqlParameterSource paramSource, Object[] params, @Nullable String[] keyColumnNames,
+			boolean returnGeneratedKeys) {
+
+		if (getCacheLimit() <= 0) {
+			return createPreparedStatementCreatorFactory(parsedSql, paramSource, keyColumnNames, returnGeneratedKeys);
+		}
+		StatementShape shape = new StatementShape(parsedSql, paramSource, params, keyColumnNames, returnGeneratedKeys);
+		return this.statementFactoryCache.get(shape, key ->
+				createPreparedStatementCreatorFactory(parsedSql, paramSource, keyColumnNames, returnGeneratedKeys));
+	}
+
+	private PreparedStatementCreatorFactory createPreparedStatementCreatorFactory(ParsedSql parsedSql,
+			SqlParameterSource paramSource, @Nullable String[] keyColumnNames, boolean returnGeneratedKeys) {
+
+		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
+		if (keyColumnNames != null) {
+			pscf.setGeneratedKeysColumnNames(keyColumnNames);
+		}
+		else if (returnGeneratedKeys) {
+			pscf.setReturnGeneratedKeys(true);
+		}
+		return pscf;
+	}
+
+
+	/**
+	 * LRU cache allowing for lookups without a global lock: entries get
+	 * retrieved from a concurrent map, with each hit moving its key to the
+	 * tail of a concurrent queue in access order (under a shared lock),
+	 * while creation and eviction from the head of the queue happen under
+	 * an exclusive lock.
+	 */
+	private class ConcurrentLruCache<K, V> {
+
+		private final Map<K, V> cache = new ConcurrentHashMap<>(DEFAULT_CACHE_LIMIT);
+
+		/** Keys in access order, least recently used first */
+		private final Deque<K> queue = new ConcurrentLinkedDeque<>();
+
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		public V get(K key, Function<K, V> generator) {
+			V value = this.cache.get(key);
+			if (value != null) {
+				if (!key.equals(this.queue.peekLast())) {
+					this.lock.readLock().lock();
+					try {
+						if (this.queue.removeLastOccurrence(key)) {
+							this.queue.offer(key);
+						}
+					}
+					finally {
+						this.lock.readLock().unlock();
+					}
+				}
+				return value;
+			}
+			this.lock.writeLock().lock();
+			try {
+				value = this.cache.get(key);
+				if (value != null) {
+					if (this.queue.removeLastOccurrence(key)) {
+						this.queue.offer(key);
+					}
+					return value;
+				}
+				value = generator.apply(key);
+				this.cache.put(key, value);
+				this.queue.offer(key);
+				while (this.cache.size() > getCacheLimit()) {
+					K leastUsed = this.queue.poll();
+					if (leastUsed == null) {
+						break;
+					}
+					this.cache.remove(leastUsed);
+				}
+				return value;
+			}
+			finally {
+				this.lock.writeLock().unlock();
 			}
-			return parsedSql;
+		}
+	}
+
+
+	/**
+	 * Cache key for a PreparedStatementCreatorFactory: the original SQL statement
+	 * plus everything that the substituted SQL and the declared parameters depend
+	 * on, i.e. the SQL type and type name of each parameter, the size of each
+	 * collection value and the length of each array entry within such a collection.
+	 */
+	private static final class StatementShape {
+
+		private final String sql;
+
+		private final int[] sqlTypes;
+
+		@Nullable
+		private final String[] typeNames;
+
+		private final int[] collectionSizes;
+
+		@Nullable
+		private final int[][] entryLengths;
+
+		@Nullable
+		private final String[] keyColumnNames;
+
+		private final boolean returnGeneratedKeys;
+
+		private final int hashCode;
+
+		public StatementShape(ParsedSql parsedSql, SqlParameterSource paramSource, Object[] params,
+				@Nullable String[] keyColumnNames, boolean returnGeneratedKeys) {
+
+			List<String> paramNames = parsedSql.getParameterNames();
+			int paramCount = paramNames.size();
+			int[] sqlTypes = new int[paramCount];
+			String[] typeNames = null;
+			int[] collectionSizes = new int[paramCount];
+			int[][] entryLengths = null;
+			for (int i = 0; i < paramCount; i++) {
+				String paramName = paramNames.get(i);
+				sqlTypes[i] = paramSource.getSqlType(paramName);
+				String typeName = paramSource.getTypeName(paramName);
+				if (typeName != null) {
+					if (typeNames == null) {
+						typeNames = new String[paramCount];
+					}
+					typeNames[i] = typeName;
+				}
+				Object value = params[i];
+				if (value instanceof SqlParameterValue) {
+					value = ((SqlParameterValue) value).getValue();
+				}
+				if (value instanceof Collection) {
+					Collection<?> entries = (Collection<?>) value;
+					collectionSizes[i] = entries.size();
+					int k = 0;
+					for (Object entry : entries) {
+						if (entry instanceof Object[]) {
+							if (entryLengths == null) {
+								entryLengths = new int[paramCount][];
+							}
+							if (entryLengths[i] == null) {
+								entryLengths[i] = new int[entries.size()];
+							}
+							entryLengths[i][k] = ((Object[]) entry).length + 1;
+						}
+						k++;
+					}
+				}
+				else {
+					collectionSizes[i] = -1;
+				}
+			}
+			this.sql = parsedSql.getOriginalSql();
+			this.sqlTypes = sqlTypes;
+			this.typeNames = typeNames;
+			this.collectionSizes = collectionSizes;
+			this.entryLengths = entryLengths;
+			this.keyColumnNames = keyColumnNames;
+			this.returnGeneratedKeys = returnGeneratedKeys;
+			this.hashCode = this.sql.hashCode() * 29 + Arrays.hashCode(this.sqlTypes) * 17 +
+					Arrays.hashCode(this.collectionSizes);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof StatementShape)) {
+				return false;
+			}
+			StatementShape otherShape = (StatementShape) other;
+			return (this.sql.equals(otherShape.sql) && Arrays.equals(this.sqlTypes, otherShape.sqlTypes) &&
+					Arrays.equals(this.typeNames, otherShape.typeNames) &&
+					Arrays.equals(this.collectionSizes, otherShape.collectionSizes) &&
+					Arrays.deepEquals(this.entryLengths, otherShape.entryLengths) &&
+					Arrays.equals(this.keyColumnNames, otherShape.keyColumnNames) &&
+					this.returnGeneratedKeys == otherShape.returnGeneratedKeys);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
 		}
 	}
 
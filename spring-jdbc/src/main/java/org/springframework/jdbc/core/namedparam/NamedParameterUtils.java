@@ -20,7 +20,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -196,13 +195,15 @@ public abstract class NamedParameterUtils {
 	 * @param statement character array containing SQL statement
 	 * @param position current position of statement
 	 * @return next position to process after any comments or quotes are skipped
+	 * (or the given position if there is no comment or quote at that position)
+	 * @since 5.0 (public as of 5.0; previously private)
 	 */
-	private static int skipCommentsAndQuotes(char[] statement, int position) {
+	public static int skipCommentsAndQuotes(char[] statement, int position) {
 		for (int i = 0; i < START_SKIP.length; i++) {
 			if (statement[position] == START_SKIP[i].charAt(0)) {
 				boolean match = true;
 				for (int j = 1; j < START_SKIP[i].length(); j++) {
-					if (!(statement[position + j] == START_SKIP[i].charAt(j))) {
+					if (position + j >= statement.length || !(statement[position + j] == START_SKIP[i].charAt(j))) {
 						match = false;
 						break;
 					}
@@ -420,7 +421,7 @@ public abstract class NamedParameterUtils {
 	 */
 	public static List<SqlParameter> buildSqlParameterList(ParsedSql parsedSql, SqlParameterSource paramSource) {
 		List<String> paramNames = parsedSql.getParameterNames();
-		List<SqlParameter> params = new LinkedList<>();
+		List<SqlParameter> params = new ArrayList<>(paramNames.size());
 		for (String paramName : paramNames) {
 			params.add(
 					new SqlParameter(paramName, paramSource.getSqlType(paramName), paramSource.getTypeName(paramName)));
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import javax.sql.DataSource;
@@ -36,6 +37,7 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ChunkedBatchUpdate;
 import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.SqlTypeValue;
@@ -74,6 +76,9 @@ public abstract class AbstractJdbcInsert {
 	/** The names of the columns holding the generated key */
 	private String[] generatedKeyNames = new String[0];
 
+	/** Whether chunked batches are inserted through multi-row VALUES lists */
+	private boolean multiRowValues = false;
+
 	/**
 	 * Has this operation been compiled? Compilation means at least checking
 	 * that a DataSource or JdbcTemplate has been provided.
@@ -219,6 +224,28 @@ public abstract class AbstractJdbcInsert {
 		this.tableMetaDataContext.setOverrideIncludeSynonymsDefault(override);
 	}
 
+	/**
+	 * Specify whether chunked batch inserts should be performed through
+	 * multi-row {@code VALUES} lists instead of JDBC batches.
+	 * <p>Default is {@code false}.
+	 * @since 5.0
+	 * @see #doExecuteBatch(Iterator, int, ChunkedBatchUpdate.ChunkCallback)
+	 * @see ChunkedBatchUpdate#setMultiRowValues
+	 */
+	public void setMultiRowValues(boolean multiRowValues) {
+		checkIfConfigurationModificationIsAllowed();
+		this.multiRowValues = multiRowValues;
+	}
+
+	/**
+	 * Return whether chunked batch inserts are performed through
+	 * multi-row {@code VALUES} lists.
+	 * @since 5.0
+	 */
+	public boolean isMultiRowValues() {
+		return this.multiRowValues;
+	}
+
 	/**
 	 * Get the insert string to be used.
 	 */
@@ -560,6 +587,51 @@ public abstract class AbstractJdbcInsert {
 		return executeBatchInternal(batchValues);
 	}
 
+	/**
+	 * Delegate method that executes a batch insert for the passed-in {@link SqlParameterSource}s,
+	 * sending them to the database in chunks of the given size.
+	 * @param batch the SqlParameterSources with parameter names and values to be used in insert
+	 * @param chunkSize the number of rows to send to the database at once
+	 * @return array of number of rows affected, for each chunk
+	 * @since 5.0
+	 */
+	protected int[][] doExecuteBatch(Iterable<? extends SqlParameterSource> batch, int chunkSize) {
+		List<int[]> result = new ArrayList<>();
+		doExecuteBatch(batch.iterator(), chunkSize, (chunkNumber, rowCount, updateCounts) -> result.add(updateCounts));
+		return result.toArray(new int[result.size()][]);
+	}
+
+	/**
+	 * Delegate method that executes a batch insert for the {@link SqlParameterSource}s
+	 * returned by the given Iterator, sending them to the database in chunks of the
+	 * given size and reporting the result of each chunk to the given callback.
+	 * @param batch the SqlParameterSources with parameter names and values to be used in insert
+	 * @param chunkSize the number of rows to send to the database at once
+	 * @param callback the callback to notify after each chunk
+	 * @return the total number of rows processed
+	 * @since 5.0
+	 * @see #setMultiRowValues
+	 */
+	protected long doExecuteBatch(final Iterator<? extends SqlParameterSource> batch, int chunkSize,
+			ChunkedBatchUpdate.ChunkCallback callback) {
+
+		checkCompiled();
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(getJdbcTemplate(), getInsertString());
+		batchUpdate.setArgTypes(getInsertTypes());
+		batchUpdate.setChunkSize(chunkSize);
+		batchUpdate.setMultiRowValues(isMultiRowValues());
+		return batchUpdate.execute(new Iterator<Object[]>() {
+			@Override
+			public boolean hasNext() {
+				return batch.hasNext();
+			}
+			@Override
+			public Object[] next() {
+				return matchInParameterValuesWithInsertColumns(batch.next()).toArray();
+			}
+		}, callback);
+	}
+
 	/**
 	 * Delegate method to execute the batch insert.
 	 */
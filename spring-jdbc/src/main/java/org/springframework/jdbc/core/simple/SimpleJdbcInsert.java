@@ -17,9 +17,11 @@
 package org.springframework.jdbc.core.simple;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 import javax.sql.DataSource;
 
+import org.springframework.jdbc.core.ChunkedBatchUpdate;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.KeyHolder;
@@ -110,6 +112,12 @@ public class SimpleJdbcInsert extends AbstractJdbcInsert implements SimpleJdbcIn
 		return this;
 	}
 
+	@Override
+	public SimpleJdbcInsertOperations usingMultiRowValues() {
+		setMultiRowValues(true);
+		return this;
+	}
+
 	@Override
 	public int execute(Map<String, ?> args) {
 		return doExecute(args);
@@ -151,4 +159,16 @@ public class SimpleJdbcInsert extends AbstractJdbcInsert implements SimpleJdbcIn
 		return doExecuteBatch(batch);
 	}
 
+	@Override
+	public int[][] executeBatch(Iterable<? extends SqlParameterSource> batch, int chunkSize) {
+		return doExecuteBatch(batch, chunkSize);
+	}
+
+	@Override
+	public long executeBatch(Iterator<? extends SqlParameterSource> batch, int chunkSize,
+			ChunkedBatchUpdate.ChunkCallback callback) {
+
+		return doExecuteBatch(batch, chunkSize, callback);
+	}
+
 }
@@ -16,8 +16,10 @@
 
 package org.springframework.jdbc.core.simple;
 
+import java.util.Iterator;
 import java.util.Map;
 
+import org.springframework.jdbc.core.ChunkedBatchUpdate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.KeyHolder;
 
@@ -80,6 +82,15 @@ public interface SimpleJdbcInsertOperations {
 	 */
 	SimpleJdbcInsertOperations includeSynonymsForTableColumnMetaData();
 
+	/**
+	 * Perform chunked batch inserts through multi-row {@code VALUES} lists,
+	 * i.e. with a single statement execution per chunk.
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.0
+	 * @see #executeBatch(Iterator, int, ChunkedBatchUpdate.ChunkCallback)
+	 */
+	SimpleJdbcInsertOperations usingMultiRowValues();
+
 
 	/**
 	 * Execute the insert using the values passed in.
@@ -150,4 +161,31 @@ public interface SimpleJdbcInsertOperations {
 	 */
 	int[] executeBatch(SqlParameterSource... batch);
 
+	/**
+	 * Execute a batch insert using the values passed in,
+	 * sending them to the database in chunks of the given size.
+	 * @param batch the SqlParameterSources containing values for the batch
+	 * @param chunkSize the number of rows to send to the database at once
+	 * @return an array containing, for each chunk, the array of number of rows
+	 * affected as returned by the JDBC driver
+	 * @since 5.0
+	 */
+	int[][] executeBatch(Iterable<? extends SqlParameterSource> batch, int chunkSize);
+
+	/**
+	 * Execute a batch insert using the values returned by the given Iterator,
+	 * sending them to the database in chunks of the given size and reporting
+	 * the result of each chunk to the given callback. Values are retrieved from
+	 * the Iterator while executing, so an arbitrary number of rows can be
+	 * inserted with constant memory.
+	 * @param batch the SqlParameterSources containing values for the batch
+	 * (e.g. from a {@code Stream.iterator()})
+	 * @param chunkSize the number of rows to send to the database at once
+	 * @param callback the callback to notify after each chunk
+	 * @return the total number of rows processed
+	 * @since 5.0
+	 */
+	long executeBatch(Iterator<? extends SqlParameterSource> batch, int chunkSize,
+			ChunkedBatchUpdate.ChunkCallback callback);
+
 }
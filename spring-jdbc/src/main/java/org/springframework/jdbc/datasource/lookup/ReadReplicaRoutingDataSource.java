@@ -0,0 +1,461 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * DataSource that routes read-only transactions to one of several read replicas,
+ * with all other data access going to the primary DataSource. The decision is
+ * based on the current transaction's read-only flag, as exposed by
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()} for
+ * e.g. {@code @Transactional(readOnly = true)} methods.
+ *
+ * <p>Since transaction managers such as
+ * {@link org.springframework.jdbc.datasource.DataSourceTransactionManager} fetch
+ * a Connection at the beginning of a transaction, before the transaction's
+ * characteristics are exposed, this DataSource returns lazy Connection handles
+ * by default (see {@link LazyConnectionDataSourceProxy}), deferring the routing
+ * decision until the first Statement gets created. There is no need for an
+ * additional {@code LazyConnectionDataSourceProxy} in front of this DataSource.
+ *
+ * <p>Replicas get selected in a round-robin fashion, skipping replicas that are
+ * considered unavailable: either because fetching a Connection from them failed
+ * recently (see {@link #setRetryInterval "retryInterval"}) or because their
+ * replication lag as determined by the specified {@link ReplicationLagDetector}
+ * exceeds the {@link #setMaxReplicationLag "maxReplicationLag"} threshold.
+ * If no replica is available, read-only transactions fall back to the primary.
+ * Replication lag checks run on initialization and then periodically in the
+ * background, so that Connection retrieval only ever consults their outcome.
+ *
+ * <p>Non-transactional data access goes to the primary by default. Switch the
+ * {@link #setRouteNonTransactionalToReplicas "routeNonTransactionalToReplicas"}
+ * flag to "true" if all write operations in the application run within
+ * (non-read-only) transactions, routing non-transactional reads to the replicas
+ * as well.
+ *
+ * <p>A typical configuration, with the target DataSources defined as individual
+ * Spring beans "myPrimaryDataSource", "myReplica1" and "myReplica2":
+ *
+ * <pre class="code">
+ * &lt;bean id="dataSource" class="org.springframework.jdbc.datasource.lookup.ReadReplicaRoutingDataSource"&gt;
+ *   &lt;property name="primaryDataSource" ref="myPrimaryDataSource"/&gt;
+ *   &lt;property name="replicaDataSources"&gt;
+ *     &lt;list&gt;
+ *       &lt;ref bean="myReplica1"/&gt;
+ *       &lt;ref bean="myReplica2"/&gt;
+ *     &lt;/list&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * @author agent
+ * @since 5.0
+ * @see #setPrimaryDataSource
+ * @see #setReplicaDataSources
+ * @see org.springframework.transaction.annotation.Transactional#readOnly()
+ * @see IsolationLevelDataSourceRouter
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+	@Nullable
+	private Object primaryDataSource;
+
+	@Nullable
+	private List<?> replicaDataSources;
+
+	private boolean routeNonTransactionalToReplicas = false;
+
+	private boolean lazyRouting = true;
+
+	@Nullable
+	private ReplicationLagDetector replicationLagDetector;
+
+	private long maxReplicationLag = 10000;
+
+	private long lagCheckInterval = 5000;
+
+	private long retryInterval = 30000;
+
+	@Nullable
+	private ScheduledExecutorService lagCheckExecutor;
+
+	@Nullable
+	private ScheduledExecutorService internalLagCheckExecutor;
+
+	@Nullable
+	private ScheduledFuture<?> lagCheckFuture;
+
+	@Nullable
+	private DataSource resolvedPrimaryDataSource;
+
+	private final List<Replica> replicas = new ArrayList<>();
+
+	private final AtomicInteger replicaCounter = new AtomicInteger();
+
+	@Nullable
+	private DataSource lazyConnectionDataSource;
+
+
+	/**
+	 * Specify the primary DataSource, receiving all data access except for
+	 * read-only transactions.
+	 * <p>The value can either be a {@link javax.sql.DataSource} instance or a data
+	 * source name String (to be resolved via a {@link #setDataSourceLookup DataSourceLookup}).
+	 */
+	public void setPrimaryDataSource(Object primaryDataSource) {
+		this.primaryDataSource = primaryDataSource;
+		setDefaultTargetDataSource(primaryDataSource);
+	}
+
+	/**
+	 * Specify the read replicas to route read-only transactions to.
+	 * <p>Each value can either be a {@link javax.sql.DataSource} instance or a data
+	 * source name String (to be resolved via a {@link #setDataSourceLookup DataSourceLookup}).
+	 */
+	public void setReplicaDataSources(List<?> replicaDataSources) {
+		this.replicaDataSources = replicaDataSources;
+	}
+
+	/**
+	 * Specify whether to route data access outside of transactions to the
+	 * replicas as well. Default is "false", routing such operations to the primary.
+	 * <p>Only switch this to "true" if all write operations in the application are
+	 * performed within transactions. Note that transaction synchronization scopes
+	 * without an actual transaction (e.g. for {@code PROPAGATION_SUPPORTS}) expose
+	 * their read-only flag as well, routing accordingly in any case.
+	 */
+	public void setRouteNonTransactionalToReplicas(boolean routeNonTransactionalToReplicas) {
+		this.routeNonTransactionalToReplicas = routeNonTransactionalToReplicas;
+	}
+
+	/**
+	 * Specify whether to return lazy Connection handles that determine their target
+	 * DataSource on first creation of a Statement. Default is "true".
+	 * <p>Switch this to "false" if this DataSource is used with a transaction manager
+	 * that exposes the transaction's read-only flag before fetching a Connection,
+	 * or if it is fronted by a {@link LazyConnectionDataSourceProxy} already.
+	 */
+	public void setLazyRouting(boolean lazyRouting) {
+		this.lazyRouting = lazyRouting;
+	}
+
+	/**
+	 * Specify a strategy for determining the replication lag of each replica.
+	 * Replicas lagging behind by more than the
+	 * {@link #setMaxReplicationLag "maxReplicationLag"} are skipped.
+	 * <p>Default is none, considering every replica as up-to-date.
+	 */
+	public void setReplicationLagDetector(@Nullable ReplicationLagDetector replicationLagDetector) {
+		this.replicationLagDetector = replicationLagDetector;
+	}
+
+	/**
+	 * Specify the maximum acceptable replication lag (in milliseconds).
+	 * Default is 10000 ms.
+	 * @see #setReplicationLagDetector
+	 */
+	public void setMaxReplicationLag(long maxReplicationLag) {
+		this.maxReplicationLag = maxReplicationLag;
+	}
+
+	/**
+	 * Specify the delay (in milliseconds) between the end of one round of
+	 * replication lag checks and the start of the next. Default is 5000 ms.
+	 * <p>Lag checks run in the background, with replica selection using the
+	 * outcome of the latest check.
+	 * @see #setReplicationLagDetector
+	 * @see #setLagCheckExecutor
+	 */
+	public void setLagCheckInterval(long lagCheckInterval) {
+		Assert.isTrue(lagCheckInterval > 0, "Lag check interval must be greater than 0");
+		this.lagCheckInterval = lagCheckInterval;
+	}
+
+	/**
+	 * Specify the executor to run periodic replication lag checks on.
+	 * <p>Default is a single daemon thread created on initialization and shut
+	 * down on {@link #destroy()}, if a {@link #setReplicationLagDetector
+	 * ReplicationLagDetector} has been specified.
+	 */
+	public void setLagCheckExecutor(@Nullable ScheduledExecutorService lagCheckExecutor) {
+		this.lagCheckExecutor = lagCheckExecutor;
+	}
+
+	/**
+	 * Specify the interval (in milliseconds) after which a replica that failed
+	 * to provide a Connection will be considered again. Default is 30000 ms.
+	 */
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.primaryDataSource == null) {
+			throw new IllegalArgumentException("Property 'primaryDataSource' is required");
+		}
+		if (this.replicaDataSources == null) {
+			throw new IllegalArgumentException("Property 'replicaDataSources' is required");
+		}
+		this.resolvedPrimaryDataSource = resolveSpecifiedDataSource(this.primaryDataSource);
+		this.replicas.clear();
+		Map<Object, Object> targetDataSources = new HashMap<>(this.replicaDataSources.size());
+		for (Object replicaDataSource : this.replicaDataSources) {
+			DataSource dataSource = resolveSpecifiedDataSource(replicaDataSource);
+			targetDataSources.put(this.replicas.size(), dataSource);
+			this.replicas.add(new Replica(dataSource));
+		}
+		setTargetDataSources(targetDataSources);
+		super.afterPropertiesSet();
+		if (this.lazyRouting) {
+			this.lazyConnectionDataSource = new LazyConnectionDataSourceProxy(new RoutingTargetDataSource());
+		}
+		if (this.replicationLagDetector != null && !this.replicas.isEmpty()) {
+			checkReplicationLag();
+			scheduleReplicationLagChecks();
+		}
+	}
+
+	private void scheduleReplicationLagChecks() {
+		ScheduledExecutorService executor = this.lagCheckExecutor;
+		if (executor == null) {
+			if (this.internalLagCheckExecutor == null) {
+				this.internalLagCheckExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+					Thread thread = new Thread(task, "ReadReplicaLagCheck");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			executor = this.internalLagCheckExecutor;
+		}
+		if (this.lagCheckFuture != null) {
+			this.lagCheckFuture.cancel(false);
+		}
+		this.lagCheckFuture = executor.scheduleWithFixedDelay(
+				this::checkReplicationLag, this.lagCheckInterval, this.lagCheckInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Determine the current replication lag of all replicas,
+	 * recording each replica as lagging or up-to-date accordingly.
+	 */
+	private void checkReplicationLag() {
+		ReplicationLagDetector detector = this.replicationLagDetector;
+		if (detector != null) {
+			long now = System.currentTimeMillis();
+			for (Replica replica : this.replicas) {
+				replica.checkReplicationLag(detector, now);
+			}
+		}
+	}
+
+	/**
+	 * Stop the periodic replication lag checks,
+	 * shutting down the internal executor (if any).
+	 */
+	@Override
+	public void destroy() {
+		if (this.lagCheckFuture != null) {
+			this.lagCheckFuture.cancel(false);
+			this.lagCheckFuture = null;
+		}
+		if (this.internalLagCheckExecutor != null) {
+			this.internalLagCheckExecutor.shutdownNow();
+			this.internalLagCheckExecutor = null;
+		}
+	}
+
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (this.lazyConnectionDataSource != null) {
+			return this.lazyConnectionDataSource.getConnection();
+		}
+		return getRoutedConnection(null, null);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (this.lazyConnectionDataSource != null) {
+			return this.lazyConnectionDataSource.getConnection(username, password);
+		}
+		return getRoutedConnection(username, password);
+	}
+
+	/**
+	 * Fetch a Connection from the currently applicable target DataSource,
+	 * falling back to the primary if the selected replica fails.
+	 */
+	private Connection getRoutedConnection(@Nullable String username, @Nullable String password)
+			throws SQLException {
+
+		Object lookupKey = determineCurrentLookupKey();
+		if (lookupKey != null) {
+			Replica replica = this.replicas.get((Integer) lookupKey);
+			try {
+				return getConnection(replica.dataSource, username, password);
+			}
+			catch (SQLException ex) {
+				replica.markUnavailable(System.currentTimeMillis() + this.retryInterval);
+				logger.warn("Failed to obtain Connection from read replica [" + replica.dataSource +
+						"] - falling back to primary DataSource", ex);
+			}
+		}
+		Assert.state(this.resolvedPrimaryDataSource != null, "DataSource router not initialized");
+		return getConnection(this.resolvedPrimaryDataSource, username, password);
+	}
+
+	private Connection getConnection(DataSource dataSource, @Nullable String username, @Nullable String password)
+			throws SQLException {
+
+		return (username != null ? dataSource.getConnection(username, password) : dataSource.getConnection());
+	}
+
+	/**
+	 * Determine whether the current data access is read-only and, if so,
+	 * select an available replica.
+	 * @return the index of the selected replica, or {@code null} for the primary
+	 * @see #isCurrentlyReadOnly()
+	 * @see #selectReplica()
+	 */
+	@Override
+	@Nullable
+	protected Object determineCurrentLookupKey() {
+		return (isCurrentlyReadOnly() ? selectReplica() : null);
+	}
+
+	/**
+	 * Determine whether the current data access is read-only, i.e. eligible for a replica.
+	 * <p>The default implementation checks the current transaction's read-only flag,
+	 * taking the {@link #setRouteNonTransactionalToReplicas "routeNonTransactionalToReplicas"}
+	 * flag into account outside of transaction synchronization scopes.
+	 */
+	protected boolean isCurrentlyReadOnly() {
+		if (TransactionSynchronizationManager.isSynchronizationActive() ||
+				TransactionSynchronizationManager.isActualTransactionActive()) {
+			return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+		}
+		return this.routeNonTransactionalToReplicas;
+	}
+
+	/**
+	 * Select the next available replica in a round-robin fashion.
+	 * @return the index of the selected replica, or {@code null} if none is available
+	 */
+	@Nullable
+	protected Integer selectReplica() {
+		int count = this.replicas.size();
+		if (count == 0) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		int offset = this.replicaCounter.getAndIncrement() & Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			int index = (offset + i) % count;
+			if (this.replicas.get(index).isAvailable(now)) {
+				return index;
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("No read replica available - routing read-only access to primary DataSource");
+		}
+		return null;
+	}
+
+
+	/**
+	 * Health state of a specific replica.
+	 */
+	private class Replica {
+
+		final DataSource dataSource;
+
+		private volatile long unavailableUntil;
+
+		private volatile boolean lagging;
+
+		public Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		public boolean isAvailable(long now) {
+			return (!this.lagging && this.unavailableUntil <= now);
+		}
+
+		public void checkReplicationLag(ReplicationLagDetector detector, long now) {
+			try {
+				long lag = detector.determineReplicationLag(this.dataSource);
+				boolean wasLagging = this.lagging;
+				this.lagging = (lag > maxReplicationLag);
+				if (this.lagging && !wasLagging && logger.isInfoEnabled()) {
+					logger.info("Read replica [" + this.dataSource + "] lags behind by " + lag +
+							" ms - routing read-only access elsewhere");
+				}
+			}
+			catch (SQLException | RuntimeException ex) {
+				logger.warn("Failed to determine replication lag of read replica [" + this.dataSource + "]", ex);
+				markUnavailable(now + retryInterval);
+			}
+		}
+
+		public void markUnavailable(long until) {
+			this.unavailableUntil = until;
+		}
+	}
+
+
+	/**
+	 * Target for the lazy Connection proxy: routing on actual Connection retrieval.
+	 */
+	private class RoutingTargetDataSource extends AbstractDataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return getRoutedConnection(null, null);
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getRoutedConnection(username, password);
+		}
+
+		@Override
+		public String toString() {
+			return ReadReplicaRoutingDataSource.this.toString();
+		}
+	}
+
+}
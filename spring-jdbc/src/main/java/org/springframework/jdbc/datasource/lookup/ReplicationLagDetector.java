@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.SQLException;
+import javax.sql.DataSource;
+
+/**
+ * Strategy interface for determining the replication lag of a read replica,
+ * typically through a database-specific query against the replica itself
+ * (e.g. MySQL's {@code SHOW SLAVE STATUS} or PostgreSQL's
+ * {@code now() - pg_last_xact_replay_timestamp()}).
+ *
+ * @author agent
+ * @since 5.0
+ * @see ReadReplicaRoutingDataSource#setReplicationLagDetector
+ */
+@FunctionalInterface
+public interface ReplicationLagDetector {
+
+	/**
+	 * Determine the current replication lag of the given replica.
+	 * @param replica the replica DataSource to check
+	 * @return the replication lag in milliseconds
+	 * @throws SQLException if the lag could not be determined,
+	 * in which case the replica will be considered as unavailable
+	 */
+	long determineReplicationLag(DataSource replica) throws SQLException;
+
+}
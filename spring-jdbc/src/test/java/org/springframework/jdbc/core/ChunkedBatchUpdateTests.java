@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link ChunkedBatchUpdate}.
+ *
+ * @author agent
+ */
+public class ChunkedBatchUpdateTests {
+
+	private Connection connection;
+
+	private DataSource dataSource;
+
+	private PreparedStatement preparedStatement;
+
+	private JdbcTemplate template;
+
+
+	@Before
+	public void setup() throws Exception {
+		this.connection = mock(Connection.class);
+		this.dataSource = mock(DataSource.class);
+		this.preparedStatement = mock(PreparedStatement.class);
+		this.template = new JdbcTemplate(this.dataSource);
+		DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+		given(databaseMetaData.supportsBatchUpdates()).willReturn(true);
+		given(this.dataSource.getConnection()).willReturn(this.connection);
+		given(this.connection.getMetaData()).willReturn(databaseMetaData);
+		given(this.connection.prepareStatement(anyString())).willReturn(this.preparedStatement);
+	}
+
+
+	@Test
+	public void batchedInChunks() throws Exception {
+		String sql = "INSERT INTO NAMES (ID, NAME) VALUES (?, ?)";
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1}, new int[] {1});
+
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(this.template, sql);
+		batchUpdate.setChunkSize(2);
+		batchUpdate.setArgTypes(Types.INTEGER, Types.VARCHAR);
+		int[][] result = batchUpdate.execute(Arrays.asList(
+				new Object[] {1, "a"}, new Object[] {2, "b"}, new Object[] {3, "c"}));
+
+		assertEquals(2, result.length);
+		assertArrayEquals(new int[] {1, 1}, result[0]);
+		assertArrayEquals(new int[] {1}, result[1]);
+		verify(this.connection).prepareStatement(sql);
+		verify(this.preparedStatement, times(3)).addBatch();
+		verify(this.preparedStatement, times(2)).executeBatch();
+		verify(this.preparedStatement).setObject(1, 3, Types.INTEGER);
+		verify(this.preparedStatement).setString(2, "c");
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void multiRowValuesFromIterator() throws Exception {
+		String sql = "INSERT INTO NAMES (ID, NAME) VALUES (?, ?)";
+		given(this.preparedStatement.executeUpdate()).willReturn(3, 1);
+
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(this.template, sql);
+		batchUpdate.setChunkSize(3);
+		batchUpdate.setMultiRowValues(true);
+		List<Integer> rowCounts = new ArrayList<>();
+		long total = batchUpdate.execute(IntStream.range(0, 4).mapToObj(i -> new Object[] {i, "name" + i}).iterator(),
+				(chunkNumber, rowCount, updateCounts) -> rowCounts.add(rowCount));
+
+		assertEquals(4, total);
+		assertEquals(Arrays.asList(3, 1), rowCounts);
+		verify(this.connection).prepareStatement("INSERT INTO NAMES (ID, NAME) VALUES (?, ?), (?, ?), (?, ?)");
+		verify(this.connection).prepareStatement("INSERT INTO NAMES (ID, NAME) VALUES (?, ?)");
+		verify(this.preparedStatement).setObject(5, 2);
+		verify(this.preparedStatement).setString(6, "name2");
+		verify(this.preparedStatement, never()).addBatch();
+		verify(this.preparedStatement, times(2)).close();
+	}
+
+	@Test
+	public void multiRowValuesLimitedByParameterCount() throws Exception {
+		String sql = "insert into names (id, name, created) values (?, ?, current_timestamp)";
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(this.template, sql);
+		batchUpdate.setMultiRowValues(true);
+		batchUpdate.setMaxParameterCount(4);
+		int[][] result = batchUpdate.execute(Arrays.asList(
+				new Object[] {1, "a"}, new Object[] {2, "b"}, new Object[] {3, "c"}, new Object[] {4, "d"}));
+
+		assertEquals(2, result.length);
+		verify(this.connection).prepareStatement(
+				"insert into names (id, name, created) values (?, ?, current_timestamp), (?, ?, current_timestamp)");
+		verify(this.preparedStatement, times(2)).executeUpdate();
+	}
+
+	@Test
+	public void multiRowValuesIgnoresLiteralsAndComments() throws Exception {
+		String sql = "INSERT INTO NAMES (ID, NAME, NOTE) /* no VALUES (here) */ " +
+				"VALUES (?, ?, 'a ) or ?') -- trailing comment with VALUES (?)";
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(this.template, sql);
+		batchUpdate.setMultiRowValues(true);
+		batchUpdate.execute(Arrays.asList(new Object[] {1, "a"}, new Object[] {2, "b"}));
+
+		verify(this.connection).prepareStatement("INSERT INTO NAMES (ID, NAME, NOTE) /* no VALUES (here) */ " +
+				"VALUES (?, ?, 'a ) or ?'), (?, ?, 'a ) or ?')");
+		verify(this.preparedStatement).setObject(3, 2);
+	}
+
+	@Test
+	public void parametersCleanedUpAfterEachChunk() throws Exception {
+		String sql = "INSERT INTO NAMES (ID, NAME) VALUES (?, ?)";
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1}, new int[] {1});
+		List<String> cleanedUp = new ArrayList<>();
+
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(this.template, sql);
+		batchUpdate.setChunkSize(2);
+		List<Integer> cleanedUpPerChunk = new ArrayList<>();
+		batchUpdate.execute(IntStream.range(0, 3).mapToObj(i -> new Object[] {i, new DisposableValue("v" + i, cleanedUp)})
+				.iterator(), (chunkNumber, rowCount, updateCounts) -> cleanedUpPerChunk.add(cleanedUp.size()));
+
+		assertEquals(Arrays.asList(2, 3), cleanedUpPerChunk);
+		assertEquals(Arrays.asList("v0", "v1", "v2"), cleanedUp);
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void multiRowValuesNotApplicable() throws Exception {
+		ChunkedBatchUpdate batchUpdate = new ChunkedBatchUpdate(this.template, "UPDATE NAMES SET NAME = ? WHERE ID = ?");
+		batchUpdate.setMultiRowValues(true);
+		batchUpdate.execute(Arrays.<Object[]>asList(new Object[] {"a", 1}));
+	}
+
+
+	private static class DisposableValue implements DisposableSqlTypeValue {
+
+		private final String value;
+
+		private final List<String> cleanedUp;
+
+		DisposableValue(String value, List<String> cleanedUp) {
+			this.value = value;
+			this.cleanedUp = cleanedUp;
+		}
+
+		@Override
+		public void setTypeValue(PreparedStatement ps, int paramIndex, int sqlType, String typeName)
+				throws SQLException {
+
+			ps.setString(paramIndex, this.value);
+		}
+
+		@Override
+		public void cleanup() {
+			this.cleanedUp.add(this.value);
+		}
+	}
+
+}
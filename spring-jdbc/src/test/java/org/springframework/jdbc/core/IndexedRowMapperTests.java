@@ -0,0 +1,213 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link IndexedRowMapper}.
+ *
+ * @author agent
+ */
+public class IndexedRowMapperTests extends AbstractRowMapperTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+
+	@Test
+	public void testStaticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<>(Person.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<>(ConcretePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingReusedAcrossQueries() throws Exception {
+		IndexedRowMapper<Person> mapper = IndexedRowMapper.newInstance(Person.class);
+		for (int i = 0; i < 2; i++) {
+			Mock mock = new Mock();
+			List<Person> result = mock.getJdbcTemplate().query(
+					"select name, age, birth_date, balance from people", mapper);
+			assertEquals(1, result.size());
+			verifyPerson(result.get(0));
+			mock.verifyClosed();
+		}
+	}
+
+	@Test
+	public void testConstructorMapping() throws Exception {
+		Mock mock = new Mock();
+		List<ConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<>(ConstructorPerson.class, true));
+		assertEquals(1, result.size());
+		ConstructorPerson person = result.get(0);
+		assertEquals("Bubba", person.name);
+		assertEquals(22L, person.age);
+		assertEquals(new Date(1221222L), person.birthDate);
+		assertEquals(new BigDecimal("1234.56"), person.balance);
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testConstructorAndSetterMapping() throws Exception {
+		Mock mock = new Mock();
+		List<PartialConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<>(PartialConstructorPerson.class, true));
+		assertEquals(1, result.size());
+		PartialConstructorPerson person = result.get(0);
+		assertEquals("Bubba", person.getName());
+		assertEquals(22L, person.getAge());
+		assertEquals(new Date(1221222L), person.getBirth_date());
+		assertEquals(new BigDecimal("1234.56"), person.getBalance());
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotChecked() throws Exception {
+		Mock mock = new Mock();
+		List<ExtendedPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<>(ExtendedPerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		thrown.expect(InvalidDataAccessApiUsageException.class);
+		mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<>(ExtendedPerson.class, true));
+	}
+
+	@Test
+	public void testMappingNullValue() throws Exception {
+		Mock mock = new Mock(MockType.TWO);
+		thrown.expect(TypeMismatchException.class);
+		mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people",
+				new IndexedRowMapper<>(Person.class));
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		IndexedRowMapper<ConstructorPerson> mapper = new IndexedRowMapper<>(ConstructorPerson.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<ConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals(0L, result.get(0).age);
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new IndexedRowMapper<>(SpacePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testPropertyDescriptorHookUsedForProperties() throws Exception {
+		Mock mock = new Mock();
+		List<PartialConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedRowMapper<PartialConstructorPerson>(PartialConstructorPerson.class) {
+					@Override
+					protected Object getColumnValue(ResultSet rs, int index, PropertyDescriptor pd) throws SQLException {
+						Object value = super.getColumnValue(rs, index, pd);
+						return (value instanceof String ? ((String) value).toUpperCase() : value);
+					}
+				});
+		assertEquals(1, result.size());
+		assertEquals("BUBBA", result.get(0).getName());
+		assertEquals(22L, result.get(0).getAge());
+		mock.verifyClosed();
+	}
+
+
+	public static class ConstructorPerson {
+
+		final String name;
+
+		final long age;
+
+		final Date birthDate;
+
+		final BigDecimal balance;
+
+		public ConstructorPerson(String name, long age, Date birthDate, BigDecimal balance) {
+			this.name = name;
+			this.age = age;
+			this.birthDate = birthDate;
+			this.balance = balance;
+		}
+	}
+
+
+	public static class PartialConstructorPerson extends Person {
+
+		public PartialConstructorPerson(String name, long age) {
+			setName(name);
+			setAge(age);
+		}
+	}
+
+}
@@ -23,9 +23,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.junit.Before;
@@ -33,7 +36,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.SQLWarningException;
 
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
@@ -392,4 +397,95 @@ public class JdbcTemplateQueryTests {
 		verify(this.preparedStatement).close();
 	}
 
+	@Test
+	public void testQueryForStream() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		Connection nativeConnection = mock(Connection.class);
+		given(this.statement.getConnection()).willReturn(nativeConnection);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		this.template.setFetchSize(100);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			verify(this.statement).setFetchSize(100);
+			verify(this.resultSet, never()).next();
+			assertEquals(Integer.valueOf(11), stream.findFirst().get());
+			verify(this.resultSet, never()).close();
+			verify(this.connection, never()).close();
+		}
+		verify(this.resultSet).close();
+		verify(this.statement).close();
+		verify(this.connection).close();
+		verify(nativeConnection, never()).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithArgs() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		Connection nativeConnection = mock(Connection.class);
+		given(this.preparedStatement.getConnection()).willReturn(nativeConnection);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3)) {
+			assertEquals("[11, 12]", stream.map(String::valueOf).collect(Collectors.toList()).toString());
+		}
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+		verify(nativeConnection, never()).close();
+	}
+
+	@Test
+	public void testQueryForStreamDisposesParametersOnFailure() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		SQLException sqlException = new SQLException("Bad query");
+		given(this.preparedStatement.executeQuery()).willThrow(sqlException);
+		DisposablePreparedStatementSetter pss = new DisposablePreparedStatementSetter();
+		try {
+			this.template.queryForStream(sql, pss, (rs, rowNum) -> rs.getInt(1));
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			assertSame(sqlException, ex.getCause());
+		}
+		assertTrue(pss.disposed);
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamClosesResultSetOnWarning() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		given(this.preparedStatement.getWarnings()).willReturn(new SQLWarning("Bad query"));
+		this.template.setIgnoreWarnings(false);
+		DisposablePreparedStatementSetter pss = new DisposablePreparedStatementSetter();
+		try {
+			this.template.queryForStream(sql, pss, (rs, rowNum) -> rs.getInt(1));
+			fail("Should have thrown SQLWarningException");
+		}
+		catch (SQLWarningException ex) {
+			// expected
+		}
+		assertTrue(pss.disposed);
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+
+	private static class DisposablePreparedStatementSetter implements PreparedStatementSetter, ParameterDisposer {
+
+		boolean disposed;
+
+		@Override
+		public void setValues(PreparedStatement ps) throws SQLException {
+			ps.setObject(1, 3);
+		}
+
+		@Override
+		public void cleanupParameters() {
+			this.disposed = true;
+		}
+	}
+
 }
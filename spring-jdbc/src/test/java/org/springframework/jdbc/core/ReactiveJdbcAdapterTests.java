@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Disposable;
+
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link ReactiveJdbcAdapter}.
+ *
+ * @author agent
+ */
+public class ReactiveJdbcAdapterTests {
+
+	private JdbcOperations jdbcOperations;
+
+	private ReactiveJdbcAdapter adapter;
+
+
+	@Before
+	public void setup() {
+		this.jdbcOperations = mock(JdbcOperations.class);
+		this.adapter = new ReactiveJdbcAdapter(this.jdbcOperations, 2);
+	}
+
+	@After
+	public void destroy() {
+		this.adapter.destroy();
+	}
+
+
+	@Test
+	public void queryStreamsOnScheduler() {
+		RowMapper<String> rowMapper = (rs, rowNum) -> rs.getString(1);
+		AtomicReference<Thread> queryThread = new AtomicReference<>();
+		AtomicBoolean closed = new AtomicBoolean();
+		given(this.jdbcOperations.queryForStream("SELECT NAME FROM NAMES", rowMapper)).willAnswer(invocation -> {
+			queryThread.set(Thread.currentThread());
+			return Stream.of("a", "b", "c").onClose(() -> closed.set(true));
+		});
+
+		List<String> result = this.adapter.query("SELECT NAME FROM NAMES", rowMapper).take(2).collectList().block();
+
+		assertEquals(Arrays.asList("a", "b"), result);
+		assertNotSame(Thread.currentThread(), queryThread.get());
+		assertTrue(queryThread.get().getName().startsWith("jdbc"));
+		assertTrue(closed.get());
+	}
+
+	@Test
+	public void update() {
+		given(this.jdbcOperations.update("UPDATE NAMES SET NAME = ? WHERE ID = ?", "a", 1)).willReturn(1);
+		assertEquals(Integer.valueOf(1), this.adapter.update("UPDATE NAMES SET NAME = ? WHERE ID = ?", "a", 1).block());
+	}
+
+	@Test
+	public void queryForObjectWithNullResult() {
+		given(this.jdbcOperations.queryForObject("SELECT NAME FROM NAMES WHERE ID = 1", String.class)).willReturn(null);
+		assertNull(this.adapter.queryForObject("SELECT NAME FROM NAMES WHERE ID = 1", String.class).block());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void executeInTransaction() {
+		TransactionOperations transactionOperations = mock(TransactionOperations.class);
+		given(transactionOperations.execute(any())).willAnswer(invocation ->
+				((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+		given(this.jdbcOperations.update("DELETE FROM NAMES")).willReturn(3);
+
+		assertEquals(Integer.valueOf(3),
+				this.adapter.executeInTransaction(transactionOperations, ops -> ops.update("DELETE FROM NAMES")).block());
+		verify(transactionOperations).execute(any());
+	}
+
+	@Test
+	public void streamHoldsPermitUntilClosed() throws Exception {
+		this.adapter.destroy();
+		this.adapter = new ReactiveJdbcAdapter(this.jdbcOperations, 1);
+		RowMapper<String> rowMapper = (rs, rowNum) -> rs.getString(1);
+		CountDownLatch closed = new CountDownLatch(1);
+		given(this.jdbcOperations.queryForStream("SELECT NAME FROM NAMES", rowMapper)).willAnswer(invocation ->
+				Stream.of("a", "b").onClose(closed::countDown));
+		given(this.jdbcOperations.update("DELETE FROM NAMES")).willReturn(2);
+
+		Iterator<String> names = this.adapter.query("SELECT NAME FROM NAMES", rowMapper).toIterable(1).iterator();
+		assertEquals("a", names.next());
+		// Admission happens on subscription: the update is queued right away
+		CompletableFuture<Integer> update = this.adapter.update("DELETE FROM NAMES").toFuture();
+		assertFalse(update.isDone());
+		verify(this.jdbcOperations, never()).update("DELETE FROM NAMES");
+
+		assertEquals("b", names.next());
+		assertFalse(names.hasNext());
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(2), update.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void cancellationClosesStreamOnScheduler() throws Exception {
+		this.adapter.destroy();
+		this.adapter = new ReactiveJdbcAdapter(this.jdbcOperations, 1);
+		RowMapper<String> rowMapper = (rs, rowNum) -> rs.getString(1);
+		CountDownLatch received = new CountDownLatch(1);
+		CountDownLatch closed = new CountDownLatch(1);
+		AtomicReference<Thread> closeThread = new AtomicReference<>();
+		given(this.jdbcOperations.queryForStream("SELECT NAME FROM NAMES", rowMapper)).willAnswer(invocation ->
+				Stream.generate(() -> "a").onClose(() -> {
+					closeThread.set(Thread.currentThread());
+					closed.countDown();
+				}));
+		given(this.jdbcOperations.update("DELETE FROM NAMES")).willReturn(2);
+
+		Disposable subscription = this.adapter.query("SELECT NAME FROM NAMES", rowMapper)
+				.subscribe(name -> received.countDown());
+		assertTrue(received.await(5, TimeUnit.SECONDS));
+		subscription.dispose();
+
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		assertTrue(closeThread.get().getName().startsWith("jdbc"));
+		assertEquals(Integer.valueOf(2), this.adapter.update("DELETE FROM NAMES").block());
+	}
+
+	@Test
+	public void cancellationWhileWaitingForPermit() throws Exception {
+		this.adapter.destroy();
+		this.adapter = new ReactiveJdbcAdapter(this.jdbcOperations, 1);
+		RowMapper<String> rowMapper = (rs, rowNum) -> rs.getString(1);
+		given(this.jdbcOperations.queryForStream("SELECT NAME FROM NAMES", rowMapper)).willAnswer(invocation ->
+				Stream.of("a", "b"));
+		given(this.jdbcOperations.update("DELETE FROM NAMES")).willReturn(2);
+
+		Iterator<String> names = this.adapter.query("SELECT NAME FROM NAMES", rowMapper).toIterable(1).iterator();
+		assertEquals("a", names.next());
+		this.adapter.update("DELETE FROM NAMES").subscribe(count -> {}).dispose();
+		assertEquals("b", names.next());
+		assertFalse(names.hasNext());
+
+		assertEquals(Integer.valueOf(2), this.adapter.update("DELETE FROM NAMES").block());
+		verify(this.jdbcOperations, times(1)).update("DELETE FROM NAMES");
+	}
+
+}
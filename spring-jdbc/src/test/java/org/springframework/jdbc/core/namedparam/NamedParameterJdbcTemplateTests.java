@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -39,6 +40,7 @@ import org.springframework.jdbc.Customer;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
@@ -399,6 +401,90 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testPreparedStatementCreatorFactoryCachedPerShape() throws SQLException {
+		List<SqlParameterSource> factorySources = new LinkedList<>();
+		namedParameterTemplate = new NamedParameterJdbcTemplate(dataSource) {
+			@Override
+			protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
+					ParsedSql parsedSql, SqlParameterSource paramSource) {
+				factorySources.add(paramSource);
+				return super.getPreparedStatementCreatorFactory(parsedSql, paramSource);
+			}
+		};
+		String sql = "update seat_status set booking_id = null where performance_id in (:perfIds)";
+		SqlParameterSource source1 = new MapSqlParameterSource("perfIds", Arrays.asList(1, 2));
+		SqlParameterSource source2 = new MapSqlParameterSource("perfIds", Arrays.asList(3, 4));
+		SqlParameterSource source3 = new MapSqlParameterSource("perfIds", Arrays.asList(5, 6, 7));
+		SqlParameterSource source4 = new MapSqlParameterSource().addValue("perfIds", Arrays.asList(8, 9), Types.INTEGER);
+
+		namedParameterTemplate.update(sql, source1);
+		namedParameterTemplate.update(sql, source2);
+		namedParameterTemplate.update(sql, source3);
+		namedParameterTemplate.update(sql, source4);
+
+		assertEquals(Arrays.asList(source1, source3, source4), factorySources);
+		verify(connection, times(3)).prepareStatement(
+				"update seat_status set booking_id = null where performance_id in (?, ?)");
+		verify(connection).prepareStatement(
+				"update seat_status set booking_id = null where performance_id in (?, ?, ?)");
+		verify(preparedStatement).setObject(1, 3);
+		verify(preparedStatement).setObject(2, 4);
+		verify(preparedStatement).setObject(3, 7);
+		verify(preparedStatement).setObject(1, 8, Types.INTEGER);
+		verify(preparedStatement).setObject(2, 9, Types.INTEGER);
+	}
+
+	@Test
+	public void testPreparedStatementCreatorFactoryNotCachedWithCacheLimitZero() throws SQLException {
+		List<ParsedSql> parsedSql = new LinkedList<>();
+		namedParameterTemplate = new NamedParameterJdbcTemplate(dataSource) {
+			@Override
+			protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
+					ParsedSql ps, SqlParameterSource paramSource) {
+				parsedSql.add(ps);
+				return super.getPreparedStatementCreatorFactory(ps, paramSource);
+			}
+		};
+		namedParameterTemplate.setCacheLimit(0);
+
+		params.put("perfId", 1);
+		params.put("priceId", 1);
+		namedParameterTemplate.update(UPDATE_NAMED_PARAMETERS, params);
+		namedParameterTemplate.update(UPDATE_NAMED_PARAMETERS, params);
+
+		assertEquals(2, parsedSql.size());
+		assertNotSame(parsedSql.get(0), parsedSql.get(1));
+		verify(connection, times(2)).prepareStatement(UPDATE_NAMED_PARAMETERS_PARSED);
+	}
+
+	@Test
+	public void testPreparedStatementCreatorFactoryCacheEvictsLeastRecentlyUsed() throws SQLException {
+		List<String> factorySql = new LinkedList<>();
+		namedParameterTemplate = new NamedParameterJdbcTemplate(dataSource) {
+			@Override
+			protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
+					ParsedSql parsedSql, SqlParameterSource paramSource) {
+				factorySql.add(parsedSql.toString());
+				return super.getPreparedStatementCreatorFactory(parsedSql, paramSource);
+			}
+		};
+		namedParameterTemplate.setCacheLimit(2);
+		Map<String, Object> paramMap = Collections.singletonMap("id", 1);
+		String sql1 = "delete from t1 where id = :id";
+		String sql2 = "delete from t2 where id = :id";
+		String sql3 = "delete from t3 where id = :id";
+
+		namedParameterTemplate.update(sql1, paramMap);
+		namedParameterTemplate.update(sql2, paramMap);
+		namedParameterTemplate.update(sql1, paramMap);
+		namedParameterTemplate.update(sql3, paramMap);
+		namedParameterTemplate.update(sql1, paramMap);
+		namedParameterTemplate.update(sql2, paramMap);
+
+		assertEquals(Arrays.asList(sql1, sql2, sql3, sql2), factorySql);
+	}
+
 	@Test
 	public void testBatchUpdateWithPlainMap() throws Exception {
 		@SuppressWarnings("unchecked")
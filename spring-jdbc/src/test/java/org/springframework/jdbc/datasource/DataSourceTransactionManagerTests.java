@@ -22,13 +22,16 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.Properties;
 import javax.sql.DataSource;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
+import reactor.core.publisher.Mono;
 
+import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.tests.Assume;
@@ -41,6 +44,7 @@ import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.TransactionTimedOutException;
 import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.springframework.transaction.support.TransactionSynchronization;
@@ -710,6 +714,40 @@ public class DataSourceTransactionManagerTests  {
 		verify(con).close();
 	}
 
+	@Test
+	public void testReactivePropagationRequiresNewWithExistingTransaction() throws Exception {
+		final Connection con2 = mock(Connection.class);
+		given(ds.getConnection()).willReturn(con, con2);
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(tm);
+		Properties attributes = new Properties();
+		attributes.setProperty("*", "PROPAGATION_REQUIRES_NEW");
+		ti.setTransactionAttributes(attributes);
+		ProxyFactory pf = new ProxyFactory(new DefaultReactiveConnectionService(ds));
+		pf.addAdvice(ti);
+		final ReactiveConnectionService service = (ReactiveConnectionService) pf.getProxy();
+
+		TransactionTemplate tt = new TransactionTemplate(tm);
+		tt.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) throws RuntimeException {
+				Mono<Connection> connection = service.currentConnection();
+				assertSame(con, DataSourceUtils.getConnection(ds));
+				assertSame(con2, connection.block());
+				assertSame(con, DataSourceUtils.getConnection(ds));
+				assertTrue(TransactionSynchronizationManager.isSynchronizationActive());
+				assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+			}
+		});
+
+		assertTrue("Hasn't thread connection", !TransactionSynchronizationManager.hasResource(ds));
+		verify(con2).commit();
+		verify(con2).close();
+		verify(con).commit();
+		verify(con).close();
+	}
+
 	@Test
 	public void testPropagationNotSupportedWithExistingTransaction() throws Exception {
 		final TransactionTemplate tt = new TransactionTemplate(tm);
@@ -1661,4 +1699,25 @@ public class DataSourceTransactionManagerTests  {
 		}
 	}
 
+
+	public interface ReactiveConnectionService {
+
+		Mono<Connection> currentConnection();
+	}
+
+
+	private static class DefaultReactiveConnectionService implements ReactiveConnectionService {
+
+		private final DataSource dataSource;
+
+		public DefaultReactiveConnectionService(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		@Override
+		public Mono<Connection> currentConnection() {
+			return Mono.fromCallable(() -> DataSourceUtils.getConnection(this.dataSource));
+		}
+	}
+
 }
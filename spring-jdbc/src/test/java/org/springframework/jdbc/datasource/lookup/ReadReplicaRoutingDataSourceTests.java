@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * @author agent
+ */
+public class ReadReplicaRoutingDataSourceTests {
+
+	private final DataSource primary = mock(DataSource.class);
+
+	private final DataSource replica1 = mock(DataSource.class);
+
+	private final DataSource replica2 = mock(DataSource.class);
+
+	private final Connection primaryCon = mock(Connection.class);
+
+	private final Connection replica1Con = mock(Connection.class);
+
+	private final Connection replica2Con = mock(Connection.class);
+
+	private final ReadReplicaRoutingDataSource dataSource = new ReadReplicaRoutingDataSource();
+
+
+	@Before
+	public void setup() throws Exception {
+		given(this.primary.getConnection()).willReturn(this.primaryCon);
+		given(this.replica1.getConnection()).willReturn(this.replica1Con);
+		given(this.replica2.getConnection()).willReturn(this.replica2Con);
+		this.dataSource.setPrimaryDataSource(this.primary);
+		this.dataSource.setReplicaDataSources(Arrays.asList(this.replica1, this.replica2));
+	}
+
+	@After
+	public void destroy() {
+		this.dataSource.destroy();
+	}
+
+	@After
+	public void verifyTransactionSynchronizationManagerState() {
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+	}
+
+
+	@Test
+	public void readOnlyTransactionRoutedToReplica() throws Exception {
+		this.dataSource.afterPropertiesSet();
+		reset(this.primary);
+
+		executeInTransaction(true);
+		verify(this.replica1Con).createStatement();
+		verify(this.replica1Con).commit();
+		verify(this.replica1Con).close();
+		verifyZeroInteractions(this.primary);
+	}
+
+	@Test
+	public void readWriteTransactionRoutedToPrimary() throws Exception {
+		this.dataSource.afterPropertiesSet();
+
+		executeInTransaction(false);
+		verify(this.primaryCon).createStatement();
+		verify(this.primaryCon).commit();
+		verifyZeroInteractions(this.replica1, this.replica2);
+	}
+
+	@Test
+	public void readOnlyTransactionsRoundRobin() throws Exception {
+		this.dataSource.afterPropertiesSet();
+
+		executeInTransaction(true);
+		executeInTransaction(true);
+		executeInTransaction(true);
+		verify(this.replica1Con, times(2)).createStatement();
+		verify(this.replica2Con).createStatement();
+	}
+
+	@Test
+	public void nonTransactionalAccessRoutedToPrimaryByDefault() throws Exception {
+		this.dataSource.afterPropertiesSet();
+
+		Connection con = this.dataSource.getConnection();
+		con.createStatement();
+		con.close();
+		verify(this.primaryCon).createStatement();
+		verifyZeroInteractions(this.replica1, this.replica2);
+	}
+
+	@Test
+	public void nonTransactionalAccessRoutedToReplica() throws Exception {
+		this.dataSource.setRouteNonTransactionalToReplicas(true);
+		this.dataSource.setLazyRouting(false);
+		this.dataSource.afterPropertiesSet();
+
+		assertSame(this.replica1Con, this.dataSource.getConnection());
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		verifyZeroInteractions(this.primary);
+	}
+
+	@Test
+	public void failingReplicaSkippedUntilRetryInterval() throws Exception {
+		given(this.replica1.getConnection()).willThrow(new SQLException("down"));
+		this.dataSource.setRouteNonTransactionalToReplicas(true);
+		this.dataSource.setLazyRouting(false);
+		this.dataSource.afterPropertiesSet();
+
+		assertSame(this.primaryCon, this.dataSource.getConnection());
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		verify(this.replica1).getConnection();
+	}
+
+	@Test
+	public void laggingReplicaSkipped() throws Exception {
+		this.dataSource.setRouteNonTransactionalToReplicas(true);
+		this.dataSource.setLazyRouting(false);
+		this.dataSource.setReplicationLagDetector(replica -> (replica == this.replica1 ? 60000 : 100));
+		this.dataSource.afterPropertiesSet();
+
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		verify(this.replica1, never()).getConnection();
+	}
+
+	@Test
+	public void replicationLagCheckedInBackground() throws Exception {
+		AtomicLong lag = new AtomicLong(60000);
+		Set<Thread> checkingThreads = ConcurrentHashMap.newKeySet();
+		this.dataSource.setRouteNonTransactionalToReplicas(true);
+		this.dataSource.setLazyRouting(false);
+		this.dataSource.setLagCheckInterval(10);
+		this.dataSource.setReplicationLagDetector(replica -> {
+			checkingThreads.add(Thread.currentThread());
+			return (replica == this.replica1 ? lag.get() : 100);
+		});
+		this.dataSource.afterPropertiesSet();
+		checkingThreads.clear();
+
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		assertSame(this.replica2Con, this.dataSource.getConnection());
+		verify(this.replica1, never()).getConnection();
+
+		lag.set(100);
+		long deadline = System.currentTimeMillis() + 5000;
+		boolean replica1Used = false;
+		while (!replica1Used && System.currentTimeMillis() < deadline) {
+			replica1Used = (this.dataSource.getConnection() == this.replica1Con);
+			Thread.sleep(5);
+		}
+		assertTrue(replica1Used);
+		assertFalse(checkingThreads.isEmpty());
+		assertFalse(checkingThreads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void allReplicasUnavailable() throws Exception {
+		this.dataSource.setRouteNonTransactionalToReplicas(true);
+		this.dataSource.setLazyRouting(false);
+		this.dataSource.setReplicationLagDetector(replica -> {
+			throw new SQLException("unreachable");
+		});
+		this.dataSource.afterPropertiesSet();
+
+		assertSame(this.primaryCon, this.dataSource.getConnection());
+		verify(this.replica1, never()).getConnection();
+		verify(this.replica2, never()).getConnection();
+	}
+
+
+	private void executeInTransaction(boolean readOnly) {
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(this.dataSource));
+		tt.setReadOnly(readOnly);
+		tt.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				try {
+					DataSourceUtils.getConnection(dataSource).createStatement();
+				}
+				catch (SQLException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+		});
+	}
+
+}
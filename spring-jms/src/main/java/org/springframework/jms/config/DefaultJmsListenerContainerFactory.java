@@ -18,6 +18,7 @@ package org.springframework.jms.config;
 
 import java.util.concurrent.Executor;
 
+import org.springframework.jms.listener.ConsumerScalingPolicy;
 import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -57,6 +58,18 @@ public class DefaultJmsListenerContainerFactory
 	@Nullable
 	private Long receiveTimeout;
 
+	@Nullable
+	private Integer batchSize;
+
+	@Nullable
+	private Long batchReceiveTimeout;
+
+	@Nullable
+	private ConsumerScalingPolicy consumerScalingPolicy;
+
+	@Nullable
+	private Long consumerScalingInterval;
+
 	@Nullable
 	private Long recoveryInterval;
 
@@ -113,6 +126,38 @@ public class DefaultJmsListenerContainerFactory
 		this.receiveTimeout = receiveTimeout;
 	}
 
+	/**
+	 * @since 5.0
+	 * @see DefaultMessageListenerContainer#setBatchSize
+	 */
+	public void setBatchSize(Integer batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @since 5.0
+	 * @see DefaultMessageListenerContainer#setBatchReceiveTimeout
+	 */
+	public void setBatchReceiveTimeout(Long batchReceiveTimeout) {
+		this.batchReceiveTimeout = batchReceiveTimeout;
+	}
+
+	/**
+	 * @since 5.0
+	 * @see DefaultMessageListenerContainer#setConsumerScalingPolicy
+	 */
+	public void setConsumerScalingPolicy(ConsumerScalingPolicy consumerScalingPolicy) {
+		this.consumerScalingPolicy = consumerScalingPolicy;
+	}
+
+	/**
+	 * @since 5.0
+	 * @see DefaultMessageListenerContainer#setConsumerScalingInterval
+	 */
+	public void setConsumerScalingInterval(Long consumerScalingInterval) {
+		this.consumerScalingInterval = consumerScalingInterval;
+	}
+
 	/**
 	 * @see DefaultMessageListenerContainer#setRecoveryInterval
 	 */
@@ -158,6 +203,18 @@ public class DefaultJmsListenerContainerFactory
 		if (this.receiveTimeout != null) {
 			container.setReceiveTimeout(this.receiveTimeout);
 		}
+		if (this.batchSize != null) {
+			container.setBatchSize(this.batchSize);
+		}
+		if (this.batchReceiveTimeout != null) {
+			container.setBatchReceiveTimeout(this.batchReceiveTimeout);
+		}
+		if (this.consumerScalingPolicy != null) {
+			container.setConsumerScalingPolicy(this.consumerScalingPolicy);
+		}
+		if (this.consumerScalingInterval != null) {
+			container.setConsumerScalingInterval(this.consumerScalingInterval);
+		}
 
 		if (this.backOff != null) {
 			container.setBackOff(this.backOff);
@@ -240,6 +240,17 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 	 * @return the wrapped Session
 	 */
 	protected Session getCachedSessionProxy(Session target, LinkedList<Session> sessionList) {
+		return getCachedSessionProxy(target, new SessionListCache(sessionList));
+	}
+
+	/**
+	 * Wrap the given Session with a proxy that returns it to the given cache on close.
+	 * @param target the original Session to wrap
+	 * @param sessionCache the cache that the given Session belongs to
+	 * @return the wrapped Session
+	 * @since 5.0
+	 */
+	Session getCachedSessionProxy(Session target, SessionCache sessionCache) {
 		List<Class<?>> classes = new ArrayList<>(3);
 		classes.add(SessionProxy.class);
 		if (target instanceof QueueSession) {
@@ -251,7 +262,67 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 		return (Session) Proxy.newProxyInstance(
 				SessionProxy.class.getClassLoader(),
 				classes.toArray(new Class<?>[classes.size()]),
-				new CachedSessionInvocationHandler(target, sessionList));
+				new CachedSessionInvocationHandler(target, sessionCache));
+	}
+
+
+	/**
+	 * Internal cache of logically closed Sessions for a specific acknowledgement mode.
+	 */
+	interface SessionCache {
+
+		/**
+		 * Return the given Session proxy to this cache, if possible.
+		 * @param proxy the Session proxy to return
+		 * @param logicalClose callback for resetting the Session's state,
+		 * to be invoked before actually caching the Session
+		 * @return {@code true} if the Session has been cached,
+		 * {@code false} if it is supposed to be closed physically
+		 * @throws JMSException if thrown by the logical close callback
+		 */
+		boolean returnSession(Session proxy, LogicalClose logicalClose) throws JMSException;
+	}
+
+
+	/**
+	 * Callback for resetting the state of a Session that is about to be cached.
+	 */
+	@FunctionalInterface
+	interface LogicalClose {
+
+		void close() throws JMSException;
+	}
+
+
+	/**
+	 * SessionCache implementation for a synchronized list of Sessions.
+	 */
+	private class SessionListCache implements SessionCache {
+
+		private final LinkedList<Session> sessionList;
+
+		public SessionListCache(LinkedList<Session> sessionList) {
+			this.sessionList = sessionList;
+		}
+
+		@Override
+		public boolean returnSession(Session proxy, LogicalClose logicalClose) throws JMSException {
+			synchronized (this.sessionList) {
+				if (this.sessionList.size() < getSessionCacheSize()) {
+					logicalClose.close();
+					// Allow for multiple close calls...
+					if (!this.sessionList.contains(proxy)) {
+						this.sessionList.addLast(proxy);
+						if (logger.isTraceEnabled()) {
+							logger.trace("Returned cached Session: " + ((SessionProxy) proxy).getTargetSession());
+						}
+					}
+					// Remain open in the session list.
+					return true;
+				}
+			}
+			return false;
+		}
 	}
 
 
@@ -262,7 +333,7 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 
 		private final Session target;
 
-		private final LinkedList<Session> sessionList;
+		private final SessionCache sessionCache;
 
 		private final Map<DestinationCacheKey, MessageProducer> cachedProducers =
 				new HashMap<>();
@@ -272,9 +343,9 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 
 		private boolean transactionOpen = false;
 
-		public CachedSessionInvocationHandler(Session target, LinkedList<Session> sessionList) {
+		public CachedSessionInvocationHandler(Session target, SessionCache sessionCache) {
 			this.target = target;
-			this.sessionList = sessionList;
+			this.sessionCache = sessionCache;
 		}
 
 		@Override
@@ -295,19 +366,16 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 			else if (methodName.equals("close")) {
 				// Handle close method: don't pass the call on.
 				if (active) {
-					synchronized (this.sessionList) {
-						if (this.sessionList.size() < getSessionCacheSize()) {
-							try {
-								logicalClose((Session) proxy);
-								// Remain open in the session list.
-								return null;
-							}
-							catch (JMSException ex) {
-								logger.trace("Logical close of cached JMS Session failed - discarding it", ex);
-								// Proceed to physical close from here...
-							}
+					try {
+						if (this.sessionCache.returnSession((Session) proxy, this::logicalClose)) {
+							// Remain open in the session cache.
+							return null;
 						}
 					}
+					catch (JMSException ex) {
+						logger.trace("Logical close of cached JMS Session failed - discarding it", ex);
+						// Proceed to physical close from here...
+					}
 				}
 				// If we get here, we're supposed to shut down.
 				physicalClose();
@@ -432,7 +500,7 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 			return new CachedMessageConsumer(consumer);
 		}
 
-		private void logicalClose(Session proxy) throws JMSException {
+		private void logicalClose() throws JMSException {
 			// Preserve rollback-on-close semantics.
 			if (this.transactionOpen && this.target.getTransacted()) {
 				this.transactionOpen = false;
@@ -446,17 +514,6 @@ public class CachingConnectionFactory extends SingleConnectionFactory {
 					it.remove();
 				}
 			}
-			// Allow for multiple close calls...
-			boolean returned = false;
-			synchronized (this.sessionList) {
-				if (!this.sessionList.contains(proxy)) {
-					this.sessionList.addLast(proxy);
-					returned = true;
-				}
-			}
-			if (returned && logger.isTraceEnabled()) {
-				logger.trace("Returned cached Session: " + this.target);
-			}
 		}
 
 		private void physicalClose() throws JMSException {
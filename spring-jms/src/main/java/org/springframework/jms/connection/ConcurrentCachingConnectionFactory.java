@@ -0,0 +1,374 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link CachingConnectionFactory} variant for high-concurrency environments,
+ * such as a {@link org.springframework.jms.core.JmsTemplate} shared by a large
+ * number of sending threads.
+ *
+ * <p>Sessions are cached in lock-free pools per acknowledgement mode, with
+ * Session checkout and return not synchronizing on a common cache monitor:
+ * they merely share a read lock against a concurrent {@link #resetConnection()}.
+ * The most recently returned Session gets reused first, letting surplus
+ * Sessions idle in the pool once the load decreases. As with the standard
+ * {@code CachingConnectionFactory}, MessageProducers and MessageConsumers
+ * are cached per Session.
+ *
+ * <p>Unlike with the standard {@code CachingConnectionFactory}, the
+ * {@link #setSessionCacheSize "sessionCacheSize"} defaults to the number of
+ * available processors rather than 1, since a single cached Session would
+ * defeat the purpose of this variant. Raise it to the expected number of
+ * concurrent Session users if that is higher, e.g. the size of the sending
+ * thread pool: Sessions returned beyond the cache size get closed physically.
+ *
+ * <p>New Sessions may furthermore be spread across several physical JMS
+ * Connections, according to the {@link #setConnectionCount "connectionCount"}
+ * setting, for JMS providers which process all Sessions of a Connection through
+ * a single network channel. The first Connection is the shared Connection as
+ * managed by {@link SingleConnectionFactory}; additional Connections are
+ * established on demand and started right away, since they are only used
+ * internally for Session creation.
+ *
+ * <p>Session cache hits and misses are counted for monitoring purposes:
+ * see {@link #getSessionCacheHitCount()} and {@link #getSessionCacheMissCount()}.
+ *
+ * @author agent
+ * @since 5.0
+ * @see #setSessionCacheSize
+ * @see #setConnectionCount
+ */
+public class ConcurrentCachingConnectionFactory extends CachingConnectionFactory {
+
+	private int connectionCount = 1;
+
+	private final ConcurrentMap<Integer, SessionPool> sessionPools = new ConcurrentHashMap<>(4);
+
+	private final List<Connection> additionalConnections = new ArrayList<>();
+
+	private final AtomicInteger connectionCounter = new AtomicInteger();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final ReentrantReadWriteLock resetLock = new ReentrantReadWriteLock();
+
+	/* Whether a reset was requested by a thread holding the read lock */
+	private final AtomicBoolean resetPending = new AtomicBoolean();
+
+
+	/**
+	 * Create a new ConcurrentCachingConnectionFactory for bean-style usage.
+	 * @see #setTargetConnectionFactory
+	 */
+	public ConcurrentCachingConnectionFactory() {
+		super();
+		setSessionCacheSize(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a new ConcurrentCachingConnectionFactory for the given target
+	 * ConnectionFactory.
+	 * @param targetConnectionFactory the target ConnectionFactory
+	 */
+	public ConcurrentCachingConnectionFactory(ConnectionFactory targetConnectionFactory) {
+		super(targetConnectionFactory);
+		setSessionCacheSize(Runtime.getRuntime().availableProcessors());
+	}
+
+
+	/**
+	 * Specify the number of physical JMS Connections to spread new Sessions across,
+	 * in a round-robin fashion.
+	 * <p>Default is 1, creating all Sessions from the single shared Connection.
+	 * Note that multiple Connections cannot be combined with a
+	 * {@link #setClientId "clientId"}, since a client id is unique per Connection.
+	 */
+	public void setConnectionCount(int connectionCount) {
+		Assert.isTrue(connectionCount >= 1, "Connection count must be 1 or higher");
+		this.connectionCount = connectionCount;
+	}
+
+	/**
+	 * Return the number of physical JMS Connections to spread new Sessions across.
+	 */
+	public int getConnectionCount() {
+		return this.connectionCount;
+	}
+
+	/**
+	 * Return the number of Session requests served from the cache.
+	 */
+	public long getSessionCacheHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Return the number of Session requests which required the creation
+	 * of a new Session, since no cached Session was available.
+	 */
+	public long getSessionCacheMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Return the number of Sessions currently idling in the cache
+	 * (across all acknowledgement modes).
+	 */
+	public int getCachedSessionCount() {
+		int count = 0;
+		for (SessionPool pool : this.sessionPools.values()) {
+			count += pool.size.get();
+		}
+		return count;
+	}
+
+
+	/**
+	 * Resets the Session pools and additional Connections as well.
+	 * <p>Waits for Session checkouts and returns in progress, and blocks
+	 * further ones until the shared Connection has been reset as well.
+	 * Sessions checked out from the previous pools get closed physically
+	 * when returned.
+	 * <p>If called from within a Session checkout or return, e.g. by a JMS
+	 * provider notifying the {@link javax.jms.ExceptionListener} synchronously
+	 * during Session creation, the reset is deferred until the calling thread
+	 * has completed the checkout or return, rather than waiting for itself.
+	 */
+	@Override
+	public void resetConnection() {
+		if (this.resetLock.getReadHoldCount() > 0) {
+			this.resetPending.set(true);
+			return;
+		}
+		this.resetPending.set(false);
+		Lock lock = this.resetLock.writeLock();
+		lock.lock();
+		try {
+			for (SessionPool pool : this.sessionPools.values()) {
+				pool.closeAll();
+			}
+			this.sessionPools.clear();
+			synchronized (this.additionalConnections) {
+				for (Connection con : this.additionalConnections) {
+					closeConnection(con);
+				}
+				this.additionalConnections.clear();
+			}
+
+			// Now proceed with resetting the shared Connection...
+			super.resetConnection();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks for a pooled Session for the given mode.
+	 */
+	@Override
+	protected Session getSession(Connection con, Integer mode) throws JMSException {
+		Lock lock = this.resetLock.readLock();
+		lock.lock();
+		try {
+			SessionPool pool = this.sessionPools.get(mode);
+			if (pool == null) {
+				pool = this.sessionPools.computeIfAbsent(mode, key -> new SessionPool());
+			}
+			Session session = pool.poll();
+			if (session != null) {
+				this.hitCount.increment();
+				if (logger.isTraceEnabled()) {
+					logger.trace("Found cached JMS Session for mode " + mode + ": " +
+							((SessionProxy) session).getTargetSession());
+				}
+				return session;
+			}
+			this.missCount.increment();
+			Session targetSession = createSession(obtainSessionConnection(con), mode);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Registering cached JMS Session for mode " + mode + ": " + targetSession);
+			}
+			return getCachedSessionProxy(targetSession, pool);
+		}
+		finally {
+			lock.unlock();
+			resetIfPending();
+		}
+	}
+
+	/**
+	 * Perform a reset deferred by {@link #resetConnection()}, once the current
+	 * thread does not hold the read lock anymore.
+	 */
+	private void resetIfPending() {
+		if (this.resetLock.getReadHoldCount() == 0 && this.resetPending.compareAndSet(true, false)) {
+			resetConnection();
+		}
+	}
+
+	/**
+	 * Determine the Connection to create a new Session from,
+	 * rotating through the specified number of Connections.
+	 * @param sharedConnection the shared Connection
+	 * @return the Connection to use
+	 * @throws JMSException if thrown by JMS API methods
+	 * @see #setConnectionCount
+	 */
+	private Connection obtainSessionConnection(Connection sharedConnection) throws JMSException {
+		int count = getConnectionCount();
+		if (count == 1) {
+			return sharedConnection;
+		}
+		int index = Math.floorMod(this.connectionCounter.getAndIncrement(), count);
+		if (index == 0) {
+			return sharedConnection;
+		}
+		synchronized (this.additionalConnections) {
+			while (this.additionalConnections.size() < index) {
+				this.additionalConnections.add(createAdditionalConnection());
+			}
+			return this.additionalConnections.get(index - 1);
+		}
+	}
+
+	/**
+	 * Create and start an additional JMS Connection for Session creation.
+	 * @return the new Connection
+	 * @throws JMSException if thrown by JMS API methods
+	 */
+	private Connection createAdditionalConnection() throws JMSException {
+		if (getClientId() != null) {
+			throw new javax.jms.IllegalStateException(
+					"Cannot spread Sessions across multiple Connections with a 'clientId' specified");
+		}
+		Connection con = doCreateConnection();
+		try {
+			prepareConnection(con);
+			con.start();
+		}
+		catch (JMSException | RuntimeException ex) {
+			closeConnection(con);
+			throw ex;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Established additional JMS Connection: " + con);
+		}
+		return con;
+	}
+
+
+	/**
+	 * Lock-free pool of logically closed Sessions for a specific acknowledgement mode.
+	 */
+	private class SessionPool implements SessionCache {
+
+		private final ConcurrentLinkedDeque<Session> sessions = new ConcurrentLinkedDeque<>();
+
+		/* Sessions currently in the pool, for constant-time detection of repeated close calls */
+		private final Set<Session> pooled = ConcurrentHashMap.newKeySet();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		private volatile boolean closed;
+
+		public Session poll() {
+			Session session = this.sessions.pollFirst();
+			if (session != null) {
+				this.pooled.remove(session);
+				this.size.decrementAndGet();
+			}
+			return session;
+		}
+
+		@Override
+		public boolean returnSession(Session proxy, LogicalClose logicalClose) throws JMSException {
+			Lock lock = resetLock.readLock();
+			lock.lock();
+			try {
+				if (this.closed) {
+					return false;
+				}
+				// Allow for multiple close calls...
+				if (!this.pooled.add(proxy)) {
+					return true;
+				}
+				if (this.size.incrementAndGet() > getSessionCacheSize()) {
+					this.size.decrementAndGet();
+					this.pooled.remove(proxy);
+					return false;
+				}
+				try {
+					logicalClose.close();
+				}
+				catch (JMSException | RuntimeException ex) {
+					this.size.decrementAndGet();
+					this.pooled.remove(proxy);
+					throw ex;
+				}
+				this.sessions.offerFirst(proxy);
+			}
+			finally {
+				lock.unlock();
+				resetIfPending();
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Returned cached Session: " + ((SessionProxy) proxy).getTargetSession());
+			}
+			return true;
+		}
+
+		/**
+		 * Close all pooled Sessions and stop accepting returned Sessions.
+		 * To be called with the reset lock held.
+		 */
+		public void closeAll() {
+			this.closed = true;
+			Session session;
+			while ((session = poll()) != null) {
+				try {
+					// Physical close, since this pool does not accept Sessions anymore
+					session.close();
+				}
+				catch (Throwable ex) {
+					logger.trace("Could not close cached JMS Session", ex);
+				}
+			}
+		}
+	}
+
+}
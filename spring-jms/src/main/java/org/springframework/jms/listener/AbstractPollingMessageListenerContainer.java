@@ -16,6 +16,8 @@
 
 package org.springframework.jms.listener;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSException;
@@ -47,6 +49,13 @@ import org.springframework.util.Assert;
  * to the concrete implementation. The receive timeout for each attempt can be
  * configured through the {@link #setReceiveTimeout "receiveTimeout"} property.
  *
+ * <p>Each attempt may receive a batch of messages rather than a single message,
+ * committing or acknowledging the entire batch at once (in case of a transacted
+ * Session or {@code CLIENT_ACKNOWLEDGE} mode): see the
+ * {@link #setBatchSize "batchSize"} and {@link #setBatchReceiveTimeout "batchReceiveTimeout"}
+ * properties. This reduces the number of commit round trips to the JMS provider
+ * considerably, in particular in combination with a {@link BatchMessageListener}.
+ *
  * <p>The underlying mechanism is based on standard JMS MessageConsumer handling,
  * which is perfectly compatible with both native JMS and JMS in a Java EE environment.
  * Neither the JMS {@code MessageConsumer.setMessageListener} facility  nor the JMS
@@ -94,6 +103,10 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 
 	private long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
 
+	private int batchSize = 1;
+
+	private long batchReceiveTimeout = 0;
+
 
 	@Override
 	public void setSessionTransacted(boolean sessionTransacted) {
@@ -182,6 +195,65 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 		return this.receiveTimeout;
 	}
 
+	/**
+	 * Set the maximum number of messages to receive per attempt, processing
+	 * and committing (or acknowledging) them as a single unit of work.
+	 * <p>Default is 1, i.e. no batching. With a higher value, all messages
+	 * of a batch get passed to a {@link BatchMessageListener} at once, or
+	 * one by one to a standard message listener. Either way, the transaction
+	 * (if any) gets committed once per batch, and a listener exception rolls
+	 * back all of the batch's messages, making them subject to redelivery.
+	 * <p>The latter only applies to a transacted Session (see
+	 * {@link #setSessionTransacted "sessionTransacted"} and
+	 * {@link #setTransactionManager "transactionManager"}) or to
+	 * {@code CLIENT_ACKNOWLEDGE} mode. With {@code AUTO_ACKNOWLEDGE} or
+	 * {@code DUPS_OK_ACKNOWLEDGE}, the JMS provider acknowledges each message
+	 * on receipt, so messages of a failed batch do not get redelivered.
+	 * <p>Note that a batch only gets completed within the same attempt if
+	 * further messages are available within the
+	 * {@link #setBatchReceiveTimeout "batchReceiveTimeout"}.
+	 * @since 5.0
+	 * @see #setBatchReceiveTimeout
+	 * @see BatchMessageListener
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Return the maximum number of messages to receive per attempt.
+	 * @since 5.0
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the maximum time to wait for further messages to fill up a batch,
+	 * in <b>milliseconds</b>, starting after the first message of the batch
+	 * has been received.
+	 * <p>Default is 0, only collecting messages which are available right away
+	 * (typically prefetched by the JMS provider already). A positive value
+	 * trades latency for larger batches.
+	 * <p><b>NOTE:</b> Like the {@link #setReceiveTimeout "receiveTimeout"},
+	 * the sum of both timeouts needs to be smaller than the transaction
+	 * timeout used by the transaction manager.
+	 * @since 5.0
+	 * @see #setBatchSize
+	 */
+	public void setBatchReceiveTimeout(long batchReceiveTimeout) {
+		this.batchReceiveTimeout = batchReceiveTimeout;
+	}
+
+	/**
+	 * Return the maximum time (ms) to wait for further messages to fill up a batch.
+	 * @since 5.0
+	 */
+	public long getBatchReceiveTimeout() {
+		return this.batchReceiveTimeout;
+	}
+
 
 	@Override
 	public void initialize() {
@@ -302,8 +374,10 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 			}
 			Message message = receiveMessage(consumerToUse);
 			if (message != null) {
+				List<Message> batch = (this.batchSize > 1 ? receiveBatch(consumerToUse, message) : null);
 				if (logger.isDebugEnabled()) {
-					logger.debug("Received message of type [" + message.getClass() + "] from consumer [" +
+					logger.debug("Received " + (batch != null ? "batch of " + batch.size() + " messages" :
+							"message of type [" + message.getClass() + "]") + " from consumer [" +
 							consumerToUse + "] of " + (transactional ? "transactional " : "") + "session [" +
 							sessionToUse + "]");
 				}
@@ -315,7 +389,12 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 							obtainConnectionFactory(), new LocallyExposedJmsResourceHolder(sessionToUse));
 				}
 				try {
-					doExecuteListener(sessionToUse, message);
+					if (batch != null) {
+						doExecuteListener(sessionToUse, batch);
+					}
+					else {
+						doExecuteListener(sessionToUse, message);
+					}
 				}
 				catch (Throwable ex) {
 					if (status != null) {
@@ -418,6 +497,33 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 		return receiveFromConsumer(consumer, getReceiveTimeout());
 	}
 
+	/**
+	 * Receive further messages from the given consumer, filling up a batch
+	 * which starts with the given message, until the configured
+	 * {@link #setBatchSize "batchSize"} has been reached or no further message
+	 * arrived within the {@link #setBatchReceiveTimeout "batchReceiveTimeout"}.
+	 * @param consumer the MessageConsumer to use
+	 * @param firstMessage the first message of the batch, received already
+	 * @return the batch of messages (containing at least the first message)
+	 * @throws JMSException if thrown by JMS methods
+	 * @since 5.0
+	 */
+	protected List<Message> receiveBatch(MessageConsumer consumer, Message firstMessage) throws JMSException {
+		List<Message> batch = new ArrayList<>(this.batchSize);
+		batch.add(firstMessage);
+		long deadline = System.currentTimeMillis() + this.batchReceiveTimeout;
+		while (batch.size() < this.batchSize) {
+			long remaining = deadline - System.currentTimeMillis();
+			// A negative timeout indicates a no-wait receive operation.
+			Message message = receiveFromConsumer(consumer, remaining > 0 ? remaining : -1);
+			if (message == null) {
+				break;
+			}
+			batch.add(message);
+		}
+		return batch;
+	}
+
 	/**
 	 * Template method that gets called right when a new message has been received,
 	 * before attempting to process it. Allows subclasses to react to the event
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+import org.springframework.util.Assert;
+
+/**
+ * Default {@link ConsumerScalingPolicy} implementation, scaling consumers
+ * according to the observed backlog, message latency and consumer utilization.
+ *
+ * <p>The number of consumers gets raised by the {@link #setScaleUpFactor
+ * "scaleUpFactor"} (at least by 1) once the destination appears to build up a
+ * backlog: that is, once the {@link ConsumerMetrics#getReceiveWaitRatio() share
+ * of time that consumers spend waiting for messages} drops to the
+ * {@link #setBacklogThreshold "backlogThreshold"}, or
+ * once the average latency of a message (queue time plus processing time)
+ * exceeds the specified {@link #setTargetLatency "targetLatency"}.
+ *
+ * <p>Otherwise, the number of consumers required for the current throughput
+ * is derived from Little's law (throughput times average processing time),
+ * divided by the {@link #setTargetUtilization "targetUtilization"}. If fewer
+ * consumers than currently scheduled are required, the number of consumers
+ * gets lowered by one per scaling interval, shrinking gradually in order to
+ * not shut down consumers that a temporary load dip is about to need again.
+ *
+ * @author agent
+ * @since 5.0
+ * @see DefaultMessageListenerContainer#setConsumerScalingPolicy
+ */
+public class AdaptiveConsumerScalingPolicy implements ConsumerScalingPolicy {
+
+	private long targetLatency = -1;
+
+	private double backlogThreshold = 0.1;
+
+	private double targetUtilization = 0.75;
+
+	private double scaleUpFactor = 1.5;
+
+
+	/**
+	 * Specify the target latency of a message in milliseconds, that is, the
+	 * maximum average time between sending a message and completing its
+	 * processing. Consumers will be added while this target is exceeded.
+	 * <p>Default is none, only scaling up according to the
+	 * {@link #setBacklogThreshold "backlogThreshold"}.
+	 * @see ConsumerMetrics#getAverageQueueTime()
+	 * @see ConsumerMetrics#getAverageProcessingTime()
+	 */
+	public void setTargetLatency(long targetLatency) {
+		this.targetLatency = targetLatency;
+	}
+
+	/**
+	 * Return the target latency of a message in milliseconds, or -1 if none.
+	 */
+	public long getTargetLatency() {
+		return this.targetLatency;
+	}
+
+	/**
+	 * Specify the receive wait ratio up to which the destination is considered
+	 * to have a backlog of messages, triggering the addition of consumers.
+	 * <p>Default is 0.1, i.e. consumers spending at most a tenth of their time
+	 * waiting for messages.
+	 * @see ConsumerMetrics#getReceiveWaitRatio()
+	 */
+	public void setBacklogThreshold(double backlogThreshold) {
+		Assert.isTrue(backlogThreshold > 0 && backlogThreshold <= 1,
+				"'backlogThreshold' must be larger than 0 and not larger than 1");
+		this.backlogThreshold = backlogThreshold;
+	}
+
+	/**
+	 * Return the receive wait ratio which indicates a backlog of messages.
+	 */
+	public double getBacklogThreshold() {
+		return this.backlogThreshold;
+	}
+
+	/**
+	 * Specify the share of time that consumers are supposed to spend processing
+	 * messages, determining the number of consumers to keep for the current
+	 * throughput. Consumers beyond that number will be shut down one by one.
+	 * <p>Default is 0.75, keeping a spare capacity of a quarter for load variations.
+	 */
+	public void setTargetUtilization(double targetUtilization) {
+		Assert.isTrue(targetUtilization > 0 && targetUtilization <= 1,
+				"'targetUtilization' must be larger than 0 and not larger than 1");
+		this.targetUtilization = targetUtilization;
+	}
+
+	/**
+	 * Return the target share of time that consumers spend processing messages.
+	 */
+	public double getTargetUtilization() {
+		return this.targetUtilization;
+	}
+
+	/**
+	 * Specify the factor to multiply the number of consumers with when scaling up.
+	 * <p>Default is 1.5, allowing the container to catch up with a load spike
+	 * within a few scaling intervals. Any factor leads to an increase by at least
+	 * one consumer per scaling interval.
+	 */
+	public void setScaleUpFactor(double scaleUpFactor) {
+		Assert.isTrue(scaleUpFactor >= 1, "'scaleUpFactor' must be 1 or higher");
+		this.scaleUpFactor = scaleUpFactor;
+	}
+
+	/**
+	 * Return the factor to multiply the number of consumers with when scaling up.
+	 */
+	public double getScaleUpFactor() {
+		return this.scaleUpFactor;
+	}
+
+
+	@Override
+	public int determineConsumerCount(ConsumerMetrics metrics) {
+		int current = metrics.getScheduledConsumerCount();
+		if (isOverloaded(metrics)) {
+			return Math.max(current + 1, (int) Math.ceil(current * this.scaleUpFactor));
+		}
+		double busyConsumers = metrics.getThroughput() * metrics.getAverageProcessingTime() / 1000;
+		int required = (int) Math.ceil(busyConsumers / this.targetUtilization);
+		return (required < current ? current - 1 : current);
+	}
+
+	/**
+	 * Determine whether the given metrics indicate that the current consumers
+	 * are not able to keep up with the incoming messages.
+	 * @param metrics the current metrics of the listener container
+	 * @return {@code true} to scale up, {@code false} otherwise
+	 */
+	protected boolean isOverloaded(ConsumerMetrics metrics) {
+		if (metrics.getReceiveWaitRatio() <= this.backlogThreshold) {
+			return true;
+		}
+		return (this.targetLatency >= 0 &&
+				metrics.getAverageQueueTime() + metrics.getAverageProcessingTime() > this.targetLatency);
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+import java.util.List;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Variant of {@link SessionAwareMessageListener} for processing a batch of
+ * messages at once, as received by a polling listener container with a
+ * {@link AbstractPollingMessageListenerContainer#setBatchSize "batchSize"}
+ * greater than 1. The entire batch gets committed or acknowledged once,
+ * after the listener returned. With a transacted Session or in
+ * {@code CLIENT_ACKNOWLEDGE} mode, a listener exception rolls back the entire
+ * batch, with all of its messages subject to redelivery. Note that with
+ * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE}, messages get
+ * acknowledged on receipt, so a failed batch does not get redelivered.
+ *
+ * <p>Supported by Spring's {@link DefaultMessageListenerContainer} and
+ * {@link SimpleMessageListenerContainer}. The latter does not receive messages
+ * in batches, passing each message as a single-element list instead.
+ *
+ * @author agent
+ * @since 5.0
+ * @see AbstractPollingMessageListenerContainer#setBatchSize
+ * @see AbstractPollingMessageListenerContainer#setBatchReceiveTimeout
+ * @see AbstractMessageListenerContainer#setMessageListener
+ */
+@FunctionalInterface
+public interface BatchMessageListener {
+
+	/**
+	 * Callback for processing a batch of received JMS messages.
+	 * <p>Implementors are supposed to process all of the given messages,
+	 * possibly sending reply messages through the given Session.
+	 * @param messages the received JMS messages, in order of reception
+	 * (never {@code null} or empty)
+	 * @param session the underlying JMS Session (never {@code null})
+	 * @throws JMSException if thrown by JMS methods
+	 */
+	void onMessages(List<Message> messages, Session session) throws JMSException;
+
+}
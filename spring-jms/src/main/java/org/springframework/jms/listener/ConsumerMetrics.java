@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+/**
+ * Snapshot of the load metrics of a {@link DefaultMessageListenerContainer},
+ * as measured over its most recent scaling intervals and passed to a
+ * {@link ConsumerScalingPolicy}.
+ *
+ * <p>Rates and averages are exponentially smoothed across intervals, in order
+ * to follow load changes within a few intervals without reacting to every
+ * single outlier.
+ *
+ * @author agent
+ * @since 5.0
+ * @see DefaultMessageListenerContainer#getConsumerMetrics()
+ * @see ConsumerScalingPolicy#determineConsumerCount
+ */
+public interface ConsumerMetrics {
+
+	/**
+	 * Return the minimum number of consumers, as configured through the
+	 * {@link DefaultMessageListenerContainer#setConcurrentConsumers "concurrentConsumers"}
+	 * setting.
+	 */
+	int getMinConsumerCount();
+
+	/**
+	 * Return the maximum number of consumers, as configured through the
+	 * {@link DefaultMessageListenerContainer#setMaxConcurrentConsumers "maxConcurrentConsumers"}
+	 * setting.
+	 */
+	int getMaxConsumerCount();
+
+	/**
+	 * Return the number of currently scheduled consumers.
+	 * @see DefaultMessageListenerContainer#getScheduledConsumerCount()
+	 */
+	int getScheduledConsumerCount();
+
+	/**
+	 * Return the number of scheduled consumers which did not receive
+	 * a message on their last receive attempt.
+	 */
+	int getIdleConsumerCount();
+
+	/**
+	 * Return the total number of messages received since the listener
+	 * container has been started, counting each message of a batch.
+	 */
+	long getMessageCount();
+
+	/**
+	 * Return the number of messages received per second.
+	 */
+	double getThroughput();
+
+	/**
+	 * Return the average processing time of a message in milliseconds,
+	 * that is, the time spent in listener execution including the commit,
+	 * divided by the number of messages (in case of batches).
+	 */
+	double getAverageProcessingTime();
+
+	/**
+	 * Return the average time in milliseconds that received messages spent
+	 * in the destination before reception (sampling each message of a batch),
+	 * based on their
+	 * {@link javax.jms.Message#getJMSTimestamp() JMSTimestamp}.
+	 * <p>Note that this is subject to clock differences between the sending
+	 * and the receiving side, and will be 0 if the sender disabled message
+	 * timestamps.
+	 */
+	double getAverageQueueTime();
+
+	/**
+	 * Return the share of the consumers' time spent waiting within receive
+	 * calls, as opposed to processing messages, between 0.0 and 1.0.
+	 * A ratio close to 0 indicates a backlog of messages in the destination,
+	 * since consumers hardly ever have to wait for a message; a ratio close
+	 * to 1 indicates idle consumers.
+	 * <p>Unlike the share of receive calls returning a message, this does not
+	 * depend on the receive timeout or on how quickly messages trickle in.
+	 */
+	double getReceiveWaitRatio();
+
+}
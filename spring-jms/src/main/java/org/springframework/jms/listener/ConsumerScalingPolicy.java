@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+/**
+ * Strategy interface for determining the number of concurrent consumers
+ * of a {@link DefaultMessageListenerContainer}, replacing the container's
+ * default idle-based scaling heuristics.
+ *
+ * <p>Invoked once per {@link DefaultMessageListenerContainer#setConsumerScalingInterval
+ * scaling interval} with the container's current {@link ConsumerMetrics}.
+ * The container will then schedule additional consumers or let superfluous
+ * consumers shut down after their current task, respectively.
+ *
+ * @author agent
+ * @since 5.0
+ * @see DefaultMessageListenerContainer#setConsumerScalingPolicy
+ * @see AdaptiveConsumerScalingPolicy
+ */
+@FunctionalInterface
+public interface ConsumerScalingPolicy {
+
+	/**
+	 * Determine the number of consumers to schedule, given the current metrics.
+	 * <p>The returned value will be constrained to the range between
+	 * {@link ConsumerMetrics#getMinConsumerCount()} and
+	 * {@link ConsumerMetrics#getMaxConsumerCount()} by the container.
+	 * @param metrics the current metrics of the listener container
+	 * @return the target number of consumers
+	 */
+	int determineConsumerCount(ConsumerMetrics metrics);
+
+}
@@ -19,8 +19,11 @@ package org.springframework.jms.listener;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import javax.jms.Connection;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.Session;
 
@@ -98,6 +101,13 @@ import org.springframework.util.backoff.FixedBackOff;
  * number of 1 consumer, otherwise you'd receive the same message multiple times on
  * the same node.
  *
+ * <p>As an alternative to the idle-based scaling heuristics above, a
+ * {@link #setConsumerScalingPolicy "consumerScalingPolicy"} may determine the number
+ * of consumers according to the container's measured throughput, processing time
+ * and time spent waiting for messages, re-evaluated once per {@link #setConsumerScalingInterval
+ * "consumerScalingInterval"}. Those metrics are also available for monitoring
+ * purposes through {@link #getConsumerMetrics()}.
+ *
  * <p><b>Note: Don't use Spring's {@link org.springframework.jms.connection.CachingConnectionFactory}
  * in combination with dynamic scaling.</b> Ideally, don't use it with a message
  * listener container at all, since it is generally preferable to let the
@@ -135,6 +145,11 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	 */
 	public static final long DEFAULT_RECOVERY_INTERVAL = 5000;
 
+	/**
+	 * The default consumer scaling interval: 1000 ms = 1 second.
+	 */
+	public static final long DEFAULT_CONSUMER_SCALING_INTERVAL = 1000;
+
 
 	/**
 	 * Constant that indicates to cache no JMS resources at all.
@@ -191,6 +206,15 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 
 	private int idleTaskExecutionLimit = 1;
 
+	@Nullable
+	private volatile ConsumerScalingPolicy consumerScalingPolicy;
+
+	private volatile long consumerScalingInterval = DEFAULT_CONSUMER_SCALING_INTERVAL;
+
+	private final ConsumerMetricsCollector consumerMetricsCollector = new ConsumerMetricsCollector();
+
+	private int targetConsumerCount = 1;
+
 	private final Set<AsyncMessageListenerInvoker> scheduledInvokers = new HashSet<>();
 
 	private int activeInvokerCount = 0;
@@ -508,6 +532,54 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		}
 	}
 
+	/**
+	 * Specify a policy for determining the number of concurrent consumers
+	 * (between "concurrentConsumers" and "maxConcurrentConsumers") according
+	 * to the container's {@link #getConsumerMetrics() metrics}, for example an
+	 * {@link AdaptiveConsumerScalingPolicy}.
+	 * <p>Default is none, scaling according to the "idleConsumerLimit" and
+	 * "idleTaskExecutionLimit" settings. Those settings are ignored once
+	 * a scaling policy has been specified.
+	 * <p><b>This setting can be modified at runtime, for example through JMX.</b>
+	 * @see #setConsumerScalingInterval
+	 * @see #setMaxConcurrentConsumers
+	 */
+	public void setConsumerScalingPolicy(@Nullable ConsumerScalingPolicy consumerScalingPolicy) {
+		this.consumerScalingPolicy = consumerScalingPolicy;
+	}
+
+	/**
+	 * Return the policy for determining the number of concurrent consumers, if any.
+	 */
+	@Nullable
+	public ConsumerScalingPolicy getConsumerScalingPolicy() {
+		return this.consumerScalingPolicy;
+	}
+
+	/**
+	 * Specify the interval (in milliseconds) for updating the container's
+	 * {@link #getConsumerMetrics() metrics} and for re-evaluating the
+	 * {@link #setConsumerScalingPolicy "consumerScalingPolicy"}, if any.
+	 * <p>The default is 1000 ms, that is, 1 second. Note that the evaluation
+	 * is triggered by consumers returning from a receive attempt, so may happen
+	 * later than the specified interval if all consumers are busy for a longer
+	 * time (or are waiting for messages with a longer receive timeout).
+	 * <p><b>This setting can be modified at runtime, for example through JMX.</b>
+	 * @see #setReceiveTimeout
+	 */
+	public void setConsumerScalingInterval(long consumerScalingInterval) {
+		Assert.isTrue(consumerScalingInterval > 0, "'consumerScalingInterval' must be larger than 0");
+		this.consumerScalingInterval = consumerScalingInterval;
+	}
+
+	/**
+	 * Return the interval for updating the metrics and re-evaluating
+	 * the consumer scaling policy.
+	 */
+	public long getConsumerScalingInterval() {
+		return this.consumerScalingInterval;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Implementation of AbstractMessageListenerContainer's template methods
@@ -549,6 +621,7 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	@Override
 	protected void doInitialize() throws JMSException {
 		synchronized (this.lifecycleMonitor) {
+			this.targetConsumerCount = this.concurrentConsumers;
 			for (int i = 0; i < this.concurrentConsumers; i++) {
 				scheduleNewInvoker();
 			}
@@ -658,6 +731,18 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		}
 	}
 
+	/**
+	 * Return the current load metrics of this listener container,
+	 * as updated once per {@link #setConsumerScalingInterval "consumerScalingInterval"}.
+	 * @since 5.0
+	 * @see #setConsumerScalingPolicy
+	 */
+	public ConsumerMetrics getConsumerMetrics() {
+		synchronized (this.lifecycleMonitor) {
+			return this.consumerMetricsCollector.getMetrics();
+		}
+	}
+
 	/**
 	 * Return whether at least one consumer has entered a fixed registration with the
 	 * target destination. This is particularly interesting for the pub-sub case where
@@ -724,22 +809,79 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		this.taskExecutor.execute((Runnable) task);
 	}
 
+	/**
+	 * Records the time spent waiting for a message, as well as the received
+	 * message and its queue time, for the container's metrics. Applies to the
+	 * first message of a batch as well as to each further message.
+	 * @see #getConsumerMetrics()
+	 */
+	@Override
+	@Nullable
+	protected Message receiveFromConsumer(MessageConsumer consumer, long timeout) throws JMSException {
+		long start = System.nanoTime();
+		Message message = super.receiveFromConsumer(consumer, timeout);
+		long queueTime = -1;
+		if (message != null) {
+			long timestamp = message.getJMSTimestamp();
+			if (timestamp > 0) {
+				queueTime = Math.max(System.currentTimeMillis() - timestamp, 0);
+			}
+		}
+		this.consumerMetricsCollector.recordReceive(System.nanoTime() - start, message != null, queueTime);
+		return message;
+	}
+
 	/**
 	 * Tries scheduling a new invoker, since we know messages are coming in...
 	 * @see #scheduleNewInvokerIfAppropriate()
+	 * @see #updateConsumerMetricsIfNecessary()
 	 */
 	@Override
 	protected void messageReceived(Object invoker, Session session) {
-		((AsyncMessageListenerInvoker) invoker).setIdle(false);
-		scheduleNewInvokerIfAppropriate();
+		((AsyncMessageListenerInvoker) invoker).messageReceived();
+		updateConsumerMetricsIfNecessary();
+		if (this.consumerScalingPolicy == null) {
+			scheduleNewInvokerIfAppropriate();
+		}
 	}
 
 	/**
 	 * Marks the affected invoker as idle.
+	 * @see #updateConsumerMetricsIfNecessary()
 	 */
 	@Override
 	protected void noMessageReceived(Object invoker, Session session) {
 		((AsyncMessageListenerInvoker) invoker).setIdle(true);
+		updateConsumerMetricsIfNecessary();
+	}
+
+	/**
+	 * Update the container's metrics once the "consumerScalingInterval" has
+	 * elapsed, applying the "consumerScalingPolicy" (if any) to the new metrics.
+	 * @see #setConsumerScalingInterval
+	 * @see #setConsumerScalingPolicy
+	 */
+	protected void updateConsumerMetricsIfNecessary() {
+		if (!this.consumerMetricsCollector.updateIfNecessary()) {
+			return;
+		}
+		ConsumerScalingPolicy policy = this.consumerScalingPolicy;
+		if (policy != null && isRunning()) {
+			ConsumerMetrics metrics = getConsumerMetrics();
+			int consumerCount = policy.determineConsumerCount(metrics);
+			resumePausedTasks();
+			synchronized (this.lifecycleMonitor) {
+				this.targetConsumerCount = consumerCount;
+				int target = getTargetConsumerCount();
+				for (int i = this.scheduledInvokers.size(); i < target; i++) {
+					scheduleNewInvoker();
+				}
+				if (logger.isDebugEnabled() && target != metrics.getScheduledConsumerCount()) {
+					logger.debug("Adapting scheduled invoker count from " + metrics.getScheduledConsumerCount() +
+							" to " + target + " according to " + metrics);
+				}
+			}
+		}
 	}
 
 	/**
@@ -775,12 +917,23 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	 * that this invoker task has already accumulated (in a row)
 	 */
 	private boolean shouldRescheduleInvoker(int idleTaskExecutionCount) {
+		if (this.consumerScalingPolicy != null) {
+			return (this.scheduledInvokers.size() <= getTargetConsumerCount());
+		}
 		boolean superfluous =
 				(idleTaskExecutionCount >= this.idleTaskExecutionLimit && getIdleInvokerCount() > 1);
 		return (this.scheduledInvokers.size() <=
 				(superfluous ? this.concurrentConsumers : this.maxConcurrentConsumers));
 	}
 
+	/**
+	 * Determine the number of invokers to keep scheduled: the scaling policy's
+	 * most recent result, constrained to the current consumer limits.
+	 */
+	private int getTargetConsumerCount() {
+		return Math.min(Math.max(this.targetConsumerCount, this.concurrentConsumers), this.maxConcurrentConsumers);
+	}
+
 	/**
 	 * Determine whether this listener container currently has more
 	 * than one idle instance among its scheduled invokers.
@@ -1050,6 +1203,8 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 
 		private volatile boolean idle = true;
 
+		private long receiveTime;
+
 		@Override
 		public void run() {
 			synchronized (lifecycleMonitor) {
@@ -1157,7 +1312,8 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 					if (wasWaiting) {
 						activeInvokerCount++;
 					}
-					if (scheduledInvokers.size() > maxConcurrentConsumers) {
+					if (scheduledInvokers.size() > maxConcurrentConsumers || (consumerScalingPolicy != null &&
+							scheduledInvokers.size() > getTargetConsumerCount())) {
 						active = false;
 					}
 				}
@@ -1171,6 +1327,9 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		private boolean invokeListener() throws JMSException {
 			initResourcesIfNecessary();
 			boolean messageReceived = receiveAndExecute(this, this.session, this.consumer);
+			if (messageReceived) {
+				consumerMetricsCollector.recordProcessingTime(System.nanoTime() - this.receiveTime);
+			}
 			this.lastMessageSucceeded = true;
 			return messageReceived;
 		}
@@ -1243,6 +1402,11 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 			return (maxMessagesPerTask < 0);
 		}
 
+		public void messageReceived() {
+			this.idle = false;
+			this.receiveTime = System.nanoTime();
+		}
+
 		public void setIdle(boolean idle) {
 			this.idle = idle;
 		}
@@ -1252,4 +1416,214 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		}
 	}
 
+
+	/**
+	 * Collector for the load metrics of this listener container, accumulating
+	 * the measurements of all invokers within the current scaling interval
+	 * and smoothing the per-interval results exponentially.
+	 */
+	private class ConsumerMetricsCollector {
+
+		private static final double SMOOTHING_FACTOR = 0.5;
+
+		private final LongAdder messages = new LongAdder();
+
+		private final LongAdder receiveWaitNanos = new LongAdder();
+
+		private final LongAdder processingNanos = new LongAdder();
+
+		private final LongAdder queueTimeSamples = new LongAdder();
+
+		private final LongAdder queueTimeMillis = new LongAdder();
+
+		private volatile long lastUpdate = System.nanoTime();
+
+		private boolean initialized;
+
+		private long messageCount;
+
+		private double throughput;
+
+		private double averageProcessingTime;
+
+		private double averageQueueTime;
+
+		private double receiveWaitRatio = 1.0;
+
+		/**
+		 * Record a receive call.
+		 * @param waitNanos the time spent waiting within the call
+		 * @param received whether a message has been received
+		 * @param queueTimeMillis the queue time of the received message,
+		 * or -1 if not available
+		 */
+		public void recordReceive(long waitNanos, boolean received, long queueTimeMillis) {
+			this.receiveWaitNanos.add(waitNanos);
+			if (received) {
+				this.messages.increment();
+			}
+			if (queueTimeMillis >= 0) {
+				this.queueTimeSamples.increment();
+				this.queueTimeMillis.add(queueTimeMillis);
+			}
+		}
+
+		/**
+		 * Record the processing time of a delivery, i.e. of a single message
+		 * or of a batch of messages.
+		 */
+		public void recordProcessingTime(long nanos) {
+			this.processingNanos.add(nanos);
+		}
+
+		/**
+		 * Update the smoothed metrics if the scaling interval has elapsed.
+		 * @return {@code true} if updated, {@code false} if still within the interval
+		 */
+		public boolean updateIfNecessary() {
+			long now = System.nanoTime();
+			long interval = TimeUnit.MILLISECONDS.toNanos(consumerScalingInterval);
+			if (now - this.lastUpdate < interval) {
+				return false;
+			}
+			synchronized (this) {
+				if (now - this.lastUpdate < interval) {
+					return false;
+				}
+				long received = this.messages.sumThenReset();
+				long waitNanos = this.receiveWaitNanos.sumThenReset();
+				long processingNanos = this.processingNanos.sumThenReset();
+				long queueTimeSamples = this.queueTimeSamples.sumThenReset();
+				long queueTimeMillis = this.queueTimeMillis.sumThenReset();
+				double elapsedSeconds = Math.max(now - this.lastUpdate, 1) / 1e9;
+
+				this.messageCount += received;
+				this.throughput = smooth(this.throughput, received / elapsedSeconds);
+				if (received > 0) {
+					this.averageProcessingTime = smooth(this.averageProcessingTime, processingNanos / 1e6 / received);
+				}
+				if (waitNanos + processingNanos > 0) {
+					this.receiveWaitRatio = smooth(this.receiveWaitRatio,
+							(double) waitNanos / (waitNanos + processingNanos));
+				}
+				if (queueTimeSamples > 0) {
+					this.averageQueueTime = smooth(this.averageQueueTime, (double) queueTimeMillis / queueTimeSamples);
+				}
+				else if (received > 0 || waitNanos > 0) {
+					this.averageQueueTime = smooth(this.averageQueueTime, 0);
+				}
+				this.initialized = true;
+				this.lastUpdate = now;
+				return true;
+			}
+		}
+
+		private double smooth(double previous, double current) {
+			return (this.initialized ? previous + SMOOTHING_FACTOR * (current - previous) : current);
+		}
+
+		/**
+		 * Build a snapshot of the current metrics. To be called
+		 * while synchronized on the container's lifecycle monitor.
+		 */
+		public synchronized ConsumerMetrics getMetrics() {
+			return new ConsumerMetricsSnapshot(concurrentConsumers, maxConcurrentConsumers,
+					scheduledInvokers.size(), getIdleInvokerCount(), this.messageCount, this.throughput,
+					this.averageProcessingTime, this.averageQueueTime, this.receiveWaitRatio);
+		}
+	}
+
+
+	/**
+	 * Immutable {@link ConsumerMetrics} snapshot as exposed by this listener container.
+	 */
+	private static class ConsumerMetricsSnapshot implements ConsumerMetrics {
+
+		private final int minConsumerCount;
+
+		private final int maxConsumerCount;
+
+		private final int scheduledConsumerCount;
+
+		private final int idleConsumerCount;
+
+		private final long messageCount;
+
+		private final double throughput;
+
+		private final double averageProcessingTime;
+
+		private final double averageQueueTime;
+
+		private final double receiveWaitRatio;
+
+		public ConsumerMetricsSnapshot(int minConsumerCount, int maxConsumerCount, int scheduledConsumerCount,
+				int idleConsumerCount, long messageCount, double throughput, double averageProcessingTime,
+				double averageQueueTime, double receiveWaitRatio) {
+
+			this.minConsumerCount = minConsumerCount;
+			this.maxConsumerCount = maxConsumerCount;
+			this.scheduledConsumerCount = scheduledConsumerCount;
+			this.idleConsumerCount = idleConsumerCount;
+			this.messageCount = messageCount;
+			this.throughput = throughput;
+			this.averageProcessingTime = averageProcessingTime;
+			this.averageQueueTime = averageQueueTime;
+			this.receiveWaitRatio = receiveWaitRatio;
+		}
+
+		@Override
+		public int getMinConsumerCount() {
+			return this.minConsumerCount;
+		}
+
+		@Override
+		public int getMaxConsumerCount() {
+			return this.maxConsumerCount;
+		}
+
+		@Override
+		public int getScheduledConsumerCount() {
+			return this.scheduledConsumerCount;
+		}
+
+		@Override
+		public int getIdleConsumerCount() {
+			return this.idleConsumerCount;
+		}
+
+		@Override
+		public long getMessageCount() {
+			return this.messageCount;
+		}
+
+		@Override
+		public double getThroughput() {
+			return this.throughput;
+		}
+
+		@Override
+		public double getAverageProcessingTime() {
+			return this.averageProcessingTime;
+		}
+
+		@Override
+		public double getAverageQueueTime() {
+			return this.averageQueueTime;
+		}
+
+		@Override
+		public double getReceiveWaitRatio() {
+			return this.receiveWaitRatio;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("ConsumerMetrics: scheduled consumers %d (idle %d), throughput %.1f/s, " +
+					"average processing time %.1f ms, average queue time %.1f ms, receive wait ratio %.2f",
+					this.scheduledConsumerCount, this.idleConsumerCount, this.throughput,
+					this.averageProcessingTime, this.averageQueueTime, this.receiveWaitRatio);
+		}
+	}
+
 }
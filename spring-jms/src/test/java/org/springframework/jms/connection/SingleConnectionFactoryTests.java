@@ -529,4 +529,148 @@ public class SingleConnectionFactoryTests {
 		verify(con).close();
 	}
 
+
+	@Test
+	public void testConcurrentCachingConnectionFactory() throws JMSException {
+		ConnectionFactory cf = mock(ConnectionFactory.class);
+		Connection con = mock(Connection.class);
+		Session txSession = mock(Session.class);
+		Session nonTxSession = mock(Session.class);
+
+		given(cf.createConnection()).willReturn(con);
+		given(con.createSession(true, Session.AUTO_ACKNOWLEDGE)).willReturn(txSession);
+		given(txSession.getTransacted()).willReturn(true);
+		given(con.createSession(false, Session.CLIENT_ACKNOWLEDGE)).willReturn(nonTxSession);
+
+		ConcurrentCachingConnectionFactory scf = new ConcurrentCachingConnectionFactory(cf);
+		scf.setReconnectOnException(false);
+		Connection con1 = scf.createConnection();
+		Session session1 = con1.createSession(true, Session.AUTO_ACKNOWLEDGE);
+		session1.getTransacted();
+		session1.close();
+		session1.close();  // should be ignored
+		session1 = con1.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+		session1.close();
+		con1.start();
+		Connection con2 = scf.createConnection();
+		Session session2 = con2.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+		session2.close();
+		session2 = con2.createSession(true, Session.AUTO_ACKNOWLEDGE);
+		session2.commit();
+		session2.close();
+		con2.start();
+		con1.close();
+		con2.close();
+
+		assertEquals(2, scf.getSessionCacheHitCount());
+		assertEquals(2, scf.getSessionCacheMissCount());
+		assertEquals(2, scf.getCachedSessionCount());
+		scf.destroy();  // should trigger actual close
+		assertEquals(0, scf.getCachedSessionCount());
+
+		verify(txSession).commit();
+		verify(txSession).close();
+		verify(nonTxSession).close();
+		verify(con).start();
+		verify(con).stop();
+		verify(con).close();
+	}
+
+	@Test
+	public void testConcurrentCachingConnectionFactoryWithSessionCacheSizeExceeded() throws JMSException {
+		ConnectionFactory cf = mock(ConnectionFactory.class);
+		Connection con = mock(Connection.class);
+		Session session = mock(Session.class);
+		Session otherSession = mock(Session.class);
+
+		given(cf.createConnection()).willReturn(con);
+		given(con.createSession(false, Session.AUTO_ACKNOWLEDGE)).willReturn(session, otherSession);
+
+		ConcurrentCachingConnectionFactory scf = new ConcurrentCachingConnectionFactory(cf);
+		scf.setSessionCacheSize(1);
+		Connection con1 = scf.createConnection();
+		Session session1 = con1.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		Session session2 = con1.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		session1.close();
+		session2.close();  // exceeds cache size of 1
+		assertSame(session1, con1.createSession(false, Session.AUTO_ACKNOWLEDGE));
+		con1.close();
+
+		assertEquals(1, scf.getSessionCacheHitCount());
+		assertEquals(2, scf.getSessionCacheMissCount());
+		verify(session, never()).close();
+		verify(otherSession).close();
+	}
+
+	@Test
+	public void testConcurrentCachingConnectionFactoryWithMultipleConnections() throws JMSException {
+		ConnectionFactory cf = mock(ConnectionFactory.class);
+		Connection con = mock(Connection.class);
+		Connection otherCon = mock(Connection.class);
+		Session session = mock(Session.class);
+		Session otherSession = mock(Session.class);
+
+		given(cf.createConnection()).willReturn(con, otherCon);
+		given(con.createSession(false, Session.AUTO_ACKNOWLEDGE)).willReturn(session);
+		given(otherCon.createSession(false, Session.AUTO_ACKNOWLEDGE)).willReturn(otherSession);
+
+		ConcurrentCachingConnectionFactory scf = new ConcurrentCachingConnectionFactory(cf);
+		scf.setReconnectOnException(false);
+		scf.setConnectionCount(2);
+		scf.setSessionCacheSize(2);
+		Connection con1 = scf.createConnection();
+		Session session1 = con1.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		Session session2 = con1.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		assertSame(session, ((SessionProxy) session1).getTargetSession());
+		assertSame(otherSession, ((SessionProxy) session2).getTargetSession());
+		session1.close();
+		session2.close();
+		con1.close();
+		scf.destroy();
+
+		verify(otherCon).start();
+		verify(session).close();
+		verify(otherSession).close();
+		verify(con).close();
+		verify(otherCon).close();
+	}
+
+	@Test
+	public void testConcurrentCachingConnectionFactoryDefaultSessionCacheSize() {
+		ConcurrentCachingConnectionFactory scf = new ConcurrentCachingConnectionFactory();
+		assertEquals(Runtime.getRuntime().availableProcessors(), scf.getSessionCacheSize());
+	}
+
+	@Test
+	public void testConcurrentCachingConnectionFactoryWithExceptionDuringSessionCreation() throws JMSException {
+		ConnectionFactory cf = mock(ConnectionFactory.class);
+		Connection con = mock(Connection.class);
+		Connection otherCon = mock(Connection.class);
+		Session session = mock(Session.class);
+		Session otherSession = mock(Session.class);
+		ConcurrentCachingConnectionFactory scf = new ConcurrentCachingConnectionFactory(cf);
+
+		given(cf.createConnection()).willReturn(con, otherCon);
+		given(con.createSession(false, Session.AUTO_ACKNOWLEDGE)).willAnswer(invocation -> {
+			// Provider notifying the ExceptionListener synchronously
+			scf.onException(new JMSException("Connection lost"));
+			return session;
+		});
+		given(otherCon.createSession(false, Session.AUTO_ACKNOWLEDGE)).willReturn(otherSession);
+
+		Connection con1 = scf.createConnection();
+		Session session1 = con1.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		verify(con).close();
+		session1.close();
+		verify(session).close();
+
+		Connection con2 = scf.createConnection();
+		Session session2 = con2.createSession(false, Session.AUTO_ACKNOWLEDGE);
+		assertSame(otherSession, ((SessionProxy) session2).getTargetSession());
+		session2.close();
+		scf.destroy();
+		verify(otherSession).close();
+		verify(otherCon).close();
+	}
+
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class AdaptiveConsumerScalingPolicyTests {
+
+	private final AdaptiveConsumerScalingPolicy policy = new AdaptiveConsumerScalingPolicy();
+
+
+	@Test
+	public void scaleUpOnBacklog() {
+		assertEquals(2, this.policy.determineConsumerCount(new TestMetrics(1, 10, 100, 0.0)));
+		assertEquals(6, this.policy.determineConsumerCount(new TestMetrics(4, 10, 100, 0.05)));
+	}
+
+	@Test
+	public void scaleUpOnExceededTargetLatency() {
+		this.policy.setTargetLatency(500);
+		TestMetrics metrics = new TestMetrics(2, 30, 50, 0.5);
+		metrics.averageQueueTime = 480;
+		assertEquals(3, this.policy.determineConsumerCount(metrics));
+
+		metrics.averageQueueTime = 100;
+		assertEquals(2, this.policy.determineConsumerCount(metrics));
+	}
+
+	@Test
+	public void keepConsumersRequiredForThroughput() {
+		// 30 messages per second at 50 ms each -> 1.5 busy consumers, 2 at 75% utilization
+		assertEquals(2, this.policy.determineConsumerCount(new TestMetrics(2, 30, 50, 0.5)));
+	}
+
+	@Test
+	public void scaleDownGradually() {
+		assertEquals(4, this.policy.determineConsumerCount(new TestMetrics(5, 0, 50, 1.0)));
+		assertEquals(4, this.policy.determineConsumerCount(new TestMetrics(5, 30, 50, 0.5)));
+	}
+
+	@Test
+	public void customThresholds() {
+		this.policy.setBacklogThreshold(0.5);
+		this.policy.setScaleUpFactor(2);
+		assertEquals(8, this.policy.determineConsumerCount(new TestMetrics(4, 30, 50, 0.5)));
+
+		this.policy.setTargetUtilization(0.25);
+		assertEquals(6, this.policy.determineConsumerCount(new TestMetrics(6, 30, 50, 0.8)));
+		assertEquals(6, this.policy.determineConsumerCount(new TestMetrics(7, 30, 50, 0.8)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidBacklogThreshold() {
+		this.policy.setBacklogThreshold(1.5);
+	}
+
+
+	private static class TestMetrics implements ConsumerMetrics {
+
+		private final int scheduledConsumerCount;
+
+		private final double throughput;
+
+		private final double averageProcessingTime;
+
+		private final double receiveWaitRatio;
+
+		private double averageQueueTime;
+
+		public TestMetrics(int scheduledConsumerCount, double throughput,
+				double averageProcessingTime, double receiveWaitRatio) {
+
+			this.scheduledConsumerCount = scheduledConsumerCount;
+			this.throughput = throughput;
+			this.averageProcessingTime = averageProcessingTime;
+			this.receiveWaitRatio = receiveWaitRatio;
+		}
+
+		@Override
+		public int getMinConsumerCount() {
+			return 1;
+		}
+
+		@Override
+		public int getMaxConsumerCount() {
+			return 10;
+		}
+
+		@Override
+		public int getScheduledConsumerCount() {
+			return this.scheduledConsumerCount;
+		}
+
+		@Override
+		public int getIdleConsumerCount() {
+			return 0;
+		}
+
+		@Override
+		public long getMessageCount() {
+			return 0;
+		}
+
+		@Override
+		public double getThroughput() {
+			return this.throughput;
+		}
+
+		@Override
+		public double getAverageProcessingTime() {
+			return this.averageProcessingTime;
+		}
+
+		@Override
+		public double getAverageQueueTime() {
+			return this.averageQueueTime;
+		}
+
+		@Override
+		public double getReceiveWaitRatio() {
+			return this.receiveWaitRatio;
+		}
+	}
+
+}
@@ -16,12 +16,19 @@
 
 package org.springframework.jms.listener;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.Destination;
 import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
 
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
@@ -102,6 +109,110 @@ public class DefaultMessageListenerContainerTests {
 		runnable2.waitForCompletion();
 	}
 
+	@Test
+	public void batchListenerReceivesBatchAndCommitsOnce() throws JMSException {
+		Message message1 = mock(Message.class);
+		Message message2 = mock(Message.class);
+		Message message3 = mock(Message.class);
+		Session session = mock(Session.class);
+		given(session.getTransacted()).willReturn(true);
+		MessageConsumer consumer = mock(MessageConsumer.class);
+		given(consumer.receive(DefaultMessageListenerContainer.DEFAULT_RECEIVE_TIMEOUT)).willReturn(message1);
+		given(consumer.receiveNoWait()).willReturn(message2, message3, mock(Message.class));
+		List<List<Message>> batches = new ArrayList<>();
+
+		DefaultMessageListenerContainer container = createBatchContainer(3);
+		container.setMessageListener((BatchMessageListener) (messages, s) -> batches.add(messages));
+		assertTrue(container.receiveAndExecute(this, session, consumer));
+
+		assertEquals(1, batches.size());
+		assertEquals(Arrays.asList(message1, message2, message3), batches.get(0));
+		verify(consumer, times(2)).receiveNoWait();
+		verify(session).commit();
+		verify(session, never()).rollback();
+	}
+
+	@Test
+	public void batchEndsWhenNoFurtherMessageAvailable() throws JMSException {
+		Message message1 = mock(Message.class);
+		Message message2 = mock(Message.class);
+		Session session = mock(Session.class);
+		given(session.getTransacted()).willReturn(true);
+		MessageConsumer consumer = mock(MessageConsumer.class);
+		given(consumer.receive(DefaultMessageListenerContainer.DEFAULT_RECEIVE_TIMEOUT)).willReturn(message1);
+		given(consumer.receiveNoWait()).willReturn(message2, null);
+		List<Message> received = new ArrayList<>();
+
+		DefaultMessageListenerContainer container = createBatchContainer(10);
+		container.setMessageListener((MessageListener) received::add);
+		assertTrue(container.receiveAndExecute(this, session, consumer));
+
+		assertEquals(Arrays.asList(message1, message2), received);
+		verify(session).commit();
+	}
+
+	@Test
+	public void batchRolledBackOnListenerException() throws JMSException {
+		Session session = mock(Session.class);
+		given(session.getTransacted()).willReturn(true);
+		MessageConsumer consumer = mock(MessageConsumer.class);
+		given(consumer.receive(DefaultMessageListenerContainer.DEFAULT_RECEIVE_TIMEOUT)).willReturn(mock(Message.class));
+		given(consumer.receiveNoWait()).willReturn(mock(Message.class));
+
+		DefaultMessageListenerContainer container = createBatchContainer(2);
+		container.setMessageListener((BatchMessageListener) (messages, s) -> {
+			throw new IllegalStateException("Test exception");
+		});
+		container.setErrorHandler(ex -> {});
+		assertTrue(container.receiveAndExecute(this, session, consumer));
+
+		verify(session).rollback();
+		verify(session, never()).commit();
+	}
+
+	@Test
+	public void consumerScalingPolicyAppliedToScheduledConsumers() throws Exception {
+		MessageConsumer consumer = mock(MessageConsumer.class);
+		given(consumer.receive(anyLong())).willAnswer(invocation -> {
+			Thread.sleep(1);
+			return null;
+		});
+		Session session = mock(Session.class);
+		given(session.createConsumer(any(Destination.class), any())).willReturn(consumer);
+		Connection connection = mock(Connection.class);
+		given(connection.createSession(false, Session.AUTO_ACKNOWLEDGE)).willReturn(session);
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		given(connectionFactory.createConnection()).willReturn(connection);
+
+		DefaultMessageListenerContainer container = createContainer(connectionFactory);
+		container.setMessageListener((MessageListener) message -> {});
+		container.setMaxConcurrentConsumers(3);
+		container.setConsumerScalingPolicy(metrics -> 5);
+		container.setConsumerScalingInterval(10);
+		container.afterPropertiesSet();
+		container.start();
+		try {
+			for (int i = 0; i < 200 && container.getScheduledConsumerCount() < 3; i++) {
+				Thread.sleep(10);
+			}
+			assertEquals(3, container.getScheduledConsumerCount());
+			ConsumerMetrics metrics = container.getConsumerMetrics();
+			assertEquals(1, metrics.getMinConsumerCount());
+			assertEquals(3, metrics.getMaxConsumerCount());
+			assertEquals(0, metrics.getMessageCount());
+			assertEquals(1.0, metrics.getReceiveWaitRatio(), 0.0);
+
+			container.setConsumerScalingPolicy(metrics1 -> 1);
+			for (int i = 0; i < 200 && container.getScheduledConsumerCount() > 1; i++) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, container.getScheduledConsumerCount());
+		}
+		finally {
+			container.shutdown();
+		}
+	}
+
 
 	private DefaultMessageListenerContainer createRunningContainer() {
 		DefaultMessageListenerContainer container = createContainer(createSuccessfulConnectionFactory());
@@ -120,6 +231,23 @@ public class DefaultMessageListenerContainerTests {
 		return container;
 	}
 
+	private DefaultMessageListenerContainer createBatchContainer(int batchSize) {
+		DefaultMessageListenerContainer container = new DefaultMessageListenerContainer() {
+			@Override
+			protected void messageReceived(Object invoker, Session session) {
+			}
+			@Override
+			protected void noMessageReceived(Object invoker, Session session) {
+			}
+		};
+		container.setConnectionFactory(mock(ConnectionFactory.class));
+		container.setDestination(new Destination() {});
+		container.setSessionTransacted(true);
+		container.setAcceptMessagesWhileStopping(true);
+		container.setBatchSize(batchSize);
+		return container;
+	}
+
 	private ConnectionFactory createFailingContainerFactory() {
 		try {
 			ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
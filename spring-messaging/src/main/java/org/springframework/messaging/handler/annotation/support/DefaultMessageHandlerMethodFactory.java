@@ -145,6 +145,9 @@ public class DefaultMessageHandlerMethodFactory implements MessageHandlerMethodF
 	public InvocableHandlerMethod createInvocableHandlerMethod(Object bean, Method method) {
 		InvocableHandlerMethod handlerMethod = new InvocableHandlerMethod(bean, method);
 		handlerMethod.setMessageMethodArgumentResolvers(this.argumentResolvers);
+		if (!this.argumentResolvers.getResolvers().isEmpty()) {
+			handlerMethod.prepareArgumentResolvers();
+		}
 		return handlerMethod;
 	}
 
@@ -320,7 +320,7 @@ public abstract class AbstractMethodMessageHandler<T>
 					oldHandlerMethod.getBean() + "' bean method\n" + oldHandlerMethod + " mapped.");
 		}
 
-		this.handlerMethods.put(mapping, newHandlerMethod);
+		this.handlerMethods.put(mapping, createInvocableHandlerMethod(newHandlerMethod));
 		if (logger.isInfoEnabled()) {
 			logger.info("Mapped \"" + mapping + "\" onto " + newHandlerMethod);
 		}
@@ -347,6 +347,20 @@ public abstract class AbstractMethodMessageHandler<T>
 		return handlerMethod;
 	}
 
+	/**
+	 * Create the InvocableHandlerMethod to register for the given HandlerMethod,
+	 * with its parameters bound to the configured argument resolvers upfront
+	 * (unless argument resolvers have not been initialized yet).
+	 */
+	private InvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+		InvocableHandlerMethod invocable = new InvocableHandlerMethod(handlerMethod);
+		invocable.setMessageMethodArgumentResolvers(this.argumentResolvers);
+		if (!this.argumentResolvers.getResolvers().isEmpty()) {
+			invocable.prepareArgumentResolvers();
+		}
+		return invocable;
+	}
+
 	/**
 	 * Return destinations contained in the mapping that are not patterns and are
 	 * therefore suitable for direct lookups.
@@ -493,9 +507,15 @@ public abstract class AbstractMethodMessageHandler<T>
 		if (logger.isDebugEnabled()) {
 			logger.debug("Invoking " + handlerMethod.getShortLogMessage());
 		}
-		handlerMethod = handlerMethod.createWithResolvedBean();
-		InvocableHandlerMethod invocable = new InvocableHandlerMethod(handlerMethod);
-		invocable.setMessageMethodArgumentResolvers(this.argumentResolvers);
+		InvocableHandlerMethod invocable;
+		if (handlerMethod instanceof InvocableHandlerMethod) {
+			invocable = ((InvocableHandlerMethod) handlerMethod).createWithResolvedBean();
+		}
+		else {
+			invocable = new InvocableHandlerMethod(handlerMethod.createWithResolvedBean());
+			invocable.setMessageMethodArgumentResolvers(this.argumentResolvers);
+		}
+		handlerMethod = invocable;
 		try {
 			Object returnValue = invocable.invoke(message);
 			MethodParameter returnType = handlerMethod.getReturnType();
@@ -37,6 +37,11 @@ import org.springframework.util.ReflectionUtils;
  *
  * <p>Use {@link #setMessageMethodArgumentResolvers} to customize the list of argument resolvers.
  *
+ * <p>Each method parameter gets bound to the argument resolver supporting it once,
+ * either upfront through {@link #prepareArgumentResolvers()} or on first invocation.
+ * Subsequent invocations use the bound resolvers directly, and instances derived
+ * through {@link #createWithResolvedBean()} share those bindings.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0
@@ -47,6 +52,9 @@ public class InvocableHandlerMethod extends HandlerMethod {
 
 	private ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
 
+	@Nullable
+	private volatile HandlerMethodArgumentResolver[] boundArgumentResolvers;
+
 
 	/**
 	 * Create an instance from a {@code HandlerMethod}.
@@ -81,6 +89,7 @@ public class InvocableHandlerMethod extends HandlerMethod {
 	 */
 	public void setMessageMethodArgumentResolvers(HandlerMethodArgumentResolverComposite argumentResolvers) {
 		this.argumentResolvers = argumentResolvers;
+		this.boundArgumentResolvers = null;
 	}
 
 	/**
@@ -90,6 +99,65 @@ public class InvocableHandlerMethod extends HandlerMethod {
 	 */
 	public void setParameterNameDiscoverer(ParameterNameDiscoverer parameterNameDiscoverer) {
 		this.parameterNameDiscoverer = parameterNameDiscoverer;
+		this.boundArgumentResolvers = null;
+	}
+
+	/**
+	 * Bind each method parameter to the first configured argument resolver that
+	 * supports it, so that invocations do not have to look up a resolver for every
+	 * parameter again. Parameters without a supporting resolver can only be satisfied
+	 * through provided arguments then.
+	 * <p>This happens on first invocation if not called upfront, e.g. at startup.
+	 * The argument resolvers should be fully configured at this point.
+	 * @since 5.0
+	 * @see #setMessageMethodArgumentResolvers
+	 */
+	public void prepareArgumentResolvers() {
+		this.boundArgumentResolvers = bindArgumentResolvers();
+	}
+
+	private HandlerMethodArgumentResolver[] bindArgumentResolvers() {
+		MethodParameter[] parameters = getMethodParameters();
+		HandlerMethodArgumentResolver[] resolvers = new HandlerMethodArgumentResolver[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			MethodParameter parameter = parameters[i];
+			parameter.initParameterNameDiscovery(this.parameterNameDiscoverer);
+			for (HandlerMethodArgumentResolver resolver : this.argumentResolvers.getResolvers()) {
+				if (resolver.supportsParameter(parameter)) {
+					resolvers[i] = resolver;
+					break;
+				}
+			}
+		}
+		return resolvers;
+	}
+
+	/**
+	 * Re-create this handler method with the resolved handler, sharing its
+	 * argument resolver configuration and bindings.
+	 * <p>Returns this instance itself if the handler is a bean instance already.
+	 * @since 5.0
+	 * @see #prepareArgumentResolvers()
+	 */
+	@Override
+	public InvocableHandlerMethod createWithResolvedBean() {
+		if (!(getBean() instanceof String)) {
+			return this;
+		}
+		InvocableHandlerMethod invocable = new InvocableHandlerMethod(super.createWithResolvedBean());
+		invocable.argumentResolvers = this.argumentResolvers;
+		invocable.parameterNameDiscoverer = this.parameterNameDiscoverer;
+		invocable.boundArgumentResolvers = getBoundArgumentResolvers();
+		return invocable;
+	}
+
+	private HandlerMethodArgumentResolver[] getBoundArgumentResolvers() {
+		HandlerMethodArgumentResolver[] resolvers = this.boundArgumentResolvers;
+		if (resolvers == null) {
+			resolvers = bindArgumentResolvers();
+			this.boundArgumentResolvers = resolvers;
+		}
+		return resolvers;
 	}
 
 
@@ -124,30 +192,30 @@ public class InvocableHandlerMethod extends HandlerMethod {
 	 */
 	private Object[] getMethodArgumentValues(Message<?> message, Object... providedArgs) throws Exception {
 		MethodParameter[] parameters = getMethodParameters();
+		HandlerMethodArgumentResolver[] resolvers = getBoundArgumentResolvers();
 		Object[] args = new Object[parameters.length];
 		for (int i = 0; i < parameters.length; i++) {
 			MethodParameter parameter = parameters[i];
-			parameter.initParameterNameDiscovery(this.parameterNameDiscoverer);
-			args[i] = resolveProvidedArgument(parameter, providedArgs);
-			if (args[i] != null) {
-				continue;
-			}
-			if (this.argumentResolvers.supportsParameter(parameter)) {
-				try {
-					args[i] = this.argumentResolvers.resolveArgument(parameter, message);
+			if (providedArgs.length > 0) {
+				args[i] = resolveProvidedArgument(parameter, providedArgs);
+				if (args[i] != null) {
 					continue;
 				}
-				catch (Exception ex) {
-					if (logger.isDebugEnabled()) {
-						logger.debug(getArgumentResolutionErrorMessage("Failed to resolve", i), ex);
-					}
-					throw ex;
-				}
 			}
-			if (args[i] == null) {
+			HandlerMethodArgumentResolver resolver = resolvers[i];
+			if (resolver == null) {
 				throw new MethodArgumentResolutionException(message, parameter,
 						getArgumentResolutionErrorMessage("No suitable resolver for", i));
 			}
+			try {
+				args[i] = resolver.resolveArgument(parameter, message);
+			}
+			catch (Exception ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(getArgumentResolutionErrorMessage("Failed to resolve", i), ex);
+				}
+				throw ex;
+			}
 		}
 		return args;
 	}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+
+/**
+ * Contract for exchanging messages between the nodes of a cluster of
+ * {@link SimpleBrokerMessageHandler} instances.
+ *
+ * <p>The broker uses the transport to gossip summaries of its local
+ * subscriptions to all other nodes, and to forward published messages to
+ * those nodes whose summaries indicate matching subscribers. Messages passed
+ * to the transport have {@link java.io.Serializable} payloads and headers
+ * unless the application publishes non-serializable payloads itself.
+ *
+ * @author agent
+ * @since 5.0
+ * @see SimpleBrokerMessageHandler#setClusterTransport
+ * @see SocketBrokerClusterTransport
+ */
+public interface BrokerClusterTransport {
+
+	/**
+	 * Return the id of the local node, unique within the cluster.
+	 * <p>Only required to be available after {@link #start}.
+	 */
+	String getLocalNodeId();
+
+	/**
+	 * Start the transport, passing messages received from other nodes
+	 * to the given handler.
+	 */
+	void start(MessageHandler messageHandler);
+
+	/**
+	 * Stop the transport, releasing any resources held.
+	 */
+	void stop();
+
+	/**
+	 * Send the given message to all other nodes of the cluster.
+	 * <p>Delivery is best-effort: failures to reach individual nodes are
+	 * expected to be handled (e.g. logged) by the transport itself.
+	 */
+	void broadcast(Message<?> message);
+
+	/**
+	 * Send the given message to the specified node.
+	 * @param nodeId the id of the target node, as previously reported by the
+	 * {@link #getLocalNodeId() local node id} of the transport on that node
+	 * @param message the message to send
+	 */
+	void send(String nodeId, Message<?> message);
+
+}
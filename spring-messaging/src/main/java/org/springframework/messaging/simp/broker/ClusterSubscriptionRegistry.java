@@ -0,0 +1,283 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.PathMatcher;
+
+/**
+ * Keeps track of the destinations subscribed to on the local broker node,
+ * for gossiping to other nodes in the form of a {@link SubscriptionSummary},
+ * and of the summaries received from other nodes, for determining the nodes
+ * that a published message needs to be forwarded to.
+ *
+ * <p>Summaries only contain destinations (or destination patterns) and no
+ * selectors, so a message may be forwarded to a node where a selector
+ * turns out not to match. This is harmless since the receiving node applies
+ * its own subscription registry to messages from other nodes.
+ *
+ * @author agent
+ * @since 5.0
+ * @see SimpleBrokerMessageHandler#setClusterTransport
+ */
+class ClusterSubscriptionRegistry {
+
+	private final PathMatcher pathMatcher;
+
+	private final long expirationPeriod;
+
+	/* sessionId -> subscriptionId -> destination */
+	private final Map<String, Map<String, String>> localSubscriptions = new HashMap<>();
+
+	/* destination -> number of local subscriptions */
+	private final Map<String, Integer> localDestinations = new HashMap<>();
+
+	private long localVersion;
+
+	private long publishedVersion = -1;
+
+	private long publishedTime;
+
+	private final Map<String, RemoteSummary> remoteSummaries = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Create a new registry.
+	 * @param pathMatcher the matcher for destination patterns in remote summaries
+	 * @param expirationPeriod the time in milliseconds after which a remote
+	 * summary expires unless refreshed by its node
+	 */
+	public ClusterSubscriptionRegistry(PathMatcher pathMatcher, long expirationPeriod) {
+		this.pathMatcher = pathMatcher;
+		this.expirationPeriod = expirationPeriod;
+	}
+
+
+	// Local subscriptions
+
+	/**
+	 * Register a local subscription.
+	 * @return {@code true} if the set of local destinations changed as a result
+	 */
+	public synchronized boolean addSubscription(String sessionId, String subscriptionId, String destination) {
+		long version = this.localVersion;
+		Map<String, String> subscriptions = this.localSubscriptions.computeIfAbsent(sessionId, id -> new HashMap<>(4));
+		String previous = subscriptions.put(subscriptionId, destination);
+		if (destination.equals(previous)) {
+			return false;
+		}
+		if (previous != null) {
+			decrementDestination(previous);
+		}
+		if (this.localDestinations.merge(destination, 1, Integer::sum) == 1) {
+			this.localVersion++;
+		}
+		return (this.localVersion != version);
+	}
+
+	/**
+	 * Remove a local subscription.
+	 * @return {@code true} if the set of local destinations changed as a result
+	 */
+	public synchronized boolean removeSubscription(String sessionId, String subscriptionId) {
+		long version = this.localVersion;
+		Map<String, String> subscriptions = this.localSubscriptions.get(sessionId);
+		if (subscriptions != null) {
+			String destination = subscriptions.remove(subscriptionId);
+			if (destination != null) {
+				decrementDestination(destination);
+			}
+			if (subscriptions.isEmpty()) {
+				this.localSubscriptions.remove(sessionId);
+			}
+		}
+		return (this.localVersion != version);
+	}
+
+	/**
+	 * Remove all local subscriptions of the given session.
+	 * @return {@code true} if the set of local destinations changed as a result
+	 */
+	public synchronized boolean removeSession(String sessionId) {
+		long version = this.localVersion;
+		Map<String, String> subscriptions = this.localSubscriptions.remove(sessionId);
+		if (subscriptions != null) {
+			subscriptions.values().forEach(this::decrementDestination);
+		}
+		return (this.localVersion != version);
+	}
+
+	private void decrementDestination(String destination) {
+		if (this.localDestinations.computeIfPresent(destination, (key, count) -> (count > 1 ? count - 1 : null)) == null) {
+			this.localVersion++;
+		}
+	}
+
+	/**
+	 * Return the summary of the local subscriptions if it changed since it was
+	 * last returned, or if it needs to be refreshed before expiring on other nodes.
+	 * @param nodeId the id of the local node
+	 * @param now the current time in milliseconds
+	 * @return the summary to broadcast, or {@code null} if none is necessary
+	 */
+	@Nullable
+	public synchronized SubscriptionSummary getSummaryToPublish(String nodeId, long now) {
+		if (this.localVersion == this.publishedVersion && (now - this.publishedTime) < this.expirationPeriod / 3) {
+			return null;
+		}
+		this.publishedVersion = this.localVersion;
+		this.publishedTime = now;
+		return new SubscriptionSummary(nodeId, new HashSet<>(this.localDestinations.keySet()));
+	}
+
+	/**
+	 * Return the destinations currently subscribed to on the local node.
+	 */
+	public synchronized Set<String> getLocalDestinations() {
+		return new HashSet<>(this.localDestinations.keySet());
+	}
+
+
+	// Remote summaries
+
+	/**
+	 * Register the given summary from another node, replacing any previous
+	 * summary from the same node. An empty summary removes the node.
+	 */
+	public void updateRemoteSummary(SubscriptionSummary summary, long now) {
+		if (summary.getDestinations().isEmpty()) {
+			this.remoteSummaries.remove(summary.getNodeId());
+		}
+		else {
+			this.remoteSummaries.put(summary.getNodeId(),
+					new RemoteSummary(summary.getDestinations(), now + this.expirationPeriod, this.pathMatcher));
+		}
+	}
+
+	public void purgeExpiredSummaries(long now) {
+		this.remoteSummaries.values().removeIf(summary -> summary.isExpired(now));
+	}
+
+	/**
+	 * Return the ids of the other nodes with subscriptions matching the given
+	 * destination, according to their latest summaries.
+	 */
+	public List<String> findNodes(String destination, long now) {
+		List<String> nodeIds = null;
+		for (Map.Entry<String, RemoteSummary> entry : this.remoteSummaries.entrySet()) {
+			RemoteSummary summary = entry.getValue();
+			if (!summary.isExpired(now) && summary.matches(destination, this.pathMatcher)) {
+				if (nodeIds == null) {
+					nodeIds = new ArrayList<>(4);
+				}
+				nodeIds.add(entry.getKey());
+			}
+		}
+		return (nodeIds != null ? nodeIds : Collections.emptyList());
+	}
+
+	/**
+	 * Return the ids of the other nodes with a current summary.
+	 */
+	public Set<String> getRemoteNodeIds() {
+		return Collections.unmodifiableSet(this.remoteSummaries.keySet());
+	}
+
+
+	/**
+	 * The destinations subscribed to on a node, as exchanged between nodes.
+	 */
+	@SuppressWarnings("serial")
+	static final class SubscriptionSummary implements Serializable {
+
+		private final String nodeId;
+
+		private final Set<String> destinations;
+
+		public SubscriptionSummary(String nodeId, Set<String> destinations) {
+			this.nodeId = nodeId;
+			this.destinations = destinations;
+		}
+
+		public String getNodeId() {
+			return this.nodeId;
+		}
+
+		public Set<String> getDestinations() {
+			return this.destinations;
+		}
+
+		@Override
+		public String toString() {
+			return "SubscriptionSummary[node=" + this.nodeId + ", destinations=" + this.destinations + "]";
+		}
+	}
+
+
+	/**
+	 * A summary received from another node, with exact destinations separated
+	 * from patterns for constant-time lookups of the former.
+	 */
+	private static class RemoteSummary {
+
+		private final Set<String> destinations = new HashSet<>();
+
+		private final Set<String> patterns = new LinkedHashSet<>();
+
+		private final long expirationTime;
+
+		public RemoteSummary(Set<String> destinations, long expirationTime, PathMatcher pathMatcher) {
+			for (String destination : destinations) {
+				if (pathMatcher.isPattern(destination)) {
+					this.patterns.add(destination);
+				}
+				else {
+					this.destinations.add(destination);
+				}
+			}
+			this.expirationTime = expirationTime;
+		}
+
+		public boolean isExpired(long now) {
+			return (now > this.expirationTime);
+		}
+
+		public boolean matches(String destination, PathMatcher pathMatcher) {
+			if (this.destinations.contains(destination)) {
+				return true;
+			}
+			for (String pattern : this.patterns) {
+				if (pathMatcher.match(pattern, destination)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
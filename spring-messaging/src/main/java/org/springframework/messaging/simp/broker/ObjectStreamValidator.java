@@ -0,0 +1,352 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Walks through a serialized object in the Java serialization stream format
+ * without instantiating anything, rejecting the stream if it exceeds a
+ * maximum nesting depth or a maximum number of objects, or if it declares an
+ * array longer than the rest of the stream.
+ *
+ * <p>Meant to run before an {@link java.io.ObjectInputStream} reads the same
+ * stream, since the latter allocates arrays and fills collections before any
+ * of its hooks can see the objects. Only the subset of the format written by
+ * a plain {@link java.io.ObjectOutputStream} for a single object is accepted:
+ * dynamic proxies, resets and serialized exceptions are rejected.
+ *
+ * @author agent
+ * @since 5.0
+ * @see SocketBrokerClusterTransport
+ */
+final class ObjectStreamValidator {
+
+	private final ByteBuffer buffer;
+
+	private final int maxDepth;
+
+	private final int maxObjects;
+
+	/* Wire handle -> class descriptor, or null for other objects */
+	private final List<ClassDesc> handles = new ArrayList<>();
+
+	private int depth;
+
+
+	private ObjectStreamValidator(byte[] stream, int maxDepth, int maxObjects) {
+		this.buffer = ByteBuffer.wrap(stream);
+		this.maxDepth = maxDepth;
+		this.maxObjects = maxObjects;
+	}
+
+
+	/**
+	 * Validate the given serialized object.
+	 * @param stream the serialized object, including the stream header
+	 * @param maxDepth the maximum nesting depth of objects and class descriptors
+	 * @param maxObjects the maximum number of objects, including strings,
+	 * arrays and class descriptors
+	 * @throws InvalidObjectException if a limit is exceeded
+	 * @throws StreamCorruptedException if the stream is malformed or unsupported
+	 */
+	public static void validate(byte[] stream, int maxDepth, int maxObjects) throws IOException {
+		ObjectStreamValidator validator = new ObjectStreamValidator(stream, maxDepth, maxObjects);
+		try {
+			validator.validateStream();
+		}
+		catch (BufferUnderflowException ex) {
+			throw new StreamCorruptedException("Unexpected end of serialized object");
+		}
+	}
+
+
+	private void validateStream() throws IOException {
+		if (this.buffer.getShort() != ObjectStreamConstants.STREAM_MAGIC ||
+				this.buffer.getShort() != ObjectStreamConstants.STREAM_VERSION) {
+			throw new StreamCorruptedException("Invalid stream header");
+		}
+		readObject();
+		if (this.buffer.hasRemaining()) {
+			throw new StreamCorruptedException("Unexpected data after serialized object");
+		}
+	}
+
+	private void readObject() throws IOException {
+		enter();
+		byte typeCode = this.buffer.get();
+		switch (typeCode) {
+			case ObjectStreamConstants.TC_NULL:
+				break;
+			case ObjectStreamConstants.TC_REFERENCE:
+				readHandle();
+				break;
+			case ObjectStreamConstants.TC_STRING:
+				newHandle(null);
+				skip(this.buffer.getShort() & 0xFFFF);
+				break;
+			case ObjectStreamConstants.TC_LONGSTRING:
+				newHandle(null);
+				skip(this.buffer.getLong());
+				break;
+			case ObjectStreamConstants.TC_CLASS:
+				readClassDesc();
+				newHandle(null);
+				break;
+			case ObjectStreamConstants.TC_ENUM:
+				readClassDesc();
+				newHandle(null);
+				readObject();
+				break;
+			case ObjectStreamConstants.TC_ARRAY:
+				readArray();
+				break;
+			case ObjectStreamConstants.TC_OBJECT:
+				readOrdinaryObject();
+				break;
+			case ObjectStreamConstants.TC_CLASSDESC:
+				this.buffer.position(this.buffer.position() - 1);
+				readClassDesc();
+				break;
+			default:
+				throw new StreamCorruptedException(String.format("Unsupported type code 0x%02X", typeCode));
+		}
+		this.depth--;
+	}
+
+	@Nullable
+	private ClassDesc readClassDesc() throws IOException {
+		enter();
+		ClassDesc desc;
+		byte typeCode = this.buffer.get();
+		switch (typeCode) {
+			case ObjectStreamConstants.TC_NULL:
+				desc = null;
+				break;
+			case ObjectStreamConstants.TC_REFERENCE:
+				desc = readHandle();
+				if (desc == null) {
+					throw new StreamCorruptedException("Reference to an object in place of a class descriptor");
+				}
+				break;
+			case ObjectStreamConstants.TC_CLASSDESC:
+				desc = new ClassDesc(readUtf());
+				this.buffer.getLong();  // serialVersionUID
+				newHandle(desc);
+				desc.flags = this.buffer.get();
+				int fieldCount = this.buffer.getShort();
+				if (fieldCount < 0) {
+					throw new StreamCorruptedException("Invalid field count " + fieldCount);
+				}
+				desc.fieldTypes = new char[fieldCount];
+				for (int i = 0; i < fieldCount; i++) {
+					char fieldType = (char) this.buffer.get();
+					skip(this.buffer.getShort() & 0xFFFF);  // field name
+					if (fieldType == 'L' || fieldType == '[') {
+						readObject();  // field type signature
+					}
+					else if (getPrimitiveSize(fieldType) < 0) {
+						throw new StreamCorruptedException("Invalid field type code " + fieldType);
+					}
+					desc.fieldTypes[i] = fieldType;
+				}
+				readAnnotation();
+				desc.superDesc = readClassDesc();
+				break;
+			default:
+				throw new StreamCorruptedException(
+						String.format("Unsupported class descriptor type code 0x%02X", typeCode));
+		}
+		this.depth--;
+		return desc;
+	}
+
+	private void readArray() throws IOException {
+		ClassDesc desc = readClassDesc();
+		if (desc == null || desc.name.length() < 2 || desc.name.charAt(0) != '[') {
+			throw new StreamCorruptedException("Invalid array class descriptor");
+		}
+		newHandle(null);
+		int length = this.buffer.getInt();
+		if (length < 0 || length > this.buffer.remaining()) {
+			throw new InvalidObjectException("Invalid array length " + length);
+		}
+		char componentType = desc.name.charAt(1);
+		if (componentType == 'L' || componentType == '[') {
+			for (int i = 0; i < length; i++) {
+				readObject();
+			}
+		}
+		else {
+			int size = getPrimitiveSize(componentType);
+			if (size < 0) {
+				throw new StreamCorruptedException("Invalid array class " + desc.name);
+			}
+			skip((long) length * size);
+		}
+	}
+
+	private void readOrdinaryObject() throws IOException {
+		ClassDesc desc = readClassDesc();
+		if (desc == null) {
+			throw new StreamCorruptedException("Missing class descriptor for object");
+		}
+		newHandle(null);
+		if ((desc.flags & ObjectStreamConstants.SC_EXTERNALIZABLE) != 0) {
+			if ((desc.flags & ObjectStreamConstants.SC_BLOCK_DATA) == 0) {
+				throw new StreamCorruptedException("Unsupported externalizable data for " + desc.name);
+			}
+			readAnnotation();
+			return;
+		}
+		List<ClassDesc> hierarchy = new ArrayList<>();
+		for (ClassDesc current = desc; current != null; current = current.superDesc) {
+			if (hierarchy.size() >= this.maxDepth) {
+				throw new InvalidObjectException("Class hierarchy of " + desc.name + " too deep");
+			}
+			hierarchy.add(current);
+		}
+		for (int i = hierarchy.size() - 1; i >= 0; i--) {
+			ClassDesc current = hierarchy.get(i);
+			if ((current.flags & ObjectStreamConstants.SC_SERIALIZABLE) != 0) {
+				for (char fieldType : current.fieldTypes) {
+					if (fieldType == 'L' || fieldType == '[') {
+						readObject();
+					}
+					else {
+						skip(getPrimitiveSize(fieldType));
+					}
+				}
+				if ((current.flags & ObjectStreamConstants.SC_WRITE_METHOD) != 0) {
+					readAnnotation();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read the optional data written by a {@code writeObject} or
+	 * {@code writeExternal} method, up to the end-of-data marker.
+	 */
+	private void readAnnotation() throws IOException {
+		while (true) {
+			byte typeCode = this.buffer.get();
+			if (typeCode == ObjectStreamConstants.TC_ENDBLOCKDATA) {
+				return;
+			}
+			else if (typeCode == ObjectStreamConstants.TC_BLOCKDATA) {
+				skip(this.buffer.get() & 0xFF);
+			}
+			else if (typeCode == ObjectStreamConstants.TC_BLOCKDATALONG) {
+				int length = this.buffer.getInt();
+				if (length < 0) {
+					throw new StreamCorruptedException("Invalid block data length " + length);
+				}
+				skip(length);
+			}
+			else {
+				this.buffer.position(this.buffer.position() - 1);
+				readObject();
+			}
+		}
+	}
+
+	private void enter() throws InvalidObjectException {
+		if (++this.depth > this.maxDepth) {
+			throw new InvalidObjectException("Nesting depth exceeds " + this.maxDepth);
+		}
+	}
+
+	private void newHandle(@Nullable ClassDesc desc) throws InvalidObjectException {
+		if (this.handles.size() >= this.maxObjects) {
+			throw new InvalidObjectException("Number of objects exceeds " + this.maxObjects);
+		}
+		this.handles.add(desc);
+	}
+
+	@Nullable
+	private ClassDesc readHandle() throws StreamCorruptedException {
+		int handle = this.buffer.getInt() - ObjectStreamConstants.baseWireHandle;
+		if (handle < 0 || handle >= this.handles.size()) {
+			throw new StreamCorruptedException("Invalid handle " + handle);
+		}
+		return this.handles.get(handle);
+	}
+
+	private String readUtf() {
+		byte[] bytes = new byte[this.buffer.getShort() & 0xFFFF];
+		this.buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void skip(long length) {
+		if (length < 0 || length > this.buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		this.buffer.position(this.buffer.position() + (int) length);
+	}
+
+	private static int getPrimitiveSize(char typeCode) {
+		switch (typeCode) {
+			case 'B':
+			case 'Z':
+				return 1;
+			case 'C':
+			case 'S':
+				return 2;
+			case 'I':
+			case 'F':
+				return 4;
+			case 'J':
+			case 'D':
+				return 8;
+			default:
+				return -1;
+		}
+	}
+
+
+	/**
+	 * The parts of a class descriptor that determine the layout of its instances.
+	 */
+	private static class ClassDesc {
+
+		private final String name;
+
+		private byte flags;
+
+		private char[] fieldTypes = new char[0];
+
+		@Nullable
+		private ClassDesc superDesc;
+
+		public ClassDesc(String name) {
+			this.name = name;
+		}
+	}
+
+}
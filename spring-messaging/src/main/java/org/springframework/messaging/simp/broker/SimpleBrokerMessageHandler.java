@@ -19,14 +19,18 @@ package org.springframework.messaging.simp.broker;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.SubscribableChannel;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
@@ -35,6 +39,7 @@ import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.PathMatcher;
@@ -44,6 +49,11 @@ import org.springframework.util.PathMatcher;
  * {@link SimpMessageType}, keeps track of subscriptions with the help of a
  * {@link SubscriptionRegistry} and sends messages to subscribers.
  *
+ * <p>Several instances may form a cluster through a {@link BrokerClusterTransport}:
+ * each node gossips a summary of its subscribed destinations to the other nodes,
+ * and delivers published messages to its local subscribers first, then forwards
+ * them only to those nodes whose summaries contain matching destinations.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0
@@ -74,6 +84,20 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
+	@Nullable
+	private BrokerClusterTransport clusterTransport;
+
+	private long clusterGossipInterval = 5000;
+
+	@Nullable
+	private volatile ClusterSubscriptionRegistry clusterRegistry;
+
+	@Nullable
+	private volatile ClusterGossipTask clusterGossipTask;
+
+	@Nullable
+	private ScheduledFuture<?> clusterGossipFuture;
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -218,6 +242,53 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure a {@link BrokerClusterTransport} for running this broker as
+	 * one node of a cluster, forwarding messages to other nodes with matching
+	 * subscriptions and delivering messages received from other nodes to
+	 * local subscribers.
+	 * <p>Clustered mode requires a {@link #setTaskScheduler TaskScheduler}
+	 * for gossiping subscription summaries to the other nodes.
+	 * <p>By default this property is not set.
+	 * @since 5.0
+	 * @see SocketBrokerClusterTransport
+	 */
+	public void setClusterTransport(@Nullable BrokerClusterTransport clusterTransport) {
+		this.clusterTransport = clusterTransport;
+	}
+
+	/**
+	 * Return the configured cluster transport, if any.
+	 * @since 5.0
+	 */
+	@Nullable
+	public BrokerClusterTransport getClusterTransport() {
+		return this.clusterTransport;
+	}
+
+	/**
+	 * Configure how often in milliseconds to gossip a summary of the local
+	 * subscriptions to the other nodes of the cluster. Changes to the summary
+	 * are broadcast right away in addition. A summary received from another
+	 * node expires unless refreshed within three times this interval, e.g.
+	 * after the node disappeared.
+	 * <p>Default is 5000.
+	 * @since 5.0
+	 * @see #setClusterTransport
+	 */
+	public void setClusterGossipInterval(long clusterGossipInterval) {
+		Assert.isTrue(clusterGossipInterval > 0, "Cluster gossip interval must be greater than 0");
+		this.clusterGossipInterval = clusterGossipInterval;
+	}
+
+	/**
+	 * Return the configured cluster gossip interval.
+	 * @since 5.0
+	 */
+	public long getClusterGossipInterval() {
+		return this.clusterGossipInterval;
+	}
+
 
 	@Override
 	public void startInternal() {
@@ -233,6 +304,19 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 					(getHeartbeatValue()[0] == 0 && getHeartbeatValue()[1] == 0),
 					"Heartbeat values configured but no TaskScheduler provided");
 		}
+		if (this.clusterTransport != null) {
+			startCluster(this.clusterTransport);
+		}
+	}
+
+	private void startCluster(BrokerClusterTransport transport) {
+		Assert.state(this.taskScheduler != null, "Cluster transport configured but no TaskScheduler provided");
+		PathMatcher pathMatcher = (this.pathMatcher != null ? this.pathMatcher : new AntPathMatcher());
+		this.clusterRegistry = new ClusterSubscriptionRegistry(pathMatcher, this.clusterGossipInterval * 3);
+		transport.start(new ClusterMessageHandler());
+		ClusterGossipTask gossipTask = new ClusterGossipTask(transport, this.taskScheduler);
+		this.clusterGossipTask = gossipTask;
+		this.clusterGossipFuture = this.taskScheduler.scheduleWithFixedDelay(gossipTask, this.clusterGossipInterval);
 	}
 
 	private long initHeartbeatTaskDelay() {
@@ -253,6 +337,29 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.heartbeatFuture != null) {
 			this.heartbeatFuture.cancel(true);
 		}
+		if (this.clusterTransport != null) {
+			stopCluster(this.clusterTransport);
+		}
+	}
+
+	private void stopCluster(BrokerClusterTransport transport) {
+		if (this.clusterGossipFuture != null) {
+			this.clusterGossipFuture.cancel(true);
+		}
+		ClusterGossipTask gossipTask = this.clusterGossipTask;
+		this.clusterRegistry = null;
+		this.clusterGossipTask = null;
+		try {
+			// Let the other nodes know right away that we're gone, after any gossip in progress
+			Object mutex = (gossipTask != null ? gossipTask : this);
+			synchronized (mutex) {
+				transport.broadcast(MessageBuilder.withPayload(new ClusterSubscriptionRegistry.SubscriptionSummary(
+						transport.getLocalNodeId(), Collections.emptySet())).build());
+			}
+		}
+		finally {
+			transport.stop();
+		}
 	}
 
 	@Override
@@ -272,6 +379,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (SimpMessageType.MESSAGE.equals(messageType)) {
 			logMessage(message);
 			sendMessageToSubscribers(destination, message);
+			if (destination != null) {
+				forwardToClusterNodes(destination, message);
+			}
 		}
 		else if (SimpMessageType.CONNECT.equals(messageType)) {
 			logMessage(message);
@@ -300,10 +410,22 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		else if (SimpMessageType.SUBSCRIBE.equals(messageType)) {
 			logMessage(message);
 			this.subscriptionRegistry.registerSubscription(message);
+			ClusterSubscriptionRegistry clusterRegistry = this.clusterRegistry;
+			String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+			if (clusterRegistry != null && sessionId != null && subscriptionId != null && destination != null &&
+					clusterRegistry.addSubscription(sessionId, subscriptionId, destination)) {
+				publishClusterSummary();
+			}
 		}
 		else if (SimpMessageType.UNSUBSCRIBE.equals(messageType)) {
 			logMessage(message);
 			this.subscriptionRegistry.unregisterSubscription(message);
+			ClusterSubscriptionRegistry clusterRegistry = this.clusterRegistry;
+			String subscriptionId = SimpMessageHeaderAccessor.getSubscriptionId(headers);
+			if (clusterRegistry != null && sessionId != null && subscriptionId != null &&
+					clusterRegistry.removeSubscription(sessionId, subscriptionId)) {
+				publishClusterSummary();
+			}
 		}
 	}
 
@@ -333,6 +455,10 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	private void handleDisconnect(String sessionId, @Nullable Principal user, @Nullable Message<?> origMessage) {
 		this.sessions.remove(sessionId);
 		this.subscriptionRegistry.unregisterAllSubscriptions(sessionId);
+		ClusterSubscriptionRegistry clusterRegistry = this.clusterRegistry;
+		if (clusterRegistry != null && clusterRegistry.removeSession(sessionId)) {
+			publishClusterSummary();
+		}
 		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT_ACK);
 		accessor.setSessionId(sessionId);
 		if (user != null) {
@@ -377,6 +503,77 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 	}
 
+	/**
+	 * Let the other nodes of the cluster know about a change to the local
+	 * subscriptions right away, rather than on the next gossip round.
+	 */
+	private void publishClusterSummary() {
+		ClusterGossipTask gossipTask = this.clusterGossipTask;
+		if (gossipTask != null) {
+			gossipTask.runSoon();
+		}
+	}
+
+	/**
+	 * Forward a message published on this node to the other nodes of the
+	 * cluster with matching subscriptions, without the session-specific
+	 * headers of the publishing client.
+	 */
+	private void forwardToClusterNodes(String destination, Message<?> message) {
+		ClusterSubscriptionRegistry clusterRegistry = this.clusterRegistry;
+		BrokerClusterTransport transport = this.clusterTransport;
+		if (clusterRegistry == null || transport == null) {
+			return;
+		}
+		List<String> nodeIds = clusterRegistry.findNodes(destination, System.currentTimeMillis());
+		if (nodeIds.isEmpty()) {
+			return;
+		}
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+		accessor.removeHeader(SimpMessageHeaderAccessor.SESSION_ID_HEADER);
+		accessor.removeHeader(SimpMessageHeaderAccessor.SESSION_ATTRIBUTES);
+		accessor.removeHeader(SimpMessageHeaderAccessor.USER_HEADER);
+		Message<?> forwardMessage = MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+		if (logger.isDebugEnabled()) {
+			logger.debug("Forwarding to broker nodes " + nodeIds);
+		}
+		for (String nodeId : nodeIds) {
+			try {
+				transport.send(nodeId, forwardMessage);
+			}
+			catch (Throwable ex) {
+				logger.error("Failed to forward " + message + " to broker node " + nodeId, ex);
+			}
+		}
+	}
+
+	/**
+	 * Deliver a message received from another node of the cluster to local
+	 * subscribers, without forwarding it any further.
+	 */
+	private void handleClusterMessage(Message<?> message) {
+		ClusterSubscriptionRegistry clusterRegistry = this.clusterRegistry;
+		if (clusterRegistry == null) {
+			return;
+		}
+		Object payload = message.getPayload();
+		if (payload instanceof ClusterSubscriptionRegistry.SubscriptionSummary) {
+			ClusterSubscriptionRegistry.SubscriptionSummary summary = (ClusterSubscriptionRegistry.SubscriptionSummary) payload;
+			if (logger.isTraceEnabled()) {
+				logger.trace("Received " + summary);
+			}
+			clusterRegistry.updateRemoteSummary(summary, System.currentTimeMillis());
+			return;
+		}
+		MessageHeaders headers = message.getHeaders();
+		String destination = SimpMessageHeaderAccessor.getDestination(headers);
+		if (SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(headers)) &&
+				checkDestinationPrefix(destination)) {
+			logMessage(message);
+			sendMessageToSubscribers(destination, message);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "SimpleBrokerMessageHandler [" + this.subscriptionRegistry + "]";
@@ -478,4 +675,57 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 	}
 
+
+	private class ClusterMessageHandler implements MessageHandler {
+
+		@Override
+		public void handleMessage(Message<?> message) {
+			handleClusterMessage(message);
+		}
+	}
+
+
+	private class ClusterGossipTask implements Runnable {
+
+		private final BrokerClusterTransport transport;
+
+		private final TaskScheduler taskScheduler;
+
+		private final AtomicBoolean pending = new AtomicBoolean();
+
+		public ClusterGossipTask(BrokerClusterTransport transport, TaskScheduler taskScheduler) {
+			this.transport = transport;
+			this.taskScheduler = taskScheduler;
+		}
+
+		/**
+		 * Schedule an extra run for publishing a changed summary, unless one
+		 * is pending already, keeping the broadcast off the calling thread.
+		 */
+		public void runSoon() {
+			if (this.pending.compareAndSet(false, true)) {
+				this.taskScheduler.schedule(this, new Date());
+			}
+		}
+
+		/**
+		 * Synchronized so that summaries are broadcast in the order in which
+		 * they were taken, with an older one never overtaking a newer one.
+		 */
+		@Override
+		public synchronized void run() {
+			this.pending.set(false);
+			ClusterSubscriptionRegistry clusterRegistry = SimpleBrokerMessageHandler.this.clusterRegistry;
+			if (clusterRegistry != null) {
+				long now = System.currentTimeMillis();
+				clusterRegistry.purgeExpiredSummaries(now);
+				ClusterSubscriptionRegistry.SubscriptionSummary summary =
+						clusterRegistry.getSummaryToPublish(this.transport.getLocalNodeId(), now);
+				if (summary != null) {
+					this.transport.broadcast(MessageBuilder.withPayload(summary).build());
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,696 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.util.Assert;
+import org.springframework.util.SerializationUtils;
+
+/**
+ * {@link BrokerClusterTransport} exchanging Java-serialized messages over
+ * plain TCP sockets, with the "host:port" address of the server socket of
+ * each node serving as its node id.
+ *
+ * <p>Each node listens on its own server socket and is configured with the
+ * addresses of the other nodes through {@link #setPeers}. Messages for each
+ * node are queued and written by a dedicated thread, so that connecting and
+ * writing never block the sending thread, i.e. the broker. When the queue
+ * for a node is full, further messages for that node are dropped. Outbound
+ * connections are established lazily and re-established for a later message
+ * after a failure, once the {@link #setRetryInterval retry interval} has
+ * passed. Messages for a node are dropped in the meantime.
+ *
+ * <p>By default the server socket is bound to an ephemeral port on the loopback
+ * address, which makes this transport convenient for tests running several
+ * nodes within the same JVM.
+ *
+ * <p>Incoming messages are deserialized with an allow-list of classes: the
+ * message and header types of this module, strings, numbers, common
+ * collection types, and arrays of those and of primitives. Custom payload
+ * types need to be added through {@link #setAllowedPayloadTypes}. Messages
+ * are also rejected before deserialization if they exceed the
+ * {@link #setMaxFrameLength maximum frame length}, contain more than 10000
+ * objects, or nest them more than 64 levels deep. Since the connections are
+ * neither authenticated nor encrypted, this transport should still only be
+ * exposed to trusted networks.
+ *
+ * @author agent
+ * @since 5.0
+ */
+public class SocketBrokerClusterTransport implements BrokerClusterTransport {
+
+	/** Maximum nesting depth of objects and class descriptors in an incoming message */
+	private static final int MAX_DEPTH = 64;
+
+	/** Maximum number of objects, including strings and class descriptors, in an incoming message */
+	private static final int MAX_OBJECTS = 10000;
+
+	/** Classes accepted in incoming messages, along with arrays of them */
+	private static final Set<String> ALLOWED_CLASS_NAMES = new HashSet<>(Arrays.asList(
+			"java.lang.Boolean",
+			"java.lang.Byte",
+			"java.lang.Character",
+			"java.lang.Double",
+			"java.lang.Enum",
+			"java.lang.Float",
+			"java.lang.Integer",
+			"java.lang.Long",
+			"java.lang.Number",
+			"java.lang.Short",
+			"java.lang.String",
+			"java.util.ArrayList",
+			"java.util.Arrays$ArrayList",
+			"java.util.Collections$EmptyList",
+			"java.util.Collections$EmptyMap",
+			"java.util.Collections$EmptySet",
+			"java.util.Collections$SingletonList",
+			"java.util.Collections$SingletonMap",
+			"java.util.Collections$SingletonSet",
+			"java.util.Collections$UnmodifiableCollection",
+			"java.util.Collections$UnmodifiableList",
+			"java.util.Collections$UnmodifiableMap",
+			"java.util.Collections$UnmodifiableRandomAccessList",
+			"java.util.Collections$UnmodifiableSet",
+			"java.util.HashMap",
+			"java.util.HashSet",
+			"java.util.LinkedHashMap",
+			"java.util.LinkedHashSet",
+			"java.util.LinkedList",
+			"java.util.Locale",
+			"java.util.UUID",
+			"org.springframework.messaging.MessageHeaders",
+			"org.springframework.messaging.support.GenericMessage",
+			"org.springframework.messaging.support.NativeHeaderMap",
+			"org.springframework.messaging.simp.SimpMessageType",
+			"org.springframework.messaging.simp.broker.ClusterSubscriptionRegistry$SubscriptionSummary",
+			"org.springframework.util.LinkedCaseInsensitiveMap",
+			"org.springframework.util.LinkedCaseInsensitiveMap$1",
+			"org.springframework.util.LinkedMultiValueMap",
+			"org.springframework.util.MimeType"));
+
+	private static final Log logger = LogFactory.getLog(SocketBrokerClusterTransport.class);
+
+
+	private final InetSocketAddress bindAddress;
+
+	private final Set<String> peers = new CopyOnWriteArraySet<>();
+
+	private final Map<String, PeerSender> senders = new ConcurrentHashMap<>();
+
+	private final Set<String> allowedPayloadTypes = new CopyOnWriteArraySet<>();
+
+	private final Set<Socket> acceptedSockets = ConcurrentHashMap.newKeySet();
+
+	private final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("BrokerCluster-");
+
+	private int connectTimeout = 5000;
+
+	private long retryInterval = 1000;
+
+	private int sendQueueCapacity = 1000;
+
+	private int maxFrameLength = 256 * 1024;
+
+	@Nullable
+	private volatile ServerSocket serverSocket;
+
+	@Nullable
+	private volatile String localNodeId;
+
+
+	/**
+	 * Create a transport listening on an ephemeral port of the loopback address.
+	 */
+	public SocketBrokerClusterTransport() {
+		this(0);
+	}
+
+	/**
+	 * Create a transport listening on the given port of the loopback address.
+	 */
+	public SocketBrokerClusterTransport(int port) {
+		this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	}
+
+	/**
+	 * Create a transport listening on the given address.
+	 */
+	public SocketBrokerClusterTransport(InetSocketAddress bindAddress) {
+		Assert.notNull(bindAddress, "Bind address must not be null");
+		this.bindAddress = bindAddress;
+		this.executor.setDaemon(true);
+	}
+
+
+	/**
+	 * Configure the addresses of the other nodes of the cluster, each in the
+	 * form "host:port". The address of the local node may be included, in
+	 * which case it is ignored when broadcasting.
+	 */
+	public void setPeers(Collection<String> peers) {
+		this.peers.clear();
+		this.peers.addAll(peers);
+	}
+
+	/**
+	 * Add the address of another node of the cluster in the form "host:port",
+	 * e.g. as returned from {@link #getLocalNodeId()} on that node.
+	 */
+	public void addPeer(String peer) {
+		this.peers.add(peer);
+	}
+
+	/**
+	 * Return the configured peer addresses.
+	 */
+	public Collection<String> getPeers() {
+		return this.peers;
+	}
+
+	/**
+	 * Configure the timeout in milliseconds for connecting to other nodes.
+	 * <p>Default is 5000.
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * Return the configured connect timeout.
+	 */
+	public int getConnectTimeout() {
+		return this.connectTimeout;
+	}
+
+	/**
+	 * Configure the time in milliseconds to wait after a failed attempt to
+	 * connect to another node before trying again, dropping messages for
+	 * that node in the meantime.
+	 * <p>Default is 1000.
+	 */
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+	/**
+	 * Return the configured retry interval.
+	 */
+	public long getRetryInterval() {
+		return this.retryInterval;
+	}
+
+	/**
+	 * Configure the maximum number of messages to queue for each other node
+	 * while they are being written. Messages for a node whose queue is full
+	 * are dropped.
+	 * <p>Default is 1000.
+	 */
+	public void setSendQueueCapacity(int sendQueueCapacity) {
+		Assert.isTrue(sendQueueCapacity > 0, "Send queue capacity must be greater than 0");
+		this.sendQueueCapacity = sendQueueCapacity;
+	}
+
+	/**
+	 * Return the configured send queue capacity.
+	 */
+	public int getSendQueueCapacity() {
+		return this.sendQueueCapacity;
+	}
+
+	/**
+	 * Configure the maximum length in bytes of a serialized message. Longer
+	 * messages are dropped when sending, and a node sending a longer message
+	 * is disconnected. All nodes of a cluster should use the same value.
+	 * <p>Default is 256K.
+	 */
+	public void setMaxFrameLength(int maxFrameLength) {
+		Assert.isTrue(maxFrameLength > 0, "Max frame length must be greater than 0");
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	/**
+	 * Return the configured maximum frame length.
+	 */
+	public int getMaxFrameLength() {
+		return this.maxFrameLength;
+	}
+
+	/**
+	 * Register additional classes to accept when deserializing messages from
+	 * other nodes, i.e. the types of custom message payloads along with the
+	 * types of their serializable fields.
+	 * <p>By default only the message and header types of this module,
+	 * strings, numbers and common collection types are accepted.
+	 */
+	public void setAllowedPayloadTypes(Class<?>... allowedPayloadTypes) {
+		this.allowedPayloadTypes.clear();
+		for (Class<?> type : allowedPayloadTypes) {
+			this.allowedPayloadTypes.add(type.getName());
+		}
+	}
+
+
+	@Override
+	public String getLocalNodeId() {
+		String nodeId = this.localNodeId;
+		Assert.state(nodeId != null, "Transport not started");
+		return nodeId;
+	}
+
+	@Override
+	public void start(MessageHandler messageHandler) {
+		Assert.notNull(messageHandler, "MessageHandler must not be null");
+		Assert.state(this.serverSocket == null, "Transport already started");
+		ServerSocket serverSocket;
+		try {
+			serverSocket = new ServerSocket();
+			serverSocket.bind(this.bindAddress);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Failed to bind broker cluster transport to " + this.bindAddress, ex);
+		}
+		String host = (this.bindAddress.getAddress() != null && this.bindAddress.getAddress().isAnyLocalAddress() ?
+				getLocalHostAddress() : this.bindAddress.getHostString());
+		this.localNodeId = host + ":" + serverSocket.getLocalPort();
+		this.serverSocket = serverSocket;
+		this.executor.execute(() -> acceptConnections(serverSocket, messageHandler));
+		if (logger.isInfoEnabled()) {
+			logger.info("Broker cluster transport listening on " + this.localNodeId);
+		}
+	}
+
+	private static String getLocalHostAddress() {
+		try {
+			return InetAddress.getLocalHost().getHostAddress();
+		}
+		catch (IOException ex) {
+			return InetAddress.getLoopbackAddress().getHostAddress();
+		}
+	}
+
+	@Override
+	public void stop() {
+		ServerSocket serverSocket = this.serverSocket;
+		if (serverSocket != null) {
+			this.serverSocket = null;
+			closeQuietly(serverSocket);
+			for (Socket socket : this.acceptedSockets) {
+				closeQuietly(socket);
+			}
+			this.acceptedSockets.clear();
+			for (PeerSender sender : this.senders.values()) {
+				sender.stop();
+			}
+			this.senders.clear();
+		}
+	}
+
+	@Override
+	public void broadcast(Message<?> message) {
+		byte[] frame = serialize(message);
+		if (frame != null) {
+			for (String peer : this.peers) {
+				if (!peer.equals(this.localNodeId)) {
+					write(peer, frame);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void send(String nodeId, Message<?> message) {
+		byte[] frame = serialize(message);
+		if (frame != null) {
+			write(nodeId, frame);
+		}
+	}
+
+
+	@Nullable
+	private byte[] serialize(Message<?> message) {
+		try {
+			return SerializationUtils.serialize(message);
+		}
+		catch (IllegalArgumentException ex) {
+			logger.error("Failed to serialize " + message + " for other broker nodes", ex);
+			return null;
+		}
+	}
+
+	private void write(String nodeId, byte[] frame) {
+		if (this.serverSocket == null) {
+			return;
+		}
+		if (frame.length > this.maxFrameLength) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Dropping message for broker node " + nodeId + " since its serialized length " +
+						frame.length + " exceeds the max frame length " + this.maxFrameLength);
+			}
+			return;
+		}
+		PeerSender sender = this.senders.get(nodeId);
+		if (sender == null) {
+			sender = this.senders.computeIfAbsent(nodeId, id -> {
+				PeerSender newSender = new PeerSender(id);
+				this.executor.execute(newSender);
+				return newSender;
+			});
+			if (this.serverSocket == null) {
+				// Stopped concurrently
+				this.senders.remove(nodeId, sender);
+				sender.stop();
+				return;
+			}
+		}
+		sender.send(frame);
+	}
+
+	private void acceptConnections(ServerSocket serverSocket, MessageHandler messageHandler) {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				this.acceptedSockets.add(socket);
+				this.executor.execute(() -> readMessages(socket, messageHandler));
+			}
+			catch (IOException ex) {
+				if (!serverSocket.isClosed() && logger.isWarnEnabled()) {
+					logger.warn("Failed to accept broker node connection: " + ex.getMessage());
+				}
+			}
+		}
+	}
+
+	private void readMessages(Socket socket, MessageHandler messageHandler) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while (true) {
+				int length = in.readInt();
+				if (length < 0 || length > this.maxFrameLength) {
+					throw new IOException("Invalid frame length " + length);
+				}
+				byte[] frame = new byte[length];
+				in.readFully(frame);
+				Object message = deserialize(frame);
+				if (message instanceof Message) {
+					try {
+						messageHandler.handleMessage((Message<?>) message);
+					}
+					catch (Throwable ex) {
+						logger.error("Failed to handle message from other broker node: " + message, ex);
+					}
+				}
+			}
+		}
+		catch (EOFException ex) {
+			// Connection closed by other node
+		}
+		catch (IOException ex) {
+			if (!socket.isClosed() && logger.isWarnEnabled()) {
+				logger.warn("Closing broker node connection after read failure: " + ex.getMessage());
+			}
+		}
+		finally {
+			this.acceptedSockets.remove(socket);
+			closeQuietly(socket);
+		}
+	}
+
+	/**
+	 * Deserialize a single frame, dropping it if it cannot be read, e.g. if it
+	 * contains a class that is not allowed or exceeds the limits for nesting
+	 * depth and number of objects, without affecting later frames.
+	 */
+	@Nullable
+	private Object deserialize(byte[] frame) {
+		try {
+			ObjectStreamValidator.validate(frame, MAX_DEPTH, MAX_OBJECTS);
+			try (ObjectInputStream in = new AllowListObjectInputStream(new ByteArrayInputStream(frame))) {
+				return in.readObject();
+			}
+		}
+		catch (IOException | ClassNotFoundException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Dropping unreadable message from other broker node: " + ex);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Determine whether the given class may be deserialized from a message
+	 * received from another node.
+	 */
+	protected boolean isAllowedClass(String className) {
+		String name = className;
+		while (name.startsWith("[")) {
+			name = name.substring(1);
+		}
+		if (name.startsWith("L") && name.endsWith(";")) {
+			name = name.substring(1, name.length() - 1);
+		}
+		else if (name.length() == 1) {
+			// Array of primitives
+			return true;
+		}
+		return (ALLOWED_CLASS_NAMES.contains(name) || this.allowedPayloadTypes.contains(name));
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		}
+		catch (IOException ex) {
+			// ignore
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return "SocketBrokerClusterTransport[" + (this.localNodeId != null ? this.localNodeId : this.bindAddress) + "]";
+	}
+
+
+	/**
+	 * ObjectInputStream rejecting classes not accepted by {@link #isAllowedClass},
+	 * as well as dynamic proxies.
+	 */
+	private class AllowListObjectInputStream extends ConfigurableObjectInputStream {
+
+		public AllowListObjectInputStream(InputStream in) throws IOException {
+			super(in, SocketBrokerClusterTransport.class.getClassLoader(), false);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass classDesc) throws IOException, ClassNotFoundException {
+			if (!isAllowedClass(classDesc.getName())) {
+				throw new InvalidClassException(classDesc.getName(), "Not allowed in messages from other broker nodes");
+			}
+			return super.resolveClass(classDesc);
+		}
+	}
+
+
+	/**
+	 * Queues the messages for another node and writes them from a dedicated
+	 * thread, connecting first if necessary.
+	 */
+	private class PeerSender implements Runnable {
+
+		private final String nodeId;
+
+		private final BlockingQueue<byte[]> queue;
+
+		@Nullable
+		private volatile Socket socket;
+
+		@Nullable
+		private Connection connection;
+
+		/* Time before which not to try connecting again */
+		private long retryTime;
+
+		private volatile boolean stopped;
+
+		public PeerSender(String nodeId) {
+			this.nodeId = nodeId;
+			this.queue = new LinkedBlockingQueue<>(sendQueueCapacity);
+		}
+
+		public void send(byte[] frame) {
+			if (!this.queue.offer(frame) && logger.isWarnEnabled()) {
+				logger.warn("Dropping message for broker node " + this.nodeId + " since its send queue is full");
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!this.stopped) {
+					byte[] frame = this.queue.take();
+					if (!this.stopped) {
+						write(frame);
+					}
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				closeConnection();
+			}
+		}
+
+		private void write(byte[] frame) {
+			Connection connection = this.connection;
+			if (connection == null) {
+				connection = connectIfDue();
+				if (connection == null) {
+					return;
+				}
+			}
+			try {
+				connection.write(frame);
+			}
+			catch (IOException ex) {
+				if (!this.stopped && logger.isWarnEnabled()) {
+					logger.warn("Failed to send message to broker node " + this.nodeId + ": " + ex.getMessage());
+				}
+				closeConnection();
+			}
+		}
+
+		/**
+		 * Connect unless a previous attempt failed within the retry interval.
+		 * @return the connection to use, or {@code null} if the message is to be dropped
+		 */
+		@Nullable
+		private Connection connectIfDue() {
+			if (System.currentTimeMillis() < this.retryTime) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Dropping message for broker node " + this.nodeId + " until next connection attempt");
+				}
+				return null;
+			}
+			int index = this.nodeId.lastIndexOf(':');
+			if (index <= 0) {
+				this.retryTime = Long.MAX_VALUE;
+				logger.error("Invalid broker node address: " + this.nodeId);
+				return null;
+			}
+			Socket socket = new Socket();
+			this.socket = socket;
+			if (this.stopped) {
+				closeQuietly(socket);
+				return null;
+			}
+			try {
+				String host = this.nodeId.substring(0, index);
+				int port = Integer.parseInt(this.nodeId.substring(index + 1));
+				socket.setTcpNoDelay(true);
+				socket.connect(new InetSocketAddress(host, port), connectTimeout);
+				this.connection = new Connection(socket);
+				this.retryTime = 0;
+				return this.connection;
+			}
+			catch (IOException | IllegalArgumentException ex) {
+				closeQuietly(socket);
+				this.retryTime = System.currentTimeMillis() + retryInterval;
+				if (!this.stopped && logger.isWarnEnabled()) {
+					logger.warn("Failed to connect to broker node " + this.nodeId + ": " + ex);
+				}
+				return null;
+			}
+		}
+
+		private void closeConnection() {
+			this.connection = null;
+			Socket socket = this.socket;
+			if (socket != null) {
+				closeQuietly(socket);
+			}
+		}
+
+		/**
+		 * Drop the queued messages and stop the sender thread, aborting a
+		 * connection attempt or write in progress.
+		 */
+		public void stop() {
+			this.stopped = true;
+			this.queue.clear();
+			// Wake up the sender thread if waiting for a message
+			this.queue.offer(new byte[0]);
+			Socket socket = this.socket;
+			if (socket != null) {
+				closeQuietly(socket);
+			}
+		}
+	}
+
+
+	/**
+	 * An outbound connection to another node, writing length-prefixed frames.
+	 */
+	private static class Connection {
+
+		private final DataOutputStream out;
+
+		public Connection(Socket socket) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		public void write(byte[] frame) throws IOException {
+			this.out.writeInt(frame.length);
+			this.out.write(frame);
+			this.out.flush();
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.messaging.simp.config;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.broker.BrokerClusterTransport;
 import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
 import org.springframework.scheduling.TaskScheduler;
 
@@ -36,6 +37,9 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 	@Nullable
 	private long[] heartbeat;
 
+	@Nullable
+	private BrokerClusterTransport clusterTransport;
+
 
 	public SimpleBrokerRegistration(SubscribableChannel inChannel, MessageChannel outChannel, String[] prefixes) {
 		super(inChannel, outChannel, prefixes);
@@ -68,6 +72,18 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 		return this;
 	}
 
+	/**
+	 * Configure a {@link BrokerClusterTransport} for running the simple broker
+	 * as one node of a cluster. Requires a {@link #setTaskScheduler taskScheduler}.
+	 * <p>By default this is not set.
+	 * @since 5.0
+	 * @see SimpleBrokerMessageHandler#setClusterTransport
+	 */
+	public SimpleBrokerRegistration setClusterTransport(BrokerClusterTransport clusterTransport) {
+		this.clusterTransport = clusterTransport;
+		return this;
+	}
+
 
 	@Override
 	protected SimpleBrokerMessageHandler getMessageHandler(SubscribableChannel brokerChannel) {
@@ -79,6 +95,9 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 		if (this.heartbeat != null) {
 			handler.setHeartbeatValue(this.heartbeat);
 		}
+		if (this.clusterTransport != null) {
+			handler.setClusterTransport(this.clusterTransport);
+		}
 		return handler;
 	}
 
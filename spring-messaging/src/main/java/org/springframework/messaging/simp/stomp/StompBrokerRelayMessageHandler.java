@@ -17,13 +17,18 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
@@ -74,6 +79,21 @@ import org.springframework.util.concurrent.ListenableFutureTask;
  * <li>{@link #setSystemHeartbeatReceiveInterval}</li>
  * </ul>
  *
+ * <p>Alternatively, client sessions may be multiplexed over a fixed pool of shared
+ * TCP connections to the broker, see {@link #setClientConnectionPoolSize}. Since all
+ * client connections use the same {@link #setClientLogin login}, the broker cannot
+ * tell the sessions apart in either case; in shared mode, subscription, receipt and
+ * transaction ids are scoped per client session and messages from the broker are
+ * routed back to the client session that owns the subscription or receipt.
+ * Note that the broker answers an invalid frame from any client session with an
+ * ERROR frame and closes the shared connection, which ends all client sessions
+ * multiplexed over that connection.
+ *
+ * <p>Forwarding to a TCP connection that cannot accept more data may be made to
+ * wait for the connection to drain, propagating back-pressure from the broker to
+ * the threads sending messages through the inbound channel, see
+ * {@link #setBackPressureTimeLimit}.
+ *
  * @author Rossen Stoyanchev
  * @author Andy Wilkinson
  * @since 4.0
@@ -82,6 +102,10 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 	public static final String SYSTEM_SESSION_ID = "_system_";
 
+	private static final String SHARED_SESSION_ID_PREFIX = "_shared_";
+
+	private static final String TRANSACTION_HEADER = "transaction";
+
 	// STOMP recommends error of margin for receiving heartbeats
 	private static final long HEARTBEAT_MULTIPLIER = 3;
 
@@ -121,6 +145,10 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 	private long systemHeartbeatReceiveInterval = 10000;
 
+	private int clientConnectionPoolSize = 0;
+
+	private long backPressureTimeLimit = 0;
+
 	private final Map<String, MessageHandler> systemSubscriptions = new HashMap<>(4);
 
 	@Nullable
@@ -136,6 +164,9 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 
 	private final Map<String, StompConnectionHandler> connectionHandlers = new ConcurrentHashMap<>();
 
+	@Nullable
+	private AtomicReferenceArray<SharedConnectionHandler> sharedConnectionHandlers;
+
 
 	/**
 	 * Create a StompBrokerRelayMessageHandler instance with the given message channels
@@ -296,6 +327,57 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 		return this.systemHeartbeatReceiveInterval;
 	}
 
+	/**
+	 * Set the number of shared TCP connections to multiplex client sessions over.
+	 * <p>By default this is set to 0, in which case an independent TCP connection
+	 * is opened for each client session. With a positive value, client sessions
+	 * are assigned to one of the given number of connections, each opened on
+	 * demand with the {@link #setClientLogin client login} and the heartbeat
+	 * settings of the "system" connection. Client sessions are then confirmed
+	 * with a STOMP CONNECTED frame created by this handler, without heartbeats
+	 * between the client session and the broker.
+	 * <p>Multiplexing relies on the broker accepting the scoped subscription,
+	 * receipt and transaction ids and on client sessions not depending on
+	 * per-connection broker state, such as temporary destinations.
+	 * <p><b>Note:</b> A STOMP broker closes the connection after sending an ERROR
+	 * frame, so a single invalid frame sent by one client session (e.g. a SEND to
+	 * a destination it is not permitted to access) ends all client sessions
+	 * sharing the same connection, each of them receiving an ERROR frame with
+	 * the broker's error message. Choose the pool size accordingly.
+	 */
+	public void setClientConnectionPoolSize(int clientConnectionPoolSize) {
+		Assert.isTrue(clientConnectionPoolSize >= 0, "clientConnectionPoolSize must not be negative");
+		this.clientConnectionPoolSize = clientConnectionPoolSize;
+	}
+
+	/**
+	 * Return the configured number of shared TCP connections for client sessions.
+	 */
+	public int getClientConnectionPoolSize() {
+		return this.clientConnectionPoolSize;
+	}
+
+	/**
+	 * Set the maximum time, in milliseconds, to wait for a TCP connection to the
+	 * broker to become writable before forwarding a message to it. If the
+	 * connection does not drain within that time, the message is rejected with
+	 * a {@link MessageDeliveryException}.
+	 * <p>By default this is set to 0, in which case messages are always passed
+	 * on to the connection, to be buffered by the underlying transport.
+	 * @see TcpConnection#isWritable()
+	 */
+	public void setBackPressureTimeLimit(long backPressureTimeLimit) {
+		this.backPressureTimeLimit = backPressureTimeLimit;
+	}
+
+	/**
+	 * Return the configured time limit for waiting on a TCP connection to
+	 * become writable.
+	 */
+	public long getBackPressureTimeLimit() {
+		return this.backPressureTimeLimit;
+	}
+
 	/**
 	 * Configure one more destinations to subscribe to on the shared "system"
 	 * connection along with MessageHandler's to handle received messages.
@@ -384,7 +466,22 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 	 * Return the current count of TCP connection to the broker.
 	 */
 	public int getConnectionCount() {
-		return this.connectionHandlers.size();
+		AtomicReferenceArray<SharedConnectionHandler> sharedHandlers = this.sharedConnectionHandlers;
+		if (sharedHandlers == null) {
+			return this.connectionHandlers.size();
+		}
+		int count = 0;
+		for (StompConnectionHandler handler : this.connectionHandlers.values()) {
+			if (!(handler instanceof MultiplexedSessionHandler)) {
+				count++;
+			}
+		}
+		for (int i = 0; i < sharedHandlers.length(); i++) {
+			if (sharedHandlers.get(i) != null) {
+				count++;
+			}
+		}
+		return count;
 	}
 
 
@@ -399,6 +496,10 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 			this.tcpClient = new ReactorNettyTcpClient<>(this.relayHost, this.relayPort, codec);
 		}
 
+		if (this.clientConnectionPoolSize > 0) {
+			this.sharedConnectionHandlers = new AtomicReferenceArray<>(this.clientConnectionPoolSize);
+		}
+
 		if (logger.isInfoEnabled()) {
 			logger.info("Connecting \"system\" session to " + this.relayHost + ":" + this.relayPort);
 		}
@@ -518,11 +619,26 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 			if (getVirtualHost() != null) {
 				stompAccessor.setHost(getVirtualHost());
 			}
-			StompConnectionHandler handler = new StompConnectionHandler(sessionId, stompAccessor);
-			this.connectionHandlers.put(sessionId, handler);
-			this.stats.incrementConnectCount();
-			Assert.state(this.tcpClient != null, "No TCP client available");
-			this.tcpClient.connect(handler);
+			if (this.sharedConnectionHandlers != null) {
+				while (true) {
+					SharedConnectionHandler sharedHandler = getSharedConnectionHandler(sessionId);
+					MultiplexedSessionHandler handler =
+							new MultiplexedSessionHandler(sessionId, stompAccessor, sharedHandler);
+					this.connectionHandlers.put(sessionId, handler);
+					if (sharedHandler.addSession(handler)) {
+						break;
+					}
+					// Shared connection lost concurrently: retry with a new one
+					this.connectionHandlers.remove(sessionId, handler);
+				}
+			}
+			else {
+				StompConnectionHandler handler = new StompConnectionHandler(sessionId, stompAccessor);
+				this.connectionHandlers.put(sessionId, handler);
+				this.stats.incrementConnectCount();
+				Assert.state(this.tcpClient != null, "No TCP client available");
+				this.tcpClient.connect(handler);
+			}
 		}
 		else if (StompCommand.DISCONNECT.equals(command)) {
 			StompConnectionHandler handler = this.connectionHandlers.get(sessionId);
@@ -547,6 +663,72 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 		}
 	}
 
+	/**
+	 * Return the shared connection for the given client session, opening
+	 * a new TCP connection to the broker if necessary.
+	 */
+	private SharedConnectionHandler getSharedConnectionHandler(String sessionId) {
+		AtomicReferenceArray<SharedConnectionHandler> sharedHandlers = this.sharedConnectionHandlers;
+		Assert.state(sharedHandlers != null, "No shared connections");
+		int index = Math.floorMod(sessionId.hashCode(), sharedHandlers.length());
+		while (true) {
+			SharedConnectionHandler handler = sharedHandlers.get(index);
+			if (handler != null) {
+				if (!handler.isLost()) {
+					return handler;
+				}
+				sharedHandlers.compareAndSet(index, handler, null);
+				continue;
+			}
+			StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+			accessor.setAcceptVersion("1.1,1.2");
+			accessor.setLogin(this.clientLogin);
+			accessor.setPasscode(this.clientPasscode);
+			accessor.setHeartbeat(this.systemHeartbeatSendInterval, this.systemHeartbeatReceiveInterval);
+			String virtualHost = getVirtualHost();
+			if (virtualHost != null) {
+				accessor.setHost(virtualHost);
+			}
+			accessor.setSessionId(SHARED_SESSION_ID_PREFIX + index);
+			handler = new SharedConnectionHandler(index, accessor);
+			if (sharedHandlers.compareAndSet(index, null, handler)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Forwarding " + accessor.getShortLogMessage(EMPTY_PAYLOAD));
+				}
+				this.stats.incrementConnectCount();
+				Assert.state(this.tcpClient != null, "No TCP client available");
+				this.tcpClient.connect(handler);
+				return handler;
+			}
+		}
+	}
+
+	/**
+	 * Wait for the given connection to become writable, up to the configured
+	 * {@link #setBackPressureTimeLimit back-pressure time limit}.
+	 * @return {@code true} if the connection is writable, {@code false} otherwise
+	 */
+	private boolean awaitWritable(TcpConnection<byte[]> connection) {
+		if (this.backPressureTimeLimit <= 0 || connection.isWritable()) {
+			return true;
+		}
+		CountDownLatch latch = new CountDownLatch(1);
+		Runnable task = latch::countDown;
+		connection.onWritable(task);
+		boolean writable = false;
+		try {
+			writable = latch.await(this.backPressureTimeLimit, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		if (!writable) {
+			// Do not let tasks of timed-out callers pile up on a stuck connection
+			connection.removeWritableTask(task);
+		}
+		return writable;
+	}
+
 	@Override
 	public String toString() {
 		return "StompBrokerRelay[" + this.relayHost + ":" + this.relayPort + "]";
@@ -583,6 +765,10 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 			return this.sessionId;
 		}
 
+		protected StompHeaderAccessor getConnectHeaders() {
+			return this.connectHeaders;
+		}
+
 		@Nullable
 		protected TcpConnection<byte[]> getTcpConnection() {
 			return this.tcpConnection;
@@ -631,7 +817,7 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 			}
 		}
 
-		private void sendStompErrorFrameToClient(String errorText) {
+		protected void sendStompErrorFrameToClient(String errorText) {
 			if (this.isRemoteClientSession) {
 				StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.ERROR);
 				if (getHeaderInitializer() != null) {
@@ -797,6 +983,11 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 				}
 			}
 
+			if (!awaitWritable(conn)) {
+				throw new MessageDeliveryException(message, "TCP connection in session " + this.sessionId +
+						" not writable within " + getBackPressureTimeLimit() + " ms");
+			}
+
 			final Message<?> messageToSend = (accessor.isMutable() && accessor.isModified()) ?
 					MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders()) : message;
 
@@ -981,6 +1172,369 @@ public class StompBrokerRelayMessageHandler extends AbstractBrokerMessageHandler
 	}
 
 
+	/**
+	 * Handler for a TCP connection shared by multiple client sessions,
+	 * dispatching messages from the broker to the corresponding session.
+	 */
+	private class SharedConnectionHandler extends StompConnectionHandler {
+
+		private final int index;
+
+		private final AtomicInteger sessionCounter = new AtomicInteger();
+
+		private final Map<String, MultiplexedSessionHandler> sessions = new ConcurrentHashMap<>();
+
+		private final Map<String, ScopedId> subscriptions = new ConcurrentHashMap<>();
+
+		private final Map<String, ScopedId> receipts = new ConcurrentHashMap<>();
+
+		@Nullable
+		private volatile StompHeaderAccessor connectedHeaders;
+
+		@Nullable
+		private volatile String brokerError;
+
+		private volatile boolean lost;
+
+		public SharedConnectionHandler(int index, StompHeaderAccessor connectHeaders) {
+			super(SHARED_SESSION_ID_PREFIX + index, connectHeaders, false);
+			this.index = index;
+		}
+
+		public String nextIdPrefix() {
+			return this.sessionCounter.incrementAndGet() + "-";
+		}
+
+		/**
+		 * Whether the connection has been lost, not accepting any further sessions.
+		 */
+		public boolean isLost() {
+			return this.lost;
+		}
+
+		/**
+		 * Add the given client session, confirming it right away if the connection
+		 * is STOMP connected already.
+		 * @return {@code true} if added, or {@code false} if the connection has
+		 * been lost in the meantime (in which case the session is to be added to
+		 * a new shared connection)
+		 */
+		public boolean addSession(MultiplexedSessionHandler session) {
+			this.sessions.put(session.getSessionId(), session);
+			if (this.lost && this.sessions.remove(session.getSessionId(), session)) {
+				// Lost concurrently, before the session could be notified
+				return false;
+			}
+			StompHeaderAccessor connectedHeaders = this.connectedHeaders;
+			if (connectedHeaders != null) {
+				session.afterSharedConnectionReady(connectedHeaders);
+			}
+			return true;
+		}
+
+		public void removeSession(MultiplexedSessionHandler session) {
+			this.sessions.remove(session.getSessionId());
+			this.receipts.values().removeIf(receipt -> receipt.session == session);
+			TcpConnection<byte[]> conn = getTcpConnection();
+			for (String subscriptionId : session.getSubscriptionIds()) {
+				this.subscriptions.remove(subscriptionId);
+				if (conn != null && this.connectedHeaders != null) {
+					StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+					accessor.setSubscriptionId(subscriptionId);
+					conn.send(MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders())).addCallback(
+							result -> {},
+							ex -> {
+								if (logger.isDebugEnabled()) {
+									logger.debug("Failed to unsubscribe in session " + getSessionId(), ex);
+								}
+							});
+				}
+			}
+		}
+
+		public ListenableFuture<Void> forward(MultiplexedSessionHandler session,
+				Message<?> message, StompHeaderAccessor accessor) {
+
+			if (getTcpConnection() == null || this.connectedHeaders == null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Shared TCP connection closed already, ignoring " +
+							accessor.getShortLogMessage(message.getPayload()));
+				}
+				return EMPTY_TASK;
+			}
+
+			// Always copy: the original headers may be seen by other inbound channel subscribers
+			StompHeaderAccessor accessorToUse = StompHeaderAccessor.wrap(message);
+			StompCommand command = accessorToUse.getCommand();
+			String subscriptionId = accessorToUse.getSubscriptionId();
+			if (subscriptionId != null &&
+					(StompCommand.SUBSCRIBE.equals(command) || StompCommand.UNSUBSCRIBE.equals(command))) {
+				String scopedId = session.scope(subscriptionId);
+				accessorToUse.setSubscriptionId(scopedId);
+				if (StompCommand.SUBSCRIBE.equals(command)) {
+					this.subscriptions.put(scopedId, new ScopedId(session, subscriptionId));
+					session.getSubscriptionIds().add(scopedId);
+				}
+				else {
+					this.subscriptions.remove(scopedId);
+					session.getSubscriptionIds().remove(scopedId);
+				}
+			}
+			String receipt = accessorToUse.getReceipt();
+			if (receipt != null) {
+				String scopedId = session.scope(receipt);
+				accessorToUse.setReceipt(scopedId);
+				this.receipts.put(scopedId, new ScopedId(session, receipt));
+			}
+			String transaction = accessorToUse.getFirstNativeHeader(TRANSACTION_HEADER);
+			if (transaction != null) {
+				accessorToUse.setNativeHeader(TRANSACTION_HEADER, session.scope(transaction));
+			}
+			if (StompCommand.ACK.equals(command) || StompCommand.NACK.equals(command)) {
+				// STOMP 1.1: subscription id as scoped for the broker
+				String subscription = accessorToUse.getFirstNativeHeader(StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER);
+				if (subscription != null) {
+					accessorToUse.setNativeHeader(StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER, session.scope(subscription));
+				}
+				// STOMP 1.2: ack id as scoped for the client session when dispatching the MESSAGE
+				String ackId = accessorToUse.getFirstNativeHeader(StompHeaderAccessor.STOMP_ID_HEADER);
+				if (ackId != null) {
+					String brokerAckId = session.unscope(ackId);
+					if (brokerAckId == null) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("Ignoring " + command + " for message of other client session in " +
+									accessor.getShortLogMessage(message.getPayload()));
+						}
+						return EMPTY_TASK;
+					}
+					accessorToUse.setNativeHeader(StompHeaderAccessor.STOMP_ID_HEADER, brokerAckId);
+				}
+			}
+			return forward(message, accessorToUse);
+		}
+
+		@Override
+		protected void afterStompConnected(StompHeaderAccessor connectedHeaders) {
+			super.afterStompConnected(connectedHeaders);
+			this.connectedHeaders = connectedHeaders;
+			for (MultiplexedSessionHandler session : this.sessions.values()) {
+				session.afterSharedConnectionReady(connectedHeaders);
+			}
+		}
+
+		@Override
+		protected void handleInboundMessage(Message<?> message) {
+			StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+			if (accessor == null) {
+				return;
+			}
+			StompCommand command = accessor.getCommand();
+			if (StompCommand.MESSAGE.equals(command)) {
+				String subscriptionId = accessor.getSubscriptionId();
+				ScopedId target = (subscriptionId != null ? this.subscriptions.get(subscriptionId) : null);
+				if (target != null) {
+					accessor.setSubscriptionId(target.id);
+					String ackId = accessor.getAck();
+					if (ackId != null) {
+						accessor.setAck(target.session.scope(ackId));
+					}
+					target.session.handleBrokerMessage(message, accessor);
+				}
+				else if (logger.isDebugEnabled()) {
+					logger.debug("No client session for " + accessor.getShortLogMessage(message.getPayload()));
+				}
+			}
+			else if (StompCommand.RECEIPT.equals(command) || StompCommand.ERROR.equals(command)) {
+				if (StompCommand.ERROR.equals(command)) {
+					// Broker closes the connection after an ERROR, affecting all sessions:
+					// pass its message on to those not receiving the ERROR frame itself
+					String error = accessor.getMessage();
+					this.brokerError = (error != null ? error : "ERROR frame received from broker.");
+				}
+				String receiptId = accessor.getReceiptId();
+				ScopedId target = (receiptId != null ? this.receipts.remove(receiptId) : null);
+				if (target != null) {
+					accessor.setReceiptId(target.id);
+					target.session.handleBrokerMessage(message, accessor);
+				}
+			}
+		}
+
+		@Override
+		protected void handleTcpConnectionFailure(String error, @Nullable Throwable ex) {
+			super.handleTcpConnectionFailure(error, ex);
+			afterSharedConnectionLost(error);
+		}
+
+		@Override
+		public void afterConnectionClosed() {
+			boolean connected = (getTcpConnection() != null);
+			super.afterConnectionClosed();
+			if (connected) {
+				afterSharedConnectionLost("Connection to broker closed.");
+			}
+		}
+
+		private void afterSharedConnectionLost(String error) {
+			this.lost = true;
+			this.connectedHeaders = null;
+			AtomicReferenceArray<SharedConnectionHandler> sharedHandlers = sharedConnectionHandlers;
+			if (sharedHandlers != null) {
+				sharedHandlers.compareAndSet(this.index, this, null);
+			}
+			String brokerError = this.brokerError;
+			String errorToSend = (brokerError != null ? brokerError : error);
+			for (MultiplexedSessionHandler session : new ArrayList<>(this.sessions.values())) {
+				if (!this.sessions.remove(session.getSessionId(), session)) {
+					// Removed by a concurrent addSession or DISCONNECT
+					continue;
+				}
+				try {
+					session.sendStompErrorFrameToClient(errorToSend);
+				}
+				finally {
+					session.clearConnection();
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "SharedConnectionHandler[sessionId=" + getSessionId() + ", " +
+					this.sessions.size() + " client sessions]";
+		}
+	}
+
+
+	/**
+	 * Handler for a client session multiplexed over a {@link SharedConnectionHandler}.
+	 * Not connected to the broker by itself, hence never registered with the TCP client.
+	 */
+	private class MultiplexedSessionHandler extends StompConnectionHandler {
+
+		private final SharedConnectionHandler sharedHandler;
+
+		private final String idPrefix;
+
+		private final Set<String> subscriptionIds = ConcurrentHashMap.newKeySet();
+
+		private final AtomicBoolean connected = new AtomicBoolean();
+
+		public MultiplexedSessionHandler(String sessionId, StompHeaderAccessor connectHeaders,
+				SharedConnectionHandler sharedHandler) {
+
+			super(sessionId, connectHeaders);
+			this.sharedHandler = sharedHandler;
+			this.idPrefix = sharedHandler.nextIdPrefix();
+		}
+
+		public String scope(String id) {
+			return this.idPrefix + id;
+		}
+
+		/**
+		 * Return the original id for the given id scoped for this session,
+		 * or {@code null} if not scoped for this session.
+		 */
+		@Nullable
+		public String unscope(String scopedId) {
+			return (scopedId.startsWith(this.idPrefix) ? scopedId.substring(this.idPrefix.length()) : null);
+		}
+
+		public Set<String> getSubscriptionIds() {
+			return this.subscriptionIds;
+		}
+
+		/**
+		 * Confirm the client session once the shared connection is STOMP connected.
+		 */
+		public void afterSharedConnectionReady(StompHeaderAccessor brokerConnectedHeaders) {
+			if (!this.connected.compareAndSet(false, true)) {
+				return;
+			}
+			StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECTED);
+			if (getHeaderInitializer() != null) {
+				getHeaderInitializer().initHeaders(accessor);
+			}
+			String version = brokerConnectedHeaders.getVersion();
+			if (version != null) {
+				accessor.setVersion(version);
+			}
+			accessor.setHeartbeat(0, 0);
+			afterStompConnected(accessor);
+			sendToClient(accessor);
+		}
+
+		public void handleBrokerMessage(Message<?> message, StompHeaderAccessor accessor) {
+			accessor.setSessionId(getSessionId());
+			Principal user = getConnectHeaders().getUser();
+			if (user != null) {
+				accessor.setUser(user);
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Received " + accessor.getDetailedLogMessage(message.getPayload()));
+			}
+			handleInboundMessage(message);
+		}
+
+		private void sendToClient(StompHeaderAccessor accessor) {
+			accessor.setSessionId(getSessionId());
+			Principal user = getConnectHeaders().getUser();
+			if (user != null) {
+				accessor.setUser(user);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Sending " + accessor.getShortLogMessage(EMPTY_PAYLOAD));
+			}
+			handleInboundMessage(MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders()));
+		}
+
+		@Override
+		public ListenableFuture<Void> forward(Message<?> message, StompHeaderAccessor accessor) {
+			StompCommand command = accessor.getCommand();
+			if (StompCommand.DISCONNECT.equals(command)) {
+				clearConnection();
+				String receipt = accessor.getReceipt();
+				if (receipt != null) {
+					StompHeaderAccessor receiptAccessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+					receiptAccessor.setReceiptId(receipt);
+					sendToClient(receiptAccessor);
+				}
+				return EMPTY_TASK;
+			}
+			if (command == null) {
+				// Heartbeat: the shared connection maintains its own heartbeats
+				return EMPTY_TASK;
+			}
+			return this.sharedHandler.forward(this, message, accessor);
+		}
+
+		@Override
+		public void clearConnection() {
+			super.clearConnection();
+			this.sharedHandler.removeSession(this);
+		}
+
+		@Override
+		public String toString() {
+			return "MultiplexedSessionHandler[sessionId=" + getSessionId() + "]";
+		}
+	}
+
+
+	private static class ScopedId {
+
+		private final MultiplexedSessionHandler session;
+
+		private final String id;
+
+		public ScopedId(MultiplexedSessionHandler session, String id) {
+			this.session = session;
+			this.id = id;
+		}
+	}
+
+
 	private static class VoidCallable implements Callable<Void> {
 
 		@Override
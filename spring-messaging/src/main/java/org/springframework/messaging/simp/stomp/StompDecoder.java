@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -43,6 +42,11 @@ import org.springframework.util.MultiValueMap;
  * partial content. The caller is then responsible for dealing with that
  * incomplete content by buffering until there is more input available.
  *
+ * <p>Frames are parsed by scanning the buffer in place, with header and
+ * command names resolved through a small cache of previously decoded names
+ * rather than being decoded to a new {@code String} for every frame.
+ * The payload is the only content copied out of the buffer as a whole.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -53,6 +57,18 @@ public class StompDecoder {
 
 	private static final Log logger = LogFactory.getLog(StompDecoder.class);
 
+	private static final int NAME_CACHE_SIZE = 64;
+
+	private static final int NAME_CACHE_MAX_LENGTH = 32;
+
+
+	/**
+	 * Previously decoded command and header names, indexed by hash.
+	 * Racy updates are harmless since entries are immutable Strings
+	 * that get verified against the buffer content on every lookup.
+	 */
+	private final String[] nameCache = new String[NAME_CACHE_SIZE];
+
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
@@ -205,50 +221,131 @@ public class StompDecoder {
 	}
 
 	private String readCommand(ByteBuffer byteBuffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (byteBuffer.remaining() > 0 && !tryConsumeEndOfLine(byteBuffer)) {
-			command.write(byteBuffer.get());
-		}
-		return new String(command.toByteArray(), StandardCharsets.UTF_8);
+		int start = byteBuffer.position();
+		int end = findEndOfLine(byteBuffer, start);
+		String command = readName(byteBuffer, start, end);
+		((Buffer) byteBuffer).position(end);
+		tryConsumeEndOfLine(byteBuffer);
+		return command;
 	}
 
 	private void readHeaders(ByteBuffer byteBuffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
-			while (byteBuffer.hasRemaining()) {
-				if (tryConsumeEndOfLine(byteBuffer)) {
-					headerComplete = true;
-					break;
+			int start = byteBuffer.position();
+			int end = findEndOfLine(byteBuffer, start);
+			((Buffer) byteBuffer).position(end);
+			if (end == start) {
+				tryConsumeEndOfLine(byteBuffer);
+				break;
+			}
+			if (!tryConsumeEndOfLine(byteBuffer)) {
+				// Incomplete header line
+				break;
+			}
+			int colonIndex = indexOf(byteBuffer, (byte) ':', start, end);
+			if (colonIndex <= start) {
+				if (byteBuffer.remaining() > 0) {
+					throw new StompConversionException("Illegal header: '" + readString(byteBuffer, start, end) +
+							"'. A header must be of the form <name>:[<value>].");
 				}
-				headerStream.write(byteBuffer.get());
 			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = new String(headerStream.toByteArray(), StandardCharsets.UTF_8);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
-					if (byteBuffer.remaining() > 0) {
-						throw new StompConversionException("Illegal header: '" + header +
-								"'. A header must be of the form <name>:[<value>].");
-					}
+			else {
+				String headerName = readName(byteBuffer, start, colonIndex);
+				String headerValue = readString(byteBuffer, colonIndex + 1, end);
+				if (headerValue.indexOf('\\') != -1) {
+					headerValue = unescape(headerValue);
 				}
-				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
-					try {
-						headerAccessor.addNativeHeader(headerName, headerValue);
-					}
-					catch (InvalidMimeTypeException ex) {
-						if (byteBuffer.remaining() > 0) {
-							throw ex;
-						}
+				try {
+					headerAccessor.addNativeHeader(headerName, headerValue);
+				}
+				catch (InvalidMimeTypeException ex) {
+					if (byteBuffer.remaining() > 0) {
+						throw ex;
 					}
 				}
 			}
-			else {
-				break;
+		}
+	}
+
+	/**
+	 * Read the command or header name between the given indexes, reusing a
+	 * previously decoded name with the same content if available.
+	 */
+	private String readName(ByteBuffer byteBuffer, int start, int end) {
+		int length = end - start;
+		if (length == 0) {
+			return "";
+		}
+		if (length > NAME_CACHE_MAX_LENGTH) {
+			return unescapeIfNecessary(readString(byteBuffer, start, end));
+		}
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			byte b = byteBuffer.get(i);
+			if (b < 0 || b == '\\') {
+				// Non-ASCII or escaped content: not worth caching
+				return unescapeIfNecessary(readString(byteBuffer, start, end));
+			}
+			hash = 31 * hash + b;
+		}
+		int index = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+		String name = this.nameCache[index];
+		if (name == null || !matches(name, byteBuffer, start, length)) {
+			name = readString(byteBuffer, start, end);
+			this.nameCache[index] = name;
+		}
+		return name;
+	}
+
+	private static boolean matches(String name, ByteBuffer byteBuffer, int start, int length) {
+		if (name.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (name.charAt(i) != byteBuffer.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String readString(ByteBuffer byteBuffer, int start, int end) {
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = byteBuffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Return the index of the first EOL character from the given index on,
+	 * or the limit of the buffer if there is none.
+	 */
+	private static int findEndOfLine(ByteBuffer byteBuffer, int start) {
+		int limit = byteBuffer.limit();
+		for (int i = start; i < limit; i++) {
+			byte b = byteBuffer.get(i);
+			if (b == '\n' || b == '\r') {
+				return i;
+			}
+		}
+		return limit;
+	}
+
+	private static int indexOf(ByteBuffer byteBuffer, byte value, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (byteBuffer.get(i) == value) {
+				return i;
 			}
 		}
+		return -1;
+	}
+
+	private String unescapeIfNecessary(String inString) {
+		return (inString.indexOf('\\') != -1 ? unescape(inString) : inString);
 	}
 
 	/**
@@ -317,16 +414,14 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (byteBuffer.remaining() > 0) {
-				byte b = byteBuffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
-				}
+			int end = indexOf(byteBuffer, (byte) 0, byteBuffer.position(), byteBuffer.limit());
+			if (end != -1) {
+				byte[] payload = new byte[end - byteBuffer.position()];
+				byteBuffer.get(payload);
+				byteBuffer.get();
+				return payload;
 			}
+			((Buffer) byteBuffer).position(byteBuffer.limit());
 		}
 		return null;
 	}
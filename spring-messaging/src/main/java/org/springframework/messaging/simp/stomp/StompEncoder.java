@@ -17,8 +17,8 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -30,6 +30,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
@@ -40,6 +41,9 @@ import org.springframework.util.Assert;
 /**
  * An encoder for STOMP frames.
  *
+ * <p>Frames may be encoded into a {@code byte[]} or written directly into a
+ * {@link DataBuffer}, e.g. a pooled buffer of the underlying transport.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -51,6 +55,16 @@ public class StompEncoder  {
 
 	private static final byte COLON = ':';
 
+	private static final byte[] CONTENT_LENGTH = "content-length:".getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[][] COMMAND_BYTES = new byte[StompCommand.values().length][];
+
+	static {
+		for (StompCommand command : StompCommand.values()) {
+			COMMAND_BYTES[command.ordinal()] = command.name().getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
 	private static final Log logger = LogFactory.getLog(StompEncoder.class);
 
 	private static final int HEADER_KEY_CACHE_LIMIT = 32;
@@ -93,10 +107,38 @@ public class StompEncoder  {
 		Assert.notNull(headers, "'headers' is required");
 		Assert.notNull(payload, "'payload' is required");
 
-		try {
-			ByteArrayOutputStream baos = new ByteArrayOutputStream(128 + payload.length);
-			DataOutputStream output = new DataOutputStream(baos);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(128 + payload.length);
+		encode(headers, payload, output);
+		return output.toByteArray();
+	}
+
+	/**
+	 * Encodes the given STOMP {@code message} into the given {@link DataBuffer}.
+	 * @param message the message to encode
+	 * @param buffer the buffer to write the encoded message to
+	 * @since 5.0
+	 */
+	public void encode(Message<byte[]> message, DataBuffer buffer) {
+		encode(message.getHeaders(), message.getPayload(), buffer);
+	}
+
+	/**
+	 * Encodes the given payload and headers into the given {@link DataBuffer}.
+	 * @param headers the headers
+	 * @param payload the payload
+	 * @param buffer the buffer to write the encoded message to
+	 * @since 5.0
+	 */
+	public void encode(Map<String, Object> headers, byte[] payload, DataBuffer buffer) {
+		Assert.notNull(headers, "'headers' is required");
+		Assert.notNull(payload, "'payload' is required");
+		Assert.notNull(buffer, "'buffer' is required");
+
+		encode(headers, payload, buffer.asOutputStream());
+	}
 
+	private void encode(Map<String, Object> headers, byte[] payload, OutputStream output) {
+		try {
 			if (SimpMessageType.HEARTBEAT.equals(SimpMessageHeaderAccessor.getMessageType(headers))) {
 				logger.trace("Encoding heartbeat");
 				output.write(StompDecoder.HEARTBEAT_PAYLOAD);
@@ -108,15 +150,13 @@ public class StompEncoder  {
 					throw new IllegalStateException("Missing STOMP command: " + headers);
 				}
 
-				output.write(command.toString().getBytes(StandardCharsets.UTF_8));
+				output.write(COMMAND_BYTES[command.ordinal()]);
 				output.write(LF);
 				writeHeaders(command, headers, payload, output);
 				output.write(LF);
 				writeBody(payload, output);
 				output.write((byte) 0);
 			}
-
-			return baos.toByteArray();
 		}
 		catch (IOException ex) {
 			throw new StompConversionException("Failed to encode STOMP frame, headers=" + headers,  ex);
@@ -124,7 +164,7 @@ public class StompEncoder  {
 	}
 
 	private void writeHeaders(StompCommand command, Map<String, Object> headers, byte[] payload,
-			DataOutputStream output) throws IOException {
+			OutputStream output) throws IOException {
 
 		@SuppressWarnings("unchecked")
 		Map<String,List<String>> nativeHeaders =
@@ -162,7 +202,7 @@ public class StompEncoder  {
 
 		if (command.requiresContentLength()) {
 			int contentLength = payload.length;
-			output.write("content-length:".getBytes(StandardCharsets.UTF_8));
+			output.write(CONTENT_LENGTH);
 			output.write(Integer.toString(contentLength).getBytes(StandardCharsets.UTF_8));
 			output.write(LF);
 		}
@@ -228,7 +268,7 @@ public class StompEncoder  {
 		return sb;
 	}
 
-	private void writeBody(byte[] payload, DataOutputStream output) throws IOException {
+	private void writeBody(byte[] payload, OutputStream output) throws IOException {
 		output.write(payload);
 	}
 
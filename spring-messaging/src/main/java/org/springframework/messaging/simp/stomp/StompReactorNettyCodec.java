@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,12 +18,20 @@ package org.springframework.messaging.simp.stomp;
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.tcp.reactor.AbstractNioBufferReactorNettyCodec;
 
 /**
  * Simple delegation to StompDecoder and StompEncoder.
  *
+ * <p>Frames are decoded from an NIO view of the input buffer and encoded
+ * directly into the (typically pooled) output buffer, without intermediate
+ * {@code byte[]} copies of the entire frame.
+ *
  * @author Rossen Stoyanchev
  * @since 5.0
  */
@@ -33,6 +41,8 @@ class StompReactorNettyCodec extends AbstractNioBufferReactorNettyCodec<byte[]>
 
 	private final StompEncoder encoder;
 
+	private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(ByteBufAllocator.DEFAULT);
+
 
 	public StompReactorNettyCodec() {
 		this(new StompDecoder());
@@ -53,6 +63,12 @@ class StompReactorNettyCodec extends AbstractNioBufferReactorNettyCodec<byte[]>
 		return this.decoder.decode(nioBuffer);
 	}
 
+	@Override
+	public void encode(Message<byte[]> message, ByteBuf outputBuffer) {
+		this.encoder.encode(message, this.bufferFactory.wrap(outputBuffer));
+	}
+
+	@Override
 	protected ByteBuffer encodeInternal(Message<byte[]> message) {
 		return ByteBuffer.wrap(this.encoder.encode(message));
 	}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.support;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * {@link MultiValueMap} for native message headers, layering copy-on-write
+ * modifications over an immutable base map which may be shared across the
+ * native headers of several messages.
+ *
+ * <p>Once {@link #freeze() frozen} along with its message headers, a copy of
+ * this map for a derived message shares the base map instead of copying its
+ * entries. Only modified headers are held by the copy itself, and a merged
+ * view of the base map and the modifications is only materialized when
+ * iterating over the map after modifications.
+ *
+ * @author agent
+ * @since 5.0
+ * @see NativeMessageHeaderAccessor
+ */
+@SuppressWarnings("serial")
+final class NativeHeaderMap extends AbstractMap<String, List<String>>
+		implements MultiValueMap<String, String>, Serializable {
+
+	/** Marker for base entries removed in the overlay */
+	private static final List<String> REMOVED = Collections.unmodifiableList(new ArrayList<>(0));
+
+
+	private Map<String, List<String>> base;
+
+	@Nullable
+	private Map<String, List<String>> overlay;
+
+	@Nullable
+	private transient Map<String, List<String>> merged;
+
+	private boolean frozen;
+
+
+	/**
+	 * Create an empty map.
+	 */
+	public NativeHeaderMap() {
+		this.base = Collections.emptyMap();
+	}
+
+	/**
+	 * Create a copy of the given native headers, sharing the base map of
+	 * a {@code NativeHeaderMap} and copying any other entries.
+	 */
+	public NativeHeaderMap(Map<String, List<String>> nativeHeaders) {
+		if (nativeHeaders instanceof NativeHeaderMap) {
+			NativeHeaderMap other = (NativeHeaderMap) nativeHeaders;
+			this.base = other.base;
+			if (other.overlay != null) {
+				this.overlay = new LinkedHashMap<>(other.overlay);
+			}
+		}
+		else {
+			this.base = Collections.emptyMap();
+			if (!nativeHeaders.isEmpty()) {
+				this.overlay = new LinkedHashMap<>(nativeHeaders);
+			}
+		}
+	}
+
+
+	/**
+	 * Make this map unmodifiable, merging any modifications into a new base map
+	 * to be shared with copies of this map.
+	 */
+	public void freeze() {
+		if (!this.frozen) {
+			if (this.overlay != null) {
+				Map<String, List<String>> compacted = new LinkedHashMap<>(getMerged());
+				compacted.replaceAll((name, values) ->
+						(this.base.get(name) == values ? values : Collections.unmodifiableList(values)));
+				this.base = Collections.unmodifiableMap(compacted);
+				this.overlay = null;
+				this.merged = null;
+			}
+			this.frozen = true;
+		}
+	}
+
+	/**
+	 * Whether this map has been frozen.
+	 */
+	public boolean isFrozen() {
+		return this.frozen;
+	}
+
+
+	@Override
+	public int size() {
+		return (this.overlay != null ? getMerged().size() : this.base.size());
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return (size() == 0);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return (get(key) != null);
+	}
+
+	@Override
+	@Nullable
+	public List<String> get(Object key) {
+		if (this.overlay != null) {
+			List<String> values = this.overlay.get(key);
+			if (values != null) {
+				return (values != REMOVED ? values : null);
+			}
+		}
+		return this.base.get(key);
+	}
+
+	@Override
+	@Nullable
+	public List<String> put(String key, List<String> values) {
+		List<String> previous = get(key);
+		if (values == null) {
+			remove(key);
+		}
+		else {
+			getOverlay().put(key, values);
+		}
+		return previous;
+	}
+
+	@Override
+	@Nullable
+	public List<String> remove(Object key) {
+		List<String> previous = get(key);
+		if (previous != null) {
+			Map<String, List<String>> overlay = getOverlay();
+			if (this.base.containsKey(key)) {
+				overlay.put((String) key, REMOVED);
+			}
+			else {
+				overlay.remove(key);
+			}
+		}
+		return previous;
+	}
+
+	@Override
+	public void clear() {
+		checkNotFrozen();
+		this.base = Collections.emptyMap();
+		this.overlay = null;
+		this.merged = null;
+	}
+
+	@Override
+	public Set<Entry<String, List<String>>> entrySet() {
+		return new EntrySet();
+	}
+
+
+	@Override
+	@Nullable
+	public String getFirst(String key) {
+		List<String> values = get(key);
+		return (values != null && !values.isEmpty() ? values.get(0) : null);
+	}
+
+	@Override
+	public void add(String key, @Nullable String value) {
+		getValuesForUpdate(key).add(value);
+	}
+
+	@Override
+	public void addAll(String key, List<? extends String> values) {
+		getValuesForUpdate(key).addAll(values);
+	}
+
+	@Override
+	public void addAll(MultiValueMap<String, String> values) {
+		values.forEach(this::addAll);
+	}
+
+	@Override
+	public void set(String key, @Nullable String value) {
+		List<String> values = new ArrayList<>(1);
+		values.add(value);
+		getOverlay().put(key, values);
+	}
+
+	@Override
+	public void setAll(Map<String, String> values) {
+		values.forEach(this::set);
+	}
+
+	@Override
+	public Map<String, String> toSingleValueMap() {
+		Map<String, String> singleValueMap = new LinkedHashMap<>(size());
+		forEach((key, values) -> singleValueMap.put(key, values.get(0)));
+		return singleValueMap;
+	}
+
+
+	/**
+	 * Return the overlay for modifications, invalidating the merged view.
+	 */
+	private Map<String, List<String>> getOverlay() {
+		checkNotFrozen();
+		this.merged = null;
+		if (this.overlay == null) {
+			this.overlay = new LinkedHashMap<>(4);
+		}
+		return this.overlay;
+	}
+
+	/**
+	 * Return a modifiable value list for the given header, copying the values
+	 * from the base map when modifying them for the first time.
+	 */
+	private List<String> getValuesForUpdate(String key) {
+		Map<String, List<String>> overlay = getOverlay();
+		List<String> values = overlay.get(key);
+		if (values == null || values == REMOVED) {
+			List<String> baseValues = (values == null ? this.base.get(key) : null);
+			values = (baseValues != null ? new ArrayList<>(baseValues) : new ArrayList<>(1));
+			overlay.put(key, values);
+		}
+		return values;
+	}
+
+	private Map<String, List<String>> getMerged() {
+		Map<String, List<String>> overlay = this.overlay;
+		if (overlay == null) {
+			return this.base;
+		}
+		Map<String, List<String>> merged = this.merged;
+		if (merged == null) {
+			merged = new LinkedHashMap<>(this.base.size() + overlay.size());
+			for (Entry<String, List<String>> entry : this.base.entrySet()) {
+				List<String> values = overlay.get(entry.getKey());
+				if (values == null) {
+					merged.put(entry.getKey(), entry.getValue());
+				}
+				else if (values != REMOVED) {
+					merged.put(entry.getKey(), values);
+				}
+			}
+			for (Entry<String, List<String>> entry : overlay.entrySet()) {
+				if (entry.getValue() != REMOVED && !this.base.containsKey(entry.getKey())) {
+					merged.put(entry.getKey(), entry.getValue());
+				}
+			}
+			this.merged = merged;
+		}
+		return merged;
+	}
+
+	private void checkNotFrozen() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException("Native headers are immutable");
+		}
+	}
+
+	private Object writeReplace() {
+		return new LinkedMultiValueMap<>(getMerged());
+	}
+
+
+	/**
+	 * Read-only entry set view, iterating over the base map or over the
+	 * merged entries in case of modifications.
+	 */
+	private class EntrySet extends AbstractSet<Entry<String, List<String>>> {
+
+		@Override
+		public Iterator<Entry<String, List<String>>> iterator() {
+			return Collections.unmodifiableMap(getMerged()).entrySet().iterator();
+		}
+
+		@Override
+		public int size() {
+			return NativeHeaderMap.this.size();
+		}
+	}
+
+}
@@ -36,6 +36,10 @@ import org.springframework.util.ObjectUtils;
  * Native message headers are kept in a {@code Map<String, List<String>>} under the key
  * {@link #NATIVE_HEADERS}.
  *
+ * <p>The native headers map is copy-on-write: once a message has been created, an
+ * accessor for a derived message shares the native headers of the original message,
+ * holding only the native headers modified through the accessor itself.
+ *
  * <p>This class is not intended for direct use but is rather expected to be used
  * indirectly through protocol-specific sub-classes such as
  * {@link org.springframework.messaging.simp.stomp.StompHeaderAccessor StompHeaderAccessor}.
@@ -65,7 +69,7 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 	 */
 	protected NativeMessageHeaderAccessor(@Nullable Map<String, List<String>> nativeHeaders) {
 		if (!CollectionUtils.isEmpty(nativeHeaders)) {
-			setHeader(NATIVE_HEADERS, new LinkedMultiValueMap<>(nativeHeaders));
+			setHeader(NATIVE_HEADERS, new NativeHeaderMap(nativeHeaders));
 		}
 	}
 
@@ -80,7 +84,7 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 			if (map != null) {
 				// Force removal since setHeader checks for equality
 				removeHeader(NATIVE_HEADERS);
-				setHeader(NATIVE_HEADERS, new LinkedMultiValueMap<>(map));
+				setHeader(NATIVE_HEADERS, new NativeHeaderMap(map));
 			}
 		}
 	}
@@ -103,7 +107,10 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 	public void setImmutable() {
 		if (isMutable()) {
 			Map<String, List<String>> map = getNativeHeaders();
-			if (map != null) {
+			if (map instanceof NativeHeaderMap) {
+				((NativeHeaderMap) map).freeze();
+			}
+			else if (map != null) {
 				// Force removal since setHeader checks for equality
 				removeHeader(NATIVE_HEADERS);
 				setHeader(NATIVE_HEADERS, Collections.unmodifiableMap(map));
@@ -160,7 +167,7 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 			return;
 		}
 		if (map == null) {
-			map = new LinkedMultiValueMap<>(4);
+			map = new NativeHeaderMap();
 			setHeader(NATIVE_HEADERS, map);
 		}
 		List<String> values = new LinkedList<>();
@@ -181,15 +188,20 @@ public class NativeMessageHeaderAccessor extends MessageHeaderAccessor {
 		}
 		Map<String, List<String>> nativeHeaders = getNativeHeaders();
 		if (nativeHeaders == null) {
-			nativeHeaders = new LinkedMultiValueMap<>(4);
+			nativeHeaders = new NativeHeaderMap();
 			setHeader(NATIVE_HEADERS, nativeHeaders);
 		}
-		List<String> values = nativeHeaders.get(name);
-		if (values == null) {
-			values = new LinkedList<>();
-			nativeHeaders.put(name, values);
+		if (nativeHeaders instanceof NativeHeaderMap) {
+			((NativeHeaderMap) nativeHeaders).add(name, value);
+		}
+		else {
+			List<String> values = nativeHeaders.get(name);
+			if (values == null) {
+				values = new LinkedList<>();
+				nativeHeaders.put(name, values);
+			}
+			values.add(value);
 		}
-		values.add(value);
 		setModified(true);
 	}
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.support;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.IdGenerator;
+
+/**
+ * An {@link IdGenerator} for message ids that combines a random prefix, chosen
+ * once per generator instance through {@link SecureRandom}, with a sequence
+ * number incremented for each id.
+ *
+ * <p>Generating an id is just an atomic increment, in contrast to the random
+ * bits computed for every id by {@link org.springframework.util.AlternativeJdkIdGenerator}
+ * (the default for {@link org.springframework.messaging.MessageHeaders}). The
+ * ids are unique for the lifetime of the generator and unique across generator
+ * instances with high probability, but they are predictable: use this generator
+ * only where message ids do not need to be unguessable.
+ *
+ * @author agent
+ * @since 5.0
+ * @see IdTimestampMessageHeaderInitializer#setIdGenerator
+ */
+public class SequentialIdGenerator implements IdGenerator {
+
+	private final long mostSigBits;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+
+	public SequentialIdGenerator() {
+		SecureRandom random = new SecureRandom();
+		long mostSigBits;
+		do {
+			mostSigBits = random.nextLong();
+		}
+		while (mostSigBits == 0);  // never produce MessageHeaders.ID_VALUE_NONE
+		this.mostSigBits = mostSigBits;
+	}
+
+
+	@Override
+	public UUID generateId() {
+		return new UUID(this.mostSigBits, this.sequence.incrementAndGet());
+	}
+
+}
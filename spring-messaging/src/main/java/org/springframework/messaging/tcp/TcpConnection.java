@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -52,6 +52,40 @@ public interface TcpConnection<P> extends Closeable {
 	 */
 	void onWriteInactivity(Runnable runnable, long duration);
 
+	/**
+	 * Whether the connection can accept more messages without buffering them
+	 * beyond the limits of the underlying transport.
+	 * <p>The default implementation always returns {@code true}.
+	 * @since 5.0
+	 * @see #onWritable(Runnable)
+	 */
+	default boolean isWritable() {
+		return true;
+	}
+
+	/**
+	 * Register a one-time task to invoke once the connection is writable,
+	 * or immediately if it is writable already.
+	 * <p>The default implementation invokes the task immediately.
+	 * @param runnable the task to invoke
+	 * @since 5.0
+	 * @see #isWritable()
+	 */
+	default void onWritable(Runnable runnable) {
+		runnable.run();
+	}
+
+	/**
+	 * Remove a task registered through {@link #onWritable} that has not been
+	 * invoked yet, e.g. after giving up on waiting for the connection.
+	 * <p>The default implementation does nothing, since the default
+	 * {@link #onWritable} implementation invokes tasks right away.
+	 * @param runnable the task to remove
+	 * @since 5.0
+	 */
+	default void removeWritableTask(Runnable runnable) {
+	}
+
 	/**
 	 * Close the connection.
 	 */
@@ -27,6 +27,7 @@ import java.util.function.Function;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.ChannelGroupFuture;
 import io.netty.channel.group.DefaultChannelGroup;
@@ -51,7 +52,6 @@ import reactor.ipc.netty.tcp.TcpResources;
 
 import org.springframework.messaging.Message;
 import org.springframework.messaging.tcp.ReconnectStrategy;
-import org.springframework.messaging.tcp.TcpConnection;
 import org.springframework.messaging.tcp.TcpConnectionHandler;
 import org.springframework.messaging.tcp.TcpOperations;
 import org.springframework.util.Assert;
@@ -241,10 +241,11 @@ public class ReactorNettyTcpClient<P> implements TcpOperations<P> {
 		@SuppressWarnings("unchecked")
 		public Publisher<Void> apply(NettyInbound inbound, NettyOutbound outbound) {
 			DirectProcessor<Void> completion = DirectProcessor.create();
-			TcpConnection<P> connection = new ReactorNettyTcpConnection<>(inbound, outbound,  codec, completion);
+			ReactorNettyTcpConnection<P> connection = new ReactorNettyTcpConnection<>(inbound, outbound,  codec, completion);
 			scheduler.schedule(() -> connectionHandler.afterConnected(connection));
 
 			inbound.context().addHandler(new StompMessageDecoder<>(codec));
+			inbound.context().addHandler(new WritabilityChangeHandler(connection));
 
 			inbound.receiveObject()
 					.cast(Message.class)
@@ -274,4 +275,20 @@ public class ReactorNettyTcpClient<P> implements TcpOperations<P> {
 		}
 	}
 
+
+	private static class WritabilityChangeHandler extends ChannelInboundHandlerAdapter {
+
+		private final ReactorNettyTcpConnection<?> connection;
+
+		public WritabilityChangeHandler(ReactorNettyTcpConnection<?> connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+			this.connection.handleWritabilityChanged();
+			super.channelWritabilityChanged(ctx);
+		}
+	}
+
 }
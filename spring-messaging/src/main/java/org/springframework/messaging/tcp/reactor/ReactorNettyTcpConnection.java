@@ -16,6 +16,9 @@
 
 package org.springframework.messaging.tcp.reactor;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelPipeline;
 import reactor.core.publisher.DirectProcessor;
@@ -44,6 +47,8 @@ public class ReactorNettyTcpConnection<P> implements TcpConnection<P> {
 
 	private final DirectProcessor<Void> closeProcessor;
 
+	private final Queue<Runnable> writableTasks = new ConcurrentLinkedQueue<>();
+
 
 	public ReactorNettyTcpConnection(NettyInbound inbound, NettyOutbound outbound,
 			ReactorNettyCodec<P> codec, DirectProcessor<Void> closeProcessor) {
@@ -82,6 +87,36 @@ public class ReactorNettyTcpConnection<P> implements TcpConnection<P> {
 		this.outbound.onWriteIdle(inactivityDuration, runnable);
 	}
 
+	@Override
+	public boolean isWritable() {
+		return this.inbound.context().channel().isWritable();
+	}
+
+	@Override
+	public void onWritable(Runnable runnable) {
+		this.writableTasks.add(runnable);
+		// Channel may have become writable before the task was added
+		handleWritabilityChanged();
+	}
+
+	@Override
+	public void removeWritableTask(Runnable runnable) {
+		this.writableTasks.remove(runnable);
+	}
+
+	/**
+	 * Invoke the tasks registered through {@link #onWritable} if the channel
+	 * is writable, typically in reaction to a writability change event.
+	 */
+	void handleWritabilityChanged() {
+		if (isWritable()) {
+			Runnable task;
+			while ((task = this.writableTasks.poll()) != null) {
+				task.run();
+			}
+		}
+	}
+
 	@Override
 	public void close() {
 		this.closeProcessor.onComplete();
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.handler.invocation;
+
+import java.lang.reflect.Method;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.MethodParameter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.HandlerMethod;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.ClassUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link InvocableHandlerMethod}.
+ *
+ * @author agent
+ */
+public class InvocableHandlerMethodTests {
+
+	private final Message<?> message = MessageBuilder.withPayload("payload").build();
+
+	private final HandlerMethodArgumentResolverComposite resolvers = new HandlerMethodArgumentResolverComposite();
+
+	private final StubArgumentResolver intResolver = new StubArgumentResolver(Integer.class, 99);
+
+	private final StubArgumentResolver stringResolver = new StubArgumentResolver(String.class, "value");
+
+
+	@Before
+	public void setup() {
+		this.resolvers.addResolver(this.intResolver);
+		this.resolvers.addResolver(this.stringResolver);
+	}
+
+
+	@Test
+	public void resolveArgs() throws Exception {
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(new Handler());
+		assertEquals("99-value", handlerMethod.invoke(this.message));
+		assertEquals(1, this.intResolver.resolveCount);
+		assertEquals(1, this.stringResolver.resolveCount);
+	}
+
+	@Test
+	public void resolversBoundOnce() throws Exception {
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(new Handler());
+		handlerMethod.prepareArgumentResolvers();
+		int supportsCount = this.intResolver.supportsCount + this.stringResolver.supportsCount;
+		for (int i = 0; i < 10; i++) {
+			assertEquals("99-value", handlerMethod.invoke(this.message));
+		}
+		assertEquals(supportsCount, this.intResolver.supportsCount + this.stringResolver.supportsCount);
+		assertEquals(10, this.intResolver.resolveCount);
+	}
+
+	@Test
+	public void providedArgsTakePrecedence() throws Exception {
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(new Handler());
+		assertEquals("1-value", handlerMethod.invoke(this.message, 1));
+		assertEquals(0, this.intResolver.resolveCount);
+		assertEquals(1, this.stringResolver.resolveCount);
+	}
+
+	@Test
+	public void noSuitableResolver() throws Exception {
+		this.resolvers.clear();
+		this.resolvers.addResolver(this.intResolver);
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(new Handler());
+		try {
+			handlerMethod.invoke(this.message);
+			fail("Expected exception");
+		}
+		catch (MethodArgumentResolutionException ex) {
+			assertNotNull(ex.getMessage());
+			assertTrue(ex.getMessage().contains("No suitable resolver for argument 1"));
+		}
+		assertEquals("99-provided", handlerMethod.invoke(this.message, "provided"));
+	}
+
+	@Test
+	public void bindingsResetOnResolverChange() throws Exception {
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(new Handler());
+		handlerMethod.prepareArgumentResolvers();
+		HandlerMethodArgumentResolverComposite otherResolvers = new HandlerMethodArgumentResolverComposite();
+		otherResolvers.addResolver(new StubArgumentResolver(Integer.class, 7));
+		otherResolvers.addResolver(this.stringResolver);
+		handlerMethod.setMessageMethodArgumentResolvers(otherResolvers);
+		assertEquals("7-value", handlerMethod.invoke(this.message));
+		assertEquals(0, this.intResolver.resolveCount);
+	}
+
+	@Test
+	public void createWithResolvedBean() throws Exception {
+		Handler handler = new Handler();
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(handler);
+		assertSame(handlerMethod, handlerMethod.createWithResolvedBean());
+
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerBeanDefinition("handler", new RootBeanDefinition(Handler.class));
+		Method method = ClassUtils.getMethod(Handler.class, "handle", Integer.class, String.class);
+		InvocableHandlerMethod beanNameHandlerMethod =
+				new InvocableHandlerMethod(new HandlerMethod("handler", beanFactory, method));
+		beanNameHandlerMethod.setMessageMethodArgumentResolvers(this.resolvers);
+		beanNameHandlerMethod.prepareArgumentResolvers();
+		int supportsCount = this.intResolver.supportsCount + this.stringResolver.supportsCount;
+
+		InvocableHandlerMethod resolved = beanNameHandlerMethod.createWithResolvedBean();
+		assertNotSame(beanNameHandlerMethod, resolved);
+		assertSame(beanFactory.getBean("handler"), resolved.getBean());
+		assertEquals("99-value", resolved.invoke(this.message));
+		assertEquals(supportsCount, this.intResolver.supportsCount + this.stringResolver.supportsCount);
+	}
+
+	@Test
+	public void invocationTargetException() throws Exception {
+		Handler handler = new Handler();
+		handler.failure = new IllegalStateException("Test failure");
+		InvocableHandlerMethod handlerMethod = createHandlerMethod(handler);
+		try {
+			handlerMethod.invoke(this.message);
+			fail("Expected exception");
+		}
+		catch (IllegalStateException ex) {
+			assertSame(handler.failure, ex);
+		}
+	}
+
+
+	private InvocableHandlerMethod createHandlerMethod(Object handler) {
+		Method method = ClassUtils.getMethod(Handler.class, "handle", Integer.class, String.class);
+		InvocableHandlerMethod handlerMethod = new InvocableHandlerMethod(handler, method);
+		handlerMethod.setMessageMethodArgumentResolvers(this.resolvers);
+		return handlerMethod;
+	}
+
+
+	private static class StubArgumentResolver implements HandlerMethodArgumentResolver {
+
+		private final Class<?> parameterType;
+
+		private final Object value;
+
+		int supportsCount;
+
+		int resolveCount;
+
+		public StubArgumentResolver(Class<?> parameterType, Object value) {
+			this.parameterType = parameterType;
+			this.value = value;
+		}
+
+		@Override
+		public boolean supportsParameter(MethodParameter parameter) {
+			this.supportsCount++;
+			return (parameter.getParameterType() == this.parameterType);
+		}
+
+		@Override
+		public Object resolveArgument(MethodParameter parameter, Message<?> message) {
+			this.resolveCount++;
+			return this.value;
+		}
+	}
+
+
+	public static class Handler {
+
+		RuntimeException failure;
+
+		public String handle(Integer intArg, String stringArg) {
+			if (this.failure != null) {
+				throw this.failure;
+			}
+			return intArg + "-" + stringArg;
+		}
+	}
+
+}
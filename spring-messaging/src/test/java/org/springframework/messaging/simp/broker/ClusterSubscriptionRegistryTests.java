@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import org.springframework.messaging.simp.broker.ClusterSubscriptionRegistry.SubscriptionSummary;
+import org.springframework.util.AntPathMatcher;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ClusterSubscriptionRegistry}.
+ *
+ * @author agent
+ */
+public class ClusterSubscriptionRegistryTests {
+
+	private final ClusterSubscriptionRegistry registry = new ClusterSubscriptionRegistry(new AntPathMatcher(), 3000);
+
+
+	@Test
+	public void localDestinationsCountedAcrossSessions() {
+		this.registry.addSubscription("sess1", "sub1", "/topic/foo");
+		this.registry.addSubscription("sess2", "sub1", "/topic/foo");
+		this.registry.addSubscription("sess2", "sub2", "/topic/bar");
+		assertEquals(new HashSet<>(Arrays.asList("/topic/foo", "/topic/bar")), this.registry.getLocalDestinations());
+
+		this.registry.removeSession("sess2");
+		assertEquals(Collections.singleton("/topic/foo"), this.registry.getLocalDestinations());
+
+		this.registry.removeSubscription("sess1", "sub1");
+		assertTrue(this.registry.getLocalDestinations().isEmpty());
+	}
+
+	@Test
+	public void localDestinationChangesReported() {
+		assertTrue(this.registry.addSubscription("sess1", "sub1", "/topic/foo"));
+		assertFalse(this.registry.addSubscription("sess2", "sub1", "/topic/foo"));
+		assertFalse(this.registry.addSubscription("sess2", "sub1", "/topic/foo"));
+		assertTrue(this.registry.addSubscription("sess2", "sub1", "/topic/bar"));
+
+		assertFalse(this.registry.removeSubscription("sess2", "sub2"));
+		assertFalse(this.registry.removeSession("sess3"));
+		assertTrue(this.registry.removeSession("sess2"));
+		assertTrue(this.registry.removeSubscription("sess1", "sub1"));
+	}
+
+	@Test
+	public void summaryPublishedOnChangeOrRefresh() {
+		SubscriptionSummary summary = this.registry.getSummaryToPublish("node1", 0);
+		assertNotNull(summary);
+		assertTrue(summary.getDestinations().isEmpty());
+		assertNull(this.registry.getSummaryToPublish("node1", 100));
+
+		this.registry.addSubscription("sess1", "sub1", "/topic/foo");
+		summary = this.registry.getSummaryToPublish("node1", 200);
+		assertNotNull(summary);
+		assertEquals("node1", summary.getNodeId());
+		assertEquals(Collections.singleton("/topic/foo"), summary.getDestinations());
+
+		// Additional subscription to the same destination: no change to the summary
+		this.registry.addSubscription("sess2", "sub1", "/topic/foo");
+		assertNull(this.registry.getSummaryToPublish("node1", 300));
+
+		// Refresh before expiring on other nodes
+		assertNotNull(this.registry.getSummaryToPublish("node1", 1200));
+	}
+
+	@Test
+	public void findNodesWithMatchingDestinations() {
+		this.registry.updateRemoteSummary(new SubscriptionSummary("node2",
+				new HashSet<>(Arrays.asList("/topic/foo", "/topic/bar"))), 0);
+		this.registry.updateRemoteSummary(new SubscriptionSummary("node3",
+				Collections.singleton("/topic/**")), 0);
+
+		assertEquals(new HashSet<>(Arrays.asList("node2", "node3")),
+				new HashSet<>(this.registry.findNodes("/topic/foo", 0)));
+		assertEquals(Collections.singletonList("node3"), this.registry.findNodes("/topic/baz", 0));
+		assertTrue(this.registry.findNodes("/queue/foo", 0).isEmpty());
+	}
+
+	@Test
+	public void remoteSummaryReplacedAndRemoved() {
+		this.registry.updateRemoteSummary(new SubscriptionSummary("node2", Collections.singleton("/topic/foo")), 0);
+		this.registry.updateRemoteSummary(new SubscriptionSummary("node2", Collections.singleton("/topic/bar")), 0);
+		assertTrue(this.registry.findNodes("/topic/foo", 0).isEmpty());
+		assertEquals(Collections.singletonList("node2"), this.registry.findNodes("/topic/bar", 0));
+
+		this.registry.updateRemoteSummary(new SubscriptionSummary("node2", Collections.emptySet()), 0);
+		assertTrue(this.registry.getRemoteNodeIds().isEmpty());
+	}
+
+	@Test
+	public void remoteSummaryExpires() {
+		this.registry.updateRemoteSummary(new SubscriptionSummary("node2", Collections.singleton("/topic/foo")), 0);
+		assertEquals(Collections.singletonList("node2"), this.registry.findNodes("/topic/foo", 3000));
+		assertTrue(this.registry.findNodes("/topic/foo", 3001).isEmpty());
+
+		this.registry.purgeExpiredSummaries(2000);
+		assertEquals(Collections.singleton("node2"), this.registry.getRemoteNodeIds());
+		this.registry.purgeExpiredSummaries(4000);
+		assertTrue(this.registry.getRemoteNodeIds().isEmpty());
+	}
+
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.broker;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.ClusterSubscriptionRegistry.SubscriptionSummary;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SocketBrokerClusterTransport}, including a cluster of two
+ * {@link SimpleBrokerMessageHandler} nodes communicating through it.
+ *
+ * @author agent
+ */
+public class SocketBrokerClusterTransportTests {
+
+	private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+	private final List<SocketBrokerClusterTransport> transports = new ArrayList<>();
+
+	private final List<SimpleBrokerMessageHandler> brokers = new ArrayList<>();
+
+
+	@Before
+	public void setup() {
+		this.scheduler.setPoolSize(2);
+		this.scheduler.initialize();
+	}
+
+	@After
+	public void teardown() {
+		this.brokers.forEach(SimpleBrokerMessageHandler::stop);
+		this.transports.forEach(SocketBrokerClusterTransport::stop);
+		this.scheduler.shutdown();
+	}
+
+
+	@Test
+	public void sendAndBroadcast() throws Exception {
+		TestTransport transport1 = createTransport();
+		TestTransport transport2 = createTransport();
+		TestTransport transport3 = createTransport();
+		transport1.start(message -> {});
+		transport2.start(message -> {});
+		transport3.start(message -> {});
+		transport1.setPeers(nodeIds(transport1, transport2, transport3));
+
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination("/topic/foo");
+		accessor.setNativeHeader("foo", "bar");
+		transport1.send(transport2.getLocalNodeId(),
+				MessageBuilder.createMessage("payload".getBytes(), accessor.getMessageHeaders()));
+
+		Message<?> received = transport2.received.poll(5, TimeUnit.SECONDS);
+		assertNotNull(received);
+		assertArrayEquals("payload".getBytes(), (byte[]) received.getPayload());
+		SimpMessageHeaderAccessor receivedAccessor = SimpMessageHeaderAccessor.wrap(received);
+		assertEquals("/topic/foo", receivedAccessor.getDestination());
+		assertEquals("bar", receivedAccessor.getFirstNativeHeader("foo"));
+		assertTrue(transport3.received.isEmpty());
+
+		transport1.broadcast(MessageBuilder.withPayload("broadcast").build());
+		assertEquals("broadcast", transport2.received.poll(5, TimeUnit.SECONDS).getPayload());
+		assertEquals("broadcast", transport3.received.poll(5, TimeUnit.SECONDS).getPayload());
+		assertTrue(transport1.received.isEmpty());
+	}
+
+	@Test
+	public void onlyAllowedClassesDeserialized() throws Exception {
+		TestTransport transport1 = createTransport();
+		TestTransport transport2 = createTransport();
+		transport1.start(message -> {});
+		transport2.setAllowedPayloadTypes(TestPayload.class);
+		transport2.start(message -> {});
+
+		transport1.send(transport2.getLocalNodeId(), MessageBuilder.withPayload(new URL("http://localhost")).build());
+		assertNull(transport2.received.poll(500, TimeUnit.MILLISECONDS));
+
+		transport1.send(transport2.getLocalNodeId(), MessageBuilder.withPayload(new TestPayload("foo")).build());
+		Message<?> received = awaitMessage(transport2);
+		assertEquals("foo", ((TestPayload) received.getPayload()).value);
+	}
+
+	@Test
+	public void messagesExceedingLimitsDropped() throws Exception {
+		TestTransport transport1 = createTransport();
+		TestTransport transport2 = createTransport();
+		transport1.setMaxFrameLength(1024);
+		transport1.start(message -> {});
+		transport2.start(message -> {});
+
+		transport1.send(transport2.getLocalNodeId(), MessageBuilder.withPayload(new byte[2048]).build());
+		assertNull(transport2.received.poll(500, TimeUnit.MILLISECONDS));
+
+		transport1.setMaxFrameLength(1024 * 1024);
+		List<Integer> tooManyObjects = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			tooManyObjects.add(i);
+		}
+		transport1.send(transport2.getLocalNodeId(), MessageBuilder.withPayload(tooManyObjects).build());
+		List<Object> tooDeep = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			tooDeep = new ArrayList<>(Collections.singletonList(tooDeep));
+		}
+		transport1.send(transport2.getLocalNodeId(), MessageBuilder.withPayload(tooDeep).build());
+		transport1.send(transport2.getLocalNodeId(), MessageBuilder.withPayload("foo").build());
+		assertEquals("foo", awaitMessage(transport2).getPayload());
+	}
+
+	@Test
+	public void sendDoesNotBlockOnSlowNode() throws Exception {
+		TestTransport transport = createTransport();
+		transport.setSendQueueCapacity(10);
+		transport.start(message -> {});
+		// Node that never reads, so that writes block once the socket buffers are full
+		try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			String nodeId = serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+			Message<byte[]> message = MessageBuilder.withPayload(new byte[200 * 1024]).build();
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < 200; i++) {
+				transport.send(nodeId, message);
+			}
+			assertTrue(System.currentTimeMillis() - start < 2000);
+		}
+	}
+
+	@Test
+	public void summaryBroadcastOnSubscriptionChange() throws Exception {
+		TestTransport transport1 = createTransport();
+		TestTransport transport2 = createTransport();
+		createBroker(transport1, new CopyOnWriteArrayList<>(), 60000);
+		SimpleBrokerMessageHandler broker2 = createBroker(transport2, new CopyOnWriteArrayList<>(), 60000);
+		transport1.setPeers(nodeIds(transport1, transport2));
+		transport2.setPeers(nodeIds(transport1, transport2));
+
+		broker2.handleMessage(subscribeMessage("sess2", "sub1", "/topic/foo"));
+		awaitSummary(transport1, summary -> summary.getDestinations().contains("/topic/foo"));
+
+		broker2.handleMessage(unsubscribeMessage("sess2", "sub1"));
+		awaitSummary(transport1, summary -> summary.getDestinations().isEmpty());
+	}
+
+	@Test
+	public void messageForwardedOnlyToNodesWithMatchingSubscriptions() throws Exception {
+		TestTransport transport1 = createTransport();
+		TestTransport transport2 = createTransport();
+		List<Message<?>> outbound1 = new CopyOnWriteArrayList<>();
+		List<Message<?>> outbound2 = new CopyOnWriteArrayList<>();
+		SimpleBrokerMessageHandler broker1 = createBroker(transport1, outbound1);
+		SimpleBrokerMessageHandler broker2 = createBroker(transport2, outbound2);
+		transport1.setPeers(nodeIds(transport1, transport2));
+		transport2.setPeers(nodeIds(transport1, transport2));
+
+		broker1.handleMessage(subscribeMessage("sess1", "sub1", "/topic/foo"));
+		broker2.handleMessage(subscribeMessage("sess2", "sub1", "/topic/foo"));
+		broker2.handleMessage(subscribeMessage("sess3", "sub1", "/topic/bar"));
+		awaitSummary(transport1, summary -> summary.getDestinations().contains("/topic/foo"));
+
+		broker1.handleMessage(publishMessage("sess1", "/topic/foo", "message1"));
+		assertEquals(1, outbound1.size());
+		assertEquals("sess1", SimpMessageHeaderAccessor.getSessionId(outbound1.get(0).getHeaders()));
+
+		Message<?> forwarded = awaitMessage(transport2);
+		assertNull(SimpMessageHeaderAccessor.getSessionId(forwarded.getHeaders()));
+		assertEquals(1, outbound2.size());
+		Message<?> delivered = outbound2.get(0);
+		assertEquals("sess2", SimpMessageHeaderAccessor.getSessionId(delivered.getHeaders()));
+		assertEquals("sub1", SimpMessageHeaderAccessor.getSubscriptionId(delivered.getHeaders()));
+		assertEquals("message1", delivered.getPayload());
+
+		// No subscribers for /topic/baz on node 2: not forwarded
+		broker1.handleMessage(publishMessage("sess1", "/topic/baz", "message2"));
+		broker1.handleMessage(publishMessage("sess1", "/topic/bar", "message3"));
+		assertEquals("message3", awaitMessage(transport2).getPayload());
+		assertEquals(2, outbound2.size());
+
+		// Message received from node 2 is not forwarded back
+		assertTrue(transport1.received.stream().allMatch(m -> m.getPayload() instanceof SubscriptionSummary));
+	}
+
+	@Test
+	public void forwardingStopsAfterDisconnect() throws Exception {
+		TestTransport transport1 = createTransport();
+		TestTransport transport2 = createTransport();
+		SimpleBrokerMessageHandler broker1 = createBroker(transport1, new CopyOnWriteArrayList<>());
+		SimpleBrokerMessageHandler broker2 = createBroker(transport2, new CopyOnWriteArrayList<>());
+		transport1.setPeers(nodeIds(transport1, transport2));
+		transport2.setPeers(nodeIds(transport1, transport2));
+
+		broker2.handleMessage(subscribeMessage("sess2", "sub1", "/topic/**"));
+		awaitSummary(transport1, summary -> summary.getDestinations().contains("/topic/**"));
+
+		broker1.handleMessage(publishMessage("sess1", "/topic/foo", "message1"));
+		assertEquals("message1", awaitMessage(transport2).getPayload());
+
+		SimpMessageHeaderAccessor disconnect = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+		disconnect.setSessionId("sess2");
+		broker2.handleMessage(MessageBuilder.createMessage("", disconnect.getMessageHeaders()));
+		broker2.handleMessage(subscribeMessage("sess3", "sub1", "/queue/bar"));
+		awaitSummary(transport1, summary -> summary.getDestinations().equals(Collections.singleton("/queue/bar")));
+
+		broker1.handleMessage(publishMessage("sess1", "/topic/foo", "message2"));
+		broker1.handleMessage(publishMessage("sess1", "/queue/bar", "message3"));
+		assertEquals("message3", awaitMessage(transport2).getPayload());
+	}
+
+
+	private TestTransport createTransport() {
+		TestTransport transport = new TestTransport();
+		this.transports.add(transport);
+		return transport;
+	}
+
+	private SimpleBrokerMessageHandler createBroker(TestTransport transport, List<Message<?>> outbound) {
+		return createBroker(transport, outbound, 50);
+	}
+
+	private SimpleBrokerMessageHandler createBroker(
+			TestTransport transport, List<Message<?>> outbound, long gossipInterval) {
+
+		SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(
+				new ExecutorSubscribableChannel(), (message, timeout) -> outbound.add(message),
+				new ExecutorSubscribableChannel(), Collections.emptyList());
+		broker.setTaskScheduler(this.scheduler);
+		broker.setHeartbeatValue(new long[] {0, 0});
+		broker.setClusterTransport(transport);
+		broker.setClusterGossipInterval(gossipInterval);
+		broker.start();
+		this.brokers.add(broker);
+		return broker;
+	}
+
+	private static List<String> nodeIds(BrokerClusterTransport... transports) {
+		List<String> nodeIds = new ArrayList<>();
+		for (BrokerClusterTransport transport : transports) {
+			nodeIds.add(transport.getLocalNodeId());
+		}
+		return nodeIds;
+	}
+
+	private static Message<String> subscribeMessage(String sessionId, String subscriptionId, String destination) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private static Message<String> unsubscribeMessage(String sessionId, String subscriptionId) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+	}
+
+	private static Message<String> publishMessage(String sessionId, String destination, String payload) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+	}
+
+	private static void awaitSummary(TestTransport transport, Predicate<SubscriptionSummary> condition)
+			throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			Message<?> message = transport.received.poll(100, TimeUnit.MILLISECONDS);
+			if (message != null && message.getPayload() instanceof SubscriptionSummary &&
+					condition.test((SubscriptionSummary) message.getPayload())) {
+				return;
+			}
+		}
+		fail("No matching subscription summary received");
+	}
+
+	private static Message<?> awaitMessage(TestTransport transport) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			Message<?> message = transport.received.poll(100, TimeUnit.MILLISECONDS);
+			if (message != null && !(message.getPayload() instanceof SubscriptionSummary)) {
+				return message;
+			}
+		}
+		fail("No message received");
+		return null;
+	}
+
+
+	@SuppressWarnings("serial")
+	private static class TestPayload implements Serializable {
+
+		private final String value;
+
+		public TestPayload(String value) {
+			this.value = value;
+		}
+	}
+
+
+	/**
+	 * Transport recording the messages it received, after passing them on.
+	 */
+	private static class TestTransport extends SocketBrokerClusterTransport {
+
+		private final BlockingQueue<Message<?>> received = new LinkedBlockingQueue<>();
+
+		@Override
+		public void start(MessageHandler messageHandler) {
+			super.start(message -> {
+				messageHandler.handleMessage(message);
+				this.received.add(message);
+			});
+		}
+	}
+
+}
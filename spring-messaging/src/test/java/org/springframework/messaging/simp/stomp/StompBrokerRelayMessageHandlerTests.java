@@ -21,7 +21,9 @@ import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import org.junit.Before;
@@ -29,6 +31,7 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.StubMessageChannel;
@@ -220,6 +223,199 @@ public class StompBrokerRelayMessageHandlerTests {
 		assertSame(message, captor.getValue());
 	}
 
+	@Test
+	public void multiplexedClientSessions() throws Exception {
+
+		this.brokerRelay.setClientConnectionPoolSize(1);
+		this.brokerRelay.start();
+		this.brokerRelay.handleMessage(connectMessage("sess1", "joe"));
+		this.brokerRelay.handleMessage(connectMessage("sess2", "jane"));
+
+		assertEquals(2, this.tcpClient.getSentMessages().size());
+		assertEquals(StompCommand.CONNECT, this.tcpClient.getSentHeaders(1).getCommand());
+		assertEquals("guest", this.tcpClient.getSentHeaders(1).getLogin());
+		assertEquals(2, this.brokerRelay.getConnectionCount());
+		assertEquals(0, this.outboundChannel.getMessages().size());
+
+		this.tcpClient.handleMessage(message(StompCommand.CONNECTED, null, null, null));
+
+		assertEquals(2, this.outboundChannel.getMessages().size());
+		Set<String> sessionIds = new HashSet<>();
+		for (int i = 0; i < 2; i++) {
+			StompHeaderAccessor connected = getOutboundHeaders(i);
+			assertEquals(StompCommand.CONNECTED, connected.getCommand());
+			assertEquals(connected.getSessionId().equals("sess1") ? "joe" : "jane", connected.getUser().getName());
+			sessionIds.add(connected.getSessionId());
+		}
+		assertEquals(new HashSet<>(Arrays.asList("sess1", "sess2")), sessionIds);
+
+		this.brokerRelay.handleMessage(subscribeMessage("sess1", "joe", "0", "/topic/foo"));
+		this.brokerRelay.handleMessage(subscribeMessage("sess2", "jane", "0", "/topic/foo"));
+
+		assertEquals(4, this.tcpClient.getSentMessages().size());
+		String subscriptionId1 = this.tcpClient.getSentHeaders(2).getFirstNativeHeader("id");
+		String subscriptionId2 = this.tcpClient.getSentHeaders(3).getFirstNativeHeader("id");
+		assertNotEquals(subscriptionId1, subscriptionId2);
+
+		Message<byte[]> message = message(StompCommand.MESSAGE, null, null, "/topic/foo");
+		StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class).setSubscriptionId(subscriptionId2);
+		this.tcpClient.handleMessage(message);
+
+		assertEquals(3, this.outboundChannel.getMessages().size());
+		StompHeaderAccessor accessor = getOutboundHeaders(2);
+		assertEquals(StompCommand.MESSAGE, accessor.getCommand());
+		assertEquals("sess2", accessor.getSessionId());
+		assertEquals("jane", accessor.getUser().getName());
+		assertEquals("0", accessor.getSubscriptionId());
+		assertEquals("0", accessor.getFirstNativeHeader("subscription"));
+	}
+
+	@Test
+	public void multiplexedClientSessionDisconnect() throws Exception {
+
+		this.brokerRelay.setClientConnectionPoolSize(1);
+		this.brokerRelay.start();
+		this.brokerRelay.handleMessage(connectMessage("sess1", "joe"));
+		this.tcpClient.handleMessage(message(StompCommand.CONNECTED, null, null, null));
+		this.brokerRelay.handleMessage(subscribeMessage("sess1", "joe", "0", "/topic/foo"));
+		String subscriptionId = this.tcpClient.getSentHeaders(2).getFirstNativeHeader("id");
+
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+		headers.setSessionId("sess1");
+		headers.setReceipt("r1");
+		this.brokerRelay.handleMessage(MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders()));
+
+		assertEquals(4, this.tcpClient.getSentMessages().size());
+		StompHeaderAccessor unsubscribe = this.tcpClient.getSentHeaders(3);
+		assertEquals(StompCommand.UNSUBSCRIBE, unsubscribe.getCommand());
+		assertEquals(subscriptionId, unsubscribe.getFirstNativeHeader("id"));
+
+		StompHeaderAccessor receipt = getOutboundHeaders(1);
+		assertEquals(StompCommand.RECEIPT, receipt.getCommand());
+		assertEquals("r1", receipt.getReceiptId());
+		assertEquals("sess1", receipt.getSessionId());
+		assertEquals(2, this.brokerRelay.getConnectionCount());
+	}
+
+	@Test
+	public void multiplexedClientSessionsAfterConnectionClosed() throws Exception {
+
+		this.brokerRelay.setClientConnectionPoolSize(1);
+		this.brokerRelay.start();
+		this.brokerRelay.handleMessage(connectMessage("sess1", "joe"));
+		this.brokerRelay.handleMessage(connectMessage("sess2", "jane"));
+		this.tcpClient.handleMessage(message(StompCommand.CONNECTED, null, null, null));
+
+		this.tcpClient.connectionHandler.afterConnectionClosed();
+
+		assertEquals(4, this.outboundChannel.getMessages().size());
+		assertEquals(StompCommand.ERROR, getOutboundHeaders(2).getCommand());
+		assertEquals(StompCommand.ERROR, getOutboundHeaders(3).getCommand());
+		assertEquals(1, this.brokerRelay.getConnectionCount());
+
+		this.brokerRelay.handleMessage(connectMessage("sess3", "joe"));
+		assertEquals(2, this.brokerRelay.getConnectionCount());
+	}
+
+	@Test
+	public void multiplexedClientSessionAck() throws Exception {
+
+		this.brokerRelay.setClientConnectionPoolSize(1);
+		this.brokerRelay.start();
+		this.brokerRelay.handleMessage(connectMessage("sess1", "joe"));
+		this.brokerRelay.handleMessage(connectMessage("sess2", "jane"));
+		this.tcpClient.handleMessage(message(StompCommand.CONNECTED, null, null, null));
+		this.brokerRelay.handleMessage(subscribeMessage("sess1", "joe", "0", "/topic/foo"));
+		String subscriptionId = this.tcpClient.getSentHeaders(2).getFirstNativeHeader("id");
+
+		Message<byte[]> message = message(StompCommand.MESSAGE, null, null, "/topic/foo");
+		StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class).setSubscriptionId(subscriptionId);
+		StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class).setAck("a1");
+		this.tcpClient.handleMessage(message);
+		String ackId = getOutboundHeaders(2).getAck();
+		assertNotEquals("a1", ackId);
+
+		// Not the message of the other session: ignored
+		this.brokerRelay.handleMessage(ackMessage("sess2", "jane", ackId));
+		assertEquals(3, this.tcpClient.getSentMessages().size());
+
+		this.brokerRelay.handleMessage(ackMessage("sess1", "joe", ackId));
+		assertEquals(4, this.tcpClient.getSentMessages().size());
+		StompHeaderAccessor ack = this.tcpClient.getSentHeaders(3);
+		assertEquals(StompCommand.ACK, ack.getCommand());
+		assertEquals("a1", ack.getFirstNativeHeader("id"));
+		assertEquals(subscriptionId, ack.getFirstNativeHeader("subscription"));
+	}
+
+	@Test
+	public void multiplexedClientSessionsAfterBrokerError() throws Exception {
+
+		this.brokerRelay.setClientConnectionPoolSize(1);
+		this.brokerRelay.start();
+		this.brokerRelay.handleMessage(connectMessage("sess1", "joe"));
+		this.brokerRelay.handleMessage(connectMessage("sess2", "jane"));
+		this.tcpClient.handleMessage(message(StompCommand.CONNECTED, null, null, null));
+
+		Message<byte[]> error = message(StompCommand.ERROR, null, null, null);
+		StompHeaderAccessor.getAccessor(error, StompHeaderAccessor.class).setMessage("Invalid destination");
+		this.tcpClient.handleMessage(error);
+		this.tcpClient.connectionHandler.afterConnectionClosed();
+
+		assertEquals(4, this.outboundChannel.getMessages().size());
+		for (int i = 2; i < 4; i++) {
+			StompHeaderAccessor accessor = getOutboundHeaders(i);
+			assertEquals(StompCommand.ERROR, accessor.getCommand());
+			assertEquals("Invalid destination", accessor.getMessage());
+		}
+	}
+
+	@Test
+	public void forwardWhenConnectionNotWritable() throws Exception {
+
+		this.brokerRelay.setBackPressureTimeLimit(10);
+		this.brokerRelay.start();
+		this.brokerRelay.handleMessage(connectMessage("sess1", "joe"));
+		this.tcpClient.handleMessage(message(StompCommand.CONNECTED, null, null, null));
+		this.tcpClient.connection.writable = false;
+
+		try {
+			this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", "/topic/foo"));
+			fail("Expected MessageDeliveryException");
+		}
+		catch (MessageDeliveryException ex) {
+			// expected
+		}
+		assertEquals(2, this.tcpClient.getSentMessages().size());
+
+		this.tcpClient.connection.writable = true;
+		this.brokerRelay.handleMessage(message(StompCommand.SEND, "sess1", "joe", "/topic/foo"));
+		assertEquals(3, this.tcpClient.getSentMessages().size());
+	}
+
+	private StompHeaderAccessor getOutboundHeaders(int index) {
+		Message<byte[]> message = this.outboundChannel.getMessages().get(index);
+		StompHeaderAccessor accessor = StompHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+		assertNotNull(accessor);
+		return accessor;
+	}
+
+	private Message<byte[]> subscribeMessage(String sessionId, String user, String subscriptionId, String destination) {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+		headers.setSessionId(sessionId);
+		headers.setUser(new TestPrincipal(user));
+		headers.setSubscriptionId(subscriptionId);
+		headers.setDestination(destination);
+		return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+	}
+
+	private Message<byte[]> ackMessage(String sessionId, String user, String ackId) {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.ACK);
+		headers.setSessionId(sessionId);
+		headers.setUser(new TestPrincipal(user));
+		headers.setNativeHeader("id", ackId);
+		return MessageBuilder.createMessage(new byte[0], headers.getMessageHeaders());
+	}
+
 	private Message<byte[]> connectMessage(String sessionId, String user) {
 		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.CONNECT);
 		headers.setSessionId(sessionId);
@@ -315,6 +511,8 @@ public class StompBrokerRelayMessageHandlerTests {
 
 		private final List<Message<byte[]>> messages = new ArrayList<>();
 
+		private volatile boolean writable = true;
+
 
 		public List<Message<byte[]>> getMessages() {
 			return this.messages;
@@ -334,6 +532,18 @@ public class StompBrokerRelayMessageHandlerTests {
 		public void onWriteInactivity(Runnable runnable, long duration) {
 		}
 
+		@Override
+		public boolean isWritable() {
+			return this.writable;
+		}
+
+		@Override
+		public void onWritable(Runnable runnable) {
+			if (this.writable) {
+				runnable.run();
+			}
+		}
+
 		@Override
 		public void close() {
 		}
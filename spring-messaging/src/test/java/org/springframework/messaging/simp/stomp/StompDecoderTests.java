@@ -18,6 +18,7 @@ package org.springframework.messaging.simp.stomp;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.Test;
@@ -28,6 +29,7 @@ import org.springframework.util.InvalidMimeTypeException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test fixture for {@link StompDecoder}.
@@ -248,6 +250,37 @@ public class StompDecoderTests {
 		assertEquals(SimpMessageType.HEARTBEAT, StompHeaderAccessor.wrap(messages.get(0)).getMessageType());
 	}
 
+	@Test
+	public void decodeFramesFromDirectBuffer() {
+		byte[] bytes = ("SEND\ndestination:/queue/\u00e4\ncontent-type:text/plain\n\nhello\0" +
+				"SEND\ndestination:/queue/test\ncontent-length:5\n\nworld\0SEND\n").getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+
+		List<Message<byte[]>> messages = this.decoder.decode(buffer);
+
+		assertEquals(2, messages.size());
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(messages.get(0));
+		assertEquals("/queue/\u00e4", headers.getDestination());
+		assertEquals("hello", new String(messages.get(0).getPayload(), StandardCharsets.UTF_8));
+		headers = StompHeaderAccessor.wrap(messages.get(1));
+		assertEquals("/queue/test", headers.getDestination());
+		assertEquals("world", new String(messages.get(1).getPayload(), StandardCharsets.UTF_8));
+		assertEquals(bytes.length - 5, buffer.position());
+	}
+
+	@Test
+	public void decodeReusesHeaderNames() {
+		Message<byte[]> frame1 = decode("SEND\ncustom-header:a\n\n\0");
+		Message<byte[]> frame2 = decode("SEND\ncustom-header:b\n\n\0");
+
+		String name1 = StompHeaderAccessor.wrap(frame1).toNativeHeaderMap().keySet().iterator().next();
+		String name2 = StompHeaderAccessor.wrap(frame2).toNativeHeaderMap().keySet().iterator().next();
+		assertEquals("custom-header", name1);
+		assertSame(name1, name2);
+	}
+
 	private void assertIncompleteDecode(String partialFrame) {
 		ByteBuffer buffer = ByteBuffer.wrap(partialFrame.getBytes());
 		assertNull(decode(buffer));
@@ -16,8 +16,12 @@
 
 package org.springframework.messaging.simp.stomp;
 
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Test;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 
@@ -88,4 +92,20 @@ public class StompEncoderTests {
 				new String(encoder.encode(frame)));
 	}
 
+	@Test
+	public void encodeFrameIntoDataBuffer() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.SEND);
+		headers.addNativeHeader("a", "alpha");
+		Message<byte[]> frame = MessageBuilder.createMessage(
+				"Message body".getBytes(), headers.getMessageHeaders());
+
+		DataBuffer buffer = new DefaultDataBufferFactory().allocateBuffer(16);
+		encoder.encode(frame, buffer);
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+
+		assertEquals("SEND\na:alpha\ncontent-length:12\n\nMessage body\0",
+				new String(bytes, StandardCharsets.UTF_8));
+	}
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import org.springframework.messaging.Message;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link NativeHeaderMap}.
+ *
+ * @author agent
+ */
+public class NativeHeaderMapTests {
+
+	@Test
+	public void copyOfPlainMap() {
+		MultiValueMap<String, String> source = new LinkedMultiValueMap<>();
+		source.add("foo", "bar");
+		source.add("foo", "baz");
+		source.add("bar", "qux");
+		NativeHeaderMap map = new NativeHeaderMap(source);
+		assertEquals(source, map);
+		assertEquals(Arrays.asList("foo", "bar"), new ArrayList<>(map.keySet()));
+		assertEquals("bar", map.getFirst("foo"));
+
+		map.add("bar", "quux");
+		assertEquals(Arrays.asList("qux", "quux"), map.get("bar"));
+	}
+
+	@Test
+	public void copyOfFrozenMapSharesEntries() {
+		NativeHeaderMap original = new NativeHeaderMap();
+		original.set("foo", "bar");
+		original.set("bar", "baz");
+		original.freeze();
+		assertTrue(original.isFrozen());
+
+		NativeHeaderMap copy = new NativeHeaderMap(original);
+		assertSame(original.get("foo"), copy.get("foo"));
+		copy.add("foo", "qux");
+		copy.remove("bar");
+		copy.set("baz", "quux");
+
+		assertEquals(Arrays.asList("bar", "qux"), copy.get("foo"));
+		assertFalse(copy.containsKey("bar"));
+		assertEquals(2, copy.size());
+		assertEquals(Arrays.asList("foo", "baz"), new ArrayList<>(copy.keySet()));
+
+		assertEquals(Collections.singletonList("bar"), original.get("foo"));
+		assertEquals(Collections.singletonList("baz"), original.get("bar"));
+		assertFalse(original.containsKey("baz"));
+	}
+
+	@Test
+	public void removeAndAddAgain() {
+		NativeHeaderMap original = new NativeHeaderMap();
+		original.set("foo", "bar");
+		original.freeze();
+
+		NativeHeaderMap copy = new NativeHeaderMap(original);
+		copy.remove("foo");
+		assertNull(copy.get("foo"));
+		assertTrue(copy.isEmpty());
+		copy.add("foo", "baz");
+		assertEquals(Collections.singletonList("baz"), copy.get("foo"));
+	}
+
+	@Test
+	public void freezeMergesModifications() {
+		NativeHeaderMap original = new NativeHeaderMap();
+		original.set("foo", "bar");
+		original.freeze();
+
+		NativeHeaderMap copy = new NativeHeaderMap(original);
+		copy.add("baz", "qux");
+		copy.freeze();
+		assertEquals(Collections.singletonList("qux"), copy.get("baz"));
+		try {
+			copy.get("baz").add("quux");
+			fail("Expected UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+
+		NativeHeaderMap copyOfCopy = new NativeHeaderMap(copy);
+		assertEquals(copy, copyOfCopy);
+		assertSame(copy.get("baz"), copyOfCopy.get("baz"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void frozenMapIsImmutable() {
+		NativeHeaderMap map = new NativeHeaderMap();
+		map.set("foo", "bar");
+		map.freeze();
+		map.add("foo", "baz");
+	}
+
+	@Test
+	public void messageCopySharesNativeHeaders() {
+		NativeMessageHeaderAccessor accessor = new NativeMessageHeaderAccessor();
+		accessor.setNativeHeader("foo", "bar");
+		Message<String> message = MessageBuilder.createMessage("payload", accessor.getMessageHeaders());
+		@SuppressWarnings("unchecked")
+		Map<String, List<String>> nativeHeaders =
+				(Map<String, List<String>>) message.getHeaders().get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+
+		NativeMessageHeaderAccessor copyAccessor = new NativeMessageHeaderAccessor(message);
+		assertSame(nativeHeaders.get("foo"), copyAccessor.getNativeHeader("foo"));
+		copyAccessor.addNativeHeader("foo", "baz");
+		assertEquals(Arrays.asList("bar", "baz"), copyAccessor.getNativeHeader("foo"));
+		assertEquals(Collections.singletonList("bar"), nativeHeaders.get("foo"));
+	}
+
+}
@@ -17,23 +17,33 @@
 package org.springframework.transaction.interceptor;
 
 import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.CallbackPreferringPlatformTransactionManager;
+import org.springframework.transaction.support.TransactionContext;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
@@ -52,6 +62,16 @@ import org.springframework.util.StringUtils;
  * the exposed name will be the {@code fully-qualified class name + "." + method name}
  * (by default).
  *
+ * <p>Methods with a Reactive Streams return type such as {@code Mono} or
+ * {@code Flux} (with Reactor present) are demarcated on subscription and on
+ * the terminal signal of the returned publisher. The transaction remains a
+ * thread-bound one though: it is only visible to code running on the thread
+ * that subscribes to the returned publisher, typically the target method's
+ * own pipeline up to the first operator switching threads. Operators running
+ * on another {@code Scheduler}, e.g. after {@code publishOn}, do not see the
+ * transaction unless they bind the {@link TransactionContext} exposed in the
+ * Reactor {@code Context} themselves.
+ *
  * <p>Uses the <b>Strategy</b> design pattern. A {@code PlatformTransactionManager}
  * implementation will perform the actual transaction management, and a
  * {@code TransactionAttributeSource} is used for determining transaction definitions.
@@ -88,6 +108,12 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private static final ThreadLocal<TransactionInfo> transactionInfoHolder =
 			new NamedThreadLocal<>("Current aspect-driven transaction");
 
+	/**
+	 * Whether Reactor is present, enabling transactions for reactive return types.
+	 */
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Mono", TransactionAspectSupport.class.getClassLoader());
+
 
 	/**
 	 * Subclasses can use this to return the current TransactionInfo.
@@ -144,12 +170,22 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private final ConcurrentMap<Object, PlatformTransactionManager> transactionManagerCache =
 			new ConcurrentReferenceHashMap<>(4);
 
+	private final Map<Method, TransactionPlan> transactionPlanCache = new ConcurrentReferenceHashMap<>(256);
+
+	private final Map<MethodClassKey, TransactionPlan> targetSpecificTransactionPlanCache =
+			new ConcurrentReferenceHashMap<>(16);
+
+	@Nullable
+	private final ReactiveTransactionSupport reactiveTransactionSupport =
+			(reactorPresent ? new ReactiveTransactionSupport() : null);
+
 
 	/**
 	 * Specify the name of the default transaction manager bean.
 	 */
 	public void setTransactionManagerBeanName(String transactionManagerBeanName) {
 		this.transactionManagerBeanName = transactionManagerBeanName;
+		clearTransactionPlanCache();
 	}
 
 	/**
@@ -169,6 +205,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionManager(PlatformTransactionManager transactionManager) {
 		this.transactionManager = transactionManager;
+		clearTransactionPlanCache();
 	}
 
 	/**
@@ -195,6 +232,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		NameMatchTransactionAttributeSource tas = new NameMatchTransactionAttributeSource();
 		tas.setProperties(transactionAttributes);
 		this.transactionAttributeSource = tas;
+		clearTransactionPlanCache();
 	}
 
 	/**
@@ -207,6 +245,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionAttributeSources(TransactionAttributeSource... transactionAttributeSources) {
 		this.transactionAttributeSource = new CompositeTransactionAttributeSource(transactionAttributeSources);
+		clearTransactionPlanCache();
 	}
 
 	/**
@@ -220,6 +259,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionAttributeSource(TransactionAttributeSource transactionAttributeSource) {
 		this.transactionAttributeSource = transactionAttributeSource;
+		clearTransactionPlanCache();
 	}
 
 	/**
@@ -236,6 +276,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		this.beanFactory = beanFactory;
+		clearTransactionPlanCache();
 	}
 
 	/**
@@ -279,14 +320,21 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 			final InvocationCallback invocation) throws Throwable {
 
 		// If the transaction attribute is null, the method is non-transactional.
-		TransactionAttributeSource tas = getTransactionAttributeSource();
-		final TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
-		final PlatformTransactionManager tm = determineTransactionManager(txAttr);
-		final String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
+		TransactionPlan plan = getTransactionPlan(method, targetClass);
+		final TransactionAttribute txAttr = plan.transactionAttribute;
+		final PlatformTransactionManager tm = plan.transactionManager;
+		final String joinpointIdentification = plan.joinpointIdentification;
 
 		if (txAttr == null || !(tm instanceof CallbackPreferringPlatformTransactionManager)) {
+			if (plan.reactiveAdapter != null && this.reactiveTransactionSupport != null) {
+				// Reactive return type: transaction demarcation on subscription and completion.
+				return this.reactiveTransactionSupport.invokeWithinTransaction(
+						plan.reactiveAdapter, tm, plan.namedTransactionAttribute, joinpointIdentification, invocation);
+			}
+
 			// Standard transaction demarcation with getTransaction and commit/rollback calls.
-			TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
+			TransactionInfo txInfo =
+					createTransactionIfNecessary(tm, plan.namedTransactionAttribute, joinpointIdentification);
 			Object retVal = null;
 			try {
 				// This is an around advice: Invoke the next interceptor in the chain.
@@ -347,16 +395,81 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		}
 	}
 
+	/**
+	 * Return the transaction plan for the given method: its transaction attribute
+	 * along with the transaction manager to use and the joinpoint identification.
+	 * <p>Plans are cached per method and target class if the transaction attribute
+	 * source is an {@link AbstractFallbackTransactionAttributeSource}, i.e. one
+	 * which determines a fixed attribute per method and target class (and caches
+	 * it itself). Any other source gets asked on every invocation, since it may
+	 * return a different attribute depending on runtime state.
+	 * @param method the Method being invoked
+	 * @param targetClass the target class that we're invoking the method on
+	 * @return the cached or newly built TransactionPlan (never {@code null})
+	 */
+	private TransactionPlan getTransactionPlan(Method method, @Nullable Class<?> targetClass) {
+		TransactionAttributeSource tas = getTransactionAttributeSource();
+		if (!(tas instanceof AbstractFallbackTransactionAttributeSource)) {
+			return buildTransactionPlan(method, targetClass, tas);
+		}
+
+		// Fast path without key allocation: most methods are only invoked on a single target class.
+		TransactionPlan plan = this.transactionPlanCache.get(method);
+		if (plan != null && plan.targetClass == targetClass) {
+			return plan;
+		}
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		TransactionPlan targetSpecificPlan = this.targetSpecificTransactionPlanCache.get(cacheKey);
+		if (targetSpecificPlan != null) {
+			return targetSpecificPlan;
+		}
+
+		TransactionPlan newPlan = buildTransactionPlan(method, targetClass, tas);
+		if (plan == null) {
+			plan = this.transactionPlanCache.putIfAbsent(method, newPlan);
+			if (plan == null || plan.targetClass == targetClass) {
+				return (plan != null ? plan : newPlan);
+			}
+		}
+		this.targetSpecificTransactionPlanCache.put(cacheKey, newPlan);
+		return newPlan;
+	}
+
+	private TransactionPlan buildTransactionPlan(Method method, @Nullable Class<?> targetClass,
+			@Nullable TransactionAttributeSource tas) {
+
+		TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
+		PlatformTransactionManager tm = determineTransactionManager(txAttr);
+		String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
+		ReactiveAdapter reactiveAdapter = null;
+		if (txAttr != null && tm != null && this.reactiveTransactionSupport != null) {
+			reactiveAdapter = this.reactiveTransactionSupport.getAdapter(method.getReturnType());
+		}
+		return new TransactionPlan(targetClass, txAttr, tm, joinpointIdentification, reactiveAdapter);
+	}
+
+	/**
+	 * Clear the per-method transaction plans, e.g. after a configuration change.
+	 */
+	private void clearTransactionPlanCache() {
+		this.transactionPlanCache.clear();
+		this.targetSpecificTransactionPlanCache.clear();
+	}
+
 	/**
 	 * Clear the cache.
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		clearTransactionPlanCache();
 		this.beanFactory = null;
 	}
 
 	/**
 	 * Determine the specific transaction manager to use for the given transaction.
+	 * <p>As of 5.0, {@link #invokeWithinTransaction} calls this method once per
+	 * transactional method and target class, caching the result along with the
+	 * method's transaction attribute.
 	 */
 	@Nullable
 	protected PlatformTransactionManager determineTransactionManager(@Nullable TransactionAttribute txAttr) {
@@ -440,19 +553,11 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 * tell if there was a transaction created.
 	 * @see #getTransactionAttributeSource()
 	 */
-	@SuppressWarnings("serial")
 	protected TransactionInfo createTransactionIfNecessary(@Nullable PlatformTransactionManager tm,
 			@Nullable TransactionAttribute txAttr, final String joinpointIdentification) {
 
 		// If no name specified, apply method identification as transaction name.
-		if (txAttr != null && txAttr.getName() == null) {
-			txAttr = new DelegatingTransactionAttribute(txAttr) {
-				@Override
-				public String getName() {
-					return joinpointIdentification;
-				}
-			};
-		}
+		txAttr = applyTransactionName(txAttr, joinpointIdentification);
 
 		TransactionStatus status = null;
 		if (txAttr != null) {
@@ -469,6 +574,26 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return prepareTransactionInfo(tm, txAttr, joinpointIdentification, status);
 	}
 
+	/**
+	 * Apply the given joinpoint identification as transaction name,
+	 * unless the given TransactionAttribute specifies a name already.
+	 */
+	@Nullable
+	@SuppressWarnings("serial")
+	private static TransactionAttribute applyTransactionName(
+			@Nullable TransactionAttribute txAttr, final String joinpointIdentification) {
+
+		if (txAttr != null && txAttr.getName() == null) {
+			return new DelegatingTransactionAttribute(txAttr) {
+				@Override
+				public String getName() {
+					return joinpointIdentification;
+				}
+			};
+		}
+		return txAttr;
+	}
+
 	/**
 	 * Prepare a TransactionInfo for the given attribute and status object.
 	 * @param txAttr the TransactionAttribute (may be {@code null})
@@ -667,6 +792,44 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Transaction plan for a specific method and target class: the resolved
+	 * transaction attribute, transaction manager and joinpoint identification,
+	 * avoiding their repeated determination on every invocation.
+	 */
+	private static final class TransactionPlan {
+
+		@Nullable
+		final Class<?> targetClass;
+
+		@Nullable
+		final TransactionAttribute transactionAttribute;
+
+		@Nullable
+		final TransactionAttribute namedTransactionAttribute;
+
+		@Nullable
+		final PlatformTransactionManager transactionManager;
+
+		final String joinpointIdentification;
+
+		@Nullable
+		final ReactiveAdapter reactiveAdapter;
+
+		public TransactionPlan(@Nullable Class<?> targetClass, @Nullable TransactionAttribute transactionAttribute,
+				@Nullable PlatformTransactionManager transactionManager, String joinpointIdentification,
+				@Nullable ReactiveAdapter reactiveAdapter) {
+
+			this.targetClass = targetClass;
+			this.transactionAttribute = transactionAttribute;
+			this.namedTransactionAttribute = applyTransactionName(transactionAttribute, joinpointIdentification);
+			this.transactionManager = transactionManager;
+			this.joinpointIdentification = joinpointIdentification;
+			this.reactiveAdapter = reactiveAdapter;
+		}
+	}
+
+
 	/**
 	 * Simple callback interface for proceeding with the target invocation.
 	 * Concrete interceptors/aspects adapt this to their invocation mechanism.
@@ -678,6 +841,153 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Delegate for transactional methods with a Reactive Streams return type,
+	 * e.g. {@code Mono} or {@code Flux}, avoiding a hard dependency on Reactor.
+	 * <p>The transaction gets started on subscription, with the target method
+	 * invoked within the transaction, and completes according to the terminal
+	 * signal of the returned publisher (rolling back on cancellation). Since
+	 * those signals may arrive on any thread, the transaction state is captured
+	 * as a {@link TransactionContext} after the target invocation, with the
+	 * subscribing thread's previous state restored from a snapshot taken before
+	 * the transaction began (leaving any outer transaction untouched, even when
+	 * suspended for the new transaction). The context is temporarily bound to
+	 * the thread that subscribes to the target publisher and to the thread that
+	 * completes the transaction.
+	 * <p>Only the parts of the pipeline that run on the subscribing thread
+	 * participate in the transaction: operators which the target publisher
+	 * moves to another thread (e.g. through {@code publishOn} or
+	 * {@code subscribeOn}) run without it. The context is exposed in the
+	 * Reactor {@code Context} under the {@code TransactionContext.class} key,
+	 * for such operators to bind it explicitly via {@link TransactionContext#call}.
+	 */
+	private class ReactiveTransactionSupport {
+
+		private final ReactiveAdapterRegistry adapterRegistry = new ReactiveAdapterRegistry();
+
+		@Nullable
+		public ReactiveAdapter getAdapter(Class<?> returnType) {
+			return (Publisher.class.isAssignableFrom(returnType) ? this.adapterRegistry.getAdapter(returnType) : null);
+		}
+
+		public Object invokeWithinTransaction(ReactiveAdapter adapter, PlatformTransactionManager tm,
+				TransactionAttribute txAttr, String joinpointIdentification, InvocationCallback invocation) {
+
+			if (adapter.isMultiValue()) {
+				return adapter.fromPublisher(Flux.defer(() -> {
+					TransactionContext previousContext = TransactionContext.current();
+					TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
+					TransactionContext txContext;
+					Publisher<Object> source;
+					try {
+						source = proceedWithinTransaction(adapter, txInfo, invocation);
+					}
+					catch (Throwable ex) {
+						return Flux.error(ex);
+					}
+					finally {
+						txContext = TransactionContext.current();
+						previousContext.bind();
+					}
+					TransactionCompletion completion = new TransactionCompletion(txInfo, txContext);
+					return Flux.from(bindContext(source, txContext))
+							.doOnComplete(completion::commit)
+							.doOnError(completion::completeAfterThrowing)
+							.doOnCancel(completion::rollback)
+							.subscriberContext(Context.of(TransactionContext.class, txContext));
+				}));
+			}
+			else {
+				return adapter.fromPublisher(Mono.defer(() -> {
+					TransactionContext previousContext = TransactionContext.current();
+					TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
+					TransactionContext txContext;
+					Publisher<Object> source;
+					try {
+						source = proceedWithinTransaction(adapter, txInfo, invocation);
+					}
+					catch (Throwable ex) {
+						return Mono.error(ex);
+					}
+					finally {
+						txContext = TransactionContext.current();
+						previousContext.bind();
+					}
+					TransactionCompletion completion = new TransactionCompletion(txInfo, txContext);
+					return Mono.from(bindContext(source, txContext))
+							.doOnSuccess(value -> completion.commit())
+							.doOnError(completion::completeAfterThrowing)
+							.doOnCancel(completion::rollback)
+							.subscriberContext(Context.of(TransactionContext.class, txContext));
+				}));
+			}
+		}
+
+		private Publisher<Object> proceedWithinTransaction(
+				ReactiveAdapter adapter, TransactionInfo txInfo, InvocationCallback invocation) throws Throwable {
+
+			try {
+				Object retVal = invocation.proceedWithInvocation();
+				Assert.state(retVal != null, "Transactional method with reactive return type returned null");
+				return adapter.toPublisher(retVal);
+			}
+			catch (Throwable ex) {
+				completeTransactionAfterThrowing(txInfo, ex);
+				throw ex;
+			}
+			finally {
+				cleanupTransactionInfo(txInfo);
+			}
+		}
+
+		private Publisher<Object> bindContext(Publisher<Object> source, TransactionContext txContext) {
+			return subscriber -> txContext.run(() -> source.subscribe(subscriber));
+		}
+	}
+
+
+	/**
+	 * Completion callback for a reactive transaction, completing the
+	 * transaction once within its captured {@link TransactionContext}.
+	 */
+	private class TransactionCompletion {
+
+		private final TransactionInfo txInfo;
+
+		private final TransactionContext txContext;
+
+		private final AtomicBoolean completed = new AtomicBoolean();
+
+		public TransactionCompletion(TransactionInfo txInfo, TransactionContext txContext) {
+			this.txInfo = txInfo;
+			this.txContext = txContext;
+		}
+
+		public void commit() {
+			if (this.completed.compareAndSet(false, true)) {
+				this.txContext.run(() -> commitTransactionAfterReturning(this.txInfo));
+			}
+		}
+
+		public void completeAfterThrowing(Throwable ex) {
+			if (this.completed.compareAndSet(false, true)) {
+				this.txContext.run(() -> completeTransactionAfterThrowing(this.txInfo, ex));
+			}
+		}
+
+		public void rollback() {
+			if (this.completed.compareAndSet(false, true) && this.txInfo.getTransactionStatus() != null) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Rolling back transaction for [" + this.txInfo.getJoinpointIdentification() +
+							"] after cancellation");
+				}
+				this.txContext.run(() ->
+						this.txInfo.getTransactionManager().rollback(this.txInfo.getTransactionStatus()));
+			}
+		}
+	}
+
+
 	/**
 	 * Internal holder class for a Throwable, used as a return value
 	 * from a TransactionCallback (to be subsequently unwrapped again).
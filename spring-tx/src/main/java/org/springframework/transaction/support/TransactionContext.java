@@ -0,0 +1,281 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Snapshot of the transaction state that {@link TransactionSynchronizationManager}
+ * keeps for a thread: bound resources, registered synchronizations and the
+ * characteristics of the current transaction.
+ *
+ * <p>A context can be captured on one thread via {@link #current()} and bound
+ * to another thread for the execution of a specific task, e.g. via
+ * {@link #run(Runnable)} or {@link #wrap(Runnable)}, with the previous state of
+ * the executing thread restored afterwards. This allows for handing a transaction
+ * over to an executor thread or to the thread that a reactive pipeline happens
+ * to emit its signals on. See {@link TransactionContextTaskDecorator} for
+ * propagation across {@link org.springframework.core.task.TaskExecutor} calls.
+ *
+ * <p>A context holds its own copy of the resource map and the set of
+ * synchronizations: Binding a context never lets a thread modify the state of
+ * another thread or of another context. Changes applied while a context is bound
+ * through {@link #run}/{@link #call} (e.g. newly bound resources, registered
+ * synchronizations or the completion of the transaction) are recorded in the
+ * context when the task ends, for the next task to run within the context.
+ * The resources themselves (e.g. the JDBC Connection) are shared rather than
+ * copied though. A context is therefore meant for sequential hand-over of a
+ * transaction from one thread to another, not for concurrent use of the same
+ * transaction: the underlying resources are typically not thread-safe. Also,
+ * the transaction needs to remain active until the task is done, i.e. the
+ * initiating code is responsible for waiting for the task's completion before
+ * completing the transaction within the context.
+ *
+ * <p>For {@code @Transactional} methods with a {@code Mono} or {@code Flux}
+ * return type, {@link org.springframework.transaction.interceptor.TransactionInterceptor}
+ * exposes the context of the transaction in the Reactor {@code Context} of the
+ * returned publisher, under the {@code TransactionContext.class} key.
+ *
+ * @author agent
+ * @since 5.0
+ * @see TransactionSynchronizationManager
+ * @see TransactionContextTaskDecorator
+ */
+public final class TransactionContext {
+
+	private static final ThreadLocal<TransactionContext> boundContext =
+			new NamedThreadLocal<>("Bound transaction context");
+
+
+	@Nullable
+	private Map<Object, Object> resources;
+
+	@Nullable
+	private Set<TransactionSynchronization> synchronizations;
+
+	@Nullable
+	private String currentTransactionName;
+
+	@Nullable
+	private Boolean currentTransactionReadOnly;
+
+	@Nullable
+	private Integer currentTransactionIsolationLevel;
+
+	@Nullable
+	private Boolean actualTransactionActive;
+
+
+	TransactionContext(@Nullable Map<Object, Object> resources,
+			@Nullable Set<TransactionSynchronization> synchronizations, @Nullable String currentTransactionName,
+			@Nullable Boolean currentTransactionReadOnly, @Nullable Integer currentTransactionIsolationLevel,
+			@Nullable Boolean actualTransactionActive) {
+
+		this.resources = copyResources(resources);
+		this.synchronizations = copySynchronizations(synchronizations);
+		this.currentTransactionName = currentTransactionName;
+		this.currentTransactionReadOnly = currentTransactionReadOnly;
+		this.currentTransactionIsolationLevel = currentTransactionIsolationLevel;
+		this.actualTransactionActive = actualTransactionActive;
+	}
+
+
+	/**
+	 * Capture the transaction context of the current thread.
+	 * @return a snapshot of the current state (never {@code null};
+	 * possibly {@link #isEmpty() empty})
+	 */
+	public static TransactionContext current() {
+		return TransactionSynchronizationManager.captureContext();
+	}
+
+	/**
+	 * Return a new empty transaction context, i.e. one without any resources,
+	 * synchronizations or transaction characteristics.
+	 * <p>Binding this context temporarily detaches the current thread
+	 * from any transaction that it may be associated with.
+	 */
+	public static TransactionContext empty() {
+		return new TransactionContext(null, null, null, null, null, null);
+	}
+
+
+	/**
+	 * Return whether this context neither holds any resources nor
+	 * any synchronizations or transaction characteristics.
+	 */
+	public synchronized boolean isEmpty() {
+		return ((this.resources == null || this.resources.isEmpty()) && this.synchronizations == null &&
+				this.currentTransactionName == null && this.currentTransactionReadOnly == null &&
+				this.currentTransactionIsolationLevel == null && this.actualTransactionActive == null);
+	}
+
+	/**
+	 * Return whether this context holds an actual transaction.
+	 * @see TransactionSynchronizationManager#isActualTransactionActive()
+	 */
+	public synchronized boolean isActualTransactionActive() {
+		return (this.actualTransactionActive != null);
+	}
+
+	/**
+	 * Return whether transaction synchronization is active within this context.
+	 * @see TransactionSynchronizationManager#isSynchronizationActive()
+	 */
+	public synchronized boolean isSynchronizationActive() {
+		return (this.synchronizations != null);
+	}
+
+
+	/**
+	 * Bind a copy of this context to the current thread, replacing its current state.
+	 * <p>Changes applied to the thread's state afterwards are not recorded in this
+	 * context; use {@link #run(Runnable)} or {@link #call(Callable)} for that purpose.
+	 * The returned context may be bound again after use, in a {@code finally} block,
+	 * in order to restore the thread's previous state.
+	 * @return a snapshot of the previous state of the current thread
+	 * @see #run(Runnable)
+	 * @see #call(Callable)
+	 */
+	public TransactionContext bind() {
+		TransactionContext previous = TransactionSynchronizationManager.captureContext();
+		synchronized (this) {
+			TransactionSynchronizationManager.restoreContext(this.resources, this.synchronizations,
+					this.currentTransactionName, this.currentTransactionReadOnly,
+					this.currentTransactionIsolationLevel, this.actualTransactionActive);
+		}
+		return previous;
+	}
+
+	/**
+	 * Run the given task with this context bound to the current thread,
+	 * recording the changes that the task applies to the transaction state
+	 * in this context and restoring the thread's previous state afterwards.
+	 * <p>If this context is bound to the current thread already, i.e. when
+	 * called from within another task of this context, the task simply runs as-is.
+	 * @param task the task to run
+	 */
+	public void run(Runnable task) {
+		Assert.notNull(task, "Task must not be null");
+		try {
+			call(() -> {
+				task.run();
+				return null;
+			});
+		}
+		catch (RuntimeException | Error ex) {
+			throw ex;
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Call the given task with this context bound to the current thread,
+	 * recording the changes that the task applies to the transaction state
+	 * in this context and restoring the thread's previous state afterwards.
+	 * <p>If this context is bound to the current thread already, i.e. when
+	 * called from within another task of this context, the task simply gets
+	 * called as-is.
+	 * @param task the task to call
+	 * @return the result of the task
+	 * @throws Exception as thrown by the task
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		Assert.notNull(task, "Task must not be null");
+		TransactionContext outer = boundContext.get();
+		if (outer == this) {
+			return task.call();
+		}
+		TransactionContext previous = bind();
+		boundContext.set(this);
+		try {
+			return task.call();
+		}
+		finally {
+			record(TransactionSynchronizationManager.captureContext());
+			previous.bind();
+			if (outer != null) {
+				boundContext.set(outer);
+			}
+			else {
+				boundContext.remove();
+			}
+		}
+	}
+
+	/**
+	 * Wrap the given task for execution within this context,
+	 * on whatever thread the returned {@code Runnable} gets executed.
+	 * @param task the task to wrap
+	 * @return the wrapped task
+	 */
+	public Runnable wrap(Runnable task) {
+		Assert.notNull(task, "Task must not be null");
+		return () -> run(task);
+	}
+
+	/**
+	 * Wrap the given task for execution within this context,
+	 * on whatever thread the returned {@code Callable} gets executed.
+	 * @param task the task to wrap
+	 * @return the wrapped task
+	 */
+	public <T> Callable<T> wrap(Callable<T> task) {
+		Assert.notNull(task, "Task must not be null");
+		return () -> call(task);
+	}
+
+
+	private synchronized void record(TransactionContext state) {
+		this.resources = state.resources;
+		this.synchronizations = state.synchronizations;
+		this.currentTransactionName = state.currentTransactionName;
+		this.currentTransactionReadOnly = state.currentTransactionReadOnly;
+		this.currentTransactionIsolationLevel = state.currentTransactionIsolationLevel;
+		this.actualTransactionActive = state.actualTransactionActive;
+	}
+
+	@Nullable
+	static Map<Object, Object> copyResources(@Nullable Map<Object, Object> resources) {
+		return (resources != null && !resources.isEmpty() ? new HashMap<>(resources) : null);
+	}
+
+	@Nullable
+	static Set<TransactionSynchronization> copySynchronizations(
+			@Nullable Set<TransactionSynchronization> synchronizations) {
+
+		return (synchronizations != null ? new LinkedHashSet<>(synchronizations) : null);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "TransactionContext: " + (isEmpty() ? "empty" : "name [" + this.currentTransactionName +
+				"], actual transaction active [" + isActualTransactionActive() + "], resources " +
+				(this.resources != null ? this.resources.keySet() : "[]"));
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * {@link TaskDecorator} which captures the {@link TransactionContext} of the
+ * submitting thread and binds it to the executing thread for the duration
+ * of the task, e.g. for use with
+ * {@link org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor#setTaskDecorator}.
+ *
+ * <p>As a consequence, the task participates in the transaction of the
+ * submitting code, including its transactional resources. The submitting code
+ * is responsible for waiting for the task's completion before its transaction
+ * completes, and for not using the transaction concurrently in the meantime.
+ *
+ * @author agent
+ * @since 5.0
+ * @see TransactionContext#current()
+ * @see TransactionContext#wrap(Runnable)
+ */
+public class TransactionContextTaskDecorator implements TaskDecorator {
+
+	@Override
+	public Runnable decorate(Runnable runnable) {
+		TransactionContext context = TransactionContext.current();
+		return (context.isEmpty() ? runnable : context.wrap(runnable));
+	}
+
+}
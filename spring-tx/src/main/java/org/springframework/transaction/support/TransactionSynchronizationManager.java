@@ -458,6 +458,47 @@ public abstract class TransactionSynchronizationManager {
 	}
 
 
+	//-------------------------------------------------------------------------
+	// Capturing and restoring of the entire transaction context
+	//-------------------------------------------------------------------------
+
+	/**
+	 * Capture the entire transaction state of the current thread,
+	 * copying the resource map and the set of synchronizations.
+	 * @see TransactionContext#current()
+	 */
+	static TransactionContext captureContext() {
+		return new TransactionContext(resources.get(), synchronizations.get(), currentTransactionName.get(),
+				currentTransactionReadOnly.get(), currentTransactionIsolationLevel.get(), actualTransactionActive.get());
+	}
+
+	/**
+	 * Replace the entire transaction state of the current thread with the given
+	 * state, binding copies of the given resource map and set of synchronizations.
+	 * @see TransactionContext#bind()
+	 */
+	static void restoreContext(@Nullable Map<Object, Object> resourceMap,
+			@Nullable Set<TransactionSynchronization> synchs, @Nullable String name,
+			@Nullable Boolean readOnly, @Nullable Integer isolationLevel, @Nullable Boolean active) {
+
+		setOrRemove(resources, TransactionContext.copyResources(resourceMap));
+		setOrRemove(synchronizations, TransactionContext.copySynchronizations(synchs));
+		setOrRemove(currentTransactionName, name);
+		setOrRemove(currentTransactionReadOnly, readOnly);
+		setOrRemove(currentTransactionIsolationLevel, isolationLevel);
+		setOrRemove(actualTransactionActive, active);
+	}
+
+	private static <T> void setOrRemove(ThreadLocal<T> threadLocal, @Nullable T value) {
+		if (value != null) {
+			threadLocal.set(value);
+		}
+		else {
+			threadLocal.remove();
+		}
+	}
+
+
 	/**
 	 * Clear the entire transaction synchronization state for the current thread:
 	 * registered synchronizations as well as the various transaction characteristics.
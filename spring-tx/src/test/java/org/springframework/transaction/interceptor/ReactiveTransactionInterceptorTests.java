@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.interceptor;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.tests.transaction.CallCountingTransactionManager;
+import org.springframework.transaction.support.TransactionContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TransactionInterceptor} with reactive return types.
+ *
+ * @author agent
+ */
+public class ReactiveTransactionInterceptorTests {
+
+	private final CallCountingTransactionManager tm = new CallCountingTransactionManager();
+
+	private ReactiveService service;
+
+
+	@Before
+	public void setup() {
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(this.tm);
+		ti.setTransactionAttributeSource(new MatchAlwaysTransactionAttributeSource());
+		ProxyFactory pf = new ProxyFactory(new DefaultReactiveService());
+		pf.addAdvice(ti);
+		this.service = (ReactiveService) pf.getProxy();
+	}
+
+	@After
+	public void verifyTransactionSynchronizationManagerState() {
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+	}
+
+
+	@Test
+	public void monoCommitsOnSuccess() {
+		Mono<Boolean> result = this.service.isActualTransactionActive();
+		assertEquals(0, this.tm.begun);
+
+		assertTrue(result.block());
+		assertEquals(1, this.tm.begun);
+		assertEquals(1, this.tm.commits);
+		assertEquals(0, this.tm.rollbacks);
+	}
+
+	@Test
+	public void monoRollsBackOnError() {
+		try {
+			this.service.failure().block();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		assertEquals(1, this.tm.begun);
+		assertEquals(0, this.tm.commits);
+		assertEquals(1, this.tm.rollbacks);
+	}
+
+	@Test
+	public void fluxCommitsOnCompletion() {
+		assertEquals(Arrays.asList("a", "b", "c"), this.service.names().collectList().block());
+		assertEquals(1, this.tm.begun);
+		assertEquals(1, this.tm.commits);
+		assertEquals(0, this.tm.rollbacks);
+	}
+
+	@Test
+	public void fluxRollsBackOnCancel() {
+		assertEquals("a", this.service.names().blockFirst());
+		assertEquals(1, this.tm.begun);
+		assertEquals(0, this.tm.commits);
+		assertEquals(1, this.tm.rollbacks);
+	}
+
+	@Test
+	public void transactionContextExposedInReactorContext() {
+		List<Object> result = this.service.transactionContext().collectList().block();
+		assertEquals(1, result.size());
+		assertTrue(((TransactionContext) result.get(0)).isActualTransactionActive());
+		assertEquals(1, this.tm.commits);
+	}
+
+	@Test
+	public void transactionNotVisibleAfterPublishOn() {
+		assertFalse(this.service.isActualTransactionActiveAfterPublishOn().block());
+		assertEquals(1, this.tm.begun);
+		assertEquals(1, this.tm.commits);
+	}
+
+	@Test
+	public void transactionContextBoundAfterPublishOn() {
+		assertTrue(this.service.isActualTransactionActiveWithinContextAfterPublishOn().block());
+		assertEquals(1, this.tm.begun);
+		assertEquals(1, this.tm.commits);
+	}
+
+
+	public interface ReactiveService {
+
+		Mono<Boolean> isActualTransactionActive();
+
+		Mono<String> failure();
+
+		Flux<String> names();
+
+		Flux<Object> transactionContext();
+
+		Mono<Boolean> isActualTransactionActiveAfterPublishOn();
+
+		Mono<Boolean> isActualTransactionActiveWithinContextAfterPublishOn();
+	}
+
+
+	public static class DefaultReactiveService implements ReactiveService {
+
+		@Override
+		public Mono<Boolean> isActualTransactionActive() {
+			return Mono.fromCallable(TransactionSynchronizationManager::isActualTransactionActive);
+		}
+
+		@Override
+		public Mono<String> failure() {
+			return Mono.error(new IllegalStateException());
+		}
+
+		@Override
+		public Flux<String> names() {
+			return Flux.just("a", "b", "c");
+		}
+
+		@Override
+		public Flux<Object> transactionContext() {
+			return Flux.from(Mono.subscriberContext().map(context -> context.get(TransactionContext.class)));
+		}
+
+		@Override
+		public Mono<Boolean> isActualTransactionActiveAfterPublishOn() {
+			return Mono.just("a").publishOn(Schedulers.single())
+					.map(value -> TransactionSynchronizationManager.isActualTransactionActive());
+		}
+
+		@Override
+		public Mono<Boolean> isActualTransactionActiveWithinContextAfterPublishOn() {
+			return Mono.just("a").publishOn(Schedulers.single())
+					.flatMap(value -> Mono.subscriberContext())
+					.flatMap(context -> Mono.fromCallable(() -> context.<TransactionContext>get(TransactionContext.class)
+							.call(TransactionSynchronizationManager::isActualTransactionActive)));
+		}
+	}
+
+}
@@ -17,7 +17,9 @@
 package org.springframework.transaction.interceptor;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -27,6 +29,9 @@ import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.lang.Nullable;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.tests.transaction.CallCountingTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionException;
@@ -121,6 +126,68 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 		assertTrue(ctas.getTransactionAttributeSources()[1] instanceof NameMatchTransactionAttributeSource);
 	}
 
+	@Test
+	public void transactionAttributeDeterminedOncePerMethod() throws Exception {
+		AtomicInteger lookups = new AtomicInteger();
+		MapTransactionAttributeSource tas = new MapTransactionAttributeSource() {
+			@Override
+			public TransactionAttribute getTransactionAttribute(Method method, @Nullable Class<?> targetClass) {
+				lookups.incrementAndGet();
+				return super.getTransactionAttribute(method, targetClass);
+			}
+		};
+		tas.register(ITestBean.class.getMethod("getName"), new DefaultTransactionAttribute());
+		tas.register(ITestBean.class.getMethod("getAge"), new DefaultTransactionAttribute());
+		CallCountingTransactionManager ptm = new CallCountingTransactionManager();
+		ITestBean itb = (ITestBean) advised(new TestBean(), ptm, tas);
+
+		itb.getName();
+		itb.getName();
+		itb.getAge();
+		assertEquals(2, lookups.get());
+		assertEquals(3, ptm.begun);
+		assertEquals(3, ptm.commits);
+		assertEquals(TestBean.class.getName() + ".getAge", ptm.lastDefinition.getName());
+	}
+
+	@Test
+	public void transactionAttributeDeterminedPerInvocationWithCustomSource() {
+		AtomicInteger lookups = new AtomicInteger();
+		TransactionAttributeSource tas = (method, targetClass) ->
+				(lookups.incrementAndGet() % 2 == 1 ? new DefaultTransactionAttribute() : null);
+		CallCountingTransactionManager ptm = new CallCountingTransactionManager();
+		ITestBean itb = (ITestBean) advised(new TestBean(), ptm, tas);
+
+		itb.getName();
+		itb.getName();
+		itb.getName();
+		assertEquals(3, lookups.get());
+		assertEquals(2, ptm.begun);
+		assertEquals(2, ptm.commits);
+	}
+
+	@Test
+	public void transactionManagerChangeAppliesToSubsequentInvocations() throws Exception {
+		Method getNameMethod = ITestBean.class.getMethod("getName");
+		MapTransactionAttributeSource tas = new MapTransactionAttributeSource();
+		tas.register(getNameMethod, new DefaultTransactionAttribute());
+		CallCountingTransactionManager ptm = new CallCountingTransactionManager();
+		CallCountingTransactionManager ptm2 = new CallCountingTransactionManager();
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(ptm);
+		ti.setTransactionAttributeSource(tas);
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(ti);
+		ITestBean itb = (ITestBean) pf.getProxy();
+
+		itb.getName();
+		ti.setTransactionManager(ptm2);
+		itb.getName();
+		assertEquals(1, ptm.commits);
+		assertEquals(1, ptm2.commits);
+	}
+
 	@Test
 	public void determineTransactionManagerWithNoBeanFactory() {
 		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
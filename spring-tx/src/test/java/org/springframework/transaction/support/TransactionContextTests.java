@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.tests.transaction.CallCountingTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class TransactionContextTests {
+
+	@After
+	public void verifyTransactionSynchronizationManagerState() {
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+	}
+
+
+	@Test
+	public void emptyContext() {
+		TransactionContext context = TransactionContext.current();
+		assertTrue(context.isEmpty());
+		assertFalse(context.isActualTransactionActive());
+		assertFalse(context.isSynchronizationActive());
+	}
+
+	@Test
+	public void bindAndRestore() {
+		TransactionSynchronizationManager.bindResource("key", "value");
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setCurrentTransactionName("tx");
+		TransactionContext context = TransactionContext.current();
+		assertFalse(context.isEmpty());
+		assertTrue(context.isSynchronizationActive());
+
+		TransactionContext previous = TransactionContext.empty().bind();
+		assertNull(TransactionSynchronizationManager.getResource("key"));
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		assertNull(TransactionSynchronizationManager.getCurrentTransactionName());
+
+		previous.bind();
+		assertEquals("value", TransactionSynchronizationManager.getResource("key"));
+		assertTrue(TransactionSynchronizationManager.isSynchronizationActive());
+		assertEquals("tx", TransactionSynchronizationManager.getCurrentTransactionName());
+
+		TransactionSynchronizationManager.unbindResource("key");
+		TransactionSynchronizationManager.clear();
+	}
+
+	@Test
+	public void runOnOtherThread() throws Exception {
+		CallCountingTransactionManager tm = new CallCountingTransactionManager();
+		TransactionStatus status = tm.getTransaction(new DefaultTransactionDefinition());
+		TransactionSynchronizationManager.bindResource("key", "value");
+		AtomicReference<Object> resource = new AtomicReference<>();
+		AtomicReference<Boolean> actualTransactionActive = new AtomicReference<>();
+
+		TransactionContext context = TransactionContext.current();
+		TransactionContext.empty().bind();
+
+		Thread thread = new Thread(context.wrap(() -> {
+			resource.set(TransactionSynchronizationManager.getResource("key"));
+			actualTransactionActive.set(TransactionSynchronizationManager.isActualTransactionActive());
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResource("key");
+				}
+			});
+		}));
+		thread.start();
+		thread.join();
+
+		assertEquals("value", resource.get());
+		assertTrue(actualTransactionActive.get());
+		assertEquals(1, context.call(TransactionSynchronizationManager::getSynchronizations).size());
+		context.run(() -> tm.commit(status));
+		assertEquals(1, tm.commits);
+		assertFalse(context.isActualTransactionActive());
+		assertTrue(context.isEmpty());
+	}
+
+	@Test
+	public void capturedContextIsolatedFromThreadState() throws Exception {
+		TransactionSynchronizationManager.bindResource("key", "value");
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionContext context = TransactionContext.current();
+
+		TransactionSynchronizationManager.unbindResource("key");
+		TransactionSynchronizationManager.bindResource("otherKey", "otherValue");
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {});
+		assertEquals("value", context.call(() -> TransactionSynchronizationManager.getResource("key")));
+		assertNull(context.call(() -> TransactionSynchronizationManager.getResource("otherKey")));
+		assertTrue(context.call(TransactionSynchronizationManager::getSynchronizations).isEmpty());
+
+		context.run(() -> TransactionSynchronizationManager.bindResource("newKey", "newValue"));
+		assertNull(TransactionSynchronizationManager.getResource("newKey"));
+		assertEquals("newValue", context.call(() -> TransactionSynchronizationManager.getResource("newKey")));
+		assertEquals("otherValue", TransactionSynchronizationManager.unbindResource("otherKey"));
+		assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+		TransactionSynchronizationManager.clear();
+	}
+
+	@Test
+	public void callRestoresPreviousContext() throws Exception {
+		AtomicReference<TransactionContext> context = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			TransactionSynchronizationManager.bindResource("key", "value");
+			context.set(TransactionContext.current());
+		});
+		thread.start();
+		thread.join();
+
+		TransactionSynchronizationManager.bindResource("otherKey", "otherValue");
+		assertEquals("value", context.get().call(() -> TransactionSynchronizationManager.getResource("key")));
+		assertNull(context.get().call(() -> TransactionSynchronizationManager.getResource("otherKey")));
+		assertNull(TransactionSynchronizationManager.getResource("key"));
+		assertEquals("otherValue", TransactionSynchronizationManager.unbindResource("otherKey"));
+	}
+
+	@Test
+	public void taskDecorator() throws Exception {
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		AtomicReference<Boolean> readOnly = new AtomicReference<>();
+
+		Thread thread = new Thread(new TransactionContextTaskDecorator().decorate(
+				() -> readOnly.set(TransactionSynchronizationManager.isCurrentTransactionReadOnly())));
+		TransactionSynchronizationManager.clear();
+		thread.start();
+		thread.join();
+
+		assertTrue(readOnly.get());
+	}
+
+}